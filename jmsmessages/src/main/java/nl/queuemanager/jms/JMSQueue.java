@@ -34,4 +34,32 @@ public interface JMSQueue extends JMSDestination, Queue {
 	 * The total size of all messages on the queue.
 	 */
 	public long getMessageSize();
+	
+	/**
+	 * The number of messages ever sent to the queue. -1 for unknown.
+	 */
+	default public long getEnqueueCount() {
+		return -1;
+	}
+	
+	/**
+	 * The number of messages ever removed from the queue. -1 for unknown.
+	 */
+	default public long getDequeueCount() {
+		return -1;
+	}
+	
+	/**
+	 * The number of consumers currently connected to the queue. -1 for unknown.
+	 */
+	default public long getConsumerCount() {
+		return -1;
+	}
+	
+	/**
+	 * The amount of broker memory (in bytes) used by the messages on the queue. -1 for unknown.
+	 */
+	default public long getMemoryUsage() {
+		return -1;
+	}
 }
@@ -26,6 +26,10 @@ public class DestinationFactory {
 		return new JMSQueueImpl(broker, name);
 	}
 	
+	public static JMSQueue createQueue(JMSBroker broker, String name, int messageCount) {
+		return new JMSQueueImpl(broker, name, messageCount);
+	}
+	
 	public static JMSTopic createTopic(JMSBroker broker, String name) {
 		return new JMSTopicImpl(broker, name);
 	}
@@ -16,6 +16,7 @@
 package nl.queuemanager.jms.impl;
 
 import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
 import javax.jms.MessageNotReadableException;
 import javax.jms.MessageNotWriteableException;
 import javax.jms.StreamMessage;
@@ -110,6 +111,8 @@ class JMSStreamMessage extends JMSMessage implements StreamMessage, Serializable
 		checkReadable();
 		try {
 			return oin.readObject();
+		} catch (EOFException e) {
+			throw new MessageEOFException(e.toString());
 		} catch (IOException e) {
 			throw new JMSException(e.toString());
 		} catch (ClassNotFoundException e) {
@@ -145,6 +148,25 @@ class JMSStreamMessage extends JMSMessage implements StreamMessage, Serializable
 		}
 	}
 
+	/**
+	 * The streams are transient, a deserialized message is put in read-only mode
+	 * when it has a body.
+	 */
+	private Object readResolve() throws ObjectStreamException {
+		if(body == null) {
+			clearBody();
+			return this;
+		}
+
+		try {
+			bin = new ByteArrayInputStream(body);
+			oin = new ObjectInputStream(bin);
+		} catch (IOException e) {
+			throw new InvalidObjectException(e.toString());
+		}
+		return this;
+	}
+
 	public void writeBoolean(boolean arg0) throws JMSException {
 		writeObject(arg0);
 	}
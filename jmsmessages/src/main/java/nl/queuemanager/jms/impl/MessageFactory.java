@@ -154,6 +154,21 @@ public class MessageFactory {
 		return out;
 	}
 
+	/**
+	 * Copy only the headers and properties of a {@link javax.jms.Message} into a new
+	 * message without a body. 
+	 * 
+	 * @param in
+	 * @return
+	 * @throws JMSException
+	 */
+	public static Message copyHeadersOnly(javax.jms.Message in) throws JMSException {
+		Message out = createMessage();
+		copyHeaders(in, out);
+		copyProperties(in, out);
+		return out;
+	}
+
 	public static void copyHeaders(javax.jms.Message in, Message out)
 			throws JMSException {
 		// Now copy the default JMS headers
@@ -19,7 +19,12 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.JMSException;
+import javax.jms.MessageEOFException;
 import javax.jms.StreamMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 
 import static org.junit.Assert.assertEquals;
 
@@ -122,4 +127,29 @@ public class TestJMSStreamMessage {
 		
 		assertEquals(in.length, j);
 	}
+	
+	@Test(expected = MessageEOFException.class)
+	public void testReadPastEndOfStream() throws JMSException {
+		msg.writeInt(1);
+		msg.reset();
+		assertEquals(1, msg.readInt());
+		msg.readInt();
+	}
+	
+	@Test
+	public void testReadAfterDeserialization() throws Exception {
+		msg.writeString("UTF string");
+		msg.writeInt(3);
+		msg.reset();
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(msg);
+		out.close();
+		StreamMessage copy = (StreamMessage)new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		
+		assertEquals("UTF string", copy.readString());
+		assertEquals(3, copy.readInt());
+	}
 }
@@ -15,6 +15,7 @@
  */
 package nl.queuemanager.activemq;
 
+import nl.queuemanager.core.jms.SessionPool;
 import nl.queuemanager.core.util.CollectionFactory;
 import nl.queuemanager.jms.JMSDestination;
 
@@ -33,17 +34,24 @@ class ActiveMQConnection {
 	private final Session syncSession;
 	private final Session asyncSession;
 	
+	/**
+	 * Sessions for tasks that may run concurrently with other tasks for this broker,
+	 * such as browsing queues.
+	 */
+	private final SessionPool sessionPool;
+	
 	/**
 	 * Contains message producers for this broker, to prevent recreating them
 	 * each time a message needs to be sent.
 	 */
 	private final Map<JMSDestination, MessageProducer> messageProducers;
 	
-	public ActiveMQConnection(ActiveMQBroker broker, Connection connection, Session syncSession, Session asyncSession) {
+	public ActiveMQConnection(ActiveMQBroker broker, Connection connection, Session syncSession, Session asyncSession) throws JMSException {
 		this.broker = broker;
 		this.connection = connection;
 		this.syncSession = syncSession;
 		this.asyncSession = asyncSession;
+		this.sessionPool = new SessionPool(connection, syncSession.getAcknowledgeMode());
 		
 		this.messageProducers = CollectionFactory.newHashMap();
 	}
@@ -133,6 +141,13 @@ class ActiveMQConnection {
 		return syncSession;
 	}	
 	
+	/**
+	 * @return the pool of sessions for concurrent tasks
+	 */
+	public SessionPool getSessionPool() {
+		return sessionPool;
+	}
+	
 	/**
 	 * @return the synchronous session
 	 */
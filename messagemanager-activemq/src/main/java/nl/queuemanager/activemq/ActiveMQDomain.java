@@ -8,6 +8,10 @@ import nl.queuemanager.core.jms.DomainEvent;
 import nl.queuemanager.core.jms.DomainEvent.EVENT;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
+import nl.queuemanager.core.jms.MessageSender;
+import nl.queuemanager.core.jms.MessageSelectors;
+import nl.queuemanager.core.jms.QueueBrowserEnumeration;
+import nl.queuemanager.core.jms.SessionPool;
 import nl.queuemanager.core.util.CollectionFactory;
 import nl.queuemanager.core.util.Credentials;
 import nl.queuemanager.jms.JMSBroker;
@@ -29,6 +33,12 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,10 +47,29 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 
 	private final Logger log = Logger.getLogger(getClass().getName());
 
+	/**
+	 * Queue attributes retrieved in a single round trip for every queue.
+	 */
+	private static final String[] QUEUE_ATTRIBUTES = {
+		"QueueSize", "EnqueueCount", "DequeueCount", "ConsumerCount", "MemoryUsageByteCount"};
+	
+	/**
+	 * The number of queues for which one thread retrieves the statistics in one go, and the 
+	 * maximum number of threads to use for retrieving queue statistics.
+	 */
+	static final int QUEUE_STATISTICS_BATCH_SIZE = 100;
+	private static final int QUEUE_STATISTICS_THREADS = 8;
+
 	private JMXConnector connector;
 
 	private MBeanServerConnection mbeanServer;
 	
+	/**
+	 * Retrieves queue statistics while connected. Idle threads time out, so the pool 
+	 * costs nothing between refreshes.
+	 */
+	private ThreadPoolExecutor statisticsPool;
+	
 	private Map<ActiveMQBroker, ActiveMQConnection> brokerConnections;
 
 	private final CoreConfiguration config;
@@ -62,16 +91,49 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 		environment.put (JMXConnector.CREDENTIALS, credentials);
 
 		connector = JMXConnectorFactory.connect(url,environment);
-		mbeanServer = connector.getMBeanServerConnection();
+		connect(connector.getMBeanServerConnection());
+	}
+	
+	/**
+	 * Start using a connection to the MBean server.
+	 */
+	void connect(MBeanServerConnection mbeanServer) {
+		this.mbeanServer = mbeanServer;
 		brokerConnections = CollectionFactory.newHashMap();
 		
+		if(statisticsPool != null) {
+			statisticsPool.shutdownNow();
+		}
+		statisticsPool = new ThreadPoolExecutor(
+				QUEUE_STATISTICS_THREADS, QUEUE_STATISTICS_THREADS, 
+				60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "ActiveMQ queue statistics");
+					thread.setDaemon(true);
+					return thread;
+				});
+		statisticsPool.allowCoreThreadTimeOut(true);
+		
 		dispatchEvent(new DomainEvent(EVENT.JMX_CONNECT, null, this));
 	}
 	
 	public void disconnect() throws IOException {
+		if(brokerConnections != null) {
+			for(ActiveMQConnection connection: brokerConnections.values()) {
+				connection.getSessionPool().close();
+			}
+		}
+		
+		if(statisticsPool != null) {
+			statisticsPool.shutdownNow();
+			statisticsPool = null;
+		}
+		
 		mbeanServer = null;
-		connector.close();
-		connector = null;
+		if(connector != null) {
+			connector.close();
+			connector = null;
+		}
 		brokerConnections = null;
 	}
 
@@ -195,21 +257,81 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 	}
 
 	public List<JMSQueue> getQueueList(JMSBroker broker, String filter) throws Exception {
-		ActiveMQBroker b = (ActiveMQBroker)broker;
+		final ActiveMQBroker b = (ActiveMQBroker)broker;
+		final MBeanServerConnection mbeanServer = this.mbeanServer;
+		final ExecutorService pool = this.statisticsPool;
 		List<JMSQueue> queues = new ArrayList<JMSQueue>();
 
+		final List<ObjectName> names;
 		try {
 			log.fine(String.format("Enumerating queues on %s with filter %s", broker, filter));
-			Set<ObjectName> names = mbeanServer.queryNames(new ObjectName(b.getObjectName() + ",destinationType=Queue,destinationName=*"), null);
-			for(ObjectName name: names) {
-				log.fine(String.format("Getting queue size for %s", name));
-				Long queueSize = (Long)mbeanServer.getAttribute(name, "QueueSize");
-				queues.add(new ActiveMQQueue(b, name, queueSize));
-			}
+			names = new ArrayList<ObjectName>(mbeanServer.queryNames(new ObjectName(b.getObjectName() + ",destinationType=Queue,destinationName=*"), null));
 		} catch (MalformedObjectNameException e) {
 			throw new RuntimeException(e);
 		}
 		
+		// Every queue costs a JMX round trip. Spread the queues over a few threads so a 
+		// remote broker with thousands of queues doesn't take minutes to refresh.
+		if(names.size() <= QUEUE_STATISTICS_BATCH_SIZE || pool == null) {
+			return getQueueStatistics(mbeanServer, b, names);
+		}
+		
+		List<Future<List<JMSQueue>>> results = new ArrayList<>();
+		try {
+			for(int i = 0; i < names.size(); i += QUEUE_STATISTICS_BATCH_SIZE) {
+				final List<ObjectName> batch = names.subList(i, Math.min(names.size(), i + QUEUE_STATISTICS_BATCH_SIZE));
+				results.add(pool.submit(() -> getQueueStatistics(mbeanServer, b, batch)));
+			}
+			for(Future<List<JMSQueue>> result: results) {
+				try {
+					queues.addAll(result.get());
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof Exception) {
+						throw (Exception)e.getCause();
+					}
+					throw e;
+				}
+			}
+		} finally {
+			// Don't leave the pool busy with a refresh that failed
+			for(Future<List<JMSQueue>> result: results) {
+				result.cancel(true);
+			}
+		}
+		
+		return queues;
+	}
+	
+	/**
+	 * Retrieve the statistics for a list of queues, using a single getAttributes() call per queue.
+	 * Queues that were removed since their names were retrieved are skipped.
+	 */
+	private List<JMSQueue> getQueueStatistics(MBeanServerConnection mbeanServer, ActiveMQBroker broker, List<ObjectName> names) throws JMException, IOException {
+		List<JMSQueue> queues = new ArrayList<JMSQueue>(names.size());
+		for(ObjectName name: names) {
+			log.finest(String.format("Getting queue statistics for %s", name));
+			
+			final AttributeList attributes;
+			try {
+				attributes = mbeanServer.getAttributes(name, QUEUE_ATTRIBUTES);
+			} catch (InstanceNotFoundException e) {
+				continue;
+			}
+			
+			Map<String, Long> values = new HashMap<String, Long>();
+			for(Attribute attribute: attributes.asList()) {
+				if(attribute.getValue() instanceof Number) {
+					values.put(attribute.getName(), ((Number)attribute.getValue()).longValue());
+				}
+			}
+			
+			queues.add(new ActiveMQQueue(broker, name, 
+					values.getOrDefault("QueueSize", -1L),
+					values.getOrDefault("EnqueueCount", -1L),
+					values.getOrDefault("DequeueCount", -1L),
+					values.getOrDefault("ConsumerCount", -1L),
+					values.getOrDefault("MemoryUsageByteCount", -1L)));
+		}
 		return queues;
 	}
 	
@@ -221,17 +343,41 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 		return DestinationFactory.createQueue(broker, queueName);
 	}
 
-	@SuppressWarnings("unchecked")
 	public Enumeration<Message> enumerateMessages(JMSQueue queue) throws Exception {
-		QueueBrowser browser = createQueueBrowser((ActiveMQQueue)queue);
-		return browser.getEnumeration();
+		return createQueueBrowser(queue, null);
 	}
 
-	private QueueBrowser createQueueBrowser(JMSQueue queue) throws JMSException {
+	@Override
+	public Enumeration<Message> enumerateMessages(JMSQueue queue, String selector) throws Exception {
+		return createQueueBrowser(queue, selector == null || selector.trim().isEmpty() ? null : selector);
+	}
+
+	@Override
+	public Message getMessage(JMSQueue queue, String messageID) throws Exception {
+		QueueBrowserEnumeration e = createQueueBrowser(queue, MessageSelectors.messageID(messageID));
+		try {
+			return e.hasMoreElements() ? e.nextElement() : null;
+		} finally {
+			e.close();
+		}
+	}
+
+	/**
+	 * Create a browser on a session from the session pool of the broker, so multiple
+	 * queues can be browsed concurrently. 
+	 */
+	private QueueBrowserEnumeration createQueueBrowser(JMSQueue queue, String selector) throws JMSException {
 		ActiveMQConnection connection = brokerConnections.get(queue.getBroker());
-		Session session = connection.getSyncSession();
+		SessionPool pool = connection.getSessionPool();
+		Session session = pool.borrow();
 		
-		return session.createBrowser(session.createQueue(queue.getName()));
+		try {
+			return new QueueBrowserEnumeration(pool, session, 
+					session.createBrowser(session.createQueue(queue.getName()), selector));
+		} catch (JMSException e) {
+			pool.release(session);
+			throw e;
+		}
 	}
 	
 	/**
@@ -266,12 +412,52 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 		producer.send(jmsMessage, jmsMessage.getJMSDeliveryMode(), jmsMessage.getJMSPriority(), timetolive);
 	}
 
+	@Override
+	public MessageSender createSender(JMSDestination destination, int commitSize, boolean async) throws JMSException {
+		ActiveMQConnection connection = brokerConnections.get(destination.getBroker());
+		return new ActiveMQMessageSender(connection.getConnection(), destination, commitSize, async);
+	}
+
 	public void forwardMessage(JMSQueue from, JMSDestination to, String messageID) throws Exception {
-		mbeanServer.invoke(
+		moveMessage(from, to, messageID);
+	}
+	
+	private boolean moveMessage(JMSQueue from, JMSDestination to, String messageID) throws Exception {
+		return Boolean.TRUE.equals(mbeanServer.invoke(
 				((ActiveMQQueue) from).getObjectName(), 
 				"moveMessageTo", 
 				new Object[] {messageID, to.getName()}, 
-				new String[] {String.class.getName(), String.class.getName()});
+				new String[] {String.class.getName(), String.class.getName()}));
+	}
+
+	@Override
+	public void forwardMessages(JMSQueue from, JMSDestination to, List<String> messageIDs) throws Exception {
+		if(messageIDs.isEmpty())
+			return;
+		
+		if(messageIDs.size() == 1) {
+			forwardMessage(from, to, messageIDs.get(0));
+			return;
+		}
+		
+		int moved = count(mbeanServer.invoke(
+				((ActiveMQQueue) from).getObjectName(), 
+				"moveMatchingMessagesTo", 
+				new Object[] {MessageSelectors.messageIDs(messageIDs), to.getName()}, 
+				new String[] {String.class.getName(), String.class.getName()}));
+		
+		if(moved != messageIDs.size()) {
+			// The selector did not match every message. Move them one by one, the ones
+			// that were already moved are simply no longer found.
+			for(String messageID: messageIDs) {
+				if(moveMessage(from, to, messageID)) {
+					moved++;
+				}
+			}
+			if(moved != messageIDs.size()) {
+				log.warning(String.format("Moved %d of %d messages from %s to %s", moved, messageIDs.size(), from, to));
+			}
+		}
 	}
 
 	public void deleteMessages(List<JMSQueue> queueList) throws Exception {
@@ -281,15 +467,51 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 	}
 
 	public void deleteMessages(JMSQueue queue, List<Message> messages) throws Exception {
+		if(messages.isEmpty())
+			return;
+		
+		if(messages.size() == 1) {
+			removeMessage(queue, messages.get(0).getJMSMessageID());
+			return;
+		}
+		
+		List<String> messageIDs = new ArrayList<String>(messages.size());
 		for(Message message: messages) {
-			mbeanServer.invoke(
-					((ActiveMQQueue) queue).getObjectName(), 
-					"removeMessage", 
-					new Object[] {message.getJMSMessageID()}, 
-					new String[] {String.class.getName()});
+			messageIDs.add(message.getJMSMessageID());
+		}
+		
+		int removed = count(mbeanServer.invoke(
+				((ActiveMQQueue) queue).getObjectName(), 
+				"removeMatchingMessages", 
+				new Object[] {MessageSelectors.messageIDs(messageIDs)}, 
+				new String[] {String.class.getName()}));
+		
+		if(removed != messageIDs.size()) {
+			// The selector did not match every message. Remove them one by one, the ones
+			// that were already removed are simply no longer found.
+			for(String messageID: messageIDs) {
+				if(removeMessage(queue, messageID)) {
+					removed++;
+				}
+			}
+			if(removed != messageIDs.size()) {
+				log.warning(String.format("Deleted %d of %d messages from %s", removed, messageIDs.size(), queue));
+			}
 		}
 	}
 	
+	private boolean removeMessage(JMSQueue queue, String messageID) throws Exception {
+		return Boolean.TRUE.equals(mbeanServer.invoke(
+				((ActiveMQQueue) queue).getObjectName(), 
+				"removeMessage", 
+				new Object[] {messageID}, 
+				new String[] {String.class.getName()}));
+	}
+	
+	private static int count(Object result) {
+		return result instanceof Number ? ((Number)result).intValue() : 0;
+	}
+	
 	@Override
 	public Credentials getCredentials(JMSBroker broker, Credentials def, Exception exception) {
 		BrokerCredentialsDialog dialog = null;
@@ -417,6 +639,8 @@ public class ActiveMQDomain extends AbstractEventSource<DomainEvent> implements
 		case TOPIC_SUBSCRIBER_CREATION:
 		case DESTINATION_TYPE_QUEUE:
 		case DESTINATION_TYPE_TOPIC:
+		case QUEUE_STATISTICS:
+		case QUEUE_BROWSE_SELECTOR:
 			return true;
 		default:
 			return false;
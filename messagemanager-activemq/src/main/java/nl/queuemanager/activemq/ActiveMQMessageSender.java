@@ -0,0 +1,155 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.activemq;
+
+import nl.queuemanager.core.jms.MessageSender;
+import nl.queuemanager.jms.JMSDestination;
+import org.apache.activemq.ActiveMQMessageProducer;
+import org.apache.activemq.AsyncCallback;
+
+import javax.jms.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends messages to a destination on its own Session. When the commit size is larger than one,
+ * the Session is transacted and committed every commitSize messages. When async is set, messages
+ * are sent with an ActiveMQ {@link AsyncCallback} (the client does not support the JMS 2.0
+ * CompletionListener) and up to {@link #MAX_PENDING_SENDS} messages may be unacknowledged.
+ * A transacted sender waits for all of them before each commit.
+ */
+class ActiveMQMessageSender implements MessageSender {
+	private static final int MAX_PENDING_SENDS = 1000;
+
+	private final Session session;
+	private final ActiveMQMessageProducer producer;
+	private final int commitSize;
+	private final boolean async;
+	private final Semaphore pendingSends = new Semaphore(MAX_PENDING_SENDS);
+	private final AsyncCallback sendCallback = new AsyncCallback() {
+		public void onSuccess() {
+			pendingSends.release();
+		}
+
+		public void onException(JMSException exception) {
+			if(asyncException == null) {
+				asyncException = exception;
+			}
+			pendingSends.release();
+		}
+	};
+
+	private volatile JMSException asyncException;
+	private int uncommitted;
+
+	public ActiveMQMessageSender(Connection connection, JMSDestination destination, int commitSize, boolean async) throws JMSException {
+		this.commitSize = Math.max(1, commitSize);
+		this.async = async;
+		this.session = connection.createSession(this.commitSize > 1, Session.AUTO_ACKNOWLEDGE);
+
+		try {
+			switch(destination.getType()) {
+			case QUEUE:
+				producer = (ActiveMQMessageProducer)session.createProducer(session.createQueue(destination.getName()));
+				break;
+
+			case TOPIC:
+				producer = (ActiveMQMessageProducer)session.createProducer(session.createTopic(destination.getName()));
+				break;
+
+			default:
+				throw new UnsupportedOperationException("Destination type not supported!");
+			}
+		} catch (JMSException e) {
+			session.close();
+			throw e;
+		}
+	}
+
+	public Message prepare(Message message) throws JMSException {
+		return ActiveMQMessageConverter.convertMessage(session, message);
+	}
+
+	public void send(Message message) throws JMSException {
+		checkAsyncException();
+
+		Message jmsMessage = prepare(message);
+		long timetolive = producer.getTimeToLive();
+		if(message.getJMSExpiration() != 0) {
+			timetolive = message.getJMSExpiration() - message.getJMSTimestamp();
+		}
+
+		if(async) {
+			pendingSends.acquireUninterruptibly();
+			boolean sending = false;
+			try {
+				producer.send(jmsMessage, jmsMessage.getJMSDeliveryMode(), jmsMessage.getJMSPriority(), timetolive, sendCallback);
+				sending = true;
+			} finally {
+				// The callback is only invoked for sends that were handed to the connection
+				if(!sending) {
+					pendingSends.release();
+				}
+			}
+		} else {
+			producer.send(jmsMessage, jmsMessage.getJMSDeliveryMode(), jmsMessage.getJMSPriority(), timetolive);
+		}
+
+		if(commitSize > 1 && ++uncommitted == commitSize) {
+			commit();
+		}
+	}
+
+	public void flush() throws JMSException {
+		if(uncommitted > 0) {
+			commit();
+		}
+
+		awaitPendingSends();
+		checkAsyncException();
+	}
+
+	public void close() throws JMSException {
+		session.close();
+	}
+
+	private void commit() throws JMSException {
+		// A failed send must not be committed with the rest of the transaction
+		awaitPendingSends();
+		try {
+			checkAsyncException();
+		} catch (JMSException e) {
+			session.rollback();
+			uncommitted = 0;
+			throw e;
+		}
+
+		session.commit();
+		uncommitted = 0;
+	}
+
+	private void awaitPendingSends() {
+		if(async) {
+			pendingSends.acquireUninterruptibly(MAX_PENDING_SENDS);
+			pendingSends.release(MAX_PENDING_SENDS);
+		}
+	}
+
+	private void checkAsyncException() throws JMSException {
+		JMSException e = asyncException;
+		if(e != null)
+			throw e;
+	}
+}
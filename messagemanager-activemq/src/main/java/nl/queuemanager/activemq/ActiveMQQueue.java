@@ -13,11 +13,24 @@ class ActiveMQQueue implements JMSQueue {
 	private final ActiveMQBroker broker;
 	private final ObjectName name;
 	private final long queueSize;
+	private final long enqueueCount;
+	private final long dequeueCount;
+	private final long consumerCount;
+	private final long memoryUsage;
 	
 	public ActiveMQQueue(ActiveMQBroker broker, ObjectName name, long queueSize) {
+		this(broker, name, queueSize, -1, -1, -1, -1);
+	}
+
+	public ActiveMQQueue(ActiveMQBroker broker, ObjectName name, long queueSize, 
+			long enqueueCount, long dequeueCount, long consumerCount, long memoryUsage) {
 		this.broker = broker;
 		this.name = name;
 		this.queueSize = queueSize;
+		this.enqueueCount = enqueueCount;
+		this.dequeueCount = dequeueCount;
+		this.consumerCount = consumerCount;
+		this.memoryUsage = memoryUsage;
 	}
 
 	public JMSBroker getBroker() {
@@ -71,4 +84,24 @@ class ActiveMQQueue implements JMSQueue {
 		return -1;
 	}
 
+	@Override
+	public long getEnqueueCount() {
+		return enqueueCount;
+	}
+
+	@Override
+	public long getDequeueCount() {
+		return dequeueCount;
+	}
+
+	@Override
+	public long getConsumerCount() {
+		return consumerCount;
+	}
+
+	@Override
+	public long getMemoryUsage() {
+		return memoryUsage;
+	}
+
 }
@@ -0,0 +1,147 @@
+package nl.queuemanager.activemq;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.jms.JMSQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanServerConnection;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class ActiveMQDomainTest {
+
+	private static final int QUEUE_COUNT = ActiveMQDomain.QUEUE_STATISTICS_BATCH_SIZE * 3 + 1;
+
+	private MBeanServerConnection mbeanServer;
+	private ActiveMQDomain domain;
+	private ActiveMQBroker broker;
+
+	@Before
+	public void setUp() throws Exception {
+		mbeanServer = mock(MBeanServerConnection.class);
+		broker = new ActiveMQBroker(new ObjectName("org.apache.activemq:type=Broker,brokerName=test"), new URI("tcp://localhost:61616"));
+
+		Set<ObjectName> names = new LinkedHashSet<ObjectName>();
+		for(int i = 0; i < QUEUE_COUNT; i++) {
+			names.add(queueName(i));
+		}
+		when(mbeanServer.queryNames(any(ObjectName.class), isNull())).thenReturn(names);
+		when(mbeanServer.getAttributes(any(ObjectName.class), any(String[].class))).thenAnswer(invocation -> {
+			ObjectName name = invocation.getArgument(0);
+			AttributeList attributes = new AttributeList();
+			attributes.add(new Attribute("QueueSize", Long.valueOf(name.getKeyProperty("destinationName").substring(1))));
+			attributes.add(new Attribute("ConsumerCount", 2));
+			return attributes;
+		});
+
+		domain = new ActiveMQDomain(mock(CoreConfiguration.class), new EventBus());
+		domain.connect(mbeanServer);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		domain.disconnect();
+	}
+
+	@Test
+	public void testQueueListIsFetchedInOrder() throws Exception {
+		List<JMSQueue> queues = domain.getQueueList(broker, null);
+
+		assertEquals(QUEUE_COUNT, queues.size());
+		for(int i = 0; i < QUEUE_COUNT; i++) {
+			ActiveMQQueue queue = (ActiveMQQueue)queues.get(i);
+			assertEquals("q" + i, queue.getName());
+			assertEquals(i, queue.getMessageCount());
+			assertEquals(2, queue.getConsumerCount());
+			assertEquals(-1, queue.getEnqueueCount());
+		}
+	}
+
+	@Test
+	public void testRemovedQueuesAreSkipped() throws Exception {
+		when(mbeanServer.getAttributes(eq(queueName(150)), any(String[].class))).thenThrow(new InstanceNotFoundException());
+
+		List<JMSQueue> queues = domain.getQueueList(broker, null);
+
+		assertEquals(QUEUE_COUNT - 1, queues.size());
+		for(JMSQueue queue: queues) {
+			assertNotEquals("q150", queue.getName());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailedFetchFailsTheQueueList() throws Exception {
+		when(mbeanServer.getAttributes(eq(queueName(250)), any(String[].class))).thenThrow(new IOException("Connection lost"));
+
+		domain.getQueueList(broker, null);
+	}
+
+	@Test
+	public void testQueueListCanBeFetchedRepeatedly() throws Exception {
+		for(int i = 0; i < 3; i++) {
+			assertEquals(QUEUE_COUNT, domain.getQueueList(broker, null).size());
+		}
+	}
+
+	@Test
+	public void testBulkMoveDoesNotFallBackWhenAllMessagesMoved() throws Exception {
+		ActiveMQQueue from = new ActiveMQQueue(broker, queueName(1), 3);
+		when(mbeanServer.invoke(eq(queueName(1)), eq("moveMatchingMessagesTo"), any(Object[].class), any(String[].class))).thenReturn(3);
+
+		domain.forwardMessages(from, new ActiveMQQueue(broker, queueName(2), 0), Arrays.asList("ID:1", "ID:2", "ID:3"));
+
+		verify(mbeanServer, never()).invoke(any(ObjectName.class), eq("moveMessageTo"), any(Object[].class), any(String[].class));
+	}
+
+	@Test
+	public void testBulkMoveFallsBackToSingleMovesWhenMessagesAreMissed() throws Exception {
+		ActiveMQQueue from = new ActiveMQQueue(broker, queueName(1), 3);
+		when(mbeanServer.invoke(eq(queueName(1)), eq("moveMatchingMessagesTo"), any(Object[].class), any(String[].class))).thenReturn(1);
+		when(mbeanServer.invoke(eq(queueName(1)), eq("moveMessageTo"), any(Object[].class), any(String[].class))).thenReturn(false);
+
+		domain.forwardMessages(from, new ActiveMQQueue(broker, queueName(2), 0), Arrays.asList("ID:1", "ID:2", "ID:3"));
+
+		for(String messageID: Arrays.asList("ID:1", "ID:2", "ID:3")) {
+			verify(mbeanServer).invoke(eq(queueName(1)), eq("moveMessageTo"), aryEq(new Object[] {messageID, "q2"}), any(String[].class));
+		}
+	}
+
+	@Test
+	public void testBulkDeleteFallsBackToSingleRemovesWhenMessagesAreMissed() throws Exception {
+		ActiveMQQueue queue = new ActiveMQQueue(broker, queueName(1), 2);
+		when(mbeanServer.invoke(eq(queueName(1)), eq("removeMatchingMessages"), any(Object[].class), any(String[].class))).thenReturn(0);
+		when(mbeanServer.invoke(eq(queueName(1)), eq("removeMessage"), any(Object[].class), any(String[].class))).thenReturn(true);
+
+		domain.deleteMessages(queue, Arrays.asList(message("ID:1"), message("ID:2")));
+
+		verify(mbeanServer).invoke(eq(queueName(1)), eq("removeMessage"), aryEq(new Object[] {"ID:1"}), any(String[].class));
+		verify(mbeanServer).invoke(eq(queueName(1)), eq("removeMessage"), aryEq(new Object[] {"ID:2"}), any(String[].class));
+	}
+
+	private static Message message(String messageID) throws Exception {
+		Message message = mock(Message.class);
+		when(message.getJMSMessageID()).thenReturn(messageID);
+		return message;
+	}
+
+	private static ObjectName queueName(int i) throws Exception {
+		return new ObjectName("org.apache.activemq:type=Broker,brokerName=test,destinationType=Queue,destinationName=q" + i);
+	}
+}
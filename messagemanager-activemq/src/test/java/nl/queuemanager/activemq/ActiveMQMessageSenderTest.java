@@ -0,0 +1,161 @@
+package nl.queuemanager.activemq;
+
+import nl.queuemanager.jms.JMSDestination;
+import org.apache.activemq.ActiveMQConnectionFactory;
+import org.apache.activemq.command.ActiveMQMessage;
+import org.apache.activemq.command.ActiveMQTextMessage;
+import org.apache.activemq.command.Command;
+import org.apache.activemq.command.ExceptionResponse;
+import org.apache.activemq.command.Response;
+import org.apache.activemq.command.TransactionInfo;
+import org.apache.activemq.transport.FutureResponse;
+import org.apache.activemq.transport.ResponseCallback;
+import org.apache.activemq.transport.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the sender against the real ActiveMQ client, connected to a transport that
+ * plays the broker and records what it receives.
+ */
+public class ActiveMQMessageSenderTest {
+
+	private static final String FAIL = "fail";
+	private static final String BREAK = "break";
+
+	private final List<String> received = Collections.synchronizedList(new ArrayList<String>());
+	private Transport transport;
+	private Connection connection;
+	private JMSDestination destination;
+
+	@Before
+	public void setUp() throws Exception {
+		transport = mock(Transport.class);
+		doAnswer(invocation -> respond(invocation.getArgument(0))).when(transport).oneway(any());
+		when(transport.request(any())).thenAnswer(invocation -> respond(invocation.getArgument(0)));
+		when(transport.request(any(), anyInt())).thenAnswer(invocation -> respond(invocation.getArgument(0)));
+		when(transport.asyncRequest(any(), any(ResponseCallback.class))).thenAnswer(invocation -> {
+			Command command = invocation.getArgument(0);
+			if(command instanceof ActiveMQMessage && ((ActiveMQMessage)command).getProperty(BREAK) != null) {
+				throw new IllegalStateException("Transport is broken");
+			}
+			FutureResponse future = new FutureResponse(invocation.getArgument(1));
+			// Completing the future invokes the client's callback
+			future.set(respond(command));
+			return future;
+		});
+
+		connection = new ActiveMQConnectionFactory("tcp://localhost:61616") {
+			@Override
+			protected Transport createTransport() {
+				return transport;
+			}
+		}.createConnection();
+
+		destination = mock(JMSDestination.class);
+		when(destination.getType()).thenReturn(JMSDestination.TYPE.QUEUE);
+		when(destination.getName()).thenReturn("q");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		connection.close();
+	}
+
+	@Test
+	public void testAsyncSendsInsideTransactedChunks() throws Exception {
+		ActiveMQMessageSender sender = new ActiveMQMessageSender(connection, destination, 2, true);
+
+		sender.send(new ActiveMQTextMessage());
+		sender.send(new ActiveMQTextMessage());
+		sender.send(new ActiveMQTextMessage());
+		sender.flush();
+		sender.close();
+
+		assertEquals(Arrays.asList("send", "send", "commit", "send", "commit"), received);
+	}
+
+	@Test
+	public void testFailedAsyncSendRollsBackTheChunk() throws Exception {
+		ActiveMQMessageSender sender = new ActiveMQMessageSender(connection, destination, 2, true);
+
+		ActiveMQTextMessage failing = new ActiveMQTextMessage();
+		failing.setBooleanProperty(FAIL, true);
+		sender.send(new ActiveMQTextMessage());
+		try {
+			sender.send(failing);
+			fail("The failed send should be reported");
+		} catch (JMSException e) {
+			assertEquals("Broker said no", e.getMessage());
+		}
+		sender.close();
+
+		assertEquals(Arrays.asList("send", "send", "rollback"), received);
+	}
+
+	@Test(timeout = 10000)
+	public void testSendThatNeverReachesTheConnectionDoesNotBlockFlush() throws Exception {
+		ActiveMQMessageSender sender = new ActiveMQMessageSender(connection, destination, 1, true);
+
+		ActiveMQTextMessage broken = new ActiveMQTextMessage();
+		broken.setBooleanProperty(BREAK, true);
+		try {
+			sender.send(broken);
+			fail("The broken send should be reported");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+
+		sender.send(new ActiveMQTextMessage());
+		sender.flush();
+		sender.close();
+
+		assertEquals(Arrays.asList("send"), received);
+	}
+
+	@Test
+	public void testSynchronousSendWithoutTransaction() throws Exception {
+		ActiveMQMessageSender sender = new ActiveMQMessageSender(connection, destination, 1, false);
+
+		sender.send(new ActiveMQTextMessage());
+		sender.flush();
+		sender.close();
+
+		assertEquals(Arrays.asList("send"), received);
+		verify(transport, never()).asyncRequest(any(ActiveMQMessage.class), any(ResponseCallback.class));
+	}
+
+	private Response respond(Command command) throws IOException {
+		Response response = new Response();
+		if(command instanceof ActiveMQMessage) {
+			received.add("send");
+			if(((ActiveMQMessage)command).getProperty(FAIL) != null) {
+				response = new ExceptionResponse(new JMSException("Broker said no"));
+			}
+		} else if(command instanceof TransactionInfo) {
+			switch(((TransactionInfo)command).getType()) {
+			case TransactionInfo.COMMIT_ONE_PHASE:
+				received.add("commit");
+				break;
+			case TransactionInfo.ROLLBACK:
+				received.add("rollback");
+				break;
+			}
+		}
+		response.setCorrelationId(command.getCommandId());
+		return response;
+	}
+}
@@ -0,0 +1,99 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.openjdk.jmh.annotations.*;
+
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@link MessageBuffer} with the {@link LegacyMessageBuffer} it replaced. The buffer
+ * is always full, so every received message also discards the oldest one.
+ * <p>
+ * Run with <code>./gradlew :messagemanager-core:jmh</code>.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBufferBenchmark {
+	private static final int MESSAGES = 1024;
+
+	@Param({"ring", "legacy"})
+	public String impl;
+
+	@Param({"50", "1000"})
+	public int capacity;
+
+	private final Message[] messages = new Message[MESSAGES];
+	private MessageListener listener;
+	private Supplier<List<Message>> reader;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+	}
+
+	@Setup
+	public void setup() {
+		for(int i = 0; i < MESSAGES; i++) {
+			messages[i] = MessageFactory.createTextMessage();
+		}
+
+		if("ring".equals(impl)) {
+			MessageBuffer buffer = new MessageBuffer();
+			buffer.setMaximumNumberOfMessages(capacity);
+			listener = buffer;
+			reader = buffer::getMessages;
+		} else {
+			LegacyMessageBuffer buffer = new LegacyMessageBuffer();
+			buffer.setMaximumNumberOfMessages(capacity);
+			listener = buffer;
+			reader = buffer::getMessages;
+		}
+
+		for(int i = 0; i < capacity; i++) {
+			listener.onMessage(messages[i % MESSAGES]);
+		}
+	}
+
+	@Benchmark
+	@Group("append")
+	public void append(Cursor cursor) {
+		listener.onMessage(messages[cursor.next++ & (MESSAGES - 1)]);
+	}
+
+	@Benchmark
+	@Group("receiveWhileReading")
+	@GroupThreads(1)
+	public void receive(Cursor cursor) {
+		listener.onMessage(messages[cursor.next++ & (MESSAGES - 1)]);
+	}
+
+	@Benchmark
+	@Group("receiveWhileReading")
+	@GroupThreads(1)
+	public List<Message> read() {
+		return reader.get();
+	}
+}
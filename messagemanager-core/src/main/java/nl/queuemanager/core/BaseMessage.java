@@ -19,22 +19,23 @@ import nl.queuemanager.jms.JMSMultipartMessage;
 import nl.queuemanager.jms.JMSPart;
 import nl.queuemanager.jms.MessageType;
 import nl.queuemanager.jms.impl.MessageFactory;
-import org.w3c.dom.*;
 import org.xml.sax.SAXException;
 
 import javax.jms.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactoryConfigurationError;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Enumeration;
 
@@ -68,7 +69,6 @@ public abstract class BaseMessage implements SaveableMessage {
 
 
 	private static final String CONTENT_ANYTEXT = "text/";
-	private static String[] contentIds;
 
 	private static final String HEADER_JMSREPLYTO = "JMSReplyTo";
 	private static final String HEADER_JMSCORRELATIONID = "JMSCorrelationID";
@@ -76,20 +76,33 @@ public abstract class BaseMessage implements SaveableMessage {
 	private static final String PROPERTY_EXTENDED_TYPE = "JMS_SonicMQ_ExtendedType";
 	private static final String PROPERTY_CONTENT_TYPE = "Content-Type";
 
-	private static final XPathFactory xpathFactory = XPathFactory.newInstance();
-	private static final MapNamespaceContext namespaceContext = new MapNamespaceContext();
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+	
+	/**
+	 * Size of the read buffer and the number of Base64 characters decoded at once, a multiple of 4.
+	 */
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private static final XMLInputFactory inputFactory = createInputFactory();
 
 
 	// in order to keep the static approach we need these methods implemented in the subclasses
 	protected abstract String getMessageNamespace();
 	protected abstract String getQualifiedMessageElementName();
 
-	protected void initialize(String prefix, String namespace) {
-		namespaceContext.add(prefix, namespace);
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+		// Message files don't have a DTD, don't resolve anything outside of the file
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
 	}
 
 	/**
-	 * Save a javax.jms.Message to an esbmsg file.
+	 * Save a javax.jms.Message to an esbmsg file. The file is written while the message is
+	 * serialized, without building a document in memory, so this may be called for many 
+	 * messages in parallel.
 	 * 
 	 * @param message the message to save
 	 * @param file to save to
@@ -100,111 +113,111 @@ public abstract class BaseMessage implements SaveableMessage {
 	 * @throws JMSException 
 	 */
 	public void saveToFile(Message message, File file) throws ParserConfigurationException, IOException, TransformerFactoryConfigurationError, TransformerException, JMSException {
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		dbf.setNamespaceAware(true);
-		DocumentBuilder db = dbf.newDocumentBuilder();
-		Document doc = db.newDocument();
-		saveToDocument(doc, message);
-		
-		// Save to file
-		FileOutputStream fout = new FileOutputStream(file);
-						
-		// Use JAXP (preferred)
-		Transformer transformer = TransformerFactory.newInstance().newTransformer();
-		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-		StreamResult result = new StreamResult(fout);
-		
-		DOMSource source = new DOMSource(Xerces210DocumentWrapper.wrap(doc));
-		transformer.transform(source, result);
+		if(!JMSMultipartMessage.class.isAssignableFrom(message.getClass())
+		&& !TextMessage.class.isAssignableFrom(message.getClass())
+		&& !BytesMessage.class.isAssignableFrom(message.getClass())
+		&& !MapMessage.class.isAssignableFrom(message.getClass())) {
+			throw new RuntimeException("Unsupported message type: " + message.getClass());
+		}
 		
-		fout.flush();
-		fout.close();
+		boolean saved = false;
+		try(FileChannel channel = FileChannel.open(file.toPath(), 
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			StreamingXmlWriter writer = new StreamingXmlWriter(new BufferedWriter(
+				new OutputStreamWriter(Channels.newOutputStream(channel), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE))) {
+			saveMessage(writer, message);
+			saved = true;
+		} finally {
+			// Don't leave half a message behind
+			if(!saved) {
+				file.delete();
+			}
+		}
 	}
 
 	/**
-	 * Serialize a {@link Message} object into an existing Document object.
+	 * Serialize a {@link Message} object as the document element.
 	 * 
-	 * @param doc
+	 * @param writer
 	 * @param message
 	 */
-	private void saveToDocument(Document doc, Message message) throws JMSException {
-		Element messageElement = createMessageElement(doc);
+	private void saveMessage(StreamingXmlWriter writer, Message message) throws JMSException, IOException {
+		final String qualifiedName = getQualifiedMessageElementName();
+		writer.startElement(qualifiedName);
+		writer.attribute("type", MessageType.fromClass(message.getClass()).toString());
+		writer.attribute("xmlns:" + qualifiedName.substring(0, qualifiedName.indexOf(':')), getMessageNamespace());
 
 		// Build the content of the message
-		saveHeaders(messageElement, message);
-		saveProperties(messageElement, message);
-		saveContent(messageElement, message);
-		doc.appendChild(messageElement);		
-	}
-
-	private Element createMessageElement(Document doc) {
-		Element messageElement = doc.createElementNS(
-				getMessageNamespace(), getQualifiedMessageElementName());
-		return messageElement;
+		saveHeaders(writer, message);
+		saveProperties(writer, message);
+		saveContent(writer, message);
+		writer.endElement();
 	}
 
-
-	
-
 	/**
-	 * Save the contents of a {@link Message} to a DOM Element.
+	 * Save the contents of a {@link Message}.
 	 * 
-	 * @param messageElement
+	 * @param writer
 	 * @param message
 	 */
-	private void saveContent(Element messageElement, Message message) throws JMSException {
-		messageElement.setAttribute("type", MessageType.fromClass(message.getClass()).toString());
-		
+	private void saveContent(StreamingXmlWriter writer, Message message) throws JMSException, IOException {
 		if(JMSMultipartMessage.class.isAssignableFrom(message.getClass())) {
 			JMSMultipartMessage mm = (JMSMultipartMessage)message;
 			
 			// Set the parts
 			for(int i = 0; i<mm.getPartCount(); i++) {
-				savePart(messageElement, mm.getPart(i), i);
+				savePart(writer, mm.getPart(i), i);
 			}
 		} else {
 			// Create the body part
-			saveBody(messageElement, message);
+			saveBody(writer, message);
 		}
 	}
 
 	@SuppressWarnings("unchecked")
-    private void saveBody(Element messageElement, Message message) throws JMSException {
-		Element e = messageElement.getOwnerDocument().createElement("body");
-		e.setAttribute("content-id", "body-part");
-		e.setAttribute("file-ref", "");
-		e.setAttribute("use-file-ref", "false");
+	private void saveBody(StreamingXmlWriter writer, Message message) throws JMSException, IOException {
+		writer.startElement("body");
+		writer.attribute("content-id", "body-part");
+		writer.attribute("file-ref", "");
+		writer.attribute("use-file-ref", "false");
 		if (TextMessage.class.isAssignableFrom(message.getClass())){
-			e.setTextContent(((TextMessage)message).getText());
+			writer.text(((TextMessage)message).getText());
 		} else if(BytesMessage.class.isAssignableFrom(message.getClass())) {
 			BytesMessage bm = (BytesMessage)message;
 			bm.reset();
-			byte[] bytes = new byte[(int)bm.getBodyLength()];
-			bm.readBytes(bytes);
-			e.setTextContent(Base64.getEncoder().encodeToString(bytes));
-		//MAPStart
-		} else if(MapMessage.class.isAssignableFrom(message.getClass())) {
-		        MapMessage mm = (MapMessage)message;
-		        Enumeration<String> mapNames = mm.getMapNames();
-	                
-	                while(mapNames.hasMoreElements()) {
-	                        String name = mapNames.nextElement();
-	                        
-	                        final Object value = mm.getObject(name);
-	                        if(value != null) {
-	                                Element k = e.getOwnerDocument().createElement("key");
-	                                k.setAttribute("name", name);
-	                                k.setAttribute("value", buildValue(value));
-	                                k.setAttribute("type", buildType(value));
-	                                e.appendChild(k);
-	                        }
-	                }
-		}
-		//MAPEnd
-		else {
-			throw new RuntimeException("Unsupported message type: " + message.getClass());
+			long remaining = bm.getBodyLength();
+			if(remaining > 0) {
+				// Encode the body in chunks instead of copying it to a byte array and a String first.
+				// Not all implementations return -1 at the end of the body, so count the bytes.
+				try(OutputStream base64 = writer.base64()) {
+					byte[] buffer = new byte[(int)Math.min(WRITE_BUFFER_SIZE, remaining)];
+					while(remaining > 0) {
+						int read = bm.readBytes(buffer, (int)Math.min(buffer.length, remaining));
+						if(read <= 0)
+							break;
+						base64.write(buffer, 0, read);
+						remaining -= read;
+					}
+				}
+			}
+		} else {
+			MapMessage mm = (MapMessage)message;
+			Enumeration<String> mapNames = mm.getMapNames();
+			
+			while(mapNames.hasMoreElements()) {
+				String name = mapNames.nextElement();
+				
+				final Object value = mm.getObject(name);
+				if(value != null) {
+					writer.startElement("key");
+					writer.attribute("name", name);
+					writer.attribute("type", buildType(value));
+					writer.attribute("value", buildValue(value));
+					writer.endElement();
+				}
+			}
 		}
-		messageElement.appendChild(e);
+		writer.endElement();
 	}
 	
 	private String buildValue( Object obj){
@@ -225,29 +238,34 @@ public abstract class BaseMessage implements SaveableMessage {
             }
         }
 	
-	private void savePart(Element messageElement, JMSPart part, int partIndex){
+	private void savePart(StreamingXmlWriter writer, JMSPart part, int partIndex) throws IOException {
 		String contentType = part.getContentType();
-		Element e = messageElement.getOwnerDocument().createElement("part");
-		e.setAttribute("content-type", contentType);
-		e.setAttribute("content-id", "part-" + partIndex);
-		e.setAttribute("file-ref", "");
-		e.setAttribute("use-file-ref", "false");
+		writer.startElement("part");
+		writer.attribute("content-id", "part-" + partIndex);
+		writer.attribute("content-type", contentType);
+		writer.attribute("file-ref", "");
+		writer.attribute("use-file-ref", "false");
 		if (contentType.startsWith(CONTENT_ANYTEXT)){
-			e.setTextContent((String)part.getContent());
+			writer.text((String)part.getContent());
 		} else {
-			e.setTextContent(Base64.getEncoder().encodeToString(part.getContentBytes()));
+			byte[] content = part.getContentBytes();
+			if(content != null && content.length > 0) {
+				try(OutputStream base64 = writer.base64()) {
+					base64.write(content);
+				}
+			}
 		}
-		messageElement.appendChild(e);
+		writer.endElement();
 	}
 	
 	/**
-	 * Serialize the properties of a {@link Message} object into a DOM Element.
+	 * Serialize the properties of a {@link Message} object.
 	 * 
-	 * @param messageElement
+	 * @param writer
 	 * @param message
 	 */
 	@SuppressWarnings("unchecked")
-	private void saveProperties(Element messageElement, Message message) throws JMSException {
+	private void saveProperties(StreamingXmlWriter writer, Message message) throws JMSException, IOException {
 		Enumeration<String> propertyNames = message.getPropertyNames();
 		
 		while(propertyNames.hasMoreElements()) {
@@ -263,11 +281,11 @@ public abstract class BaseMessage implements SaveableMessage {
 			
 			final Object value = message.getObjectProperty(name);
 			if(value != null) {
-				Element e = messageElement.getOwnerDocument().createElement("property");
-				e.setAttribute("name", name);
-				e.setAttribute("value", value.toString());
-				e.setAttribute("type", value.getClass().getName());
-				messageElement.appendChild(e);
+				writer.startElement("property");
+				writer.attribute("name", name);
+				writer.attribute("type", value.getClass().getName());
+				writer.attribute("value", value.toString());
+				writer.endElement();
 			}
 		}
 	}
@@ -275,78 +293,115 @@ public abstract class BaseMessage implements SaveableMessage {
 	/**
 	 * Save JMSCorrelationID and JMSReplyTo if set
 	 * 
-	 * @param messageElement
+	 * @param writer
 	 * @param message
 	 */
-	private void saveHeaders(Element messageElement, Message message) throws JMSException {
+	private void saveHeaders(StreamingXmlWriter writer, Message message) throws JMSException, IOException {
 		if(message.getJMSCorrelationID() != null && message.getJMSCorrelationID().length() > 0) {
-			Element e = messageElement.getOwnerDocument().createElement("header");
-			e.setAttribute("name", HEADER_JMSCORRELATIONID);
-			e.setAttribute("value", message.getJMSCorrelationID());
-			messageElement.appendChild(e);
+			writer.startElement("header");
+			writer.attribute("name", HEADER_JMSCORRELATIONID);
+			writer.attribute("value", message.getJMSCorrelationID());
+			writer.endElement();
 		}
 		
 		if(message.getJMSReplyTo() != null) {
-			Element e = messageElement.getOwnerDocument().createElement("header");
-			e.setAttribute("name", HEADER_JMSREPLYTO);
-			e.setAttribute("value", message.getJMSReplyTo().toString());
-			messageElement.appendChild(e);
+			writer.startElement("header");
+			writer.attribute("name", HEADER_JMSREPLYTO);
+			writer.attribute("value", message.getJMSReplyTo().toString());
+			writer.endElement();
 		}
 	}
 	
 	/**
-	 * Create a javax.jms.Message by parsing an existing file.
+	 * Create a javax.jms.Message by parsing an existing file. The file is read as a stream,
+	 * Base64 encoded bodies are decoded in chunks while they are read.
 	 * 
 	 * @param file to be parsed
 	 * @throws ParserConfigurationException
-	 * @throws SAXException
+	 * @throws SAXException When the file is not well-formed
 	 * @throws IOException
 	 * @throws XPathExpressionException
 	 * @throws JMSException 
 	 */
 	public Message readFromFile(File file) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, JMSException {
-
-		// Read the file and parse as XML
-		DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-		dbf.setNamespaceAware(true);
-		DocumentBuilder db = dbf.newDocumentBuilder();
-		Document doc = db.parse(file);
-		
-		// Create a message from the Document
-		return readFromDocument(file, doc);
+		try(InputStream in = new BufferedInputStream(new FileInputStream(file), READ_BUFFER_SIZE)) {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(file.toURI().toString(), in);
+			try {
+				return readMessage(file, reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new SAXException(e.getMessage(), e);
+		}
 	}
 
 	/**
-	 * Read an ESBMessage from the Document and return as a {@link Message}.
+	 * Read the document element as a {@link Message}.
 	 * 
-	 * @param doc
+	 * @param esbmsgFile
+	 * @param reader
 	 * @return
-	 * @throws XPathExpressionException
-	 * @throws IOException
-	 * @throws JMSException 
 	 */
-	private Message readFromDocument(File esbmsgFile, Document doc) throws XPathExpressionException, IOException, JMSException {
-		// First find out what type of message this Document represents
-		XPath xpath = getXPath();
-		MessageType type = MessageType.fromString((String)xpath.evaluate(
-			"/" + getQualifiedMessageElementName() + "/@type", doc.getDocumentElement(), XPathConstants.STRING));
-
-		Message message = createMessage(type);
-
-		// Process headers
-		readHeaders(doc, message);
-
-		// Process properties
-		readProperties(doc, message);
-
-		// Process message content
-		readContent(esbmsgFile, doc, message);
-
+	private Message readMessage(File esbmsgFile, XMLStreamReader reader) throws XMLStreamException, IOException, JMSException {
+		while(reader.next() != XMLStreamConstants.START_ELEMENT) {
+			// Skip the prolog
+		}
+		
+		final String qualifiedName = getQualifiedMessageElementName();
+		if(!getMessageNamespace().equals(reader.getNamespaceURI())
+		|| !qualifiedName.substring(qualifiedName.indexOf(':')+1).equals(reader.getLocalName())) {
+			throw new IOException(esbmsgFile.getName() + " does not contain a " + qualifiedName + " element");
+		}
+		
+		// The type is an attribute of the document element, so it is known before the content
+		final MessageType type = MessageType.fromString(reader.getAttributeValue(null, "type"));
+		final Message message = createMessage(type);
+		
+		boolean bodyRead = false;
+		while(nextElement(reader)) {
+			switch(reader.getLocalName()) {
+			case "header":
+				readHeader(reader, message);
+				break;
+				
+			case "property":
+				readProperty(reader, message);
+				break;
+				
+			case "body":
+				// Only the first body is used, except for the keys of a map
+				if(type == MessageType.MAP_MESSAGE || !bodyRead) {
+					readBody(esbmsgFile, reader, message);
+					bodyRead = true;
+				} else {
+					skipElement(reader);
+				}
+				break;
+				
+			case "part":
+				if(type == MessageType.MULTIPART_MESSAGE) {
+					readPart(esbmsgFile, reader, (JMSMultipartMessage)message);
+				} else {
+					skipElement(reader);
+				}
+				break;
+				
+			default:
+				skipElement(reader);
+			}
+		}
+		
+		if(type == MessageType.BYTES_MESSAGE) {
+			// Put the message in read-only mode and set the read pointer to 0
+			((BytesMessage)message).reset();
+		}
+		
 		return message;
 	}
 
 	private Message createMessage(MessageType type) {
-		switch(type) {
+		if(type != null) switch(type) {
 		case MESSAGE:
 			return MessageFactory.createMessage();
 		case TEXT_MESSAGE:
@@ -367,191 +422,118 @@ public abstract class BaseMessage implements SaveableMessage {
 	}
 	
 	/**
-	 * Read the content of an ESBMessage from the Document and store in the {@link Message}.
+	 * Read the body element into the message. The reader is left on the end of the body element.
 	 * 
-	 * @param doc
+	 * @param esbmsgFile
+	 * @param reader
 	 * @param message
-	 * @throws XPathExpressionException
-	 * @throws IOException
-	 * @throws JMSException 
 	 */
-	private void readContent(File esbmsgFile, Document doc, Message message) throws XPathExpressionException, IOException, JMSException {
+	private void readBody(File esbmsgFile, XMLStreamReader reader, final Message message) throws XMLStreamException, IOException, JMSException {
+		final String fileRef = reader.getAttributeValue(null, "file-ref");
+		final boolean useFileRef = Boolean.parseBoolean(reader.getAttributeValue(null, "use-file-ref"));
+		
 		switch(MessageType.fromClass(message.getClass())) {
-		case MESSAGE:
-			// There is no content in an untyped Message
-			break;
-			
 		case TEXT_MESSAGE:
 		case XML_MESSAGE:
-			readTextBody(esbmsgFile, doc, (TextMessage)message);
+			if(useFileRef) {
+				skipElement(reader);
+				// Explicit UTF-8 - matches how the save path writes these files.
+				((TextMessage)message).setText(new String(resolveFileRef(esbmsgFile, fileRef), StandardCharsets.UTF_8));
+			} else {
+				((TextMessage)message).setText(readText(reader));
+			}
 			break;
 			
 		case BYTES_MESSAGE:
-			readBytesBody(esbmsgFile, doc, (BytesMessage)message);
+			if(useFileRef) {
+				skipElement(reader);
+				((BytesMessage)message).writeBytes(resolveFileRef(esbmsgFile, fileRef));
+			} else {
+				readBase64(reader, (data, length) -> ((BytesMessage)message).writeBytes(data, 0, length));
+			}
 			break;
-		//MAPStart
+			
 		case MAP_MESSAGE:
-                    readMapBody(esbmsgFile, doc, (MapMessage)message);
-                    break;
-		//MAPEnd	
-		case MULTIPART_MESSAGE:
-			readMultipartBody(esbmsgFile, doc, (JMSMultipartMessage)message);
+			readMapBody(reader, (MapMessage)message);
+			break;
+			
+		default:
+			// There is no content in an untyped Message, multipart messages have parts instead
+			skipElement(reader);
 		}
 	}
-	//MAPStart
-	/**
-         * Read the the Map content of the message from the Document.
-         * 
-         * @param doc
-         * @param message
-         * @throws JMSException
-         * @throws XPathExpressionException
-         * @throws IOException
-         */
-        private void readMapBody(File esbmsgFile, Document doc, MapMessage message)
-            throws JMSException, XPathExpressionException, IOException {
-            XPath xpath = getXPath();
-            NodeList propertyNodes = (NodeList) xpath.evaluate("/" + getQualifiedMessageElementName() + "/body/key",
-                doc, XPathConstants.NODESET);
-            for (int i = 0; i < propertyNodes.getLength(); i++) {
-                Node propertyNode = propertyNodes.item(i);
-    
-                String propertyName = getAttributeValue(propertyNode, "name");
-                String propertyValue = getAttributeValue(propertyNode, "value");
-                String propertyType = getAttributeValue(propertyNode, "type");
-    
-                if (propertyName != null && propertyName.length() > 0)
-                    message.setObject(propertyName, createPropertyObject(propertyType, propertyValue));
-            }
-        }
-	//MAPEnd
+
 	/**
-	 * Read the the text content of the message from the Document.
+	 * Read the keys of a map message body.
 	 * 
-	 * @param doc
+	 * @param reader
 	 * @param message
-	 * @throws JMSException
-	 * @throws XPathExpressionException
-	 * @throws IOException
 	 */
-	private void readTextBody(File esbmsgFile, Document doc, TextMessage message) throws JMSException, XPathExpressionException, IOException {
-		XPath xpath = getXPath();
-		Node bodyNode = (Node) xpath.evaluate(
-				"/" + getQualifiedMessageElementName() + "/body", doc, XPathConstants.NODE);
-		
-		if(bodyNode == null)
-			return;
-		
-		String fileRef = getAttributeValue(bodyNode, "file-ref");
-		boolean useFileRef = Boolean.parseBoolean(getAttributeValue(bodyNode, "use-file-ref"));
-		
-		if(useFileRef) {
-			// Explicit UTF-8 - matches how the save path writes these files.
-			message.setText(new String(resolveFileRef(esbmsgFile, fileRef), StandardCharsets.UTF_8));
-		} else {
-			message.setText(bodyNode.getTextContent());
+	private void readMapBody(XMLStreamReader reader, MapMessage message) throws XMLStreamException, JMSException {
+		while(nextElement(reader)) {
+			if("key".equals(reader.getLocalName())) {
+				String name = reader.getAttributeValue(null, "name");
+				String value = reader.getAttributeValue(null, "value");
+				String type = reader.getAttributeValue(null, "type");
+				
+				if (name != null && name.length() > 0)
+					message.setObject(name, createPropertyObject(type, value));
+			}
+			skipElement(reader);
 		}
 	}
 
 	/**
-	 * Read the bytes content of the message from the Document (base64 encoded) or from the referenced files (as-is).
+	 * Read a part of a multipart message, text parts as text and other parts Base64 encoded, 
+	 * or from the referenced files (as-is).
 	 * 
-	 * @param doc
+	 * @param esbmsgFile
+	 * @param reader
 	 * @param message
-	 * @throws JMSException
-	 * @throws XPathExpressionException
-	 * @throws IOException
 	 */
-	private void readBytesBody(File esbmsgFile, Document doc, BytesMessage message) throws JMSException, XPathExpressionException, IOException {
-		XPath xpath = getXPath();
-		Node bodyNode = (Node) xpath.evaluate(
-				"/" + getQualifiedMessageElementName() + "/body", doc, XPathConstants.NODE);
-		
-		if(bodyNode == null)
-			return;
-		
-		String fileRef = getAttributeValue(bodyNode, "file-ref");
-		boolean useFileRef = Boolean.parseBoolean(getAttributeValue(bodyNode, "use-file-ref"));
+	private void readPart(File esbmsgFile, XMLStreamReader reader, JMSMultipartMessage message) throws XMLStreamException, IOException, JMSException {
+		final String contentType = reader.getAttributeValue(null, "content-type");
+		final String fileRef = reader.getAttributeValue(null, "file-ref");
+		final String contentID = reader.getAttributeValue(null, "content-id");
+		final boolean useFileRef = Boolean.parseBoolean(reader.getAttributeValue(null, "use-file-ref"));
 		
+		final JMSPart messagePart;
 		if(useFileRef) {
-			message.writeBytes(resolveFileRef(esbmsgFile, fileRef));
+			skipElement(reader);
+			if (contentType.startsWith(CONTENT_ANYTEXT)) {
+				// Explicit UTF-8 - matches how the save path writes these files.
+				messagePart = message.createPart(
+						new String(resolveFileRef(esbmsgFile, fileRef), StandardCharsets.UTF_8), contentType);
+			} else {
+				messagePart = message.createPart(resolveFileRef(esbmsgFile, fileRef), contentType);
+			}
 		} else {
-			message.writeBytes(Base64.getDecoder().decode(bodyNode.getTextContent()));
-		}
-		
-		// Put the message in read-only mode and set the read pointer to 0
-		message.reset();
-	}
-
-	/**
-	 * Read a multi-part ESBMessage from the Document and store in {@link Message}.
-	 * 
-	 * @param doc
-	 * @param message
-	 * @throws XPathExpressionException
-	 * @throws IOException
-	 * @throws JMSException 
-	 */
-	private void readMultipartBody(File esbmsgFile, Document doc, JMSMultipartMessage message) throws XPathExpressionException, IOException, JMSException {
-		XPath xpath = getXPath();
-		NodeList partNodes = (NodeList) xpath.evaluate(
-				"/" + getQualifiedMessageElementName() + "/part", doc, XPathConstants.NODESET);
-		
-		int numberOfParts = partNodes.getLength();
-		contentIds= new String[numberOfParts];
-		
-		for(int i=0; i<numberOfParts; i++) {
-			Node partNode = partNodes.item(i);
-			
-			String contentType = getAttributeValue(partNode, "content-type");
-			String fileRef = getAttributeValue(partNode, "file-ref");
-			
-			String contentID =  getAttributeValue(partNode, "content-id");
-			
-			boolean useFileRef = Boolean.parseBoolean(getAttributeValue(partNode, "use-file-ref"));
-			JMSPart messagePart;
-			if(useFileRef) {
-				if (contentType.startsWith(CONTENT_ANYTEXT)) {
-					// Explicit UTF-8 - matches how the save path writes these files.
-					message.addPart(messagePart=message.createPart(
-							new String(resolveFileRef(esbmsgFile, fileRef), StandardCharsets.UTF_8), contentType));
-				} else {
-					message.addPart(messagePart=message.createPart(resolveFileRef(esbmsgFile, fileRef), contentType));
-				}
+			if (contentType.startsWith(CONTENT_ANYTEXT)) {
+				messagePart = message.createPart(readText(reader), contentType);
 			} else {
-				if (contentType.startsWith(CONTENT_ANYTEXT)) {
-					message.addPart(messagePart=message.createPart(partNode.getTextContent(), contentType));
-				} else {
-					message.addPart(messagePart=message.createPart(
-							Base64.getDecoder().decode(partNode.getTextContent()), contentType));
-					
-				}
+				final ByteArrayOutputStream content = new ByteArrayOutputStream();
+				readBase64(reader, (data, length) -> content.write(data, 0, length));
+				messagePart = message.createPart(content.toByteArray(), contentType);
 			}
-			messagePart.setHeaderField("Content-ID", contentID);
 		}
+		messagePart.setHeaderField("Content-ID", contentID);
+		message.addPart(messagePart);
 	}
 
-	private void readProperties(Document doc, Message message) throws XPathExpressionException, JMSException {
-		XPath xpath = getXPath();
-		NodeList propertyNodes = (NodeList) xpath.evaluate(
-				"/" + getQualifiedMessageElementName() + "/property", doc, XPathConstants.NODESET);
-		
-		for(int i=0; i<propertyNodes.getLength(); i++) {
-			Node propertyNode = propertyNodes.item(i);
-			
-			String propertyName = getAttributeValue(propertyNode, "name");
-			String propertyValue = getAttributeValue(propertyNode, "value");
-			String propertyType = getAttributeValue(propertyNode, "type");
+	private void readProperty(XMLStreamReader reader, Message message) throws XMLStreamException, JMSException {
+		String propertyName = reader.getAttributeValue(null, "name");
+		String propertyValue = reader.getAttributeValue(null, "value");
+		String propertyType = reader.getAttributeValue(null, "type");
+		skipElement(reader);
 
-			if(PROPERTY_EXTENDED_TYPE.equals(propertyName))
-				continue;
-			
-			if(PROPERTY_CONTENT_TYPE.equals(propertyName))
-				continue;
-			
-			if(propertyName != null && propertyName.length() > 0)
-				message.setObjectProperty(propertyName, createPropertyObject(propertyType, propertyValue));
-		}
+		if(PROPERTY_EXTENDED_TYPE.equals(propertyName))
+			return;
+		
+		if(PROPERTY_CONTENT_TYPE.equals(propertyName))
+			return;
+		
+		if(propertyName != null && propertyName.length() > 0)
+			message.setObjectProperty(propertyName, createPropertyObject(propertyType, propertyValue));
 	}
 
 	/**
@@ -581,24 +563,125 @@ public abstract class BaseMessage implements SaveableMessage {
 		return value;
 	}
 	
-	private void readHeaders(Document doc, Message message) throws XPathExpressionException, JMSException {
-		XPath xpath = getXPath();
-		NodeList headerNodes = (NodeList) xpath.evaluate(
-			"/" + getQualifiedMessageElementName() + "/header", doc, XPathConstants.NODESET);
+	private void readHeader(XMLStreamReader reader, Message message) throws XMLStreamException, JMSException {
+		String headerName = reader.getAttributeValue(null, "name");
+		String headerValue = reader.getAttributeValue(null, "value");
+		skipElement(reader);
 		
-		for(int i=0; i<headerNodes.getLength(); i++) {
-			Node headerNode = headerNodes.item(i);
-			
-			String headerName = getAttributeValue(headerNode, "name");
-			String headerValue = getAttributeValue(headerNode, "value");
-			
-			if(HEADER_JMSCORRELATIONID.equals(headerName)) {
-				message.setJMSCorrelationID(headerValue);
-//			FIXME Need to find a way to extract the reply to as a JMSDestination object
-//			} else if(HEADER_JMSREPLYTO.equals(headerName)) {
-//				message.setReplyTo(headerValue);
-			} else {
-				System.err.println("Header name " + headerName + " not supported. Ignored.");
+		if(HEADER_JMSCORRELATIONID.equals(headerName)) {
+			message.setJMSCorrelationID(headerValue);
+//		FIXME Need to find a way to extract the reply to as a JMSDestination object
+//		} else if(HEADER_JMSREPLYTO.equals(headerName)) {
+//			message.setReplyTo(headerValue);
+		} else {
+			System.err.println("Header name " + headerName + " not supported. Ignored.");
+		}
+	}
+	
+	/**
+	 * Return all text inside the current element, like {@link org.w3c.dom.Node#getTextContent()}.
+	 * The reader is left on the end of the element.
+	 */
+	private static String readText(XMLStreamReader reader) throws XMLStreamException {
+		final StringBuilder text = new StringBuilder();
+		for(int depth = 1; depth > 0;) {
+			switch(reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			}
+		}
+		return text.toString();
+	}
+	
+	private interface ByteSink {
+		void write(byte[] data, int length) throws JMSException;
+	}
+	
+	/**
+	 * Decode the Base64 text inside the current element in chunks and pass the decoded bytes
+	 * to the sink, so the encoded text is never held in memory as a whole. Whitespace is
+	 * ignored. The reader is left on the end of the element.
+	 */
+	private static void readBase64(XMLStreamReader reader, ByteSink sink) throws XMLStreamException, JMSException {
+		final Base64.Decoder decoder = Base64.getDecoder();
+		final byte[] encoded = new byte[READ_BUFFER_SIZE];
+		final byte[] decoded = new byte[READ_BUFFER_SIZE / 4 * 3];
+		int length = 0;
+		
+		for(int depth = 1; depth > 0;) {
+			switch(reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				final char[] chars = reader.getTextCharacters();
+				final int end = reader.getTextStart() + reader.getTextLength();
+				for(int i = reader.getTextStart(); i < end; i++) {
+					final char c = chars[i];
+					if(Character.isWhitespace(c))
+						continue;
+					if(c > 0x7f)
+						throw new IllegalArgumentException("Illegal base64 character " + Integer.toString(c, 16));
+					
+					encoded[length++] = (byte)c;
+					// The buffer is a multiple of 4 characters long, so it always holds complete groups
+					if(length == encoded.length) {
+						sink.write(decoded, decoder.decode(encoded, decoded));
+						length = 0;
+					}
+				}
+				break;
+			}
+		}
+		
+		if(length > 0) {
+			sink.write(decoded, decoder.decode(Arrays.copyOf(encoded, length), decoded));
+		}
+	}
+	
+	/**
+	 * Move to the next child element of the current element, skipping text and comments.
+	 * 
+	 * @return false when the end of the current element was reached instead
+	 */
+	private static boolean nextElement(XMLStreamReader reader) throws XMLStreamException {
+		while(true) {
+			switch(reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				return true;
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.END_DOCUMENT:
+				return false;
+			}
+		}
+	}
+	
+	/**
+	 * Skip the rest of the current element, leaving the reader on its end.
+	 */
+	private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		for(int depth = 1; depth > 0;) {
+			switch(reader.next()) {
+			case XMLStreamConstants.START_ELEMENT:
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				depth--;
+				break;
 			}
 		}
 	}
@@ -706,20 +789,4 @@ public abstract class BaseMessage implements SaveableMessage {
 		
 		return index;
 	}
-
-	private String getAttributeValue(Node node, String attribute) {
-		NamedNodeMap map = node.getAttributes();
-		Node attributeNode = map.getNamedItem(attribute);
-		
-		if(attributeNode == null)
-			return null;
-		
-		return attributeNode.getTextContent();
-	}
-	
-	private XPath getXPath() {
-		XPath xpath = xpathFactory.newXPath();
-		xpath.setNamespaceContext(namespaceContext);
-		return xpath;
-	}
 }
\ No newline at end of file
@@ -69,10 +69,6 @@ public final class ESBMessage extends BaseMessage {
 	private static String MSG_ROOT_ELEMENT= "esbmsg";
 	private static String FILE_EXTENSION= ".esbmsg";
 
-	{
-		initialize(MSG_PREFIX, MSG_NAMESPACE);
-	}
-
 	public static String getFileExtension() {
 		return FILE_EXTENSION;
 	}
@@ -0,0 +1,409 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import nl.queuemanager.core.util.MessageCodec;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Reads and writes message archives: many messages in a single file, so exporting a whole
+ * queue does not create a file per message.
+ * <p>
+ * An archive has the following structure, all numbers are big-endian:
+ * <pre>
+ *  header   "MMAR", version (1 byte), flags (1 byte, bit 0: records are deflated)
+ *  record   length (int), the message (length bytes)
+ *  ...
+ *  index    number of records (int), offset of each record (long),
+ *           offset of the index (long), "MMAX"
+ * </pre>
+ * Each record is a message encoded with {@link MessageCodec}. The index at the end allows
+ * reading any message without reading the ones before it. An archive that was not closed
+ * properly has no index, its messages are found by skipping from record to record.
+ * 
+ * @author gerco
+ *
+ */
+public final class MessageArchive {
+	private static final String FILE_EXTENSION = ".mmarchive";
+	
+	private static final byte[] MAGIC = {'M', 'M', 'A', 'R'};
+	private static final byte[] INDEX_MAGIC = {'M', 'M', 'A', 'X'};
+	private static final int VERSION = 1;
+	private static final int FLAG_DEFLATED = 1;
+	private static final int HEADER_SIZE = MAGIC.length + 2;
+	private static final int TRAILER_SIZE = 8 + INDEX_MAGIC.length;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	
+	private MessageArchive() {
+	}
+	
+	public static String getFileExtension() {
+		return FILE_EXTENSION;
+	}
+	
+	/**
+	 * Create a new archive, replacing the file if it exists.
+	 * 
+	 * @param file
+	 * @param compress Whether to deflate the messages
+	 * @return The writer, which must be closed to write the index
+	 * @throws IOException
+	 */
+	public static Writer create(File file, boolean compress) throws IOException {
+		return new Writer(file, compress);
+	}
+	
+	/**
+	 * Open an existing archive.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException When the file is not an archive or can not be read
+	 */
+	public static Reader open(File file) throws IOException {
+		return new Reader(file);
+	}
+	
+	/**
+	 * Read the number of messages in an archive from its index, without reading the messages.
+	 * 
+	 * @param file
+	 * @return The number of messages or -1 when the archive has no index
+	 * @throws IOException When the file is not an archive or can not be read
+	 */
+	public static int countMessages(File file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			readHeader(channel, file);
+			final long indexOffset = findIndex(channel);
+			return indexOffset < 0 ? -1 : readInt(channel, indexOffset);
+		}
+	}
+	
+	/**
+	 * Writes messages to an archive, one after another.
+	 */
+	public static final class Writer implements Closeable {
+		private final DataOutputStream out;
+		private final Deflater deflater;
+		private final ByteArrayOutputStream deflated;
+		private final byte[] buffer;
+		private long[] offsets = new long[1024];
+		private int count;
+		private long position;
+		
+		private Writer(File file, boolean compress) throws IOException {
+			final FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+				out.write(MAGIC);
+				out.writeByte(VERSION);
+				out.writeByte(compress ? FLAG_DEFLATED : 0);
+				position = HEADER_SIZE;
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+			
+			deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+			deflated = compress ? new ByteArrayOutputStream() : null;
+			buffer = compress ? new byte[BUFFER_SIZE] : null;
+		}
+		
+		/**
+		 * Add a message to the end of the archive.
+		 * 
+		 * @param message
+		 * @throws IOException
+		 * @throws JMSException
+		 */
+		public void append(Message message) throws IOException, JMSException {
+			byte[] data = MessageCodec.encode(message);
+			if(deflater != null) {
+				data = deflate(data);
+			}
+			
+			if(count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+			offsets[count++] = position;
+			
+			out.writeInt(data.length);
+			out.write(data);
+			position += 4 + data.length;
+		}
+		
+		/**
+		 * @return The number of messages written so far
+		 */
+		public int size() {
+			return count;
+		}
+		
+		/**
+		 * Write the index and close the file.
+		 */
+		public void close() throws IOException {
+			try {
+				out.writeInt(count);
+				for(int i = 0; i < count; i++) {
+					out.writeLong(offsets[i]);
+				}
+				out.writeLong(position);
+				out.write(INDEX_MAGIC);
+			} finally {
+				if(deflater != null) {
+					deflater.end();
+				}
+				out.close();
+			}
+		}
+		
+		private byte[] deflate(byte[] data) {
+			deflated.reset();
+			deflater.reset();
+			deflater.setInput(data);
+			deflater.finish();
+			while(!deflater.finished()) {
+				deflated.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return deflated.toByteArray();
+		}
+	}
+	
+	/**
+	 * Reads messages from an archive, either one after another with {@link #next()} or
+	 * by their position with {@link #read(int)}.
+	 */
+	public static final class Reader implements Closeable {
+		private final FileChannel channel;
+		private final boolean deflated;
+		private final Inflater inflater;
+		private final long[] offsets;
+		private final DataInputStream in;
+		private int nextIndex;
+		
+		private Reader(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				deflated = (readHeader(channel, file) & FLAG_DEFLATED) != 0;
+				
+				long[] index = readIndex();
+				// When the archive was not closed properly, find the records by skipping from one to the next
+				offsets = index != null ? index : scanOffsets();
+				in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(HEADER_SIZE)), BUFFER_SIZE));
+			} catch (IOException | RuntimeException e) {
+				channel.close();
+				throw e;
+			}
+			
+			inflater = deflated ? new Inflater() : null;
+		}
+		
+		/**
+		 * @return The number of messages in the archive
+		 */
+		public int size() {
+			return offsets.length;
+		}
+		
+		/**
+		 * Read the next message.
+		 * 
+		 * @return The message or null at the end of the archive
+		 * @throws IOException
+		 * @throws JMSException
+		 */
+		public Message next() throws IOException, JMSException {
+			if(nextIndex >= offsets.length)
+				return null;
+			
+			final byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			nextIndex++;
+			return decode(data);
+		}
+		
+		/**
+		 * Read a message by its position in the archive. Does not change the message
+		 * returned by {@link #next()}.
+		 * 
+		 * @param index
+		 * @return
+		 * @throws IOException
+		 * @throws JMSException
+		 */
+		public Message read(int index) throws IOException, JMSException {
+			final ByteBuffer data = ByteBuffer.allocate(readInt(channel, offsets[index]));
+			readFully(channel, data, offsets[index] + 4);
+			return decode(data.array());
+		}
+		
+		public void close() throws IOException {
+			if(inflater != null) {
+				inflater.end();
+			}
+			in.close();
+		}
+		
+		private Message decode(byte[] data) throws IOException, JMSException {
+			if(deflated) {
+				data = inflate(data);
+			}
+			return MessageCodec.decode(data);
+		}
+		
+		private byte[] inflate(byte[] data) throws IOException {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+			final byte[] buffer = new byte[BUFFER_SIZE];
+			inflater.reset();
+			inflater.setInput(data);
+			try {
+				while(!inflater.finished()) {
+					int inflated = inflater.inflate(buffer);
+					if(inflated == 0 && inflater.needsInput())
+						throw new EOFException("Truncated message in archive");
+					out.write(buffer, 0, inflated);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("Corrupt message in archive", e);
+			}
+			return out.toByteArray();
+		}
+		
+		/**
+		 * @return The offsets from the index or null when the archive has no index
+		 */
+		private long[] readIndex() throws IOException {
+			final long indexOffset = findIndex(channel);
+			if(indexOffset < 0)
+				return null;
+			
+			final int count = readInt(channel, indexOffset);
+			final ByteBuffer index = ByteBuffer.allocate(count * 8);
+			readFully(channel, index, indexOffset + 4);
+			index.flip();
+			final long[] offsets = new long[count];
+			index.asLongBuffer().get(offsets);
+			return offsets;
+		}
+		
+		private long[] scanOffsets() throws IOException {
+			final List<Long> offsets = new ArrayList<Long>();
+			final long end = channel.size();
+			long offset = HEADER_SIZE;
+			while(offset + 4 <= end) {
+				final int size = readInt(channel, offset);
+				final long next = offset + 4 + size;
+				if(size < 0 || next > end)
+					break;
+				offsets.add(offset);
+				offset = next;
+			}
+			
+			final long[] result = new long[offsets.size()];
+			for(int i = 0; i < result.length; i++) {
+				result[i] = offsets.get(i);
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * Check the header of an archive.
+	 * 
+	 * @return The flags of the archive
+	 * @throws IOException When the file is not an archive of a supported version
+	 */
+	private static int readHeader(FileChannel channel, File file) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		readFully(channel, header, 0);
+		header.flip();
+		for(byte b: MAGIC) {
+			if(header.get() != b)
+				throw new IOException(file + " is not a message archive");
+		}
+		final int version = header.get();
+		if(version != VERSION)
+			throw new IOException("Unsupported message archive version " + version);
+		return header.get();
+	}
+	
+	/**
+	 * Find the index from the trailer at the end of the archive.
+	 * 
+	 * @return The offset of the index, or -1 when the archive has no valid index
+	 */
+	private static long findIndex(FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if(size < HEADER_SIZE + 4 + TRAILER_SIZE)
+			return -1;
+		
+		final ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+		readFully(channel, trailer, size - TRAILER_SIZE);
+		trailer.flip();
+		final long indexOffset = trailer.getLong();
+		for(byte b: INDEX_MAGIC) {
+			if(trailer.get() != b)
+				return -1;
+		}
+		if(indexOffset < HEADER_SIZE || indexOffset > size - TRAILER_SIZE - 4)
+			return -1;
+		
+		final int count = readInt(channel, indexOffset);
+		if(count < 0 || indexOffset + 4 + count * 8L + TRAILER_SIZE != size)
+			return -1;
+		
+		return indexOffset;
+	}
+	
+	private static int readInt(FileChannel channel, long offset) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(4);
+		readFully(channel, buffer, offset);
+		buffer.flip();
+		return buffer.getInt();
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws IOException {
+		while(buffer.hasRemaining()) {
+			int read = channel.read(buffer, offset + buffer.position());
+			if(read < 0)
+				throw new EOFException("Unexpected end of message archive");
+		}
+	}
+}
@@ -22,28 +22,59 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
 import java.util.*;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * Receives and holds JMSMessages received from a JMS MessageConsumer.
+ * <p>
+ * Messages are held in a ring buffer, so adding a message and discarding the oldest one 
+ * take constant time. Locked messages that reach the end of the ring are moved to a 
+ * separate list instead of being discarded. Readers take an optimistic snapshot and do
+ * not block the thread that delivers messages.
  * 
  * @author Gerco Dries (gdr@progaia-rs.nl)
  *
  */
 public class MessageBuffer extends AbstractEventSource<MessageEvent> implements MessageListener, Clearable {
-	private final List<Message> messages = new ArrayList<Message>();
+	private final StampedLock lock = new StampedLock();
+	
+	/**
+	 * The ring of messages, oldest first starting at head. Every message has a sequence
+	 * number so messages moved out of the ring can be merged back in order.
+	 */
+	private Message[] ring;
+	private long[] sequence;
+	private int head;
+	private int count;
+	private long nextSequence;
+	
+	/**
+	 * Locked messages that were pushed out of the ring, oldest first. They may have been 
+	 * unlocked since, in which case they are the first to be discarded.
+	 */
+	private final List<Entry> outOfBand = new ArrayList<Entry>();
 	private final Set<Message> lockedMessages = new HashSet<Message>();
-	private final Object lock = new Object();
 	
 	private int maximumNumberOfMessages = 50;
 	
 	public MessageBuffer() {
 		super(null);
+		ring = new Message[maximumNumberOfMessages];
+		sequence = new long[maximumNumberOfMessages];
 	}
 	
 	public void onMessage(Message message) {
-		synchronized(lock) {
-			makeRoomForNewMessage();
-			this.messages.add(message);
+		final List<Message> discarded;
+		final long stamp = lock.writeLock();
+		try {
+			discarded = makeRoomForNewMessage();
+			append(message, nextSequence++);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+		
+		for(Message m: discarded) {
+			dispatchEvent(new MessageEvent(MessageEvent.EVENT.MESSAGE_DISCARDED, m, this));
 		}
 		
 		try {
@@ -56,75 +87,250 @@ public class MessageBuffer extends AbstractEventSource<MessageEvent> implements
 	}
 
 	/**
-	 * Walks the buffer for messages to remove until there is room in the buffer for
-	 * one more message. May remove more than one message if the buffer is over-filled
-	 * because of previously locked messages.
+	 * Discards the oldest unlocked messages until there is room in the buffer for one 
+	 * more message. May remove more than one message if the buffer is over-filled because
+	 * of previously locked messages. Must be called with the write lock held.
+	 * 
+	 * @return The discarded messages
 	 */
-	private void makeRoomForNewMessage() {
-		if(messages.size() < getMaximumNumberOfMessages())
-			return;
+	private List<Message> makeRoomForNewMessage() {
+		List<Message> discarded = Collections.emptyList();
 		
-		for(Iterator<Message> it = messages.iterator(); it.hasNext();) {
-			final Message candidate = it.next();
-			if(!lockedMessages.contains(candidate)) {
-				it.remove();
-				dispatchEvent(new MessageEvent(MessageEvent.EVENT.MESSAGE_DISCARDED, candidate, this));
+		while(size() >= maximumNumberOfMessages || count == ring.length) {
+			final int oldestOutOfBand = oldestUnlockedOutOfBand();
+			if(oldestOutOfBand >= 0 && (count == 0 || outOfBand.get(oldestOutOfBand).sequence < sequence[head])) {
+				discarded = add(discarded, outOfBand.remove(oldestOutOfBand).message);
+				continue;
 			}
 			
-			if(messages.size() < getMaximumNumberOfMessages())
+			if(count == 0)
 				break;
+			
+			final long seq = sequence[head];
+			final Message oldest = removeHead();
+			if(lockedMessages.contains(oldest)) {
+				outOfBand.add(new Entry(oldest, seq));
+			} else {
+				discarded = add(discarded, oldest);
+			}
+		}
+		
+		return discarded;
+	}
+	
+	private int oldestUnlockedOutOfBand() {
+		for(int i = 0; i < outOfBand.size(); i++) {
+			if(!lockedMessages.contains(outOfBand.get(i).message))
+				return i;
 		}
+		return -1;
+	}
+	
+	private static List<Message> add(List<Message> list, Message message) {
+		if(list.isEmpty()) {
+			list = new ArrayList<Message>();
+		}
+		list.add(message);
+		return list;
+	}
+	
+	private int size() {
+		return count + outOfBand.size();
+	}
+	
+	private void append(Message message, long seq) {
+		final int index = (head + count) % ring.length;
+		ring[index] = message;
+		sequence[index] = seq;
+		count++;
+	}
+	
+	private Message removeHead() {
+		final Message message = ring[head];
+		ring[head] = null;
+		head = (head + 1) % ring.length;
+		count--;
+		return message;
 	}
 
+	/**
+	 * Returns a snapshot of the messages in the buffer, oldest first.
+	 */
 	public List<Message> getMessages() {
-		synchronized(lock) {
-			return Collections.unmodifiableList(new ArrayList<Message>(messages));
+		long stamp = lock.tryOptimisticRead();
+		List<Message> snapshot;
+		try {
+			snapshot = snapshot();
+		} catch (RuntimeException e) {
+			// Inconsistent state during an optimistic read
+			snapshot = null;
 		}
+		
+		if(snapshot == null || !lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				snapshot = snapshot();
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+		return Collections.unmodifiableList(snapshot);
+	}
+	
+	/**
+	 * Copy the messages in the buffer. May be called without holding the lock, in which
+	 * case the result must be validated before use and any exception means it is invalid.
+	 */
+	private List<Message> snapshot() {
+		final Message[] ring = this.ring;
+		final long[] sequence = this.sequence;
+		final int head = this.head;
+		final int count = Math.min(this.count, ring.length);
+		
+		final Entry[] extra = outOfBand.toArray(new Entry[0]);
+		
+		final List<Message> result = new ArrayList<Message>(count + extra.length);
+		int e = 0;
+		for(int i = 0; i < count; i++) {
+			final int index = (head + i) % ring.length;
+			while(e < extra.length && extra[e] != null && extra[e].sequence < sequence[index]) {
+				result.add(extra[e++].message);
+			}
+			result.add(ring[index]);
+		}
+		while(e < extra.length && extra[e] != null) {
+			result.add(extra[e++].message);
+		}
+		return result;
 	}
 	
 	public int getMessageCount() {
-		synchronized(lock) {
-			return messages.size();
+		long stamp = lock.tryOptimisticRead();
+		int size = size();
+		if(!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			try {
+				size = size();
+			} finally {
+				lock.unlockRead(stamp);
+			}
 		}
+		return size;
 	}
 	
 	public void remove(List<Message> messagesToRemove) {
-		synchronized(lock) {
-			messages.removeAll(messagesToRemove);
+		final Set<Message> remove = new HashSet<Message>(messagesToRemove);
+		
+		final long stamp = lock.writeLock();
+		try {
+			for(Iterator<Entry> it = outOfBand.iterator(); it.hasNext();) {
+				if(remove.contains(it.next().message))
+					it.remove();
+			}
+			
+			final int oldCount = count;
+			int kept = 0;
+			for(int i = 0; i < oldCount; i++) {
+				final int from = (head + i) % ring.length;
+				final Message message = ring[from];
+				ring[from] = null;
+				if(!remove.contains(message)) {
+					final int to = (head + kept++) % ring.length;
+					ring[to] = message;
+					sequence[to] = sequence[from];
+				}
+			}
+			count = kept;
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	public void clear() {
-		synchronized(lock) {
-			messages.clear();
+		final long stamp = lock.writeLock();
+		try {
+			Arrays.fill(ring, null);
+			head = 0;
+			count = 0;
+			outOfBand.clear();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	public void lockMessage(Message message) {
-		synchronized(lock) {
-			if(messages.contains(message)) {
+		final long stamp = lock.writeLock();
+		try {
+			if(contains(message)) {
 				lockedMessages.add(message);
 			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+	
+	private boolean contains(Message message) {
+		for(int i = 0; i < count; i++) {
+			if(message.equals(ring[(head + i) % ring.length]))
+				return true;
 		}
+		for(Entry entry: outOfBand) {
+			if(message.equals(entry.message))
+				return true;
+		}
+		return false;
 	}
 	
 	public void unlockMessage(Message message) {
-		synchronized(lock) {
+		final long stamp = lock.writeLock();
+		try {
 			lockedMessages.remove(message);
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 	
 	public void unlockAll() {
-		synchronized(lock) {
+		final long stamp = lock.writeLock();
+		try {
 			lockedMessages.clear();
+		} finally {
+			lock.unlockWrite(stamp);
 		}
 	}
 
 	public void setMaximumNumberOfMessages(int maximumNumberOfMessages) {
-		this.maximumNumberOfMessages = maximumNumberOfMessages;
+		final long stamp = lock.writeLock();
+		try {
+			this.maximumNumberOfMessages = maximumNumberOfMessages;
+			
+			// Resize the ring. When shrinking, excess messages are discarded when the next message arrives.
+			final int capacity = Math.max(1, Math.max(maximumNumberOfMessages, count));
+			final Message[] newRing = new Message[capacity];
+			final long[] newSequence = new long[capacity];
+			for(int i = 0; i < count; i++) {
+				newRing[i] = ring[(head + i) % ring.length];
+				newSequence[i] = sequence[(head + i) % ring.length];
+			}
+			ring = newRing;
+			sequence = newSequence;
+			head = 0;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
 	}
 
 	public int getMaximumNumberOfMessages() {
 		return maximumNumberOfMessages;
 	}
+	
+	private static class Entry {
+		private final Message message;
+		private final long sequence;
+		
+		public Entry(Message message, long sequence) {
+			this.message = message;
+			this.sequence = sequence;
+		}
+	}
 }
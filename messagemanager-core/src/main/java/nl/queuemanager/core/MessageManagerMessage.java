@@ -70,10 +70,6 @@ public final class MessageManagerMessage extends BaseMessage {
 	private static String MSG_ROOT_ELEMENT= "msg";
 	private static String FILE_EXTENSION= ".mmmsg";
 
-	{
-		initialize(MSG_PREFIX, MSG_NAMESPACE);
-	}
-
 	public static String getFileExtension() {
 		return FILE_EXTENSION;
 	}
@@ -0,0 +1,215 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import nl.queuemanager.core.util.MessageCodec;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An append-only log of messages on disk. Messages are encoded with {@link MessageCodec}
+ * and appended to memory-mapped segment files of a fixed size. Only the position of each
+ * message is kept on the heap, so the log can hold far more messages than a MessageBuffer.
+ * <p>
+ * The segment files are deleted when the log is cleared or closed, or else when the JVM exits.
+ *
+ * @author gerco
+ *
+ */
+public class MessageSpillLog implements Closeable {
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	private final Logger log = Logger.getLogger(getClass().getName());
+
+	private final Path directory;
+	private final int segmentSize;
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	/**
+	 * The position of every message, the segment number in the upper 32 bits and the
+	 * offset in the segment in the lower 32 bits.
+	 */
+	private long[] positions = new long[1024];
+	private int count;
+	private long bytesWritten;
+
+	/**
+	 * Create a log in a new temporary directory. The directory is removed when the log is closed.
+	 */
+	public static MessageSpillLog createTemporary() throws IOException {
+		Path directory = Files.createTempDirectory("messagemanager-spill");
+		directory.toFile().deleteOnExit();
+		return new MessageSpillLog(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param directory The directory to create the segment files in
+	 * @param segmentSize The size of a segment file in bytes. Messages larger than this get
+	 *        a segment of their own.
+	 */
+	public MessageSpillLog(Path directory, int segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Append a message to the end of the log.
+	 *
+	 * @param message
+	 * @throws JMSException When the message can not be read
+	 * @throws IOException When the message can not be written to disk
+	 */
+	public void append(Message message) throws JMSException, IOException {
+		// Encode outside the lock, this is the expensive part
+		final byte[] data = MessageCodec.encode(message);
+
+		synchronized(this) {
+			Segment segment = segments.isEmpty() ? null : segments.get(segments.size()-1);
+			if(segment == null || segment.buffer.remaining() < data.length + 4) {
+				segment = newSegment(Math.max(segmentSize, data.length + 4));
+			}
+
+			final int offset = segment.buffer.position();
+			segment.buffer.putInt(data.length);
+			segment.buffer.put(data);
+
+			if(count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+			}
+			positions[count++] = ((long)(segments.size()-1) << 32) | offset;
+			bytesWritten += data.length + 4;
+		}
+	}
+
+	/**
+	 * Return a range of messages from the log.
+	 *
+	 * @param from The position of the first message, starting at 0
+	 * @param max The maximum number of messages to return
+	 * @return The messages, in the order they were appended
+	 * @throws JMSException When a message can not be decoded
+	 */
+	public List<Message> getMessages(int from, int max) throws JMSException {
+		final List<byte[]> data = new ArrayList<byte[]>();
+		synchronized(this) {
+			for(int i = Math.max(0, from); i < count && data.size() < max; i++) {
+				final Segment segment = segments.get((int)(positions[i] >>> 32));
+				final ByteBuffer buffer = segment.buffer.duplicate();
+				buffer.position((int)positions[i]);
+				final byte[] bytes = new byte[buffer.getInt()];
+				buffer.get(bytes);
+				data.add(bytes);
+			}
+		}
+
+		final List<Message> messages = new ArrayList<Message>(data.size());
+		for(byte[] bytes: data) {
+			messages.add(MessageCodec.decode(bytes));
+		}
+		return messages;
+	}
+
+	/**
+	 * @return The number of messages in the log
+	 */
+	public synchronized int getMessageCount() {
+		return count;
+	}
+
+	/**
+	 * @return The number of bytes used by the messages in the log
+	 */
+	public synchronized long getSize() {
+		return bytesWritten;
+	}
+
+	/**
+	 * Remove all messages from the log and delete the segment files.
+	 */
+	public synchronized void clear() {
+		for(Segment segment: segments) {
+			segment.delete();
+		}
+		segments.clear();
+		positions = new long[1024];
+		count = 0;
+		bytesWritten = 0;
+	}
+
+	/**
+	 * Remove all messages and the directory of the log.
+	 */
+	public synchronized void close() {
+		clear();
+		try {
+			Files.deleteIfExists(directory);
+		} catch (IOException e) {
+			log.log(Level.FINE, "Unable to delete " + directory, e);
+		}
+	}
+
+	private Segment newSegment(int size) throws IOException {
+		final Path file = directory.resolve(String.format("segment-%05d.log", segments.size()));
+		final Segment segment = new Segment(file, size);
+		segments.add(segment);
+		return segment;
+	}
+
+	private class Segment {
+		private final Path file;
+		private final FileChannel channel;
+		private final MappedByteBuffer buffer;
+
+		public Segment(Path file, int size) throws IOException {
+			this.file = file;
+			this.channel = FileChannel.open(file,
+					StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			// In case the log is never closed. The JVM deletes it before the directory it is in.
+			file.toFile().deleteOnExit();
+			try {
+				this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+			} catch (IOException e) {
+				channel.close();
+				Files.deleteIfExists(file);
+				throw e;
+			}
+		}
+
+		public void delete() {
+			try {
+				channel.close();
+				Files.deleteIfExists(file);
+			} catch (IOException e) {
+				// The file can not be deleted while it is still mapped on some platforms
+				log.log(Level.FINE, "Unable to delete " + file + ", deleting on exit", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Deque;
+
+/**
+ * Writes an XML document element by element without building it in memory first. The output
+ * is indented and escaped the same way the JAXP Transformer does: line breaks and tabs in
+ * attribute values and carriage returns anywhere are written as character references, so they
+ * survive reading the document back. The StAX XMLStreamWriter writes them as-is, which loses
+ * them when the document is parsed.
+ * 
+ * @author gerco
+ *
+ */
+final class StreamingXmlWriter implements Closeable {
+	private static final String INDENT = "    ";
+	
+	private final Writer out;
+	private final Deque<String> elements = new ArrayDeque<String>();
+	
+	/**
+	 * The levels of the open elements that contain child elements
+	 */
+	private final BitSet withChildren = new BitSet();
+	
+	/**
+	 * Whether the start tag of the current element still needs to be closed with &gt;
+	 */
+	private boolean startTagOpen;
+	
+	StreamingXmlWriter(Writer out) throws IOException {
+		this.out = out;
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+	}
+	
+	public void startElement(String name) throws IOException {
+		closeStartTag();
+		
+		final int depth = elements.size();
+		if(depth > 0) {
+			withChildren.set(depth - 1);
+			newLine(depth);
+		}
+		withChildren.clear(depth);
+		
+		out.write('<');
+		out.write(name);
+		elements.push(name);
+		startTagOpen = true;
+	}
+	
+	/**
+	 * Add an attribute to the element that was just started.
+	 * 
+	 * @param name
+	 * @param value The value, null values are written as an empty string
+	 * @throws IOException
+	 */
+	public void attribute(String name, String value) throws IOException {
+		if(!startTagOpen)
+			throw new IllegalStateException("Attributes must be written before the content of an element");
+		
+		out.write(' ');
+		out.write(name);
+		out.write("=\"");
+		escape(value == null ? "" : value, true);
+		out.write('"');
+	}
+	
+	public void text(String text) throws IOException {
+		if(text == null || text.isEmpty())
+			return;
+		
+		closeStartTag();
+		escape(text, false);
+	}
+	
+	/**
+	 * Start base64 encoded text content. Closing the returned stream finishes the encoding, 
+	 * it does not close this writer.
+	 * 
+	 * @return The stream to write the bytes to encode to
+	 * @throws IOException
+	 */
+	public OutputStream base64() throws IOException {
+		closeStartTag();
+		return Base64.getEncoder().wrap(new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				for(int i = off; i < off + len; i++) {
+					out.write(b[i]);
+				}
+			}
+			
+			@Override
+			public void close() {
+				// The encoder closes this stream when it is done, the writer stays open
+			}
+		});
+	}
+	
+	public void endElement() throws IOException {
+		final String name = elements.pop();
+		final int depth = elements.size();
+		
+		if(startTagOpen) {
+			out.write("/>");
+			startTagOpen = false;
+		} else {
+			if(withChildren.get(depth)) {
+				newLine(depth);
+			}
+			out.write("</");
+			out.write(name);
+			out.write('>');
+		}
+		
+		if(depth == 0) {
+			out.write('\n');
+		}
+	}
+	
+	public void close() throws IOException {
+		out.close();
+	}
+	
+	private void closeStartTag() throws IOException {
+		if(startTagOpen) {
+			out.write('>');
+			startTagOpen = false;
+		}
+	}
+	
+	private void newLine(int depth) throws IOException {
+		out.write('\n');
+		for(int i = 0; i < depth; i++) {
+			out.write(INDENT);
+		}
+	}
+	
+	private void escape(String text, boolean attribute) throws IOException {
+		int start = 0;
+		for(int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			final String replacement;
+			switch(c) {
+			case '&': replacement = "&amp;"; break;
+			case '<': replacement = "&lt;"; break;
+			case '>': replacement = "&gt;"; break;
+			case '"': replacement = attribute ? "&quot;" : null; break;
+			case '\n': replacement = attribute ? "&#10;" : null; break;
+			case '\t': replacement = attribute ? "&#9;" : null; break;
+			default: replacement = c < 0x20 ? "&#" + (int)c + ";" : null; break;
+			}
+			
+			if(replacement != null) {
+				out.write(text, start, i - start);
+				out.write(replacement);
+				start = i + 1;
+			}
+		}
+		out.write(text, start, text.length() - start);
+	}
+}
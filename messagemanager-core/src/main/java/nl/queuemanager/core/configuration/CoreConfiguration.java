@@ -27,6 +27,31 @@ public interface CoreConfiguration {
 	public static final String DEFAULT_MAX_BUFFERED_MSG = "50";
 	public static final String PREF_AUTOREFRESH_INTERVAL = "autoRefreshInterval";
 	public static final String DEFAULT_AUTOREFRESH_INTERVAL = "5000";
+	public static final String PREF_BROWSE_BATCH_SIZE = "browseBatchSize";
+	public static final String DEFAULT_BROWSE_BATCH_SIZE = "250";
+	public static final String PREF_BROWSE_BATCH_INTERVAL = "browseBatchInterval";
+	public static final String DEFAULT_BROWSE_BATCH_INTERVAL = "100";
+	public static final String PREF_BROWSE_PAGE_SIZE = "browsePageSize";
+	public static final String DEFAULT_BROWSE_PAGE_SIZE = "1000";
+	public static final String PREF_BROWSE_MAX_MEMORY = "browseMaxMemory";
+	public static final String DEFAULT_BROWSE_MAX_MEMORY = "256";
+	public static final String PREF_BROKER_PARALLELISM = "brokerParallelism";
+	public static final String DEFAULT_BROKER_PARALLELISM = "3";
+	public static final String PREF_BROWSE_HEADERS_ONLY = "browseHeadersOnly";
+	public static final String DEFAULT_BROWSE_HEADERS_ONLY = "false";
+	public static final String PREF_BROWSE_BODY_CACHE_SIZE = "browseBodyCacheSize";
+	public static final String DEFAULT_BROWSE_BODY_CACHE_SIZE = "50";
+	public static final String PREF_BULK_OPERATION_SIZE = "bulkOperationSize";
+	public static final String DEFAULT_BULK_OPERATION_SIZE = "200";
+	public static final String PREF_SEND_COMMIT_SIZE = "sendCommitSize";
+	public static final String DEFAULT_SEND_COMMIT_SIZE = "100";
+	public static final String PREF_SEND_ASYNC = "sendAsync";
+	public static final String DEFAULT_SEND_ASYNC = "false";
+	public static final String PREF_SUBSCRIBER_UPDATE_INTERVAL = "subscriberUpdateInterval";
+	public static final String DEFAULT_SUBSCRIBER_UPDATE_INTERVAL = "100";
+	public static final String PREF_SUBSCRIBER_SPILL_TO_DISK = "subscriberSpillToDisk";
+	public static final String DEFAULT_SUBSCRIBER_SPILL_TO_DISK = "false";
+	public static final String PREF_BROWSE_SELECTOR_HISTORY = "browseSelectorHistory";
 	public static final String PREF_BROKER_ALTERNATE_URL = "alternateUrl";
 	public static final String PREF_PLUGIN_MODULES = "pluginModules";
 	public static final String PREF_LAST_RUN_BUILD = "lastRunBuild";
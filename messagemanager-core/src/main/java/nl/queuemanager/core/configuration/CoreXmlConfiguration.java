@@ -16,6 +16,8 @@
 package nl.queuemanager.core.configuration;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.java.Log;
 import nl.queuemanager.core.MapNamespaceContext;
 import nl.queuemanager.core.Version;
@@ -28,6 +30,7 @@ import org.w3c.dom.*;
 
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.io.File;
@@ -51,6 +54,12 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 	private final XPathFactory xpf;
 	private final XPath xp;
 	
+	/**
+	 * Compiled expressions by their text. Only used while holding the configuration lock,
+	 * because XPath objects are not thread safe.
+	 */
+	private final Cache<String, XPathExpression> expressions = CacheBuilder.newBuilder().maximumSize(256).build();
+	
 	CoreXmlConfiguration(File configFile, String namespaceUri, String elementName) {
 		super(configFile, namespaceUri, elementName);
 		
@@ -125,7 +134,7 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 				public String apply(Element prefs) throws Exception {
 					final String expr = String.format("/c:%s/c:Broker[@name='%s']/c:%s", 
 							rootElementName, broker.getPreferenceKey(), key);
-					return (String)xp.evaluate(expr, prefs, XPathConstants.STRING);
+					return (String)compile(expr).evaluate(prefs, XPathConstants.STRING);
 				}
 			});
 			
@@ -320,7 +329,7 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 	 */
 	private List<String> getNodeValues(Node context, String xpathExpression) throws XPathExpressionException {
 		List<String> result = CollectionFactory.newArrayList();
-		NodeList resultNodes = (NodeList)xp.evaluate(xpathExpression, context, XPathConstants.NODESET);
+		NodeList resultNodes = (NodeList)compile(xpathExpression).evaluate(context, XPathConstants.NODESET);
 		if(resultNodes != null) {
 			for(int i = 0; i<resultNodes.getLength(); i++)
 				result.add(resultNodes.item(i).getTextContent());
@@ -351,8 +360,7 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 			mutateConfiguration(new Function<Element, Boolean>() {
 				@Override
 				public Boolean apply(Element prefs) throws Exception {
-					Node nodeToRemove = (Node)xp.evaluate(
-							xpathExpression, prefs, XPathConstants.NODE);
+					Node nodeToRemove = (Node)compile(xpathExpression).evaluate(prefs, XPathConstants.NODE);
 					if(nodeToRemove != null) {
 						nodeToRemove.getParentNode().removeChild(nodeToRemove);
 						return true;
@@ -376,9 +384,9 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 	 */
 	private Element getOrCreateBrokerElement(Element prefs, String brokerName)
 			throws XPathExpressionException {
-		Element brokerElement = (Element)xp.evaluate(
-				String.format("/c:%s/c:Broker[@name='%s']", rootElementName, brokerName),
-				prefs, XPathConstants.NODE);
+		Element brokerElement = (Element)compile(
+				String.format("/c:%s/c:Broker[@name='%s']", rootElementName, brokerName))
+				.evaluate(prefs, XPathConstants.NODE);
 		if(brokerElement == null) {
 			final Document doc = prefs.getOwnerDocument();
 			brokerElement = doc.createElementNS(namespaceUri, "Broker");
@@ -391,6 +399,22 @@ class CoreXmlConfiguration extends XmlFileConfiguration implements CoreConfigura
 		return brokerElement;
 	}
 		
+	/**
+	 * Compile an XPath expression or return the compiled expression from an earlier call.
+	 * 
+	 * @param xpathExpression
+	 * @return
+	 * @throws XPathExpressionException
+	 */
+	private XPathExpression compile(String xpathExpression) throws XPathExpressionException {
+		XPathExpression expression = expressions.getIfPresent(xpathExpression);
+		if(expression == null) {
+			expression = xp.compile(xpathExpression);
+			expressions.put(xpathExpression, expression);
+		}
+		return expression;
+	}
+	
 	static class JMSBrokerName implements JMSBroker {
 		private final String name;
 
@@ -184,6 +184,10 @@ class XmlConfigurationSection implements Configuration {
 	 * @return The last element of the path
 	 */
 	protected static Element getOrCreateElement(final Element context, final String namespaceUri, final String name, final String attrName, final String attrValue) {
+		return getOrCreateElement(context, namespaceUri, name, attrName, attrValue, true);
+	}
+	
+	private static Element getOrCreateElement(final Element context, final String namespaceUri, final String name, final String attrName, final String attrValue, final boolean append) {
 		final boolean haveAttr = !(Strings.isNullOrEmpty(attrName) || Strings.isNullOrEmpty(attrValue));
 		
 		// Check if the element already exists
@@ -203,7 +207,9 @@ class XmlConfigurationSection implements Configuration {
 		if(haveAttr) {
 			newElement.setAttribute(attrName, attrValue);
 		}
-		context.appendChild(newElement);
+		if(append) {
+			context.appendChild(newElement);
+		}
 		return newElement;
 	}
 	
@@ -245,26 +251,26 @@ class XmlConfigurationSection implements Configuration {
 	
 	@Override
 	public List<String> listKeys() {
-		List<String> keys = new ArrayList<String>();
 		try {
-			final NodeList res = readConfiguration(new Function<Element, NodeList>() {
+			return readConfiguration(new Function<Element, List<String>>() {
 				@Override
-				public NodeList apply(Element prefs) throws Exception {
-					return prefs.getChildNodes();
+				public List<String> apply(Element prefs) throws Exception {
+					List<String> keys = new ArrayList<String>();
+					NodeList children = prefs.getChildNodes();
+					for(int i = 0; i<children.getLength(); i++) {
+						Node item = children.item(i);
+						
+						if(item.getNodeType() == Node.ELEMENT_NODE) {
+							keys.add(item.getLocalName());
+						}
+					}
+					return keys;
 				}
 			});
-			for(int i = 0; i<res.getLength(); i++) {
-				Node item = res.item(i);
-				
-				if(item.getNodeType() == Node.ELEMENT_NODE) {
-					keys.add(res.item(i).getLocalName());
-				}
-			}
 		} catch (ConfigurationException e) {
 			e.printStackTrace();
+			return new ArrayList<String>();
 		}
-		
-		return keys;
 	}
 	
 	protected interface Function<T,R> {
@@ -272,11 +278,11 @@ class XmlConfigurationSection implements Configuration {
 	}
 
 	void mutateConfiguration(Function<? super Element, Boolean> mutateFunc) throws ConfigurationException {
-		parent.mutateConfiguration(wrap(mutateFunc));
+		parent.mutateConfiguration(wrap(mutateFunc, true));
 	}
 	
 	<R> R readConfiguration(Function<Element, R> readFunc) throws ConfigurationException {
-		return parent.readConfiguration(wrap(readFunc));
+		return parent.readConfiguration(wrap(readFunc, false));
 	}
 
 	/**
@@ -284,14 +290,17 @@ class XmlConfigurationSection implements Configuration {
 	 * configuration before executing the given Function on the correct configuration section.
 	 * 
 	 * @param func The function to be wrapped
+	 * @param create Whether to add the element for this section to the parent when it does not exist. When
+	 *        reading, a detached element is used instead so reads never change the configuration.
 	 * @return
 	 */
-	private <R> Function<Element, R> wrap(final Function<? super Element,R> func) {
+	private <R> Function<Element, R> wrap(final Function<? super Element,R> func, final boolean create) {
 		return new Function<Element, R>() {
 			@Override
 			public R apply(Element parentElement) throws Exception {
 				// Now apply the original function with the newly created element for it
-				return func.apply(getOrCreateElement(parentElement, namespaceUri, rootElementName, attrName, attrValue));
+				Element element = getOrCreateElement(parentElement, namespaceUri, rootElementName, attrName, attrValue, create);
+				return func.apply(element);
 			}
 		};
 	}
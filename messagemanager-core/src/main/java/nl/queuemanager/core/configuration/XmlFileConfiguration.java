@@ -21,16 +21,55 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
  * Implements a file-backed XmlConfigurationSection by reading and writing an XML file when values are
  * changed and read. This class implements the root element (where values can be stored) and also
  * the file reading and writing.
+ * <p>
+ * The parsed file is kept in memory and only parsed again when the modification time or size of
+ * the file changes, for example because another instance of the application wrote to it. Changes
+ * are applied to the document in memory right away and written to the file after a short delay,
+ * so a burst of changes costs a single write. When the file was changed by another process in the
+ * meantime, the pending changes are applied to the new contents of the file before writing them.
  */
 @Log
 class XmlFileConfiguration extends XmlConfigurationSection {
+	/**
+	 * Number of milliseconds changes are collected before writing them to the file
+	 */
+	static final long DEFAULT_WRITE_DELAY = 500;
+	
+	private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(
+			runnable -> {
+				Thread thread = new Thread(runnable, "Configuration writer");
+				thread.setDaemon(true);
+				return thread;
+			});
+	
+	/**
+	 * The configurations with changes that were not written yet. They are written when the
+	 * application exits, by a single shutdown hook.
+	 */
+	private static final Set<XmlFileConfiguration> unwritten = Collections.synchronizedSet(
+			Collections.newSetFromMap(new WeakHashMap<XmlFileConfiguration, Boolean>()));
+	
+	static {
+		Runtime.getRuntime().addShutdownHook(new Thread(XmlFileConfiguration::flushAll, "Configuration flush"));
+	}
+	
 	private final File configFile;
+	private final long writeDelay;
 	
 	private final Object lock = new Object();
 	
@@ -40,13 +79,34 @@ class XmlFileConfiguration extends XmlConfigurationSection {
 	private final TransformerFactory tff;
 	private final Transformer tf;
 	
+	/**
+	 * The contents of the file with the pending changes applied. Guarded by lock.
+	 */
+	private Document cached;
+	private long cachedModified;
+	private long cachedLength;
+	
+	/**
+	 * The changes that were not written to the file yet, in the order they were made. Guarded by lock.
+	 */
+	private final List<Function<? super Element, Boolean>> pending = new ArrayList<Function<? super Element, Boolean>>();
+	private ScheduledFuture<?> scheduledWrite;
+	
 	public XmlFileConfiguration(File configFile, String namespaceUri, String rootElementName) {
+		this(configFile, namespaceUri, rootElementName, DEFAULT_WRITE_DELAY);
+	}
+	
+	/**
+	 * @param writeDelay Number of milliseconds to collect changes before writing them, 0 to write every change right away
+	 */
+	XmlFileConfiguration(File configFile, String namespaceUri, String rootElementName, long writeDelay) {
 		super(namespaceUri, rootElementName);
 		
 		if(configFile == null)
 			throw new IllegalArgumentException("configFile");
 		
 		this.configFile = configFile;
+		this.writeDelay = writeDelay;
 		
 		// Initialize the XML Parser
 		dbf = DocumentBuilderFactory.newInstance();
@@ -81,19 +141,16 @@ class XmlFileConfiguration extends XmlConfigurationSection {
 	@Override
 	void mutateConfiguration(Function<? super Element, Boolean> mutateFunc) throws ConfigurationException {
 		// This lock is to make sure only one thread in this process will access the
-		// file at any time.
+		// configuration at any time.
 		synchronized(lock) {
-			// Obtain file lock. This is to make sure multiple processes synchronize properly
-			try(final FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
-				final FileLock lock = channel.lock()) {
-
-				Document configuration = readConfiguration(channel);
-				Boolean changed = mutateFunc.apply(configuration.getDocumentElement());
+			try {
+				Boolean changed = mutateFunc.apply(current().getDocumentElement());
 				if(changed) {
-					writeConfiguration(configuration, channel);
+					pending.add(mutateFunc);
+					scheduleWrite();
 				}
-			} catch (IOException e) {
-				throw new ConfigurationException(e);
+			} catch (ConfigurationException e) {
+				throw e;
 			} catch (Exception e) {
 				throw new ConfigurationException(e);
 			}
@@ -103,26 +160,131 @@ class XmlFileConfiguration extends XmlConfigurationSection {
 	@Override
 	<R> R readConfiguration(Function<Element, R> readFunc) throws ConfigurationException {
 		// This lock is to make sure only one thread in this process will access the
-		// file at any time.
+		// configuration at any time.
 		synchronized(lock) {
 			try {
-				try(final FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ)) {
-					Document configuration = readConfiguration(channel);
-					return readFunc.apply(configuration.getDocumentElement());
-				} catch (NoSuchFileException e) {
-					return readFunc.apply(newConfig().getDocumentElement());
-				} catch (IOException e) {
-					throw new ConfigurationException(e);
-				}
+				return readFunc.apply(current().getDocumentElement());
 			} catch (Exception e) {
 				throw new ConfigurationException(e);
 			}
 		}
 	}
 	
+	/**
+	 * Write the pending changes to the file now. The file is locked while writing to make sure
+	 * multiple processes synchronize properly.
+	 * 
+	 * @throws ConfigurationException
+	 */
+	void flush() throws ConfigurationException {
+		synchronized(lock) {
+			if(scheduledWrite != null) {
+				scheduledWrite.cancel(false);
+				scheduledWrite = null;
+			}
+			
+			if(pending.isEmpty()) {
+				unwritten.remove(this);
+				return;
+			}
+			
+			try(final FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+				final FileLock lock = channel.lock()) {
+				
+				// Another process may have written to the file since we last read it
+				Document configuration = cached;
+				if(configuration == null || isModified()) {
+					configuration = readConfiguration(channel);
+					applyPending(configuration);
+				}
+				
+				writeConfiguration(configuration, channel);
+				pending.clear();
+				unwritten.remove(this);
+				cached = configuration;
+				cachedModified = configFile.lastModified();
+				cachedLength = configFile.length();
+			} catch (IOException e) {
+				throw new ConfigurationException(e);
+			}
+		}
+	}
+	
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (ConfigurationException e) {
+			log.log(Level.WARNING, "Unable to save configuration, will retry on the next change.", e);
+		}
+	}
+	
+	/**
+	 * Write the pending changes of all configurations, so they are not lost when the application exits.
+	 */
+	static void flushAll() {
+		final List<XmlFileConfiguration> configurations;
+		synchronized(unwritten) {
+			configurations = new ArrayList<XmlFileConfiguration>(unwritten);
+		}
+		
+		for(XmlFileConfiguration configuration: configurations) {
+			configuration.flushQuietly();
+		}
+	}
+	
+	private void scheduleWrite() throws ConfigurationException {
+		if(writeDelay <= 0) {
+			flush();
+		} else if(scheduledWrite == null) {
+			unwritten.add(this);
+			scheduledWrite = writer.schedule(this::flushQuietly, writeDelay, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Return the configuration document, reading the file when it was changed since it was
+	 * last read or written. Must be called while holding the lock.
+	 */
+	private Document current() throws IOException {
+		if(cached == null || isModified()) {
+			final long modified = configFile.lastModified();
+			final long length = configFile.length();
+			
+			Document configuration;
+			try(final FileChannel channel = FileChannel.open(configFile.toPath(), StandardOpenOption.READ)) {
+				configuration = readConfiguration(channel);
+			} catch (NoSuchFileException e) {
+				configuration = newConfig();
+			}
+			applyPending(configuration);
+			
+			cached = configuration;
+			cachedModified = modified;
+			cachedLength = length;
+		}
+		return cached;
+	}
+	
+	private boolean isModified() {
+		return configFile.lastModified() != cachedModified || configFile.length() != cachedLength;
+	}
+	
+	/**
+	 * Apply the changes that were not written yet to a freshly read document.
+	 */
+	private void applyPending(Document configuration) {
+		for(Function<? super Element, Boolean> mutation: pending) {
+			try {
+				mutation.apply(configuration.getDocumentElement());
+			} catch (Exception e) {
+				log.log(Level.WARNING, "Unable to apply configuration change.", e);
+			}
+		}
+	}
+	
 	private Document readConfiguration(FileChannel channel) {
 		try {
-			final int fileSize = (int)configFile.length();
+			final int fileSize = (int)channel.size();
 			if(fileSize == 0) {
 				return newConfig();
 			}
@@ -149,7 +311,7 @@ class XmlFileConfiguration extends XmlConfigurationSection {
 		try {
 			tf.transform(s, r);
 			channel.truncate(0);
-			channel.write(ByteBuffer.wrap(buffer.toByteArray()));
+			channel.write(ByteBuffer.wrap(buffer.toByteArray()), 0);
 			
 			log.info("Written configuration:\n" + new String(buffer.toByteArray()));
 		} catch (TransformerException e) {
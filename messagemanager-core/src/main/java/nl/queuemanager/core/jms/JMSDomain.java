@@ -25,6 +25,7 @@ import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.jms.MessageListener;
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Enumeration;
@@ -93,7 +94,10 @@ public interface JMSDomain {
 	public abstract JMSQueue createQueue(JMSBroker broker, String queueName);
 
 	/**
-	 * Start browsing for messages on a JMSQueue created by this Domain.
+	 * Start browsing for messages on a JMSQueue created by this Domain. If the returned
+	 * Enumeration also implements {@link java.io.Closeable}, the caller must close it when
+	 * it stops browsing before the end of the Enumeration. Implementations must allow 
+	 * multiple threads to browse concurrently.
 	 * 
 	 * @param queue
 	 * @return Enumeration of Messages
@@ -101,6 +105,51 @@ public interface JMSDomain {
 	 */
 	public abstract Enumeration<Message> enumerateMessages(JMSQueue queue) throws Exception;
 
+	/**
+	 * Start browsing for the messages on a JMSQueue that match a JMS message selector, so 
+	 * the broker does the filtering. Domains that support {@link JMSFeature#QUEUE_BROWSE_SELECTOR}
+	 * must override this method, the default implementation only supports browsing without
+	 * a selector. Otherwise the same as {@link #enumerateMessages(JMSQueue)}.
+	 * 
+	 * @param queue
+	 * @param selector The message selector, null or empty to browse all messages
+	 * @return Enumeration of Messages
+	 * @throws Exception
+	 */
+	default public Enumeration<Message> enumerateMessages(JMSQueue queue, String selector) throws Exception {
+		if(selector == null || selector.trim().isEmpty())
+			return enumerateMessages(queue);
+		
+		throw new UnsupportedOperationException("Browsing with a message selector is not supported");
+	}
+
+	/**
+	 * Retrieve a single message from a JMSQueue created by this Domain without removing
+	 * it from the queue. The default implementation browses the entire queue, implementations
+	 * should override this with something more efficient where possible.
+	 * 
+	 * @param queue
+	 * @param messageID The JMSMessageID of the message to retrieve
+	 * @return The message or null when it is no longer on the queue
+	 * @throws Exception
+	 */
+	default public Message getMessage(JMSQueue queue, String messageID) throws Exception {
+		Enumeration<Message> e = enumerateMessages(queue);
+		try {
+			while(e.hasMoreElements()) {
+				Message message = e.nextElement();
+				if(message != null && messageID.equals(message.getJMSMessageID())) {
+					return message;
+				}
+			}
+			return null;
+		} finally {
+			if(e instanceof Closeable) {
+				((Closeable)e).close();
+			}
+		}
+	}
+
 	/**
 	 * Open a consumer for the specified destination and associate the specified MessageListener.
 	 * The consumer must be created on a session that allows for asynchronous delivery.
@@ -120,6 +169,38 @@ public interface JMSDomain {
 	 */
 	public abstract void sendMessage(JMSDestination destination, javax.jms.Message messageToSend) throws JMSException;
 
+	/**
+	 * Create a MessageSender for sending many messages to the same destination. The default
+	 * implementation sends every message using {@link #sendMessage(JMSDestination, Message)}
+	 * and ignores the commitSize and async parameters. Its senders may be used by different
+	 * threads at the same time, sends are serialized on this domain.
+	 * 
+	 * @param destination
+	 * @param commitSize The number of messages to send in each transaction, 1 to send without transactions
+	 * @param async Whether the sender may send messages without waiting for the broker to acknowledge each one
+	 * @return
+	 * @throws JMSException
+	 */
+	default public MessageSender createSender(final JMSDestination destination, int commitSize, boolean async) throws JMSException {
+		return new MessageSender() {
+			public Message prepare(Message message) {
+				return message;
+			}
+
+			public void send(Message message) throws JMSException {
+				synchronized(JMSDomain.this) {
+					sendMessage(destination, message);
+				}
+			}
+
+			public void flush() {
+			}
+
+			public void close() {
+			}
+		};
+	}
+
 	/**
 	 * Forward the message with the specified JMSMessageID from a JMSQueue to
 	 * another JMSDestination. The JMSDestination objects are expected to have been
@@ -132,6 +213,22 @@ public interface JMSDomain {
 	 */
 	public abstract void forwardMessage(JMSQueue from, JMSDestination to, String messageID) throws Exception;
 
+	/**
+	 * Forward a list of messages from a JMSQueue to another JMSDestination. Implementations
+	 * may move all messages in a single call to the broker, so callers should keep the list
+	 * to a reasonable size. The default implementation forwards the messages one by one.
+	 * 
+	 * @param from
+	 * @param to
+	 * @param messageIDs
+	 * @throws Exception
+	 */
+	default public void forwardMessages(JMSQueue from, JMSDestination to, List<String> messageIDs) throws Exception {
+		for(String messageID: messageIDs) {
+			forwardMessage(from, to, messageID);
+		}
+	}
+
 	/**
 	 * Delete all messages on the given list of queues. All queues must be created by this Domain instance.
 	 * 
@@ -141,7 +238,9 @@ public interface JMSDomain {
 	public abstract void deleteMessages(List<JMSQueue> queueList) throws Exception;
 
 	/**
-	 * Delete the given set of messages from the queue.
+	 * Delete the given set of messages from the queue. Implementations may delete all 
+	 * messages in a single call to the broker, so callers should keep the list to a 
+	 * reasonable size.
 	 * 
 	 * @param queue
 	 * @param messages
@@ -3,6 +3,7 @@ package nl.queuemanager.core.jms;
 public enum JMSFeature {
 	FORWARD_MESSAGE,
 	QUEUE_MESSAGES_SIZE,
+	QUEUE_STATISTICS,
 	QUEUE_CAPACITY,
 	QUEUE_CLEAR_MESSAGES,
     QUEUE_DELETE_MESSAGES,
@@ -10,5 +11,6 @@ public enum JMSFeature {
 	TOPIC_SUBSCRIBER_CREATION,
 	DESTINATION_TYPE_QUEUE,
 	DESTINATION_TYPE_TOPIC,
-	MESSAGE_SET_PRIORITY;
+	MESSAGE_SET_PRIORITY,
+	QUEUE_BROWSE_SELECTOR;
 }
@@ -0,0 +1,339 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.jms;
+
+import javax.jms.InvalidSelectorException;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Builds JMS message selectors for selecting messages by JMSMessageID and checks the syntax
+ * of user entered selectors.
+ *
+ * @author gerco
+ *
+ */
+public class MessageSelectors {
+
+	private MessageSelectors() {}
+
+	/**
+	 * Create a selector that matches the message with the given JMSMessageID.
+	 *
+	 * @param messageID
+	 * @return
+	 */
+	public static String messageID(String messageID) {
+		return "JMSMessageID = " + literal(messageID);
+	}
+
+	/**
+	 * Create a selector that matches all messages with one of the given JMSMessageIDs.
+	 *
+	 * @param messageIDs Must not be empty
+	 * @return
+	 */
+	public static String messageIDs(Collection<String> messageIDs) {
+		if(messageIDs.isEmpty())
+			throw new IllegalArgumentException("messageIDs must not be empty");
+
+		StringBuilder sb = new StringBuilder("JMSMessageID IN (");
+		boolean first = true;
+		for(String messageID: messageIDs) {
+			if(!first) sb.append(", ");
+			sb.append(literal(messageID));
+			first = false;
+		}
+		return sb.append(')').toString();
+	}
+
+	private static String literal(String value) {
+		return "'" + value.replace("'", "''") + "'";
+	}
+
+	/**
+	 * Check the syntax of a message selector, so a mistake can be reported before the
+	 * selector is sent to the broker. Only the syntax of the JMS selector language is
+	 * checked, the broker may still reject a selector, for example for comparing a string
+	 * to a number.
+	 *
+	 * @param selector
+	 * @throws InvalidSelectorException When the selector is not valid, describing the problem
+	 */
+	public static void validate(String selector) throws InvalidSelectorException {
+		new SelectorParser(selector).parse();
+	}
+
+	/**
+	 * A recursive descent parser for the conditional expressions of the JMS specification.
+	 */
+	private static final class SelectorParser {
+		private enum Type { IDENTIFIER, KEYWORD, STRING, NUMBER, OPERATOR, END }
+
+		private final String text;
+		private int pos;
+		private Type type;
+		private String token;
+		private int tokenStart;
+
+		SelectorParser(String text) {
+			this.text = text;
+		}
+
+		void parse() throws InvalidSelectorException {
+			next();
+			if(type == Type.END)
+				throw error("Empty selector");
+			orExpression();
+			if(type != Type.END)
+				throw error("Unexpected " + token);
+		}
+
+		private void orExpression() throws InvalidSelectorException {
+			andExpression();
+			while(keyword("OR")) {
+				next();
+				andExpression();
+			}
+		}
+
+		private void andExpression() throws InvalidSelectorException {
+			notExpression();
+			while(keyword("AND")) {
+				next();
+				notExpression();
+			}
+		}
+
+		private void notExpression() throws InvalidSelectorException {
+			if(keyword("NOT")) {
+				next();
+				notExpression();
+			} else {
+				comparison();
+			}
+		}
+
+		private void comparison() throws InvalidSelectorException {
+			arithmetic();
+
+			if(operator("=") || operator("<>") || operator("<") || operator(">") || operator("<=") || operator(">=")) {
+				next();
+				arithmetic();
+				return;
+			}
+
+			if(keyword("IS")) {
+				next();
+				if(keyword("NOT"))
+					next();
+				expectKeyword("NULL");
+				return;
+			}
+
+			final boolean not = keyword("NOT");
+			if(not)
+				next();
+
+			if(keyword("BETWEEN")) {
+				next();
+				arithmetic();
+				expectKeyword("AND");
+				arithmetic();
+			} else if(keyword("IN")) {
+				next();
+				expectOperator("(");
+				expectString();
+				while(operator(",")) {
+					next();
+					expectString();
+				}
+				expectOperator(")");
+			} else if(keyword("LIKE")) {
+				next();
+				expectString();
+				if(keyword("ESCAPE")) {
+					next();
+					expectString();
+				}
+			} else if(not) {
+				throw error("Expected BETWEEN, IN or LIKE after NOT");
+			}
+		}
+
+		private void arithmetic() throws InvalidSelectorException {
+			term();
+			while(operator("+") || operator("-")) {
+				next();
+				term();
+			}
+		}
+
+		private void term() throws InvalidSelectorException {
+			unary();
+			while(operator("*") || operator("/")) {
+				next();
+				unary();
+			}
+		}
+
+		private void unary() throws InvalidSelectorException {
+			if(operator("+") || operator("-")) {
+				next();
+				unary();
+				return;
+			}
+
+			if(operator("(")) {
+				next();
+				orExpression();
+				expectOperator(")");
+				return;
+			}
+
+			if(type == Type.IDENTIFIER || type == Type.STRING || type == Type.NUMBER || keyword("TRUE") || keyword("FALSE")) {
+				next();
+				return;
+			}
+
+			throw error(type == Type.END ? "Unexpected end of selector" : "Unexpected " + token);
+		}
+
+		private void expectKeyword(String keyword) throws InvalidSelectorException {
+			if(!keyword(keyword))
+				throw error("Expected " + keyword);
+			next();
+		}
+
+		private void expectOperator(String operator) throws InvalidSelectorException {
+			if(!operator(operator))
+				throw error("Expected " + operator);
+			next();
+		}
+
+		private void expectString() throws InvalidSelectorException {
+			if(type != Type.STRING)
+				throw error("Expected a string literal");
+			next();
+		}
+
+		private boolean keyword(String keyword) {
+			return type == Type.KEYWORD && token.equals(keyword);
+		}
+
+		private boolean operator(String operator) {
+			return type == Type.OPERATOR && token.equals(operator);
+		}
+
+		private void next() throws InvalidSelectorException {
+			while(pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+
+			tokenStart = pos;
+			if(pos >= text.length()) {
+				type = Type.END;
+				token = "";
+				return;
+			}
+
+			final char c = text.charAt(pos);
+			if(Character.isJavaIdentifierStart(c)) {
+				while(pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+					pos++;
+				}
+				token = text.substring(tokenStart, pos);
+				final String upper = token.toUpperCase(Locale.ROOT);
+				if(KEYWORDS.contains(" " + upper + " ")) {
+					type = Type.KEYWORD;
+					token = upper;
+				} else {
+					type = Type.IDENTIFIER;
+				}
+			} else if(c == '\'') {
+				pos++;
+				while(true) {
+					if(pos >= text.length())
+						throw new InvalidSelectorException("Unterminated string literal at position " + (tokenStart + 1));
+					if(text.charAt(pos++) == '\'') {
+						if(pos < text.length() && text.charAt(pos) == '\'') {
+							pos++;
+						} else {
+							break;
+						}
+					}
+				}
+				type = Type.STRING;
+				token = text.substring(tokenStart, pos);
+			} else if(Character.isDigit(c) || (c == '.' && pos + 1 < text.length() && Character.isDigit(text.charAt(pos + 1)))) {
+				number();
+			} else {
+				for(String operator: OPERATORS) {
+					if(text.startsWith(operator, pos)) {
+						pos += operator.length();
+						type = Type.OPERATOR;
+						token = operator;
+						return;
+					}
+				}
+				throw error("Unexpected character '" + c + "'");
+			}
+		}
+
+		private void number() throws InvalidSelectorException {
+			if(text.startsWith("0x", pos) || text.startsWith("0X", pos)) {
+				pos += 2;
+				while(pos < text.length() && Character.digit(text.charAt(pos), 16) >= 0) {
+					pos++;
+				}
+			} else {
+				while(pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+					pos++;
+				}
+				if(pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+					pos++;
+					if(pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) {
+						pos++;
+					}
+					if(pos >= text.length() || !Character.isDigit(text.charAt(pos)))
+						throw error("Invalid number");
+					while(pos < text.length() && Character.isDigit(text.charAt(pos))) {
+						pos++;
+					}
+				}
+			}
+			if(pos < text.length() && "lLfFdD".indexOf(text.charAt(pos)) >= 0) {
+				pos++;
+			}
+
+			type = Type.NUMBER;
+			token = text.substring(tokenStart, pos);
+			if(token.indexOf('.') != token.lastIndexOf('.'))
+				throw error("Invalid number " + token);
+			if(pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos)))
+				throw error("Invalid number");
+		}
+
+		private InvalidSelectorException error(String message) {
+			return new InvalidSelectorException(message + " at position " + (tokenStart + 1));
+		}
+
+		private static final String KEYWORDS = " AND OR NOT BETWEEN IN LIKE ESCAPE IS NULL TRUE FALSE ";
+
+		// Longer operators first, so <= is not read as <
+		private static final String[] OPERATORS = {"<>", "<=", ">=", "=", "<", ">", "+", "-", "*", "/", "(", ")", ","};
+	}
+}
@@ -0,0 +1,63 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.jms;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Sends a stream of messages to a single destination. Implementations may batch sends in
+ * transactions or send asynchronously, messages are only guaranteed to have been delivered
+ * to the broker after {@link #flush()} returns. A MessageSender may only be used by one
+ * thread at a time.
+ *
+ * @see JMSDomain#createSender(nl.queuemanager.jms.JMSDestination, int, boolean)
+ */
+public interface MessageSender {
+
+	/**
+	 * Convert a message to the format of the messaging provider. Sending a prepared message
+	 * is cheaper than sending the original, so messages that are sent more than once should
+	 * be prepared once. The original message is not modified.
+	 *
+	 * @param message
+	 * @return The prepared message, which may be the original message
+	 * @throws JMSException
+	 */
+	public Message prepare(Message message) throws JMSException;
+
+	/**
+	 * Send a message. The message may be prepared by {@link #prepare(Message)} or not.
+	 *
+	 * @param message
+	 * @throws JMSException When this or an earlier asynchronous send failed
+	 */
+	public void send(Message message) throws JMSException;
+
+	/**
+	 * Commit any pending transaction and wait for all asynchronous sends to complete.
+	 *
+	 * @throws JMSException
+	 */
+	public void flush() throws JMSException;
+
+	/**
+	 * Release the resources of this sender. Messages that have not been flushed may be lost.
+	 *
+	 * @throws JMSException
+	 */
+	public void close() throws JMSException;
+}
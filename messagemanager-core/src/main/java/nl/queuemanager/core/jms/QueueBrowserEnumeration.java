@@ -0,0 +1,78 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.jms;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+import java.io.Closeable;
+import java.util.Enumeration;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enumerates the messages of a QueueBrowser on a Session that was borrowed from a 
+ * {@link SessionPool}. The browser is closed and the Session returned to the pool when 
+ * the end of the Enumeration is reached or when the Enumeration is closed.
+ */
+public class QueueBrowserEnumeration implements Enumeration<Message>, Closeable {
+	private final Logger log = Logger.getLogger(getClass().getName());
+	
+	private final SessionPool pool;
+	private final Session session;
+	private final QueueBrowser browser;
+	private final Enumeration<?> delegate;
+	private boolean closed;
+	
+	public QueueBrowserEnumeration(SessionPool pool, Session session, QueueBrowser browser) throws JMSException {
+		this.pool = pool;
+		this.session = session;
+		this.browser = browser;
+		this.delegate = browser.getEnumeration();
+	}
+	
+	public boolean hasMoreElements() {
+		if(closed) {
+			return false;
+		}
+		
+		boolean more = delegate.hasMoreElements();
+		if(!more) {
+			close();
+		}
+		return more;
+	}
+
+	public Message nextElement() {
+		return (Message)delegate.nextElement();
+	}
+
+	public synchronized void close() {
+		if(closed) {
+			return;
+		}
+		closed = true;
+		
+		try {
+			browser.close();
+		} catch (JMSException e) {
+			log.log(Level.FINE, "Unable to close queue browser", e);
+		} finally {
+			pool.release(session);
+		}
+	}
+}
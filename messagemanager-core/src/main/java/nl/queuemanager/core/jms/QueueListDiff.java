@@ -0,0 +1,120 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.jms;
+
+import nl.queuemanager.jms.JMSQueue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between two snapshots of the queue list of a broker: the queues that were 
+ * added, the queues that were removed and the queues whose statistics changed. Queues are 
+ * matched by equals(), which compares the type and name of the destination.
+ */
+public class QueueListDiff {
+	private final List<JMSQueue> added;
+	private final List<JMSQueue> removed;
+	private final List<JMSQueue> changed;
+	
+	private QueueListDiff(List<JMSQueue> added, List<JMSQueue> removed, List<JMSQueue> changed) {
+		this.added = Collections.unmodifiableList(added);
+		this.removed = Collections.unmodifiableList(removed);
+		this.changed = Collections.unmodifiableList(changed);
+	}
+	
+	/**
+	 * Compare two snapshots of a queue list.
+	 * 
+	 * @param previous The previous snapshot
+	 * @param current The current snapshot
+	 * @return
+	 */
+	public static QueueListDiff compute(Collection<? extends JMSQueue> previous, Collection<? extends JMSQueue> current) {
+		Map<JMSQueue, JMSQueue> previousByQueue = new HashMap<JMSQueue, JMSQueue>(previous.size() * 2);
+		for(JMSQueue queue: previous) {
+			previousByQueue.put(queue, queue);
+		}
+		
+		List<JMSQueue> added = new ArrayList<JMSQueue>();
+		List<JMSQueue> changed = new ArrayList<JMSQueue>();
+		for(JMSQueue queue: current) {
+			JMSQueue old = previousByQueue.remove(queue);
+			if(old == null) {
+				added.add(queue);
+			} else if(!sameState(old, queue)) {
+				changed.add(queue);
+			}
+		}
+		
+		// Whatever is left was not in the current snapshot
+		List<JMSQueue> removed = new ArrayList<JMSQueue>(previousByQueue.size());
+		for(JMSQueue queue: previous) {
+			if(previousByQueue.containsKey(queue)) {
+				removed.add(queue);
+			}
+		}
+		
+		return new QueueListDiff(added, removed, changed);
+	}
+	
+	/**
+	 * Determine whether two snapshots of the same queue would display the same.
+	 */
+	private static boolean sameState(JMSQueue a, JMSQueue b) {
+		return a.getMessageCount() == b.getMessageCount()
+			&& a.getMessageSize() == b.getMessageSize()
+			&& a.getEnqueueCount() == b.getEnqueueCount()
+			&& a.getDequeueCount() == b.getDequeueCount()
+			&& a.getConsumerCount() == b.getConsumerCount()
+			&& a.getMemoryUsage() == b.getMemoryUsage()
+			&& a.toString().equals(b.toString());
+	}
+	
+	/**
+	 * @return The queues that are in the current snapshot but not in the previous one
+	 */
+	public List<JMSQueue> getAdded() {
+		return added;
+	}
+	
+	/**
+	 * @return The queues from the previous snapshot that are not in the current one
+	 */
+	public List<JMSQueue> getRemoved() {
+		return removed;
+	}
+	
+	/**
+	 * @return The queues from the current snapshot whose statistics differ from the previous snapshot
+	 */
+	public List<JMSQueue> getChanged() {
+		return changed;
+	}
+	
+	public boolean isEmpty() {
+		return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%d added, %d removed, %d changed", added.size(), removed.size(), changed.size());
+	}
+}
@@ -0,0 +1,99 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.jms;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A pool of JMS Sessions on a single Connection. JMS Sessions may only be used by a 
+ * single thread at a time, this pool allows concurrent tasks for the same broker to 
+ * each use their own Session. Sessions are created on demand and kept open for reuse 
+ * until the pool is closed.
+ */
+public class SessionPool {
+	private final Connection connection;
+	private final int acknowledgeMode;
+	private final Deque<Session> idleSessions;
+	private boolean closed;
+	
+	public SessionPool(Connection connection, int acknowledgeMode) {
+		this.connection = connection;
+		this.acknowledgeMode = acknowledgeMode;
+		this.idleSessions = new ArrayDeque<Session>();
+	}
+	
+	/**
+	 * Take a Session from the pool, creating a new one if there are no idle Sessions. 
+	 * The Session must be returned using {@link #release(Session)} after use.
+	 * 
+	 * @return
+	 * @throws JMSException
+	 */
+	public Session borrow() throws JMSException {
+		synchronized(idleSessions) {
+			if(closed) {
+				throw new JMSException("Session pool has been closed");
+			}
+			
+			Session session = idleSessions.poll();
+			if(session != null) {
+				return session;
+			}
+		}
+		
+		return connection.createSession(false, acknowledgeMode);
+	}
+	
+	/**
+	 * Return a Session to the pool.
+	 * 
+	 * @param session
+	 */
+	public void release(Session session) {
+		synchronized(idleSessions) {
+			if(!closed) {
+				idleSessions.push(session);
+				return;
+			}
+		}
+		
+		closeQuietly(session);
+	}
+	
+	/**
+	 * Close all idle Sessions. Sessions that are returned after this will be closed as well.
+	 */
+	public void close() {
+		synchronized(idleSessions) {
+			closed = true;
+			for(Session session: idleSessions) {
+				closeQuietly(session);
+			}
+			idleSessions.clear();
+		}
+	}
+	
+	private static void closeQuietly(Session session) {
+		try {
+			session.close();
+		} catch (JMSException e) {
+		}
+	}
+}
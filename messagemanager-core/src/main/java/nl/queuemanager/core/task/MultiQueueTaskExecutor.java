@@ -15,11 +15,14 @@
  */
 package nl.queuemanager.core.task;
 
+import nl.queuemanager.core.configuration.CoreConfiguration;
+
 import jakarta.inject.Inject;
 import java.util.*;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 
 class MultiQueueTaskExecutor implements TaskExecutor 
@@ -28,7 +31,7 @@ class MultiQueueTaskExecutor implements TaskExecutor
 	private final List<Task> waitingTasks;
 	
 	// A Map of Executors. One for each Resource.
-	private final Map<Object, ExecutorService> executors;
+	private final Map<Object, ResourceExecutor> executors;
 
 	// Protects access to both the executors Map and the waitingTasks List.
 	private final Object executorLock;
@@ -38,13 +41,16 @@ class MultiQueueTaskExecutor implements TaskExecutor
 	
 	// ThreadFactory to give to executors
 	private ThreadFactory threadFactory;
+	
+	private final CoreConfiguration config;
 		
 	@Inject
-	public MultiQueueTaskExecutor() {
+	public MultiQueueTaskExecutor(CoreConfiguration config) {
 		this.waitingTasks = new LinkedList<Task>();
-		this.executors = new HashMap<Object, ExecutorService>();
+		this.executors = new HashMap<Object, ResourceExecutor>();
 		this.executorLock = new Object();
 		this.threadFactory = new DaemonThreadFactory();
+		this.config = config;
 	}
 			
 	/* (non-Javadoc)
@@ -61,7 +67,7 @@ class MultiQueueTaskExecutor implements TaskExecutor
 			
 			// This will attempt to stop the currently running tasks and not attempt to 
 			// execute any already submitted tasks.
-			for(ExecutorService e: executors.values()) {
+			for(ResourceExecutor e: executors.values()) {
 				discardedTasks.addAll(e.shutdownNow());
 			}
 			
@@ -111,10 +117,10 @@ class MultiQueueTaskExecutor implements TaskExecutor
 		}
 		
 		synchronized(executorLock) {
-			ExecutorService e = executors.get(resource);
+			ResourceExecutor e = executors.get(resource);
 			
 			if(e == null) {
-				e = Executors.newSingleThreadExecutor(threadFactory);
+				e = new ResourceExecutor(threadFactory, getParallelism());
 				executors.put(resource, e);
 			}
 			
@@ -122,6 +128,18 @@ class MultiQueueTaskExecutor implements TaskExecutor
 		}
 	}
 	
+	/**
+	 * @return The maximum number of shared tasks to run concurrently for a single resource
+	 */
+	private int getParallelism() {
+		try {
+			return Math.max(1, Integer.parseInt(config.getUserPref(
+					CoreConfiguration.PREF_BROKER_PARALLELISM, CoreConfiguration.DEFAULT_BROKER_PARALLELISM)));
+		} catch (NumberFormatException e) {
+			return Integer.parseInt(CoreConfiguration.DEFAULT_BROKER_PARALLELISM);
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see nl.queuemanager.core.task.TaskExecutor#executeInOrder(nl.queuemanager.core.task.Task)
 	 */
@@ -177,4 +195,89 @@ class MultiQueueTaskExecutor implements TaskExecutor
 		this.contextClassLoader = contextClassLoader;
 	}
 	
+	/**
+	 * Runs the Tasks for a single resource in the order they were submitted. An exclusive
+	 * Task runs on its own, consecutive shared Tasks (see {@link Task#isSharedResource()}) 
+	 * run concurrently up to the configured parallelism.
+	 */
+	private static class ResourceExecutor implements Executor {
+		private final ExecutorService threads;
+		private final int parallelism;
+		private final LinkedList<Task> pending;
+		private int runningShared;
+		private boolean runningExclusive;
+		private boolean shutdown;
+		
+		public ResourceExecutor(ThreadFactory threadFactory, int parallelism) {
+			this.threads = Executors.newCachedThreadPool(threadFactory);
+			this.parallelism = parallelism;
+			this.pending = new LinkedList<Task>();
+		}
+		
+		public synchronized void execute(Runnable command) {
+			if(shutdown) {
+				throw new RejectedExecutionException("Executor has been shut down");
+			}
+			
+			pending.add((Task)command);
+			dispatch();
+		}
+		
+		/**
+		 * Start as many pending tasks as allowed. Must be called while holding the lock.
+		 */
+		private void dispatch() {
+			while(!pending.isEmpty() && !runningExclusive) {
+				final Task task = pending.peek();
+				if(task.isSharedResource()) {
+					if(runningShared >= parallelism) {
+						return;
+					}
+					runningShared++;
+				} else {
+					if(runningShared > 0) {
+						return;
+					}
+					runningExclusive = true;
+				}
+				
+				pending.poll();
+				threads.execute(new Runnable() {
+					public void run() {
+						try {
+							task.run();
+						} finally {
+							finished(task);
+						}
+					}
+				});
+			}
+		}
+		
+		private synchronized void finished(Task task) {
+			if(task.isSharedResource()) {
+				runningShared--;
+			} else {
+				runningExclusive = false;
+			}
+			
+			if(!shutdown) {
+				dispatch();
+			}
+		}
+		
+		/**
+		 * Interrupt the running tasks and discard the pending ones.
+		 * 
+		 * @return The tasks that were never started
+		 */
+		public synchronized List<Runnable> shutdownNow() {
+			shutdown = true;
+			List<Runnable> discarded = new ArrayList<Runnable>(pending);
+			pending.clear();
+			threads.shutdownNow();
+			return discarded;
+		}
+	}
+	
 }
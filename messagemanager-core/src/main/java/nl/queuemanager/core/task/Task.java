@@ -32,12 +32,19 @@ import java.util.Set;
  */
 public abstract class Task implements Runnable {
 
+	/**
+	 * Returned by {@link #getProgressMaximum()} when the task reports progress, but does
+	 * not know up front how much progress it will report.
+	 */
+	public static final int PROGRESS_UNKNOWN = -1;
+	
 	private MultiQueueTaskExecutor executor;
 	
 	/**
 	 * The resource object that this tasks wants to be available. A Task may
 	 * only have a single resource object or no resource object. Only a single
-	 * Task is allowed to be active per resource object at any one time.
+	 * Task is allowed to be active per resource object at any one time, unless
+	 * all active tasks for the resource are shared (see {@link #isSharedResource()}).
 	 */
 	private final Object resource;
 	
@@ -236,6 +243,7 @@ public abstract class Task implements Runnable {
 	/**
 	 * The maximum progress value reported through TASK_PROGRESS events. When this value is
 	 * reached, the task is considered complete. By default, this method returns 1.
+	 * Returns {@link #PROGRESS_UNKNOWN} when the maximum is not known.
 	 * 
 	 * @return The highest value to ever be reported through TASK_PROGRESS.
 	 */
@@ -260,6 +268,15 @@ public abstract class Task implements Runnable {
 		return false;
 	}
 
+	/**
+	 * When this Task only reads from its resource, it may run concurrently with other 
+	 * shared tasks for the same resource. It will never run concurrently with exclusive
+	 * tasks for that resource and tasks still start in the order they were submitted.
+	 */
+	public boolean isSharedResource() {
+		return false;
+	}
+
 	/**
 	 * Get this Tasks resource object, if any.
 	 * 
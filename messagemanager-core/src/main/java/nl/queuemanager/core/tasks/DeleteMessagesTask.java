@@ -2,30 +2,84 @@ package nl.queuemanager.core.tasks;
 
 import com.google.common.eventbus.EventBus;
 import com.google.inject.assistedinject.Assisted;
+import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.task.Task;
 import nl.queuemanager.jms.JMSQueue;
 
 import jakarta.inject.Inject;
+import javax.jms.JMSException;
 import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Deletes messages from a queue in chunks of up to {@link CoreConfiguration#PREF_BULK_OPERATION_SIZE}
+ * messages. When deleting a chunk fails, the messages in that chunk are deleted one by one.
+ */
 public class DeleteMessagesTask extends Task {
+	private final Logger log = Logger.getLogger(getClass().getName());
+	
 	private final JMSDomain domain;
+	private final CoreConfiguration config;
 	private final JMSQueue queue;
 	private final List<Message> messages;
 	
 	@Inject
-	DeleteMessagesTask(JMSDomain domain, EventBus eventBus, @Assisted JMSQueue queue, @Assisted List<Message> messages) {
+	DeleteMessagesTask(JMSDomain domain, CoreConfiguration config, EventBus eventBus, @Assisted JMSQueue queue, @Assisted List<Message> messages) {
 		super(queue.getBroker(), eventBus);
 		this.domain = domain;
+		this.config = config;
 		this.queue = queue;
 		this.messages = messages;
 	}
 
 	@Override
 	public void execute() throws Exception {
-		domain.deleteMessages(queue, messages);
+		final int chunkSize = Math.max(1, Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BULK_OPERATION_SIZE, CoreConfiguration.DEFAULT_BULK_OPERATION_SIZE)));
+		
+		int done = 0;
+		while(done < messages.size()) {
+			List<Message> chunk = messages.subList(done, Math.min(done + chunkSize, messages.size()));
+			try {
+				domain.deleteMessages(queue, chunk);
+				done += chunk.size();
+				reportProgress(done);
+			} catch (Exception e) {
+				if(chunk.size() == 1)
+					throw e;
+
+				log.log(Level.WARNING, "Unable to delete " + chunk.size() + " messages at once, deleting them one by one", e);
+				for(Message message: chunk) {
+					domain.deleteMessages(queue, Collections.singletonList(message));
+					reportProgress(++done);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The JMSMessageIDs of the messages to delete
+	 */
+	public List<String> getMessageIDs() {
+		List<String> messageIDs = new ArrayList<String>(messages.size());
+		for(Message message: messages) {
+			try {
+				messageIDs.add(message.getJMSMessageID());
+			} catch (JMSException e) {
+				log.log(Level.WARNING, "Unable to get the message id of a deleted message", e);
+			}
+		}
+		return messageIDs;
+	}
+
+	@Override
+	public int getProgressMaximum() {
+		return messages.size();
 	}
 
 	@Override
@@ -17,18 +17,29 @@ package nl.queuemanager.core.tasks;
 
 import com.google.common.eventbus.EventBus;
 import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.AssistedInject;
+import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.events.AbstractEventSource;
 import nl.queuemanager.core.events.EventListener;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.task.CancelableTask;
 import nl.queuemanager.core.task.Task;
+import nl.queuemanager.core.util.MessageSizeEstimator;
 import nl.queuemanager.jms.JMSQueue;
+import nl.queuemanager.jms.impl.MessageFactory;
 
-import jakarta.inject.Inject;
+import javax.annotation.Nullable;
+import javax.jms.JMSException;
 import javax.jms.Message;
+import java.io.Closeable;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.EventObject;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class EnumerateMessagesTask extends Task implements CancelableTask {
@@ -38,18 +49,112 @@ public class EnumerateMessagesTask extends Task implements CancelableTask {
 	private final JMSDomain domain;
 	private QueueBrowserEventSource eventSource;
 	
+	/**
+	 * The number of messages to skip before delivering any messages.
+	 */
+	private final int offset;
+	
+	/**
+	 * The maximum number of messages to deliver, 0 for unlimited.
+	 */
+	private final int limit;
+	
+	/**
+	 * The JMS message selector the broker uses to select the messages, null for all messages.
+	 */
+	private final String selector;
+	
+	/**
+	 * The maximum number of bytes (estimated) that the delivered messages may occupy.
+	 */
+	private final long maxMemory;
+	
+	/**
+	 * The maximum number of messages to deliver in a single MESSAGES_FOUND event. 
+	 * When this is 1 or less, every message is delivered in its own MESSAGE_FOUND event.
+	 */
+	private final int batchSize;
+	
+	/**
+	 * The maximum time (in ms) a message may wait in a batch before the batch is delivered.
+	 */
+	private final long batchInterval;
+	
+	/**
+	 * When true, only the headers and properties of every message are delivered. The
+	 * bodies can be retrieved later using {@link JMSDomain#getMessage(JMSQueue, String)}.
+	 */
+	private final boolean headersOnly;
+	
+	/**
+	 * Guards the batch, which is delivered by the browsing thread or by the batch timer.
+	 */
+	private final Object batchLock = new Object();
+	private List<Message> batch;
+	private long batchStarted;
+	
+	/**
+	 * Delivers a batch when its oldest message has waited batchInterval ms, even when no
+	 * new message arrives in the meantime. Only exists while browsing with batches.
+	 */
+	private ScheduledExecutorService batchTimer;
+	
+	private int browsedCount;
+	private long browsedSize;
+	private volatile boolean moreMessages;
+	private volatile boolean memoryLimitReached;
+	
 	private volatile boolean canceled = false;
 
-	@Inject
+	@AssistedInject
 	EnumerateMessagesTask(
 			@Assisted final JMSQueue queue, 
 			@Assisted final EventListener<QueueBrowserEvent> listener,
 			final JMSDomain domain,
+			final CoreConfiguration config,
+			EventBus eventBus) 
+	{
+		this(queue, 0, 0, listener, domain, config, eventBus);
+	}
+	
+	@AssistedInject
+	EnumerateMessagesTask(
+			@Assisted final JMSQueue queue, 
+			@Assisted("offset") final int offset,
+			@Assisted("limit") final int limit,
+			@Assisted final EventListener<QueueBrowserEvent> listener,
+			final JMSDomain domain,
+			final CoreConfiguration config,
+			EventBus eventBus) 
+	{
+		this(queue, offset, limit, null, listener, domain, config, eventBus);
+	}
+	
+	@AssistedInject
+	EnumerateMessagesTask(
+			@Assisted final JMSQueue queue, 
+			@Assisted("offset") final int offset,
+			@Assisted("limit") final int limit,
+			@Assisted @Nullable final String selector,
+			@Assisted final EventListener<QueueBrowserEvent> listener,
+			final JMSDomain domain,
+			final CoreConfiguration config,
 			EventBus eventBus) 
 	{
 		super(queue.getBroker(), eventBus);
 		this.queue = queue;
 		this.domain = domain;
+		this.offset = Math.max(0, offset);
+		this.limit = Math.max(0, limit);
+		this.selector = selector == null || selector.trim().isEmpty() ? null : selector;
+		this.maxMemory = Long.parseLong(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_MAX_MEMORY, CoreConfiguration.DEFAULT_BROWSE_MAX_MEMORY)) * 1024 * 1024;
+		this.batchSize = Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE));
+		this.batchInterval = Long.parseLong(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_BATCH_INTERVAL, CoreConfiguration.DEFAULT_BROWSE_BATCH_INTERVAL));
+		this.headersOnly = Boolean.parseBoolean(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_HEADERS_ONLY, CoreConfiguration.DEFAULT_BROWSE_HEADERS_ONLY));
 		this.eventSource = new QueueBrowserEventSource();
 		this.eventSource.addListener(listener);
 	}
@@ -60,22 +165,132 @@ public class EnumerateMessagesTask extends Task implements CancelableTask {
 		
 		eventSource.fireBrowsingStarted(this);
 
-		Enumeration<Message> e = domain.enumerateMessages(getQueue());
-		Message message;
+		Enumeration<Message> e = selector == null
+				? domain.enumerateMessages(getQueue())
+				: domain.enumerateMessages(getQueue(), selector);
+		if(batchSize > 1) {
+			batchTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Browse batch timer for " + getQueue());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
 		try {
-			while(e.hasMoreElements() && (message = e.nextElement()) != null) {
-				log.finest("eventSource.fireMessageFound(this, message)");
-				eventSource.fireMessageFound(this, message);
-				if(canceled) {
-					break;
-				}
+			if(skipMessages(e)) {
+				browseMessages(e);
 			}
 		} catch (NoSuchElementException ex) {
+		} finally {
+			if(batchTimer != null) {
+				batchTimer.shutdownNow();
+			}
+			if(e instanceof Closeable) {
+				((Closeable)e).close();
+			}
+		}
+		
+		synchronized(batchLock) {
+			if(!canceled) {
+				flushBatch();
+			}
 		}
 		
 		eventSource.fireBrowsingComplete(this);
 	}
 	
+	/**
+	 * Skip the messages before the requested offset. A QueueBrowser can not seek, so the
+	 * skipped messages are still retrieved from the broker but they are not retained.
+	 * 
+	 * @return false when browsing was canceled or the queue ran out of messages
+	 */
+	private boolean skipMessages(Enumeration<Message> e) {
+		for(int skipped = 0; skipped < offset; skipped++) {
+			if(canceled || !e.hasMoreElements() || e.nextElement() == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void browseMessages(Enumeration<Message> e) throws JMSException {
+		Message message;
+		while(e.hasMoreElements() && (message = e.nextElement()) != null) {
+			if(limit > 0 && browsedCount >= limit) {
+				moreMessages = true;
+				break;
+			}
+			
+			if(headersOnly) {
+				message = MessageFactory.copyHeadersOnly(message);
+			}
+			
+			// Always deliver at least one message, even if it is larger than the limit
+			long size = MessageSizeEstimator.estimateSize(message);
+			if(browsedCount > 0 && browsedSize + size > maxMemory) {
+				log.fine(String.format("Browsed messages for %s exceed %d bytes, stopping", getQueue(), maxMemory));
+				moreMessages = true;
+				memoryLimitReached = true;
+				break;
+			}
+			browsedSize += size;
+			browsedCount++;
+			
+			deliverMessage(message);
+			if(canceled) {
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Deliver a message to the listeners. When batching is enabled, the messages are collected 
+	 * into batches of at most batchSize messages and a batch is delivered when it is full or when 
+	 * its oldest message has been waiting for batchInterval ms. The batch timer delivers a batch
+	 * that has waited that long while the broker is slow to return the next message. Listeners 
+	 * may block while processing a batch to throttle this browser.
+	 */
+	private void deliverMessage(Message message) {
+		if(batchSize <= 1) {
+			log.finest("eventSource.fireMessageFound(this, message)");
+			eventSource.fireMessageFound(this, message);
+			return;
+		}
+		
+		synchronized(batchLock) {
+			if(batch == null) {
+				final List<Message> started = new ArrayList<Message>(batchSize);
+				batch = started;
+				batchStarted = System.currentTimeMillis();
+				batchTimer.schedule(() -> flushBatch(started), batchInterval, TimeUnit.MILLISECONDS);
+			}
+			batch.add(message);
+			
+			if(batch.size() >= batchSize || System.currentTimeMillis() - batchStarted >= batchInterval) {
+				flushBatch();
+			}
+		}
+	}
+	
+	/**
+	 * Deliver a batch from the batch timer, unless it was delivered already.
+	 */
+	private void flushBatch(List<Message> expected) {
+		synchronized(batchLock) {
+			if(batch == expected && !canceled) {
+				flushBatch();
+			}
+		}
+	}
+	
+	private void flushBatch() {
+		if(batch != null && !batch.isEmpty()) {
+			log.finest("eventSource.fireMessagesFound(this, batch)");
+			eventSource.fireMessagesFound(this, batch);
+		}
+		batch = null;
+	}
+	
 	public void cancel() {
 		canceled = true;
 	}
@@ -84,6 +299,60 @@ public class EnumerateMessagesTask extends Task implements CancelableTask {
 		return queue;
 	}
 	
+	/**
+	 * @return The number of messages that were skipped before the first delivered message
+	 */
+	public int getOffset() {
+		return offset;
+	}
+	
+	/**
+	 * @return The maximum number of messages this task delivers, 0 for unlimited
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	
+	/**
+	 * @return The message selector used to browse the queue, null when browsing all messages
+	 */
+	public String getSelector() {
+		return selector;
+	}
+	
+	/**
+	 * @return The number of messages delivered so far
+	 */
+	public int getBrowsedCount() {
+		return browsedCount;
+	}
+	
+	/**
+	 * @return true when browsing stopped at the limit or the memory cap while more messages were available
+	 */
+	public boolean hasMoreMessages() {
+		return moreMessages;
+	}
+	
+	/**
+	 * @return true when browsing stopped because the delivered messages reached the memory cap
+	 */
+	public boolean isMemoryLimitReached() {
+		return memoryLimitReached;
+	}
+	
+	/**
+	 * @return true when the delivered messages contain only headers and properties
+	 */
+	public boolean isHeadersOnly() {
+		return headersOnly;
+	}
+	
+	@Override
+	public boolean isSharedResource() {
+		return true;
+	}
+	
 	@Override
 	public String toString() {
 		return "Browsing messages for queue " + getQueue();
@@ -93,7 +362,16 @@ public class EnumerateMessagesTask extends Task implements CancelableTask {
 	public static class QueueBrowserEvent extends EventObject {
 		public static enum EVENT {
 			BROWSING_STARTED,
+			
+			/**
+			 * A single message was found, the info object is the Message.
+			 */
 			MESSAGE_FOUND,
+			
+			/**
+			 * A batch of messages was found, the info object is a List of Messages.
+			 */
+			MESSAGES_FOUND,
 			BROWSING_COMPLETE
 		}
 		
@@ -128,6 +406,10 @@ public class EnumerateMessagesTask extends Task implements CancelableTask {
 			dispatchEvent(new QueueBrowserEvent(QueueBrowserEvent.EVENT.MESSAGE_FOUND, source, message));
 		}
 		
+		public void fireMessagesFound(EnumerateMessagesTask source, List<Message> messages) {
+			dispatchEvent(new QueueBrowserEvent(QueueBrowserEvent.EVENT.MESSAGES_FOUND, source, messages));
+		}
+		
 		public void fireBrowsingComplete(EnumerateMessagesTask source) {
 			dispatchEvent(new QueueBrowserEvent(QueueBrowserEvent.EVENT.BROWSING_COMPLETE, source, null));
 		}
@@ -0,0 +1,221 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.tasks;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Stream;
+
+/**
+ * Enumerates the files to send, one at a time. Directories are walked lazily, so a
+ * directory with many files does not have to be listed before the first one is sent.
+ * <p>
+ * Every file in the list is one of these:
+ * <ul>
+ * <li>A directory: its files are enumerated, not those in subdirectories. Use
+ *     <code>/data/**</code> to include them.</li>
+ * <li>A path with glob characters, like <code>/data/**&#47;*.xml</code>: the files below
+ *     the part of the path without glob characters that match the rest of the path.</li>
+ * <li>A directory followed by a regular expression, like <code>/data/regex:.*\.xml</code>:
+ *     the files below the directory, in subdirectories too, whose path relative to the 
+ *     directory (with / as the separator) or whose name matches the expression.</li>
+ * <li>Anything else: the file itself.</li>
+ * </ul>
+ * 
+ * @author gerco
+ *
+ */
+class FileEnumerator implements Iterator<File>, Closeable {
+	private static final String GLOB_CHARACTERS = "*?[{";
+	private static final String REGEX_PREFIX = "regex:";
+	
+	private final Deque<File> roots;
+	
+	private Stream<Path> walk;
+	private Iterator<Path> walker;
+	private File next;
+	
+	/**
+	 * @param files The files, directories and glob paths to enumerate
+	 */
+	FileEnumerator(List<File> files) {
+		this.roots = new ArrayDeque<File>(files);
+	}
+	
+	/**
+	 * @throws UncheckedIOException When a directory can not be read
+	 * @throws PatternSyntaxException When a regular expression is invalid
+	 */
+	public boolean hasNext() {
+		while(next == null) {
+			if(walker != null && walker.hasNext()) {
+				next = walker.next().toFile();
+			} else if(!roots.isEmpty()) {
+				closeWalk();
+				next = start(roots.remove());
+			} else {
+				closeWalk();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public File next() {
+		if(!hasNext())
+			throw new NoSuchElementException();
+		
+		File result = next;
+		next = null;
+		return result;
+	}
+	
+	public void close() {
+		closeWalk();
+		roots.clear();
+		next = null;
+	}
+	
+	/**
+	 * Start enumerating a root.
+	 * 
+	 * @return The root when it is a file by itself, null when its files are walked
+	 */
+	private File start(File root) {
+		if(root.isDirectory()) {
+			walk(root.toPath(), 1, null);
+			return null;
+		}
+		
+		if(root.exists())
+			return root;
+		
+		final String path = root.getPath();
+		final int regex = indexOfRegex(path);
+		if(regex >= 0) {
+			final File base = regex == 0 ? new File(".") : new File(path.substring(0, regex));
+			final Pattern pattern = Pattern.compile(path.substring(regex + REGEX_PREFIX.length()));
+			if(base.isDirectory()) {
+				walk(base.toPath(), Integer.MAX_VALUE, 
+						file -> pattern.matcher(file.toString().replace(File.separatorChar, '/')).matches());
+			}
+			return null;
+		}
+		
+		if(!isGlob(path))
+			return root;
+		
+		// Split the path at the separator before the first glob character
+		final int glob = indexOfGlob(path);
+		final int split = Math.max(path.lastIndexOf('/', glob), path.lastIndexOf(File.separatorChar, glob));
+		final File base = split < 0 ? new File(".") : new File(path.substring(0, split + 1));
+		final String pattern = path.substring(split + 1).replace(File.separatorChar, '/');
+		
+		int depth = 1;
+		for(int i = 0; i < pattern.length(); i++) {
+			if(pattern.charAt(i) == '/')
+				depth++;
+		}
+		if(pattern.contains("**"))
+			depth = Integer.MAX_VALUE;
+		
+		if(base.isDirectory()) {
+			walk(base.toPath(), depth, globMatcher(pattern));
+		}
+		return null;
+	}
+	
+	private void walk(final Path directory, int depth, final PathMatcher matcher) {
+		try {
+			walk = Files.walk(directory, depth);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		Stream<Path> files = walk.filter(Files::isRegularFile);
+		if(matcher != null) {
+			files = files.filter(file -> {
+				final Path relative = directory.relativize(file);
+				return matcher.matches(relative) || matcher.matches(relative.getFileName());
+			});
+		}
+		walker = files.iterator();
+	}
+	
+	private void closeWalk() {
+		if(walk != null) {
+			walk.close();
+			walk = null;
+			walker = Collections.emptyIterator();
+		}
+	}
+	
+	/**
+	 * Like the shell, a leading ** also matches the files in the directory itself.
+	 */
+	private static PathMatcher globMatcher(String pattern) {
+		final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+		if(!pattern.startsWith("**/"))
+			return matcher;
+		
+		final PathMatcher tail = FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(3));
+		return path -> matcher.matches(path) || tail.matches(path);
+	}
+	
+	/**
+	 * @return Whether the file is a directory, glob path or regex path, that is expanded to other files
+	 */
+	static boolean isExpanded(File file) {
+		return file.isDirectory() || (!file.exists() && (isGlob(file.getPath()) || indexOfRegex(file.getPath()) >= 0));
+	}
+	
+	/**
+	 * @return The index of the regex: prefix that starts a name in the path, -1 when there is none
+	 */
+	private static int indexOfRegex(String path) {
+		for(int i = path.indexOf(REGEX_PREFIX); i >= 0; i = path.indexOf(REGEX_PREFIX, i + 1)) {
+			if(i == 0 || path.charAt(i - 1) == '/' || path.charAt(i - 1) == File.separatorChar)
+				return i;
+		}
+		return -1;
+	}
+	
+	private static boolean isGlob(String path) {
+		return indexOfGlob(path) >= 0;
+	}
+	
+	private static int indexOfGlob(String path) {
+		for(int i = 0; i < path.length(); i++) {
+			if(GLOB_CHARACTERS.indexOf(path.charAt(i)) >= 0)
+				return i;
+		}
+		return -1;
+	}
+}
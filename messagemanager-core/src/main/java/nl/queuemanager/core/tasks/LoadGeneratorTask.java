@@ -0,0 +1,240 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import com.google.inject.assistedinject.Assisted;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.jms.MessageSender;
+import nl.queuemanager.core.task.CancelableTask;
+import nl.queuemanager.core.task.Task;
+import nl.queuemanager.core.tasks.SendMessageListTask.CorrelationIdTemplate;
+import nl.queuemanager.core.util.LatencyHistogram;
+import nl.queuemanager.jms.JMSDestination;
+import nl.queuemanager.jms.impl.MessageFactory;
+
+import jakarta.inject.Inject;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Sends copies of a message to a destination at a target rate, as described by a {@link LoadProfile}.
+ * <p>
+ * Every message has an intended send time derived from the profile. Producers only wait when
+ * they are ahead of schedule and send immediately when they are behind, so the target rate is
+ * held even when individual sends are slow. Send latency is measured from the intended send
+ * time rather than from the moment the send started, so stalls in the broker show up in the
+ * percentiles instead of silently lowering the rate.
+ */
+public class LoadGeneratorTask extends Task implements CancelableTask {
+	/**
+	 * Producers that are less than this many nanoseconds ahead of schedule send immediately.
+	 */
+	private static final long PARK_THRESHOLD = 100000;
+
+	/**
+	 * Milliseconds between status updates.
+	 */
+	private static final long REPORT_INTERVAL = 1000;
+
+	private final Logger log = Logger.getLogger(getClass().getName());
+
+	private final JMSDestination destination;
+	private final Message message;
+	private final LoadProfile profile;
+	private final JMSDomain domain;
+	private final CoreConfiguration config;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	private final AtomicLong sent = new AtomicLong();
+	private volatile boolean canceled;
+	private volatile long loadStartTime;
+	private volatile double currentRate;
+	private long lastReportTime;
+	private long lastReportSent;
+
+	@Inject
+	LoadGeneratorTask(@Assisted JMSDestination destination, @Assisted Message message, @Assisted LoadProfile profile, JMSDomain domain, CoreConfiguration config, EventBus eventBus) {
+		super(destination.getBroker(), eventBus);
+
+		this.destination = destination;
+		this.message = message;
+		this.profile = profile;
+		this.domain = domain;
+		this.config = config;
+	}
+
+	@Override
+	public void execute() throws Exception {
+		if(canceled) return;
+
+		final boolean async = Boolean.parseBoolean(config.getUserPref(
+				CoreConfiguration.PREF_SEND_ASYNC, CoreConfiguration.DEFAULT_SEND_ASYNC));
+
+		final ExecutorService producers = Executors.newFixedThreadPool(
+				profile.getThreads(),
+				runnable -> {
+					Thread thread = new Thread(runnable, "Load generator for " + destination);
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		loadStartTime = lastReportTime = System.nanoTime();
+		try {
+			final List<Future<?>> results = new ArrayList<Future<?>>();
+			for(int p = 0; p < profile.getThreads(); p++) {
+				final int firstMessage = p;
+				results.add(producers.submit(() -> {
+					produce(firstMessage, async);
+					return null;
+				}));
+			}
+
+			for(Future<?> result: results) {
+				while(true) {
+					try {
+						result.get(REPORT_INTERVAL, TimeUnit.MILLISECONDS);
+						break;
+					} catch (TimeoutException e) {
+						report();
+					}
+				}
+			}
+		} catch (ExecutionException e) {
+			canceled = true;
+			if(e.getCause() instanceof Exception)
+				throw (Exception)e.getCause();
+			throw e;
+		} finally {
+			producers.shutdownNow();
+		}
+
+		report();
+		currentRate = sent.get() * 1000000000d / Math.max(1, System.nanoTime() - loadStartTime);
+		log.info(getStatus());
+	}
+
+	/**
+	 * Send every message whose number is firstMessage plus a multiple of the number of threads.
+	 */
+	private void produce(int firstMessage, boolean async) throws Exception {
+		// Every producer needs its own message because the correlation id changes per send
+		final Message copy = MessageFactory.copyMessage(message);
+		final CorrelationIdTemplate template = CorrelationIdTemplate.compile(copy.getJMSCorrelationID());
+		final MessageSender sender = domain.createSender(destination, 1, async);
+		try {
+			final Message prepared = sender.prepare(copy);
+			send: for(long n = firstMessage; !canceled; n += profile.getThreads()) {
+				final long intended = profile.getIntendedSendTime(n);
+				if(intended < 0)
+					break;
+
+				final long intendedTime = loadStartTime + intended;
+				long ahead;
+				while((ahead = intendedTime - System.nanoTime()) > PARK_THRESHOLD) {
+					LockSupport.parkNanos(ahead);
+					if(canceled) break send;
+				}
+
+				if(template != null) {
+					prepared.setJMSCorrelationID(template.format((int)(n + 1)));
+				}
+				sender.send(prepared);
+				latencies.record((System.nanoTime() - intendedTime) / 1000);
+				sent.incrementAndGet();
+			}
+			sender.flush();
+		} finally {
+			sender.close();
+		}
+	}
+
+	private void report() {
+		final long now = System.nanoTime();
+		final long count = sent.get();
+		currentRate = (count - lastReportSent) * 1000000000d / Math.max(1, now - lastReportTime);
+		lastReportTime = now;
+		lastReportSent = count;
+
+		reportProgress((int)Math.min(profile.getDurationSeconds(), (now - loadStartTime) / 1000000000L));
+	}
+
+	/**
+	 * Load tests use their own sessions and may run alongside other tasks for the broker.
+	 */
+	@Override
+	public boolean isSharedResource() {
+		return true;
+	}
+
+	@Override
+	public int getProgressMaximum() {
+		return profile.getDurationSeconds();
+	}
+
+	/**
+	 * @return The number of messages sent so far
+	 */
+	public long getSentCount() {
+		return sent.get();
+	}
+
+	/**
+	 * @return The histogram of send latencies in microseconds
+	 */
+	public LatencyHistogram getLatencies() {
+		return latencies;
+	}
+
+	/**
+	 * Returns a summary of the messages sent, the send rate and the send latency percentiles. 
+	 * While running, the rate is that of the last second. When finished, it is the average.
+	 */
+	@Override
+	public String getStatus() {
+		if(loadStartTime == 0)
+			return toString();
+
+		return String.format("%s: %d sent, %.0f msgs/sec, latency p50 %s, p99 %s, p99.9 %s",
+				toString(), sent.get(), currentRate,
+				formatMicros(latencies.getPercentile(50)),
+				formatMicros(latencies.getPercentile(99)),
+				formatMicros(latencies.getPercentile(99.9)));
+	}
+
+	private static String formatMicros(long micros) {
+		return String.format("%.1f ms", micros / 1000d);
+	}
+
+	@Override
+	public String toString() {
+		return "Load test on " + destination + " at " + profile;
+	}
+
+	public void cancel() {
+		this.canceled = true;
+	}
+}
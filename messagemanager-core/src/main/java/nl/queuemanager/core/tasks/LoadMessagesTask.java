@@ -0,0 +1,82 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import com.google.inject.assistedinject.Assisted;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.task.Task;
+import nl.queuemanager.jms.JMSQueue;
+
+import jakarta.inject.Inject;
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retrieves complete messages (including the body) from a queue by their JMSMessageID, 
+ * without removing them from the queue. Used to load the bodies of messages that were
+ * browsed headers-only.
+ */
+public class LoadMessagesTask extends Task {
+	private final JMSDomain domain;
+	private final JMSQueue queue;
+	private final List<String> messageIDs;
+	private final MessagesReceiver receiver;
+
+	@Inject
+	LoadMessagesTask(
+			@Assisted JMSQueue queue, 
+			@Assisted List<String> messageIDs, 
+			@Assisted MessagesReceiver receiver, 
+			JMSDomain domain, 
+			EventBus eventBus) 
+	{
+		super(queue.getBroker(), eventBus);
+		this.domain = domain;
+		this.queue = queue;
+		this.messageIDs = messageIDs;
+		this.receiver = receiver;
+	}
+
+	@Override
+	public void execute() throws Exception {
+		List<Message> messages = new ArrayList<Message>(messageIDs.size());
+		int i = 0;
+		for(String messageID: messageIDs) {
+			Message message = domain.getMessage(queue, messageID);
+			if(message != null) {
+				messages.add(message);
+			}
+			reportProgress(i++);
+		}
+		receiver.messagesLoaded(queue, messages);
+	}
+
+	@Override
+	public int getProgressMaximum() {
+		return messageIDs.size();
+	}
+
+	@Override
+	public boolean isSharedResource() {
+		return true;
+	}
+
+	@Override
+	public boolean isBackground() {
+		// Loading the body of the selected message should not block the UI
+		return messageIDs.size() == 1;
+	}
+
+	@Override
+	public String toString() {
+		return "Loading " + messageIDs.size() + " message(s) from " + queue;
+	}
+
+	public interface MessagesReceiver {
+		/**
+		 * Called on the task thread with the messages that were found. Messages that are 
+		 * no longer on the queue are not included.
+		 */
+		public void messagesLoaded(JMSQueue queue, List<Message> messages);
+	}
+}
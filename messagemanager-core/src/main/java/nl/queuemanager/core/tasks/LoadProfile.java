@@ -0,0 +1,97 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.tasks;
+
+/**
+ * Describes the load to generate with a {@link LoadGeneratorTask}. The send rate increases
+ * linearly from zero to the target rate during the ramp-up period and then stays at the target
+ * rate until the duration has passed. The duration includes the ramp-up period.
+ *
+ * @author gerco
+ *
+ */
+public class LoadProfile {
+	private final int rate;
+	private final int rampUpSeconds;
+	private final int durationSeconds;
+	private final int threads;
+
+	/**
+	 * @param rate The target rate in messages per second
+	 * @param rampUpSeconds The number of seconds to reach the target rate
+	 * @param durationSeconds The total number of seconds to send messages
+	 * @param threads The number of concurrent producers
+	 */
+	public LoadProfile(int rate, int rampUpSeconds, int durationSeconds, int threads) {
+		if(rate < 1)
+			throw new IllegalArgumentException("rate must be at least 1");
+		if(durationSeconds < 1)
+			throw new IllegalArgumentException("durationSeconds must be at least 1");
+		if(threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1");
+
+		this.rate = rate;
+		this.rampUpSeconds = Math.max(0, Math.min(rampUpSeconds, durationSeconds));
+		this.durationSeconds = durationSeconds;
+		this.threads = threads;
+	}
+
+	public int getRate() {
+		return rate;
+	}
+
+	public int getRampUpSeconds() {
+		return rampUpSeconds;
+	}
+
+	public int getDurationSeconds() {
+		return durationSeconds;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Return the time at which a message should be sent, relative to the start of the load
+	 * test. Messages are numbered from zero across all producers.
+	 *
+	 * @param messageNumber
+	 * @return The intended send time in nanoseconds, or -1 when the message falls after the end
+	 *         of the load test
+	 */
+	public long getIntendedSendTime(long messageNumber) {
+		// During ramp-up, the number of messages sent after t seconds is rate * t^2 / (2 * rampUp)
+		final double rampUpMessages = rate * rampUpSeconds / 2d;
+		final double seconds;
+		if(messageNumber < rampUpMessages) {
+			seconds = Math.sqrt(2d * messageNumber * rampUpSeconds / rate);
+		} else {
+			seconds = rampUpSeconds + (messageNumber - rampUpMessages) / rate;
+		}
+
+		if(seconds >= durationSeconds)
+			return -1;
+
+		return (long)(seconds * 1000000000d);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d msgs/sec for %d seconds (ramp-up %d seconds, %d threads)",
+				rate, durationSeconds, rampUpSeconds, threads);
+	}
+}
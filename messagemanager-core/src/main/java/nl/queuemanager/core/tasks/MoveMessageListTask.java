@@ -3,41 +3,94 @@ package nl.queuemanager.core.tasks;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.assistedinject.Assisted;
 import nl.queuemanager.core.Pair;
+import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.task.Task;
-import nl.queuemanager.core.task.TaskEvent;
 import nl.queuemanager.jms.JMSQueue;
 
 import jakarta.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Moves messages to a queue in chunks of up to {@link CoreConfiguration#PREF_BULK_OPERATION_SIZE}
+ * messages from the same source queue. When moving a chunk fails, the messages in that chunk are
+ * moved one by one.
+ */
 public class MoveMessageListTask extends Task {
+	private final Logger log = Logger.getLogger(getClass().getName());
+	
 	private final JMSDomain domain;
+	private final CoreConfiguration config;
 	private final JMSQueue toQueue;
 	private final List<Pair<JMSQueue, String>> messageList;
 
 	@Inject
-	private MoveMessageListTask(
+	MoveMessageListTask(
 			@Assisted JMSQueue toQueue, 
 			@Assisted List<Pair<JMSQueue, String>> messageList, 
 			JMSDomain domain, 
+			CoreConfiguration config,
 			EventBus eventBus) 
 	{
 		super(toQueue.getBroker(), eventBus);
 		this.toQueue = toQueue;
 		this.messageList = messageList;
 		this.domain = domain;
+		this.config = config;
 	}
 
 	@Override
 	public void execute() throws Exception {
-		int i = 0;
+		final int chunkSize = Math.max(1, Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BULK_OPERATION_SIZE, CoreConfiguration.DEFAULT_BULK_OPERATION_SIZE)));
+		
+		int done = 0;
+		JMSQueue fromQueue = null;
+		List<String> chunk = new ArrayList<String>();
 		for(Pair<JMSQueue, String> messageInfo: messageList) {
-			final JMSQueue fromDst = messageInfo.first();
-			final String messageID = messageInfo.second();
-			domain.forwardMessage(fromDst, toQueue, messageID);
-			eventBus.post(new TaskEvent(TaskEvent.EVENT.TASK_PROGRESS, i++, this));
+			if(chunk.size() == chunkSize || (fromQueue != null && !fromQueue.equals(messageInfo.first()))) {
+				done = moveChunk(fromQueue, chunk, done);
+				chunk = new ArrayList<String>();
+			}
+			fromQueue = messageInfo.first();
+			chunk.add(messageInfo.second());
 		}
+		
+		if(!chunk.isEmpty()) {
+			moveChunk(fromQueue, chunk, done);
+		}
+	}
+	
+	private int moveChunk(JMSQueue fromQueue, List<String> messageIDs, int done) throws Exception {
+		try {
+			domain.forwardMessages(fromQueue, toQueue, messageIDs);
+			done += messageIDs.size();
+			reportProgress(done);
+		} catch (Exception e) {
+			if(messageIDs.size() == 1)
+				throw e;
+
+			log.log(Level.WARNING, "Unable to move " + messageIDs.size() + " messages at once, moving them one by one", e);
+			for(String messageID: messageIDs) {
+				domain.forwardMessage(fromQueue, toQueue, messageID);
+				reportProgress(++done);
+			}
+		}
+		return done;
+	}
+
+	/**
+	 * @return The JMSMessageIDs of the messages to move
+	 */
+	public List<String> getMessageIDs() {
+		List<String> messageIDs = new ArrayList<String>(messageList.size());
+		for(Pair<JMSQueue, String> messageInfo: messageList) {
+			messageIDs.add(messageInfo.second());
+		}
+		return messageIDs;
 	}
 
 	@Override
@@ -19,6 +19,7 @@ import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import nl.queuemanager.core.ESBMessage;
+import nl.queuemanager.core.MessageArchive;
 import nl.queuemanager.core.MessageManagerMessage;
 import nl.queuemanager.core.Pair;
 import nl.queuemanager.core.task.CancelableTask;
@@ -38,11 +39,24 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SaveMessagesToFileTask extends Task implements CancelableTask {
+	/**
+	 * The maximum number of messages that are saved at the same time.
+	 */
+	static final int MAX_WRITERS = 4;
+	
 	private final List<Pair<javax.jms.Message, File>> messages;
 	private final String msgExtension;
+	private int maxWriters = Math.min(MAX_WRITERS, Runtime.getRuntime().availableProcessors());
 	private volatile boolean canceled;
 	
 	@Inject
@@ -56,17 +70,99 @@ public class SaveMessagesToFileTask extends Task implements CancelableTask {
 		this.msgExtension = msgExtension;
 	}
 	
+	/**
+	 * Save the messages on a pool of worker threads. Progress is reported in the order of
+	 * the messages and the first failure stops the remaining messages from being saved.
+	 */
 	@Override
 	public void execute() throws Exception {
+		if(MessageArchive.getFileExtension().equals(msgExtension)) {
+			saveArchive();
+			return;
+		}
 		
-		int i = 0;
-		for(Pair<javax.jms.Message, File> pair: messages) {
-			if(canceled) return;
-			saveSingleMessage(pair.first(), pair.second());
-			eventBus.post(new TaskEvent(TaskEvent.EVENT.TASK_PROGRESS, i++, this));
+		final int writers = Math.min(messages.size(), maxWriters);
+		if(writers <= 1) {
+			int i = 0;
+			for(Pair<javax.jms.Message, File> pair: messages) {
+				if(canceled) return;
+				saveSingleMessage(pair.first(), pair.second());
+				eventBus.post(new TaskEvent(TaskEvent.EVENT.TASK_PROGRESS, i++, this));
+			}
+			return;
+		}
+		
+		final ExecutorService pool = Executors.newFixedThreadPool(writers, runnable -> {
+			Thread thread = new Thread(runnable, "Message writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final List<Future<?>> saved = new ArrayList<Future<?>>(messages.size());
+			for(final Pair<javax.jms.Message, File> pair: messages) {
+				saved.add(pool.submit(() -> {
+					if(!canceled) {
+						saveSingleMessage(pair.first(), pair.second());
+					}
+					return null;
+				}));
+			}
+			
+			int i = 0;
+			for(Future<?> future: saved) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof Exception)
+						throw (Exception)e.getCause();
+					throw (Error)e.getCause();
+				}
+				
+				if(canceled) return;
+				eventBus.post(new TaskEvent(TaskEvent.EVENT.TASK_PROGRESS, i++, this));
+			}
+		} finally {
+			pool.shutdownNow();
 		}
 	}
 
+	
+	/**
+	 * Override the number of messages that are saved at the same time, which depends on the
+	 * number of processors by default.
+	 */
+	void setMaxWriters(int maxWriters) {
+		this.maxWriters = maxWriters;
+	}
+	
+	/**
+	 * Save all messages, in order, to a single archive. The file of the first message is
+	 * the archive, a name is created for it when that is a directory.
+	 */
+	private void saveArchive() throws IOException, JMSException {
+		if(messages.isEmpty())
+			return;
+		
+		File file = messages.get(0).second();
+		if(file.isDirectory()) {
+			file = new File(file, new SimpleDateFormat("'messages-'yyyyMMdd-HHmmss").format(new Date()));
+		}
+		if(!file.getName().endsWith(MessageArchive.getFileExtension())) {
+			file = new File(file.getAbsolutePath() + MessageArchive.getFileExtension());
+		}
+		
+		MessageArchive.Writer archive = MessageArchive.create(file, true);
+		try {
+			int i = 0;
+			for(Pair<javax.jms.Message, File> pair: messages) {
+				if(canceled) break;
+				archive.append(pair.first());
+				eventBus.post(new TaskEvent(TaskEvent.EVENT.TASK_PROGRESS, i++, this));
+			}
+		} finally {
+			archive.close();
+		}
+	}
 
 	private  void saveSingleMessage(javax.jms.Message message, File file) throws IOException, ParserConfigurationException, TransformerFactoryConfigurationError, TransformerException, JMSException {
 		if(msgExtension!=null) {
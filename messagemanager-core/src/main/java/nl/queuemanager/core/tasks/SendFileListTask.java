@@ -15,15 +15,19 @@
  */
 package nl.queuemanager.core.tasks;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import nl.queuemanager.core.ESBMessage;
+import nl.queuemanager.core.MessageArchive;
 import nl.queuemanager.core.MessageManagerMessage;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.task.CancelableTask;
 import nl.queuemanager.core.task.Task;
 import nl.queuemanager.core.util.CollectionFactory;
+import nl.queuemanager.core.util.MessageSizeEstimator;
 import nl.queuemanager.jms.JMSDestination;
 import nl.queuemanager.jms.impl.MessageFactory;
 import org.xml.sax.SAXException;
@@ -36,14 +40,40 @@ import javax.jms.TextMessage;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SendFileListTask extends Task implements CancelableTask {
+	/**
+	 * The maximum number of threads that load files ahead of the message being sent.
+	 */
+	static final int MAX_LOADERS = 4;
+	
+	/**
+	 * The maximum estimated size in bytes of the files that are loaded ahead of the message
+	 * being sent. At least one file is always loaded, however large it is.
+	 */
+	static final long READ_AHEAD_SIZE = 16 * 1024 * 1024;
+	
+	/**
+	 * The size that is added to the estimate for every file, so empty files are not free.
+	 */
+	private static final long FILE_OVERHEAD = 1024;
+	
+	/**
+	 * The maximum estimated size in bytes of the files kept in memory to send them again 
+	 * on the next repeat.
+	 */
+	static final long CACHE_SIZE = 64 * 1024 * 1024;
 	
 	private final JMSDestination queue;
 	private final List<File> fileList;
@@ -51,6 +81,10 @@ public class SendFileListTask extends Task implements CancelableTask {
 	private final int repeats;
 	private final int delay;
 	private final JMSDomain sonic;
+	private volatile int messageCount = PROGRESS_UNKNOWN;
+	private final Cache<File, LoadedFile> cache;
+	private int maxLoaders = Math.min(MAX_LOADERS, Runtime.getRuntime().availableProcessors());
+	private volatile int sent;
 	private volatile boolean canceled;
 
 	@AssistedInject
@@ -68,58 +102,288 @@ public class SendFileListTask extends Task implements CancelableTask {
 		this(queue, files, template, 1, 0, sonic, eventBus);
 	}
 	
+	/**
+	 * @param files The files to send. Directories, paths with glob characters, like 
+	 *        <code>/data/**&#47;*.xml</code>, and regex paths, like <code>/data/regex:.*\.xml</code>,
+	 *        are expanded while the files are sent, see {@link FileEnumerator}.
+	 */
 	@AssistedInject
 	SendFileListTask(@Assisted JMSDestination queue, @Assisted List<File> files, @Assisted @Nullable Message template, @Assisted("repeats") int repeats, @Assisted("delay") int delay, JMSDomain sonic, EventBus eventBus) {
 		super(queue.getBroker(), eventBus);
 		
 		this.queue = queue;
 		this.template = template;
-		this.fileList = CollectionFactory.newArrayList();
+		this.fileList = CollectionFactory.newArrayList(files);
 		this.repeats = repeats;
 		this.delay = delay;
 		this.sonic = sonic;
 		
-		// Walk through the list and resolve any directories
-		for(File file: files) {
-			if(file.isDirectory()) {
-				File[] children = file.listFiles();
-				for(File child: children) {
-					if(child.isFile())
-						fileList.add(child);
+		this.cache = repeats <= 1 ? null : CacheBuilder.newBuilder()
+				.maximumWeight(CACHE_SIZE)
+				.weigher((File key, LoadedFile value) -> (int)Math.min(Integer.MAX_VALUE, value.size))
+				.build();
+	}
+
+	/**
+	 * Count the messages on the task thread before the task is reported as started, so the
+	 * progress maximum is known when the status bar asks for it. The task may be created on 
+	 * the EDT, which should not wait for the filesystem.
+	 */
+	@Override
+	protected void dispatchTaskStarted() {
+		messageCount = countMessages(fileList);
+		super.dispatchTaskStarted();
+	}
+
+	/**
+	 * Send the files in order. A pool of loaders reads and parses up to {@link #READ_AHEAD_SIZE}
+	 * bytes of files ahead of the message being sent, so reading files and sending messages overlap.
+	 * When the files are sent more than once, the loaded files are kept in memory, up to 
+	 * {@link #CACHE_SIZE} bytes. Directories are walked as the files are sent, once per repeat.
+	 */
+	@Override
+	public void execute() throws Exception {
+		if(canceled || repeats <= 0) return;
+		
+		final ExecutorService loaders = Executors.newFixedThreadPool(maxLoaders, runnable -> {
+			Thread thread = new Thread(runnable, "File loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		FileEnumerator files = new FileEnumerator(fileList);
+		try {
+			final Deque<Loading> loading = new ArrayDeque<Loading>();
+			long loadingSize = 0;
+			int repeat = 1;
+			int i = 0;
+			while(true) {
+				while(loading.isEmpty() || loadingSize < READ_AHEAD_SIZE) {
+					if(!files.hasNext()) {
+						if(repeat == repeats)
+							break;
+						repeat++;
+						files.close();
+						files = new FileEnumerator(fileList);
+						if(!files.hasNext())
+							break;
+					}
+					final File file = files.next();
+					final long size = estimateLoadedSize(file);
+					loading.add(new Loading(loaders.submit(() -> load(file)), size));
+					loadingSize += size;
+				}
+				if(loading.isEmpty())
+					break;
+				
+				final LoadedFile loaded;
+				try {
+					final Loading next = loading.remove();
+					loadingSize -= next.size;
+					loaded = next.file.get();
+				} catch (ExecutionException e) {
+					if(e.getCause() instanceof Exception)
+						throw (Exception)e.getCause();
+					throw (Error)e.getCause();
 				}
-			} else {
-				fileList.add(file);
+				
+				i = send(loaded, i);
+				if(canceled) return;
 			}
+		} finally {
+			files.close();
+			loaders.shutdownNow();
 		}
 	}
+	
+	/**
+	 * Override the number of threads that load files, which depends on the number of
+	 * processors by default.
+	 */
+	void setMaxLoaders(int maxLoaders) {
+		this.maxLoaders = maxLoaders;
+	}
+	
+	/**
+	 * Send a loaded file.
+	 * 
+	 * @return The sequence number of the next message
+	 */
+	private int send(LoadedFile loaded, int i) throws IOException, JMSException {
+		if(loaded.isArchive()) {
+			return sendArchivedMessages(loaded.file, i);
+		}
+		
+		if(delay != 0 && i > 0)
+			sleep(delay);
 
-	@Override
-	public void execute() throws Exception {
-		if(canceled) return;
+		final Message message;
+		if(loaded.message != null) {
+			// A cached message is sent again on the next repeat, so every send gets a copy. Copying
+			// reads the body, which is not thread safe, so it happens here rather than on the loaders.
+			message = cache == null ? loaded.message : MessageFactory.copyMessage(loaded.message);
+			applyTemplate(message);
+		} else {
+			message = composeMessage(template, loaded.content, loaded.file);
+			replaceFields(message, i+1);
+		}
+		message.setJMSDeliveryMode(DeliveryMode.PERSISTENT);
+		sonic.sendMessage(queue, message);
+		
+		sent = i + 1;
+		reportProgress(i++);
+		return i;
+	}
+	
+	/**
+	 * Load a file for sending, from the cache when it was loaded before. Called on the loader
+	 * threads, which share the cached files without modifying them.
+	 */
+	private LoadedFile load(final File file) throws Exception {
+		if(isArchive(file)) {
+			// Archives are read while they are sent
+			return new LoadedFile(file, null, null, 0);
+		}
+		
+		if(cache == null)
+			return read(file);
+		
+		try {
+			return cache.get(file, () -> read(file));
+		} catch (ExecutionException e) {
+			throw (Exception)e.getCause();
+		}
+	}
+	
+	private static LoadedFile read(File file) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, JMSException {
+		if(isMessageFile(file)) {
+			final String filePath = file.getPath().toLowerCase();
+			final Message message = filePath.endsWith(ESBMessage.getFileExtension())
+					? new ESBMessage().readFromFile(file)
+					: new MessageManagerMessage().readFromFile(file);
+			return new LoadedFile(file, message, null, MessageSizeEstimator.estimateSize(message));
+		} else {
+			final byte[] content = readFile(file);
+			return new LoadedFile(file, null, content, content.length);
+		}
+	}
+	
+	private static boolean isMessageFile(File file) {
+		final String filePath = file.getPath().toLowerCase();
+		return filePath.endsWith(ESBMessage.getFileExtension())
+			|| filePath.endsWith(MessageManagerMessage.getFileExtension());
+	}
+	
+	/**
+	 * Estimate the memory a file occupies once it is loaded, before loading it. Parsed
+	 * messages keep their text as a String, which takes up to two bytes per character.
+	 * Archives are not loaded ahead.
+	 */
+	private static long estimateLoadedSize(File file) {
+		if(isArchive(file))
+			return FILE_OVERHEAD;
 		
-		int i = 0;
-		for(int r = 0; r<repeats; r++) {
-			for(File file: fileList) {
+		return FILE_OVERHEAD + (isMessageFile(file) ? 2 * file.length() : file.length());
+	}
+	
+	/**
+	 * A file that is submitted to the loaders, with the estimate of its loaded size.
+	 */
+	private static final class Loading {
+		final Future<LoadedFile> file;
+		final long size;
+		
+		Loading(Future<LoadedFile> file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+	}
+	
+	/**
+	 * A file that is ready to be sent: a parsed message file, the content of any other file, 
+	 * or neither for an archive.
+	 */
+	private static final class LoadedFile {
+		final File file;
+		final Message message;
+		final byte[] content;
+		
+		/**
+		 * The estimated number of bytes this file occupies in memory.
+		 */
+		final long size;
+		
+		LoadedFile(File file, Message message, byte[] content, long size) {
+			this.file = file;
+			this.message = message;
+			this.content = content;
+			this.size = size;
+		}
+		
+		boolean isArchive() {
+			return message == null && content == null;
+		}
+	}
+	
+	/**
+	 * Send all messages in an archive, in order, reading them one at a time.
+	 * 
+	 * @return The sequence number of the next message
+	 */
+	private int sendArchivedMessages(File file, int i) throws IOException, JMSException {
+		MessageArchive.Reader archive = MessageArchive.open(file);
+		try {
+			Message message;
+			while(!canceled && (message = archive.next()) != null) {
 				if(delay != 0 && i > 0)
 					sleep(delay);
-
-				final Message message;
-				final String filePath = file.getPath().toLowerCase();
-				if(filePath.endsWith(ESBMessage.getFileExtension())) {
-					message = composeFromEsbMessage(file);
-				}
-				else if(filePath.endsWith(MessageManagerMessage.getFileExtension())) {
-					message = composeFromMessageManagerMessage(file);
-				}else {
-					message = composeMessage(template, readFile(file), file);
-					replaceFields(message, i+1);
-				}
+				
+				applyTemplate(message);
 				message.setJMSDeliveryMode(DeliveryMode.PERSISTENT);
 				sonic.sendMessage(queue, message);
 				
+				sent = i + 1;
 				reportProgress(i++);
-				if(canceled) return;
 			}
+		} finally {
+			archive.close();
+		}
+		return i;
+	}
+	
+	/**
+	 * Count the messages in the files, or {@link Task#PROGRESS_UNKNOWN} when any of them
+	 * is expanded while sending. Counting those would mean walking the directories twice.
+	 * The same goes for an archive without an index.
+	 */
+	private static int countMessages(List<File> files) {
+		int count = 0;
+		for(File file: files) {
+			if(FileEnumerator.isExpanded(file))
+				return PROGRESS_UNKNOWN;
+			
+			final int messages = isArchive(file) ? countArchivedMessages(file) : 1;
+			if(messages == PROGRESS_UNKNOWN)
+				return PROGRESS_UNKNOWN;
+			count += messages;
+		}
+		return count;
+	}
+	
+	private static boolean isArchive(File file) {
+		return file.getPath().toLowerCase().endsWith(MessageArchive.getFileExtension());
+	}
+	
+	/**
+	 * Read the number of messages in an archive from its index, or {@link Task#PROGRESS_UNKNOWN}
+	 * when it has none. When the archive can not be read, it counts as one message, the error
+	 * is reported when it is sent.
+	 */
+	private static int countArchivedMessages(File file) {
+		try {
+			final int count = MessageArchive.countMessages(file);
+			return count < 0 ? PROGRESS_UNKNOWN : count;
+		} catch (IOException e) {
+			return 1;
 		}
 	}
 	
@@ -145,12 +409,6 @@ public class SendFileListTask extends Task implements CancelableTask {
 		}
 	}
 
-	public Message composeFromEsbMessage(File file) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, JMSException {
-		Message esbMessage = new ESBMessage().readFromFile(file);
-		applyTemplate(esbMessage);
-		return esbMessage;
-	}
-
 	private void applyTemplate(Message message) throws JMSException {
 		if(template != null) {
 			MessageFactory.copyProperties(template, message);
@@ -163,12 +421,6 @@ public class SendFileListTask extends Task implements CancelableTask {
 		}
 	}
 
-	private Message composeFromMessageManagerMessage(File file) throws ParserConfigurationException, SAXException, IOException, XPathExpressionException, JMSException {
-		Message message = new MessageManagerMessage().readFromFile(file);
-		applyTemplate(message);
-		return message;
-	}
-
 	private Message composeMessage(final Message template, final byte[] content, final File file) throws JMSException {
 		TextMessage message;
 		String fileName = file.getName().toLowerCase();
@@ -193,34 +445,28 @@ public class SendFileListTask extends Task implements CancelableTask {
 		return message;
 	}
 	
-	private byte[] readFile(File file)
-	{
+	private static byte[] readFile(File file) {
 		if(!file.exists() || !file.isFile())
 			return new byte[0];
 		
-	    try {	    	
-	    	FileInputStream fin = new FileInputStream(file);
-	    	byte[] content = new byte[(int)file.length()];
-	    	fin.read(content);
-	    	fin.close();
-	    	return content;
-	    } catch (FileNotFoundException e) {
-	      e.printStackTrace();
-	    } catch (IOException e) {
-	      e.printStackTrace();
-	    }
-	    
-	    return new byte[0];
+		try {
+			return Files.readAllBytes(file.toPath());
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		
+		return new byte[0];
 	}
-	
 
 	@Override
 	public int getProgressMaximum() {
-		return repeats * fileList.size();
+		return messageCount == PROGRESS_UNKNOWN ? PROGRESS_UNKNOWN : repeats * messageCount;
 	}
 
 	@Override
 	public String toString() {
+		if(messageCount == PROGRESS_UNKNOWN)
+			return "Sending message(s) to " + queue + " (" + sent + " sent)";
 		return "Sending " + getProgressMaximum() + " message(s) to " + queue;
 	}
 
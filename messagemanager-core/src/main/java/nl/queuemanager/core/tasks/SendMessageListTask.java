@@ -18,42 +18,54 @@ package nl.queuemanager.core.tasks;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
+import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.jms.MessageSender;
 import nl.queuemanager.core.task.CancelableTask;
 import nl.queuemanager.core.task.Task;
 import nl.queuemanager.jms.JMSDestination;
 
-import javax.jms.JMSException;
 import javax.jms.Message;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.logging.Logger;
 
 public class SendMessageListTask extends Task implements CancelableTask {
+	/**
+	 * Number of messages between progress reports when sending without delay.
+	 */
+	private static final int PROGRESS_INTERVAL = 100;
+	
+	private final Logger log = Logger.getLogger(getClass().getName());
 	
 	private final int repeats;
 	private final JMSDestination queue;
 	private final List<Message> messages;
 	private final JMSDomain domain;
+	private final CoreConfiguration config;
 	private final int delay;
 	private volatile boolean canceled;
+	private volatile long sendStartTime;
+	private volatile int sent;
 	
 	@AssistedInject
-	SendMessageListTask(@Assisted JMSDestination queue, @Assisted Message message, JMSDomain domain, EventBus eventBus) {
-		this(queue, Collections.singletonList(message), 1, 0, domain, eventBus);
+	SendMessageListTask(@Assisted JMSDestination queue, @Assisted Message message, JMSDomain domain, CoreConfiguration config, EventBus eventBus) {
+		this(queue, Collections.singletonList(message), 1, 0, domain, config, eventBus);
 	}
 	
 	@AssistedInject
-	SendMessageListTask(@Assisted JMSDestination queue, @Assisted Message message, @Assisted("repeats") int repeats, @Assisted("delay") int delay, JMSDomain domain, EventBus eventBus) {
-		this(queue, Collections.singletonList(message), repeats, delay, domain, eventBus);
+	SendMessageListTask(@Assisted JMSDestination queue, @Assisted Message message, @Assisted("repeats") int repeats, @Assisted("delay") int delay, JMSDomain domain, CoreConfiguration config, EventBus eventBus) {
+		this(queue, Collections.singletonList(message), repeats, delay, domain, config, eventBus);
 	}
 	
 	@AssistedInject
-	SendMessageListTask(@Assisted JMSDestination queue, @Assisted List<Message> messages, JMSDomain domain, EventBus eventBus) {
-		this(queue, messages, 1, 0, domain, eventBus);
+	SendMessageListTask(@Assisted JMSDestination queue, @Assisted List<Message> messages, JMSDomain domain, CoreConfiguration config, EventBus eventBus) {
+		this(queue, messages, 1, 0, domain, config, eventBus);
 	}
 
 	@AssistedInject
-	SendMessageListTask(@Assisted JMSDestination queue, @Assisted List<Message> messages, @Assisted("repeats") int repeats, @Assisted("delay") int delay, JMSDomain domain, EventBus eventBus) {
+	SendMessageListTask(@Assisted JMSDestination queue, @Assisted List<Message> messages, @Assisted("repeats") int repeats, @Assisted("delay") int delay, JMSDomain domain, CoreConfiguration config, EventBus eventBus) {
 		super(queue.getBroker(), eventBus);
 		
 		this.repeats = repeats;
@@ -61,45 +73,63 @@ public class SendMessageListTask extends Task implements CancelableTask {
 		this.queue = queue;
 		this.messages = messages;
 		this.domain = domain;
+		this.config = config;
 	}
 	
 	@Override
 	public void execute() throws Exception {
 		if(canceled) return;
 		
-		int i = 0;
-		for(int r=0; r<repeats; r++) {
+		// Batching the sends in transactions would hold back messages that should be sent with a delay
+		final int commitSize = delay != 0 ? 1 : Math.max(1, Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_SEND_COMMIT_SIZE, CoreConfiguration.DEFAULT_SEND_COMMIT_SIZE)));
+		final boolean async = Boolean.parseBoolean(config.getUserPref(
+				CoreConfiguration.PREF_SEND_ASYNC, CoreConfiguration.DEFAULT_SEND_ASYNC));
+		
+		final MessageSender sender = domain.createSender(queue, commitSize, async);
+		final List<Message> prepared = new ArrayList<Message>(messages.size());
+		final CorrelationIdTemplate[] templates = new CorrelationIdTemplate[messages.size()];
+		try {
+			// Messages that are sent more than once are converted only once
 			for(Message m: messages) {
-				if(delay != 0 && i > 0)
-					sleep(delay);
-				
-				// Store and replace the old CorrelationId to keep the %i token if
-				// present for future repeats.
-				String oldcid = m.getJMSCorrelationID();
-				replaceFields(m, i+1);
-				domain.sendMessage(queue, m);
-				m.setJMSCorrelationID(oldcid);
-				
-				reportProgress(i++);
-				if(canceled) return;
+				templates[prepared.size()] = CorrelationIdTemplate.compile(m.getJMSCorrelationID());
+				prepared.add(repeats > 1 ? sender.prepare(m) : m);
+			}
+			
+			sendStartTime = System.nanoTime();
+			int i = 0;
+			send: for(int r=0; r<repeats; r++) {
+				for(int j=0; j<prepared.size(); j++) {
+					if(delay != 0 && i > 0)
+						sleep(delay);
+					
+					final Message m = prepared.get(j);
+					if(templates[j] != null) {
+						m.setJMSCorrelationID(templates[j].format(i+1));
+					}
+					sender.send(m);
+					sent = ++i;
+					
+					if(delay != 0 || i % PROGRESS_INTERVAL == 0) {
+						reportProgress(i);
+					}
+					if(canceled) break send;
+				}
 			}
+			
+			sender.flush();
+			reportProgress(i);
+			log.fine(getStatus());
+		} finally {
+			// Restore the %i tokens, the prepared message may be the original message
+			for(int j=0; j<prepared.size(); j++) {
+				if(templates[j] != null) {
+					prepared.get(j).setJMSCorrelationID(templates[j].toString());
+				}
+			}
+			sender.close();
 		}
 	}
-	
-	/**
-	 * Replace tokens like %i (message number) in the correlationid
-	 * 
-	 * @param message
-	 * @throws JMSException 
-	 */
-	private void replaceFields(final Message message, final int seqNum) throws JMSException {
-		if(message.getJMSCorrelationID() == null)
-			return;
-		
-		message.setJMSCorrelationID(
-				message.getJMSCorrelationID().replaceAll(
-						"\\%i", Integer.toString(seqNum)));
-	}
 
 	private void sleep(final int delay) {
 		try {
@@ -113,6 +143,21 @@ public class SendMessageListTask extends Task implements CancelableTask {
 		return repeats * messages.size();
 	}
 	
+	/**
+	 * Returns the description of this task, including the achieved send rate once sending
+	 * has started.
+	 */
+	@Override
+	public String getStatus() {
+		final long start = sendStartTime;
+		final int count = sent;
+		if(start == 0 || count == 0)
+			return toString();
+		
+		final double seconds = Math.max(System.nanoTime() - start, 1) / 1000000000d;
+		return String.format("%s (%.0f msgs/sec)", toString(), count / seconds);
+	}
+	
 	@Override
 	public String toString() {
 		return "Sending " + getProgressMaximum() + " message(s) to " + queue;
@@ -121,4 +166,45 @@ public class SendMessageListTask extends Task implements CancelableTask {
 	public void cancel() {
 		this.canceled = true;
 	}
+	
+	/**
+	 * A correlation ID containing %i (message number) tokens. The template is split once so 
+	 * formatting it for each message does not require a regular expression.
+	 */
+	static class CorrelationIdTemplate {
+		private static final String TOKEN = "%i";
+		
+		private final String template;
+		private final String[] parts;
+		
+		private CorrelationIdTemplate(String template) {
+			this.template = template;
+			this.parts = template.split(TOKEN, -1);
+		}
+		
+		/**
+		 * @return The template, or null when the correlation ID does not contain any tokens
+		 */
+		static CorrelationIdTemplate compile(String correlationId) {
+			if(correlationId == null || !correlationId.contains(TOKEN))
+				return null;
+			
+			return new CorrelationIdTemplate(correlationId);
+		}
+		
+		String format(int seqNum) {
+			final String num = Integer.toString(seqNum);
+			final StringBuilder sb = new StringBuilder(template.length() + parts.length * num.length());
+			sb.append(parts[0]);
+			for(int i=1; i<parts.length; i++) {
+				sb.append(num).append(parts[i]);
+			}
+			return sb.toString();
+		}
+		
+		@Override
+		public String toString() {
+			return template;
+		}
+	}
 }
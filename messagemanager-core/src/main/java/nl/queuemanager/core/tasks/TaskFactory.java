@@ -22,6 +22,9 @@ public interface TaskFactory {
 	public abstract EnumerateTopicsTask enumerateTopics(JMSBroker broker, String filter);
 	
 	public abstract EnumerateMessagesTask enumerateMessages(JMSQueue queue, EventListener<QueueBrowserEvent> listener);	
+	public abstract EnumerateMessagesTask enumerateMessages(JMSQueue queue, @Assisted("offset") int offset, @Assisted("limit") int limit, EventListener<QueueBrowserEvent> listener);
+	public abstract EnumerateMessagesTask enumerateMessages(JMSQueue queue, @Assisted("offset") int offset, @Assisted("limit") int limit, String selector, EventListener<QueueBrowserEvent> listener);
+	public abstract LoadMessagesTask loadMessages(JMSQueue queue, List<String> messageIDs, LoadMessagesTask.MessagesReceiver receiver);
 	public abstract DeleteMessagesTask deleteMessages(JMSQueue queue, List<Message> messages);
 	public abstract MoveMessageListTask moveMessages(JMSQueue toQueue, List<Pair<JMSQueue, String>> messageList);
 	public abstract SaveMessagesToFileTask saveToFile(List<Pair<javax.jms.Message, File>> messages, String messageFileExtension);
@@ -31,6 +34,7 @@ public interface TaskFactory {
 	public abstract SendMessageListTask sendMessage(JMSDestination destination, Message message, @Assisted("repeats") int repeats, @Assisted("delay") int delay);
 	public abstract SendMessageListTask sendMessages(JMSDestination destination, List<Message> messages);
 	public abstract SendMessageListTask sendMessages(JMSDestination destination, List<Message> messages, @Assisted("repeats") int repeats, @Assisted("delay") int delay);
+	public abstract LoadGeneratorTask generateLoad(JMSDestination destination, Message message, LoadProfile profile);
 
 	// Send file (list) tasks
 	public abstract SendFileListTask sendFile(JMSDestination destination, File file, Message template);
@@ -0,0 +1,102 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed size histogram of latencies in microseconds that can be updated by multiple threads
+ * without locking. Values are recorded in logarithmic buckets with 16 linear sub-buckets each,
+ * so percentiles are accurate to within about 6%.
+ *
+ * @author gerco
+ *
+ */
+public class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int MAX_EXPONENT = 40;
+
+	private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+	/**
+	 * Record a latency.
+	 *
+	 * @param micros The latency in microseconds, negative values are recorded as 0
+	 */
+	public void record(long micros) {
+		counts.incrementAndGet(indexOf(Math.max(0, micros)));
+	}
+
+	/**
+	 * @return The number of recorded values
+	 */
+	public long getCount() {
+		long count = 0;
+		for(int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * Return the value at the given percentile.
+	 *
+	 * @param percentile A percentile between 0 and 100
+	 * @return The latency in microseconds or 0 when no values have been recorded
+	 */
+	public long getPercentile(double percentile) {
+		final long[] snapshot = new long[counts.length()];
+		long total = 0;
+		for(int i = 0; i < snapshot.length; i++) {
+			total += snapshot[i] = counts.get(i);
+		}
+
+		if(total == 0)
+			return 0;
+
+		final long rank = Math.max(1, (long)Math.ceil(total * percentile / 100d));
+		long seen = 0;
+		for(int i = 0; i < snapshot.length; i++) {
+			seen += snapshot[i];
+			if(seen >= rank)
+				return valueOf(i);
+		}
+		return valueOf(snapshot.length - 1);
+	}
+
+	static int indexOf(long value) {
+		if(value < SUB_BUCKETS)
+			return (int)value;
+
+		final int exponent = Math.min(MAX_EXPONENT, 63 - Long.numberOfLeadingZeros(value));
+		final int subBucket = (int)((value >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return The middle of the range of values in a bucket
+	 */
+	static long valueOf(int index) {
+		if(index < SUB_BUCKETS)
+			return index;
+
+		final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		final int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		final long lowest = (long)(SUB_BUCKETS + subBucket) << shift;
+		return lowest + ((1L << shift) >> 1);
+	}
+}
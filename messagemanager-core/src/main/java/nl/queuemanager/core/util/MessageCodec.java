@@ -0,0 +1,356 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.util;
+
+import nl.queuemanager.jms.JMSMultipartMessage;
+import nl.queuemanager.jms.JMSXMLMessage;
+import nl.queuemanager.jms.impl.DestinationFactory;
+import nl.queuemanager.jms.impl.MessageFactory;
+
+import javax.jms.*;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+
+/**
+ * Converts messages to and from a compact binary form. Headers, properties and the bodies
+ * of text, XML, bytes and map messages are written field by field. Object, stream and
+ * multipart messages are copied into the internal message format and written with Java
+ * serialization.
+ * <p>
+ * Decoded messages are always in the internal message format, see {@link MessageFactory}.
+ *
+ * @author gerco
+ *
+ */
+public class MessageCodec {
+	private static final byte VERSION = 1;
+
+	private static final byte BODY_NONE = 0;
+	private static final byte BODY_TEXT = 1;
+	private static final byte BODY_XML = 2;
+	private static final byte BODY_BYTES = 3;
+	private static final byte BODY_MAP = 4;
+	private static final byte BODY_SERIALIZED = 5;
+
+	private static final byte DESTINATION_NONE = 0;
+	private static final byte DESTINATION_QUEUE = 1;
+	private static final byte DESTINATION_TOPIC = 2;
+
+	private static final byte VALUE_NULL = 0;
+	private static final byte VALUE_BOOLEAN = 1;
+	private static final byte VALUE_BYTE = 2;
+	private static final byte VALUE_SHORT = 3;
+	private static final byte VALUE_CHAR = 4;
+	private static final byte VALUE_INT = 5;
+	private static final byte VALUE_LONG = 6;
+	private static final byte VALUE_FLOAT = 7;
+	private static final byte VALUE_DOUBLE = 8;
+	private static final byte VALUE_STRING = 9;
+	private static final byte VALUE_BYTES = 10;
+
+	private MessageCodec() {}
+
+	/**
+	 * Encode a message.
+	 *
+	 * @param message
+	 * @return The encoded message
+	 * @throws JMSException When the message can not be read
+	 */
+	public static byte[] encode(Message message) throws JMSException {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeByte(VERSION);
+			writeBody(out, message);
+			writeHeaders(out, message);
+			writeProperties(out, message);
+			out.flush();
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			// Can't happen, we're writing to a byte array
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Decode a message that was encoded with {@link #encode(Message)}.
+	 *
+	 * @param data
+	 * @return The decoded message
+	 * @throws JMSException When the data is not an encoded message
+	 */
+	public static Message decode(byte[] data) throws JMSException {
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+			if(in.readByte() != VERSION)
+				throw new JMSException("Unsupported encoded message version");
+
+			Message message = readBody(in);
+			readHeaders(in, message);
+			readProperties(in, message);
+			return message;
+		} catch (IOException e) {
+			JMSException jmse = new JMSException("Unable to decode message: " + e.getMessage());
+			jmse.setLinkedException(e);
+			throw jmse;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeBody(DataOutputStream out, Message message) throws JMSException, IOException {
+		if(message instanceof JMSXMLMessage) {
+			out.writeByte(BODY_XML);
+			out.writeBoolean(((JMSXMLMessage)message).isNamespaceAware());
+			writeString(out, ((JMSXMLMessage)message).getText());
+		} else if(message instanceof TextMessage) {
+			out.writeByte(BODY_TEXT);
+			writeString(out, ((TextMessage)message).getText());
+		} else if(message instanceof BytesMessage) {
+			BytesMessage bytesMessage = (BytesMessage)message;
+			bytesMessage.reset();
+			byte[] data = new byte[(int)bytesMessage.getBodyLength()];
+			bytesMessage.readBytes(data);
+			bytesMessage.reset();
+			out.writeByte(BODY_BYTES);
+			writeBytes(out, data);
+		} else if(message instanceof MapMessage) {
+			MapMessage mapMessage = (MapMessage)message;
+			out.writeByte(BODY_MAP);
+			int count = 0;
+			for(Enumeration<String> e = mapMessage.getMapNames(); e.hasMoreElements(); e.nextElement()) {
+				count++;
+			}
+			out.writeInt(count);
+			for(Enumeration<String> e = mapMessage.getMapNames(); e.hasMoreElements();) {
+				String name = e.nextElement();
+				writeString(out, name);
+				writeValue(out, mapMessage.getObject(name));
+			}
+		} else if(message instanceof ObjectMessage || message instanceof StreamMessage
+				|| message instanceof JMSMultipartMessage) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try(ObjectOutputStream oout = new ObjectOutputStream(bytes)) {
+				oout.writeObject(MessageFactory.copyMessage(message));
+			}
+			out.writeByte(BODY_SERIALIZED);
+			writeBytes(out, bytes.toByteArray());
+		} else {
+			out.writeByte(BODY_NONE);
+		}
+	}
+
+	private static Message readBody(DataInputStream in) throws JMSException, IOException {
+		switch(in.readByte()) {
+		case BODY_NONE:
+			return MessageFactory.createMessage();
+
+		case BODY_TEXT: {
+			TextMessage message = MessageFactory.createTextMessage();
+			message.setText(readString(in));
+			return message;
+		}
+
+		case BODY_XML: {
+			JMSXMLMessage message = MessageFactory.createXMLMessage();
+			message.setNamespaceAware(in.readBoolean());
+			message.setText(readString(in));
+			return message;
+		}
+
+		case BODY_BYTES: {
+			BytesMessage message = MessageFactory.createBytesMessage();
+			message.writeBytes(readBytes(in));
+			message.reset();
+			return message;
+		}
+
+		case BODY_MAP: {
+			MapMessage message = MessageFactory.createMapMessage();
+			for(int count = in.readInt(); count > 0; count--) {
+				message.setObject(readString(in), readValue(in));
+			}
+			return message;
+		}
+
+		case BODY_SERIALIZED:
+			try(ObjectInputStream oin = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+				return (Message)oin.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+
+		default:
+			throw new IOException("Unknown body type");
+		}
+	}
+
+	private static void writeHeaders(DataOutputStream out, Message message) throws JMSException, IOException {
+		writeString(out, message.getJMSMessageID());
+		writeString(out, message.getJMSCorrelationID());
+		writeString(out, message.getJMSType());
+		out.writeLong(message.getJMSTimestamp());
+		out.writeLong(message.getJMSExpiration());
+		out.writeByte(message.getJMSDeliveryMode());
+		out.writeByte(message.getJMSPriority());
+		out.writeBoolean(message.getJMSRedelivered());
+		writeDestination(out, message.getJMSDestination());
+		writeDestination(out, message.getJMSReplyTo());
+	}
+
+	private static void readHeaders(DataInputStream in, Message message) throws JMSException, IOException {
+		message.setJMSMessageID(readString(in));
+		message.setJMSCorrelationID(readString(in));
+		message.setJMSType(readString(in));
+		message.setJMSTimestamp(in.readLong());
+		message.setJMSExpiration(in.readLong());
+		message.setJMSDeliveryMode(in.readByte());
+		message.setJMSPriority(in.readByte());
+		message.setJMSRedelivered(in.readBoolean());
+		message.setJMSDestination(readDestination(in));
+		message.setJMSReplyTo(readDestination(in));
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void writeProperties(DataOutputStream out, Message message) throws JMSException, IOException {
+		int count = 0;
+		for(Enumeration<String> e = message.getPropertyNames(); e.hasMoreElements(); e.nextElement()) {
+			count++;
+		}
+		out.writeInt(count);
+		for(Enumeration<String> e = message.getPropertyNames(); e.hasMoreElements();) {
+			String name = e.nextElement();
+			writeString(out, name);
+			writeValue(out, message.getObjectProperty(name));
+		}
+	}
+
+	private static void readProperties(DataInputStream in, Message message) throws JMSException, IOException {
+		for(int count = in.readInt(); count > 0; count--) {
+			message.setObjectProperty(readString(in), readValue(in));
+		}
+	}
+
+	private static void writeDestination(DataOutputStream out, Destination destination) throws JMSException, IOException {
+		if(destination instanceof Queue) {
+			out.writeByte(DESTINATION_QUEUE);
+			writeString(out, ((Queue)destination).getQueueName());
+		} else if(destination instanceof Topic) {
+			out.writeByte(DESTINATION_TOPIC);
+			writeString(out, ((Topic)destination).getTopicName());
+		} else {
+			out.writeByte(DESTINATION_NONE);
+		}
+	}
+
+	private static Destination readDestination(DataInputStream in) throws IOException {
+		switch(in.readByte()) {
+		case DESTINATION_QUEUE:
+			return DestinationFactory.createQueue(null, readString(in));
+		case DESTINATION_TOPIC:
+			return DestinationFactory.createTopic(null, readString(in));
+		default:
+			return null;
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value) throws IOException {
+		if(value == null) {
+			out.writeByte(VALUE_NULL);
+		} else if(value instanceof Boolean) {
+			out.writeByte(VALUE_BOOLEAN);
+			out.writeBoolean((Boolean)value);
+		} else if(value instanceof Byte) {
+			out.writeByte(VALUE_BYTE);
+			out.writeByte((Byte)value);
+		} else if(value instanceof Short) {
+			out.writeByte(VALUE_SHORT);
+			out.writeShort((Short)value);
+		} else if(value instanceof Character) {
+			out.writeByte(VALUE_CHAR);
+			out.writeChar((Character)value);
+		} else if(value instanceof Integer) {
+			out.writeByte(VALUE_INT);
+			out.writeInt((Integer)value);
+		} else if(value instanceof Long) {
+			out.writeByte(VALUE_LONG);
+			out.writeLong((Long)value);
+		} else if(value instanceof Float) {
+			out.writeByte(VALUE_FLOAT);
+			out.writeFloat((Float)value);
+		} else if(value instanceof Double) {
+			out.writeByte(VALUE_DOUBLE);
+			out.writeDouble((Double)value);
+		} else if(value instanceof byte[]) {
+			out.writeByte(VALUE_BYTES);
+			writeBytes(out, (byte[])value);
+		} else {
+			out.writeByte(VALUE_STRING);
+			writeString(out, value.toString());
+		}
+	}
+
+	private static Object readValue(DataInputStream in) throws IOException {
+		switch(in.readByte()) {
+		case VALUE_NULL: return null;
+		case VALUE_BOOLEAN: return in.readBoolean();
+		case VALUE_BYTE: return in.readByte();
+		case VALUE_SHORT: return in.readShort();
+		case VALUE_CHAR: return in.readChar();
+		case VALUE_INT: return in.readInt();
+		case VALUE_LONG: return in.readLong();
+		case VALUE_FLOAT: return in.readFloat();
+		case VALUE_DOUBLE: return in.readDouble();
+		case VALUE_STRING: return readString(in);
+		case VALUE_BYTES: return readBytes(in);
+		default:
+			throw new IOException("Unknown value type");
+		}
+	}
+
+	/**
+	 * Strings are written as their UTF-8 bytes because {@link DataOutputStream#writeUTF(String)}
+	 * is limited to 64k.
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = readBytes(in);
+		return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+		if(value == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(value.length);
+			out.write(value);
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if(length < 0)
+			return null;
+
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,140 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.util;
+
+import nl.queuemanager.jms.JMSMultipartMessage;
+import nl.queuemanager.jms.JMSPart;
+
+import javax.jms.*;
+import java.util.Enumeration;
+
+/**
+ * Estimates the amount of heap a Message occupies. The estimate is meant for enforcing
+ * memory limits, not for exact accounting. Strings count as two bytes per character.
+ *
+ * @author gerco
+ *
+ */
+public class MessageSizeEstimator {
+	/**
+	 * Rough size of a message without any body or properties.
+	 */
+	private static final long MESSAGE_OVERHEAD = 512;
+
+	/**
+	 * Assumed body size for messages whose body size can not be determined without
+	 * deserializing it (object and stream messages).
+	 */
+	private static final long UNKNOWN_BODY_SIZE = 1024;
+
+	private MessageSizeEstimator() {}
+
+	/**
+	 * Estimate the size of a Message in bytes, including headers, properties and body.
+	 *
+	 * @param message
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public static long estimateSize(Message message) {
+		if(message == null)
+			return 0;
+
+		long size = MESSAGE_OVERHEAD;
+		try {
+			Enumeration<String> names = message.getPropertyNames();
+			while(names.hasMoreElements()) {
+				String name = names.nextElement();
+				size += sizeOf(name) + sizeOf(message.getObjectProperty(name));
+			}
+
+			size += estimateBodySize(message);
+		} catch (JMSException e) {
+			size += UNKNOWN_BODY_SIZE;
+		}
+
+		return size;
+	}
+
+	/**
+	 * Estimate the size of the body of a Message in bytes.
+	 *
+	 * @param message
+	 * @return
+	 * @throws JMSException
+	 */
+	@SuppressWarnings("unchecked")
+	public static long estimateBodySize(Message message) throws JMSException {
+		if(message instanceof JMSMultipartMessage) {
+			JMSMultipartMessage mpm = (JMSMultipartMessage)message;
+			long size = 0;
+			for(int i=0; i<mpm.getPartCount(); i++) {
+				size += estimateSize(mpm.getPart(i));
+			}
+			return size;
+		}
+
+		if(message instanceof TextMessage) {
+			return sizeOf(((TextMessage)message).getText());
+		}
+
+		if(message instanceof BytesMessage) {
+			try {
+				return ((BytesMessage)message).getBodyLength();
+			} catch (MessageNotReadableException e) {
+				return UNKNOWN_BODY_SIZE;
+			}
+		}
+
+		if(message instanceof MapMessage) {
+			MapMessage map = (MapMessage)message;
+			long size = 0;
+			Enumeration<String> names = map.getMapNames();
+			while(names.hasMoreElements()) {
+				String name = names.nextElement();
+				size += sizeOf(name) + sizeOf(map.getObject(name));
+			}
+			return size;
+		}
+
+		if(message instanceof ObjectMessage || message instanceof StreamMessage) {
+			return UNKNOWN_BODY_SIZE;
+		}
+
+		return 0;
+	}
+
+	private static long estimateSize(JMSPart part) {
+		Object content = part.getContent();
+		if(content instanceof Message) {
+			return estimateSize((Message)content);
+		}
+		return sizeOf(content);
+	}
+
+	private static long sizeOf(Object value) {
+		if(value == null)
+			return 0;
+
+		if(value instanceof byte[])
+			return ((byte[])value).length;
+
+		if(value instanceof String)
+			return ((String)value).length() * 2L;
+
+		return 16;
+	}
+}
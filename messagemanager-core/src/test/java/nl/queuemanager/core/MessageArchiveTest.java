@@ -0,0 +1,216 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.BytesMessage;
+import javax.jms.MapMessage;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class MessageArchiveTest {
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("archivetest", MessageArchive.getFileExtension());
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		testRoundTrip(false);
+	}
+
+	@Test
+	public void testRoundTripCompressed() throws Exception {
+		testRoundTrip(true);
+	}
+
+	private void testRoundTrip(boolean compress) throws Exception {
+		TextMessage text = textMessage("line 1\r\nline 2");
+		text.setJMSCorrelationID("correlation");
+		text.setStringProperty("property", "value");
+		text.setIntProperty("number", 42);
+
+		BytesMessage bytes = MessageFactory.createBytesMessage();
+		byte[] data = new byte[100000];
+		for(int i = 0; i < data.length; i++) {
+			data[i] = (byte)i;
+		}
+		bytes.writeBytes(data);
+
+		MapMessage map = MessageFactory.createMapMessage();
+		map.setString("key", "value");
+		map.setLong("long", Long.MAX_VALUE);
+
+		StreamMessage stream = MessageFactory.createStreamMessage();
+		stream.writeString("first");
+		stream.writeInt(2);
+
+		MessageArchive.Writer writer = MessageArchive.create(file, compress);
+		writer.append(text);
+		writer.append(bytes);
+		writer.append(map);
+		writer.append(stream);
+		writer.close();
+
+		MessageArchive.Reader reader = MessageArchive.open(file);
+		try {
+			assertEquals(4, reader.size());
+
+			TextMessage textCopy = (TextMessage)reader.next();
+			assertEquals("line 1\r\nline 2", textCopy.getText());
+			assertEquals("correlation", textCopy.getJMSCorrelationID());
+			assertEquals("value", textCopy.getStringProperty("property"));
+			assertEquals(42, textCopy.getIntProperty("number"));
+
+			BytesMessage bytesCopy = (BytesMessage)reader.next();
+			byte[] dataCopy = new byte[(int)bytesCopy.getBodyLength()];
+			bytesCopy.readBytes(dataCopy);
+			assertArrayEquals(data, dataCopy);
+
+			MapMessage mapCopy = (MapMessage)reader.next();
+			assertEquals("value", mapCopy.getString("key"));
+			assertEquals(Long.MAX_VALUE, mapCopy.getLong("long"));
+
+			StreamMessage streamCopy = (StreamMessage)reader.next();
+			assertEquals("first", streamCopy.readString());
+			assertEquals(2, streamCopy.readInt());
+
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testCompressionReducesSize() throws Exception {
+		writeTextMessages(file, 100, true);
+		File uncompressed = File.createTempFile("archivetest", MessageArchive.getFileExtension());
+		try {
+			writeTextMessages(uncompressed, 100, false);
+			assertTrue(file.length() < uncompressed.length());
+		} finally {
+			uncompressed.delete();
+		}
+	}
+
+	@Test
+	public void testRandomAccess() throws Exception {
+		writeTextMessages(file, 1000, true);
+
+		MessageArchive.Reader reader = MessageArchive.open(file);
+		try {
+			assertEquals(1000, reader.size());
+			assertEquals(text(999), ((TextMessage)reader.read(999)).getText());
+			assertEquals(text(500), ((TextMessage)reader.read(500)).getText());
+
+			// Random access does not move the sequential position
+			assertEquals(text(0), ((TextMessage)reader.next()).getText());
+			assertEquals(text(1), ((TextMessage)reader.next()).getText());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testArchiveWithoutIndex() throws Exception {
+		writeTextMessages(file, 10, false);
+
+		// Cut off the index and half of the last message, as if the writer was never closed
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(file.length() - 4 - 10 * 8 - 12 - text(9).length() / 2);
+		}
+
+		MessageArchive.Reader reader = MessageArchive.open(file);
+		try {
+			assertEquals(9, reader.size());
+			assertEquals(text(8), ((TextMessage)reader.read(8)).getText());
+			for(int i = 0; i < 9; i++) {
+				assertEquals(text(i), ((TextMessage)reader.next()).getText());
+			}
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testCountMessagesReadsTheIndexOnly() throws Exception {
+		writeTextMessages(file, 10, true);
+		assertEquals(10, MessageArchive.countMessages(file));
+
+		try(RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(file.length() - 1);
+		}
+		assertEquals(-1, MessageArchive.countMessages(file));
+	}
+
+	@Test
+	public void testEmptyArchive() throws Exception {
+		MessageArchive.create(file, true).close();
+
+		MessageArchive.Reader reader = MessageArchive.open(file);
+		try {
+			assertEquals(0, reader.size());
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotAnArchive() throws Exception {
+		Files.write(file.toPath(), "<message/>".getBytes());
+		MessageArchive.open(file);
+	}
+
+	private static void writeTextMessages(File file, int count, boolean compress) throws Exception {
+		MessageArchive.Writer writer = MessageArchive.create(file, compress);
+		try {
+			for(int i = 0; i < count; i++) {
+				writer.append(textMessage(text(i)));
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static String text(int i) {
+		return "<message number=\"" + i + "\">Some text that repeats, some text that repeats</message>";
+	}
+
+	private static TextMessage textMessage(String text) throws Exception {
+		TextMessage message = MessageFactory.createTextMessage();
+		message.setText(text);
+		return message;
+	}
+}
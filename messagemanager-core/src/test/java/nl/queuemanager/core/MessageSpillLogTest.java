@@ -0,0 +1,103 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core;
+
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MessageSpillLogTest {
+	private Path directory;
+	private MessageSpillLog spillLog;
+
+	@Before
+	public void before() throws Exception {
+		directory = Files.createTempDirectory("spilltest");
+		spillLog = new MessageSpillLog(directory, 1024);
+	}
+
+	@After
+	public void after() {
+		spillLog.close();
+	}
+
+	@Test
+	public void testAppendAcrossSegments() throws Exception {
+		for(int i = 0; i < 100; i++) {
+			spillLog.append(textMessage("message " + i));
+		}
+
+		assertEquals(100, spillLog.getMessageCount());
+		assertTrue(segmentCount() > 1);
+
+		List<Message> messages = spillLog.getMessages(95, 10);
+		assertEquals(5, messages.size());
+		for(int i = 0; i < 5; i++) {
+			assertEquals("message " + (95 + i), ((TextMessage)messages.get(i)).getText());
+		}
+	}
+
+	@Test
+	public void testMessageLargerThanSegment() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for(int i = 0; i < 1000; i++) {
+			text.append("large ");
+		}
+
+		spillLog.append(textMessage("small"));
+		spillLog.append(textMessage(text.toString()));
+		spillLog.append(textMessage("small again"));
+
+		List<Message> messages = spillLog.getMessages(0, 3);
+		assertEquals(text.toString(), ((TextMessage)messages.get(1)).getText());
+		assertEquals("small again", ((TextMessage)messages.get(2)).getText());
+	}
+
+	@Test
+	public void testClear() throws Exception {
+		spillLog.append(textMessage("message"));
+		spillLog.clear();
+
+		assertEquals(0, spillLog.getMessageCount());
+		assertEquals(0, segmentCount());
+		assertTrue(spillLog.getMessages(0, 10).isEmpty());
+
+		spillLog.append(textMessage("after clear"));
+		assertEquals("after clear", ((TextMessage)spillLog.getMessages(0, 1).get(0)).getText());
+	}
+
+	private long segmentCount() throws Exception {
+		try(Stream<Path> files = Files.list(directory)) {
+			return files.count();
+		}
+	}
+
+	private static TextMessage textMessage(String text) throws Exception {
+		TextMessage message = MessageFactory.createTextMessage();
+		message.setText(text);
+		return message;
+	}
+}
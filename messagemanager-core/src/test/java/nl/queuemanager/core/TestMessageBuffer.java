@@ -23,6 +23,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.Message;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -110,6 +111,53 @@ public class TestMessageBuffer implements EventListener<MessageEvent> {
 		assertTrue(buffer.getMessages().contains(message));
 	}
 
+	@Test
+	public void testLockedMessageKeepsItsPosition() {
+		buffer.setMaximumNumberOfMessages(3);
+		Message[] m = new Message[6];
+		for(int i=0; i<m.length; i++) {
+			m[i] = MessageFactory.createMessage();
+		}
+		
+		for(int i=0; i<3; i++) {
+			expectedEvents.add(EVENT.MESSAGE_RECEIVED);
+			buffer.onMessage(m[i]);
+		}
+		buffer.lockMessage(m[0]);
+		
+		for(int i=3; i<5; i++) {
+			expectedEvents.add(EVENT.MESSAGE_DISCARDED);
+			expectedEvents.add(EVENT.MESSAGE_RECEIVED);
+			buffer.onMessage(m[i]);
+		}
+		assertEquals(Arrays.asList(m[0], m[3], m[4]), buffer.getMessages());
+		
+		buffer.unlockMessage(m[0]);
+		expectedEvents.add(EVENT.MESSAGE_DISCARDED);
+		expectedEvents.add(EVENT.MESSAGE_RECEIVED);
+		buffer.onMessage(m[5]);
+		assertEquals(Arrays.asList(m[3], m[4], m[5]), buffer.getMessages());
+		assertTrue(expectedEvents.isEmpty());
+	}
+	
+	@Test
+	public void testRemoveKeepsOrder() {
+		Message[] m = new Message[4];
+		for(int i=0; i<m.length; i++) {
+			m[i] = MessageFactory.createMessage();
+			expectedEvents.add(EVENT.MESSAGE_RECEIVED);
+			buffer.onMessage(m[i]);
+		}
+		
+		buffer.remove(Arrays.asList(m[1], m[2]));
+		assertEquals(Arrays.asList(m[0], m[3]), buffer.getMessages());
+		
+		expectedEvents.add(EVENT.MESSAGE_RECEIVED);
+		Message last = MessageFactory.createMessage();
+		buffer.onMessage(last);
+		assertEquals(Arrays.asList(m[0], m[3], last), buffer.getMessages());
+	}
+
 	public void processEvent(MessageEvent event) {
 		if(expectedEvents == null || expectedEvents.size() == 0)
 			fail("Received event id " + event.getId() + " while not expecting any");
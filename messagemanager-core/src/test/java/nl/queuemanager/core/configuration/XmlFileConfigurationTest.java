@@ -0,0 +1,106 @@
+package nl.queuemanager.core.configuration;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.*;
+
+public class XmlFileConfigurationTest {
+	
+	private static final String NAMESPACE_URI = "urn:test-config"; 
+	private static final long NEVER = 60 * 60 * 1000;
+	private File configFile;
+	
+	@Before
+	public void before() throws IOException {
+		configFile = File.createTempFile("mmtest", "xml");
+		configFile.deleteOnExit();
+	}
+	
+	@Test
+	public void testChangesAreWrittenOnFlush() throws ConfigurationException {
+		XmlFileConfiguration config = create(NEVER);
+		XmlFileConfiguration other = create(0);
+		
+		config.setValue("key", "value");
+		assertEquals("value", config.getValue("key", null));
+		assertEquals(0, configFile.length());
+		assertNull(other.getValue("key", null));
+		
+		config.flush();
+		assertEquals("value", other.getValue("key", null));
+	}
+	
+	@Test
+	public void testChangesByOtherProcessesAreRead() {
+		XmlFileConfiguration config = create(0);
+		XmlFileConfiguration other = create(0);
+		
+		config.setValue("key", "one");
+		assertEquals("one", other.getValue("key", null));
+		
+		other.setValue("key", "three");
+		assertEquals("three", config.getValue("key", null));
+	}
+	
+	@Test
+	public void testPendingChangesSurviveChangesByOtherProcesses() throws ConfigurationException {
+		XmlFileConfiguration config = create(NEVER);
+		XmlFileConfiguration other = create(0);
+		
+		config.setValue("mine", "local");
+		other.setValue("other", "external");
+		
+		assertEquals("external", config.getValue("other", null));
+		assertEquals("local", config.getValue("mine", null));
+		
+		config.flush();
+		XmlFileConfiguration reader = create(0);
+		assertEquals("external", reader.getValue("other", null));
+		assertEquals("local", reader.getValue("mine", null));
+	}
+	
+	@Test
+	public void testReadingDoesNotCreateSections() {
+		XmlFileConfiguration config = create(0);
+		
+		assertNull(config.sub("plugin").sub("section").getValue("key", null));
+		assertTrue(config.listKeys().isEmpty());
+		
+		config.sub("plugin").setValue("key", "value");
+		assertEquals(1, config.listKeys().size());
+		assertEquals("plugin", config.listKeys().get(0));
+	}
+	
+	@Test
+	public void testPendingChangesAreWrittenByFlushAll() {
+		XmlFileConfiguration config = create(NEVER);
+		XmlFileConfiguration other = create(0);
+		
+		config.setValue("key", "value");
+		XmlFileConfiguration.flushAll();
+		assertEquals("value", other.getValue("key", null));
+	}
+	
+	@Test
+	public void testConfigurationsCanBeCollected() throws ConfigurationException {
+		XmlFileConfiguration config = create(NEVER);
+		config.setValue("key", "value");
+		config.flush();
+		
+		WeakReference<XmlFileConfiguration> reference = new WeakReference<XmlFileConfiguration>(config);
+		config = null;
+		for(int i = 0; i < 50 && reference.get() != null; i++) {
+			System.gc();
+		}
+		assertNull(reference.get());
+	}
+	
+	private XmlFileConfiguration create(long writeDelay) {
+		return new XmlFileConfiguration(configFile, NAMESPACE_URI, "TestConfiguration", writeDelay);
+	}
+}
@@ -0,0 +1,61 @@
+package nl.queuemanager.core.jms;
+
+import org.junit.Test;
+
+import javax.jms.InvalidSelectorException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MessageSelectorsTest {
+
+	@Test
+	public void testMessageIDs() {
+		assertEquals("JMSMessageID = 'ID:it''s'", MessageSelectors.messageID("ID:it's"));
+		assertEquals("JMSMessageID IN ('ID:1', 'ID:2')", MessageSelectors.messageIDs(Arrays.asList("ID:1", "ID:2")));
+	}
+
+	@Test
+	public void testValidSelectors() throws Exception {
+		String[] selectors = {
+			"JMSCorrelationID = 'abc'",
+			"orderType = 'X' AND amount > 1000",
+			"NOT (priority BETWEEN 1 AND 4) OR JMSPriority >= 7",
+			"country IN ('NL', 'BE') and name like 'a\\_%' escape '\\'",
+			"country NOT IN ('UK') AND name NOT LIKE '%x'",
+			"customer IS NOT NULL AND region IS NULL",
+			"-amount * 2.5e3 + 0x1F / .5 <> 10L",
+			"flag = TRUE AND other = false",
+			"text = 'it''s'",
+		};
+		for(String selector: selectors) {
+			MessageSelectors.validate(selector);
+		}
+	}
+
+	@Test
+	public void testInvalidSelectors() {
+		String[] selectors = {
+			"",
+			"JMSCorrelationID = 'abc",
+			"orderType = 'X' AND",
+			"amount > ",
+			"(a = 1",
+			"a = 1)",
+			"a BETWEEN 1",
+			"a IN (1, 2)",
+			"a NOT = 1",
+			"a == 1",
+			"a = 1.2.3",
+			"a # 1",
+		};
+		for(String selector: selectors) {
+			try {
+				MessageSelectors.validate(selector);
+				fail("Expected an InvalidSelectorException for " + selector);
+			} catch (InvalidSelectorException e) {
+				assertNotNull(e.getMessage());
+			}
+		}
+	}
+}
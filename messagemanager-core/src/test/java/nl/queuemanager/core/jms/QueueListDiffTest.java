@@ -0,0 +1,45 @@
+package nl.queuemanager.core.jms;
+
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSQueue;
+import nl.queuemanager.jms.impl.DestinationFactory;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class QueueListDiffTest {
+
+	private final JMSBroker broker = mock(JMSBroker.class);
+
+	@Test
+	public void testAddedRemovedAndChanged() {
+		List<JMSQueue> previous = Arrays.asList(queue("a", 1), queue("b", 2), queue("c", 3));
+		List<JMSQueue> current = Arrays.asList(queue("a", 1), queue("c", 4), queue("d", 0));
+
+		QueueListDiff diff = QueueListDiff.compute(previous, current);
+
+		assertEquals(Collections.singletonList(current.get(2)), diff.getAdded());
+		assertEquals(Collections.singletonList(previous.get(1)), diff.getRemoved());
+		assertEquals(Collections.singletonList(current.get(1)), diff.getChanged());
+		assertSame(current.get(1), diff.getChanged().get(0));
+		assertFalse(diff.isEmpty());
+	}
+
+	@Test
+	public void testIdenticalSnapshotsAreEmpty() {
+		QueueListDiff diff = QueueListDiff.compute(
+				Arrays.asList(queue("a", 1), queue("b", 2)),
+				Arrays.asList(queue("b", 2), queue("a", 1)));
+
+		assertTrue(diff.isEmpty());
+	}
+
+	private JMSQueue queue(String name, int messageCount) {
+		return DestinationFactory.createQueue(broker, name, messageCount);
+	}
+}
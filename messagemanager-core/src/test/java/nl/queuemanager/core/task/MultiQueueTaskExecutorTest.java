@@ -0,0 +1,127 @@
+package nl.queuemanager.core.task;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class MultiQueueTaskExecutorTest {
+
+	private final Object resource = new Object();
+	private EventBus eventBus;
+	private MultiQueueTaskExecutor executor;
+	private List<String> log;
+
+	@Before
+	public void setUp() {
+		CoreConfiguration config = mock(CoreConfiguration.class);
+		when(config.getUserPref(CoreConfiguration.PREF_BROKER_PARALLELISM, CoreConfiguration.DEFAULT_BROKER_PARALLELISM))
+			.thenReturn("2");
+		eventBus = new EventBus();
+		executor = new MultiQueueTaskExecutor(config);
+		log = Collections.synchronizedList(new ArrayList<String>());
+	}
+
+	@Test(timeout = 10000)
+	public void testSharedTasksRunConcurrently() throws Exception {
+		// Both tasks can only finish when the other one has started
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch finished = new CountDownLatch(2);
+		for(int i = 0; i < 2; i++) {
+			executor.execute(new TestTask(true) {
+				@Override
+				public void execute() throws Exception {
+					started.countDown();
+					assertTrue(started.await(5, TimeUnit.SECONDS));
+					finished.countDown();
+				}
+			});
+		}
+
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test(timeout = 10000)
+	public void testExclusiveTaskWaitsForSharedTasks() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		executor.execute(new TestTask(true) {
+			@Override
+			public void execute() throws Exception {
+				release.await();
+				log.add("shared");
+			}
+		});
+		executor.execute(new TestTask(false) {
+			@Override
+			public void execute() throws Exception {
+				log.add("exclusive");
+			}
+		});
+		executor.execute(new TestTask(true) {
+			@Override
+			public void execute() throws Exception {
+				log.add("shared after exclusive");
+				done.countDown();
+			}
+		});
+
+		// Nothing may overtake the first shared task while it is blocked
+		Thread.sleep(200);
+		assertTrue(log.isEmpty());
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(List.of("shared", "exclusive", "shared after exclusive"), log);
+	}
+
+	@Test(timeout = 10000)
+	public void testSharedTasksAreLimitedByParallelism() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(1);
+		for(int i = 0; i < 2; i++) {
+			executor.execute(new TestTask(true) {
+				@Override
+				public void execute() throws Exception {
+					release.await();
+				}
+			});
+		}
+		executor.execute(new TestTask(true) {
+			@Override
+			public void execute() throws Exception {
+				log.add("third");
+				done.countDown();
+			}
+		});
+
+		Thread.sleep(200);
+		assertTrue(log.isEmpty());
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	private abstract class TestTask extends Task {
+		private final boolean shared;
+
+		TestTask(boolean shared) {
+			super(resource, MultiQueueTaskExecutorTest.this.eventBus);
+			this.shared = shared;
+		}
+
+		@Override
+		public boolean isSharedResource() {
+			return shared;
+		}
+	}
+}
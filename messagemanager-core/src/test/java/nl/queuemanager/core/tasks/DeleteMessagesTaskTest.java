@@ -0,0 +1,82 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSQueue;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class DeleteMessagesTaskTest {
+
+	private JMSDomain domain;
+	private CoreConfiguration config;
+	private JMSQueue queue;
+
+	@Before
+	public void setUp() {
+		domain = mock(JMSDomain.class);
+		config = mock(CoreConfiguration.class);
+		queue = mock(JMSQueue.class);
+		when(queue.getBroker()).thenReturn(mock(JMSBroker.class));
+		when(config.getUserPref(CoreConfiguration.PREF_BULK_OPERATION_SIZE, CoreConfiguration.DEFAULT_BULK_OPERATION_SIZE))
+			.thenReturn("3");
+	}
+
+	@Test
+	public void testMessagesAreDeletedInChunks() throws Exception {
+		List<Message> messages = createMessages(7);
+
+		new DeleteMessagesTask(domain, config, new EventBus(), queue, messages).execute();
+
+		verify(domain).deleteMessages(queue, messages.subList(0, 3));
+		verify(domain).deleteMessages(queue, messages.subList(3, 6));
+		verify(domain).deleteMessages(queue, messages.subList(6, 7));
+		verifyNoMoreInteractions(domain);
+	}
+
+	@Test
+	public void testFailedChunkFallsBackToSingleMessages() throws Exception {
+		List<Message> messages = createMessages(4);
+		doThrow(new IllegalStateException()).when(domain).deleteMessages(queue, messages.subList(0, 3));
+
+		new DeleteMessagesTask(domain, config, new EventBus(), queue, messages).execute();
+
+		for(int i = 0; i < 3; i++) {
+			verify(domain).deleteMessages(queue, Collections.singletonList(messages.get(i)));
+		}
+		verify(domain, times(5)).deleteMessages(eq(queue), anyList());
+		verify(domain).deleteMessages(queue, messages.subList(3, 4));
+	}
+
+	@Test
+	public void testMessageIDs() throws Exception {
+		List<Message> messages = createMessages(2);
+
+		assertEquals(Arrays.asList("ID:0", "ID:1"),
+				new DeleteMessagesTask(domain, config, new EventBus(), queue, messages).getMessageIDs());
+	}
+
+	private static List<Message> createMessages(int count) throws Exception {
+		List<Message> messages = new ArrayList<Message>();
+		for(int i = 0; i < count; i++) {
+			Message message = MessageFactory.createTextMessage();
+			message.setJMSMessageID("ID:" + i);
+			messages.add(message);
+		}
+		return messages;
+	}
+}
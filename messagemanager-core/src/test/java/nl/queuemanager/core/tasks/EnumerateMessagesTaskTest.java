@@ -0,0 +1,265 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.tasks.EnumerateMessagesTask.QueueBrowserEvent;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSQueue;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EnumerateMessagesTaskTest {
+
+	private JMSDomain domain;
+	private CoreConfiguration config;
+	private JMSQueue queue;
+	private List<QueueBrowserEvent> events;
+
+	@Before
+	public void setUp() throws Exception {
+		domain = mock(JMSDomain.class);
+		config = mock(CoreConfiguration.class);
+		queue = mock(JMSQueue.class);
+		when(queue.getBroker()).thenReturn(mock(JMSBroker.class));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_INTERVAL, CoreConfiguration.DEFAULT_BROWSE_BATCH_INTERVAL))
+			.thenReturn("60000");
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_MAX_MEMORY, CoreConfiguration.DEFAULT_BROWSE_MAX_MEMORY))
+			.thenReturn(CoreConfiguration.DEFAULT_BROWSE_MAX_MEMORY);
+		events = new ArrayList<QueueBrowserEvent>();
+	}
+
+	@Test
+	public void testMessagesAreDeliveredInBatches() throws Exception {
+		List<Message> messages = createMessages(7);
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("3");
+
+		createTask().execute();
+
+		assertEquals(5, events.size());
+		assertEquals(QueueBrowserEvent.EVENT.BROWSING_STARTED, events.get(0).getId());
+		assertEquals(messages.subList(0, 3), batch(events.get(1)));
+		assertEquals(messages.subList(3, 6), batch(events.get(2)));
+		assertEquals(messages.subList(6, 7), batch(events.get(3)));
+		assertEquals(QueueBrowserEvent.EVENT.BROWSING_COMPLETE, events.get(4).getId());
+	}
+
+	@Test
+	public void testPartialBatchIsDeliveredAfterTheIntervalWithoutNewMessages() throws Exception {
+		final List<Message> messages = createMessages(3);
+		final CountDownLatch delivered = new CountDownLatch(1);
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("10");
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_INTERVAL, CoreConfiguration.DEFAULT_BROWSE_BATCH_INTERVAL))
+			.thenReturn("50");
+		// The broker returns two messages and then takes its time with the third
+		when(domain.enumerateMessages(queue)).thenReturn(new Enumeration<Message>() {
+			private int next;
+			
+			public boolean hasMoreElements() {
+				if(next == 2) {
+					try {
+						assertTrue(delivered.await(5, TimeUnit.SECONDS));
+					} catch (InterruptedException e) {
+						throw new AssertionError(e);
+					}
+				}
+				return next < messages.size();
+			}
+			
+			public Message nextElement() {
+				return messages.get(next++);
+			}
+		});
+
+		new EnumerateMessagesTask(queue, event -> {
+			events.add(event);
+			if(event.getId() == QueueBrowserEvent.EVENT.MESSAGES_FOUND)
+				delivered.countDown();
+		}, domain, config, new EventBus()).execute();
+
+		assertEquals(4, events.size());
+		assertEquals(messages.subList(0, 2), batch(events.get(1)));
+		assertEquals(messages.subList(2, 3), batch(events.get(2)));
+		assertEquals(QueueBrowserEvent.EVENT.BROWSING_COMPLETE, events.get(3).getId());
+	}
+
+	@Test
+	public void testBatchSizeOfOneDeliversSingleMessages() throws Exception {
+		List<Message> messages = createMessages(2);
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("1");
+
+		createTask().execute();
+
+		assertEquals(4, events.size());
+		assertEquals(QueueBrowserEvent.EVENT.MESSAGE_FOUND, events.get(1).getId());
+		assertSame(messages.get(0), events.get(1).getInfo());
+		assertEquals(QueueBrowserEvent.EVENT.MESSAGE_FOUND, events.get(2).getId());
+		assertSame(messages.get(1), events.get(2).getInfo());
+	}
+
+	@Test
+	public void testCancelStopsDelivery() throws Exception {
+		List<Message> messages = createMessages(10);
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("2");
+
+		final EnumerateMessagesTask task = new EnumerateMessagesTask(queue, event -> {
+			events.add(event);
+			if(event.getId() == QueueBrowserEvent.EVENT.MESSAGES_FOUND) {
+				task(event).cancel();
+			}
+		}, domain, config, new EventBus());
+		task.execute();
+
+		assertEquals(3, events.size());
+		assertEquals(messages.subList(0, 2), batch(events.get(1)));
+		assertEquals(QueueBrowserEvent.EVENT.BROWSING_COMPLETE, events.get(2).getId());
+	}
+
+	@Test
+	public void testOffsetAndLimitSelectWindow() throws Exception {
+		List<Message> messages = createMessages(10);
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+
+		EnumerateMessagesTask task = new EnumerateMessagesTask(queue, 4, 3, events::add, domain, config, new EventBus());
+		task.execute();
+
+		assertEquals(3, events.size());
+		assertEquals(messages.subList(4, 7), batch(events.get(1)));
+		assertEquals(3, task.getBrowsedCount());
+		assertTrue(task.hasMoreMessages());
+		assertFalse(task.isMemoryLimitReached());
+	}
+
+	@Test
+	public void testLastWindowHasNoMoreMessages() throws Exception {
+		List<Message> messages = createMessages(5);
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+
+		EnumerateMessagesTask task = new EnumerateMessagesTask(queue, 3, 3, events::add, domain, config, new EventBus());
+		task.execute();
+
+		assertEquals(messages.subList(3, 5), batch(events.get(1)));
+		assertFalse(task.hasMoreMessages());
+	}
+
+	@Test
+	public void testMemoryLimitStopsBrowsing() throws Exception {
+		List<Message> messages = createMessages(3);
+		for(Message m: messages) {
+			((TextMessage)m).setText(new String(new char[400 * 1024]));
+		}
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_MAX_MEMORY, CoreConfiguration.DEFAULT_BROWSE_MAX_MEMORY))
+			.thenReturn("1");
+
+		EnumerateMessagesTask task = createTask();
+		task.execute();
+
+		assertEquals(messages.subList(0, 1), batch(events.get(1)));
+		assertTrue(task.hasMoreMessages());
+		assertTrue(task.isMemoryLimitReached());
+	}
+
+	@Test
+	public void testHeadersOnlyDropsBodies() throws Exception {
+		List<Message> messages = createMessages(2);
+		for(Message m: messages) {
+			((TextMessage)m).setText("body");
+			m.setJMSMessageID("ID:" + messages.indexOf(m));
+			m.setStringProperty("prop", "value");
+		}
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_HEADERS_ONLY, CoreConfiguration.DEFAULT_BROWSE_HEADERS_ONLY))
+			.thenReturn("true");
+
+		EnumerateMessagesTask task = createTask();
+		task.execute();
+
+		assertTrue(task.isHeadersOnly());
+		List<Message> browsed = batch(events.get(1));
+		assertEquals(2, browsed.size());
+		for(int i = 0; i < browsed.size(); i++) {
+			assertFalse(browsed.get(i) instanceof TextMessage);
+			assertEquals("ID:" + i, browsed.get(i).getJMSMessageID());
+			assertEquals("value", browsed.get(i).getStringProperty("prop"));
+		}
+	}
+
+	@Test
+	public void testSelectorIsPassedToTheDomain() throws Exception {
+		List<Message> messages = createMessages(2);
+		when(domain.enumerateMessages(queue, "JMSCorrelationID = 'abc'")).thenReturn(Collections.enumeration(messages));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+
+		EnumerateMessagesTask task = new EnumerateMessagesTask(queue, 0, 0, "JMSCorrelationID = 'abc'", events::add, domain, config, new EventBus());
+		task.execute();
+
+		assertEquals("JMSCorrelationID = 'abc'", task.getSelector());
+		assertEquals(messages, batch(events.get(1)));
+		verify(domain, never()).enumerateMessages(queue);
+	}
+
+	@Test
+	public void testBlankSelectorBrowsesAllMessages() throws Exception {
+		when(domain.enumerateMessages(queue)).thenReturn(Collections.enumeration(createMessages(1)));
+		when(config.getUserPref(CoreConfiguration.PREF_BROWSE_BATCH_SIZE, CoreConfiguration.DEFAULT_BROWSE_BATCH_SIZE))
+			.thenReturn("100");
+
+		EnumerateMessagesTask task = new EnumerateMessagesTask(queue, 0, 0, " ", events::add, domain, config, new EventBus());
+		task.execute();
+
+		assertNull(task.getSelector());
+		verify(domain).enumerateMessages(queue);
+	}
+
+	private EnumerateMessagesTask createTask() {
+		return new EnumerateMessagesTask(queue, events::add, domain, config, new EventBus());
+	}
+
+	private static EnumerateMessagesTask task(QueueBrowserEvent event) {
+		return (EnumerateMessagesTask)event.getSource();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Message> batch(QueueBrowserEvent event) {
+		assertEquals(QueueBrowserEvent.EVENT.MESSAGES_FOUND, event.getId());
+		return (List<Message>)event.getInfo();
+	}
+
+	private static List<Message> createMessages(int count) {
+		List<Message> messages = new ArrayList<Message>();
+		for(int i = 0; i < count; i++) {
+			messages.add(MessageFactory.createTextMessage());
+		}
+		return messages;
+	}
+}
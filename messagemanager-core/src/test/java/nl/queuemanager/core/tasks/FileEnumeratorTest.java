@@ -0,0 +1,135 @@
+package nl.queuemanager.core.tasks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FileEnumeratorTest {
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("enumerator");
+		for(String name: Arrays.asList("a.xml", "b.txt", "sub/c.xml", "sub/deeper/d.xml", "sub/e.txt")) {
+			Path file = directory.resolve(name);
+			Files.createDirectories(file.getParent());
+			Files.createFile(file);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try(Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testDirectoryIsNotRecursive() {
+		assertEquals(names("a.xml", "b.txt"), enumerate(new FileEnumerator(roots(directory.toFile()))));
+	}
+
+	@Test
+	public void testDoubleStarGlobPathIsRecursive() {
+		assertEquals(names("a.xml", "b.txt", "sub/c.xml", "sub/deeper/d.xml", "sub/e.txt"),
+				enumerate(new FileEnumerator(roots(new File(directory.toFile(), "**")))));
+	}
+
+	@Test
+	public void testFilesAndGlobPathsAreCombined() {
+		File file = directory.resolve("b.txt").toFile();
+		assertEquals(names("a.xml", "b.txt"), enumerate(new FileEnumerator(roots(file, new File(directory.toFile(), "*.xml")))));
+	}
+
+	@Test
+	public void testGlobPath() {
+		assertEquals(names("sub/c.xml"),
+				enumerate(new FileEnumerator(roots(new File(directory.toFile(), "s*/*.xml")))));
+	}
+
+	@Test
+	public void testGlobPathWithDoubleStarIncludesTopLevel() {
+		assertEquals(names("a.xml", "sub/c.xml", "sub/deeper/d.xml"),
+				enumerate(new FileEnumerator(roots(new File(directory.toFile(), "**/*.xml")))));
+	}
+
+	@Test
+	public void testRegexPathIsRecursiveAndMatchesRelativePaths() {
+		assertEquals(names("sub/c.xml", "sub/deeper/d.xml"),
+				enumerate(new FileEnumerator(roots(new File(directory.toFile(), "regex:sub/.*\\.xml")))));
+	}
+
+	@Test
+	public void testRegexPathMatchesFileNames() {
+		assertEquals(names("b.txt", "sub/e.txt"),
+				enumerate(new FileEnumerator(roots(new File(directory.toFile(), "regex:[a-z]\\.txt")))));
+		assertTrue(FileEnumerator.isExpanded(new File(directory.toFile(), "regex:[a-z]\\.txt")));
+		assertFalse(FileEnumerator.isExpanded(new File(directory.toFile(), "noregex:a")));
+	}
+
+	@Test
+	public void testGlobPathWithoutMatchesIsEmpty() {
+		assertFalse(new FileEnumerator(roots(new File(directory.toFile(), "missing/*.xml"))).hasNext());
+	}
+
+	@Test
+	public void testMissingFileIsEnumerated() {
+		File missing = directory.resolve("missing.xml").toFile();
+		assertEquals(Collections.singleton(missing), new HashSet<File>(list(new FileEnumerator(roots(missing)))));
+		assertTrue(FileEnumerator.isExpanded(directory.toFile()));
+		assertTrue(FileEnumerator.isExpanded(new File(directory.toFile(), "*.xml")));
+		assertFalse(FileEnumerator.isExpanded(missing));
+	}
+
+	@Test
+	public void testCloseEndsEnumeration() {
+		FileEnumerator enumerator = new FileEnumerator(roots(directory.toFile(), directory.toFile()));
+		assertTrue(enumerator.hasNext());
+		enumerator.next();
+		enumerator.close();
+		assertFalse(enumerator.hasNext());
+	}
+
+	private static List<File> roots(File... files) {
+		return Arrays.asList(files);
+	}
+
+	private Set<String> names(String... names) {
+		return new HashSet<String>(Arrays.asList(names));
+	}
+
+	private Set<String> enumerate(FileEnumerator enumerator) {
+		Set<String> names = new HashSet<String>();
+		for(File file: list(enumerator)) {
+			names.add(directory.relativize(file.toPath()).toString().replace(File.separatorChar, '/'));
+		}
+		return names;
+	}
+
+	private static List<File> list(FileEnumerator enumerator) {
+		List<File> files = new ArrayList<File>();
+		try {
+			while(enumerator.hasNext()) {
+				files.add(enumerator.next());
+			}
+		} finally {
+			enumerator.close();
+		}
+		return files;
+	}
+}
@@ -0,0 +1,49 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSDestination;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Test;
+
+import javax.jms.Message;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class LoadGeneratorTaskTest {
+
+	@Test
+	public void testSendsEveryMessageOfTheProfileOnce() throws Exception {
+		JMSDomain domain = mock(JMSDomain.class);
+		CoreConfiguration config = mock(CoreConfiguration.class);
+		JMSDestination destination = mock(JMSDestination.class);
+		when(destination.getBroker()).thenReturn(mock(JMSBroker.class));
+		when(config.getUserPref(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(domain.createSender(eq(destination), anyInt(), anyBoolean())).thenCallRealMethod();
+
+		final Set<String> correlationIds = Collections.synchronizedSet(new HashSet<String>());
+		doAnswer(invocation -> correlationIds.add(((Message)invocation.getArgument(1)).getJMSCorrelationID()))
+			.when(domain).sendMessage(eq(destination), any(Message.class));
+
+		Message message = MessageFactory.createTextMessage();
+		message.setJMSCorrelationID("load-%i");
+
+		LoadGeneratorTask task = new LoadGeneratorTask(destination, message, new LoadProfile(200, 0, 1, 3), domain, config, new EventBus());
+		task.execute();
+
+		assertEquals(200, task.getSentCount());
+		assertEquals(200, correlationIds.size());
+		assertTrue(correlationIds.contains("load-1"));
+		assertTrue(correlationIds.contains("load-200"));
+		assertEquals(200, task.getLatencies().getCount());
+		assertEquals("load-%i", message.getJMSCorrelationID());
+	}
+}
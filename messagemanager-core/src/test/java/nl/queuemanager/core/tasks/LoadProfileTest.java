@@ -0,0 +1,41 @@
+package nl.queuemanager.core.tasks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadProfileTest {
+
+	private static final long SECOND = 1000000000L;
+
+	@Test
+	public void testConstantRate() {
+		LoadProfile profile = new LoadProfile(10, 0, 2, 1);
+
+		assertEquals(0, profile.getIntendedSendTime(0));
+		assertEquals(SECOND / 10, profile.getIntendedSendTime(1));
+		assertEquals(19 * SECOND / 10, profile.getIntendedSendTime(19));
+		assertEquals(-1, profile.getIntendedSendTime(20));
+	}
+
+	@Test
+	public void testRampUpReachesTargetRate() {
+		LoadProfile profile = new LoadProfile(100, 10, 20, 1);
+
+		// Half of the target rate on average during ramp-up
+		assertEquals(10 * SECOND, profile.getIntendedSendTime(500));
+		assertEquals(11 * SECOND, profile.getIntendedSendTime(600));
+		assertEquals(-1, profile.getIntendedSendTime(1500));
+
+		// Messages are spaced further apart early in the ramp-up
+		long early = profile.getIntendedSendTime(2) - profile.getIntendedSendTime(1);
+		long late = profile.getIntendedSendTime(499) - profile.getIntendedSendTime(498);
+		assertTrue(early > late);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRateMustBePositive() {
+		new LoadProfile(0, 0, 10, 1);
+	}
+}
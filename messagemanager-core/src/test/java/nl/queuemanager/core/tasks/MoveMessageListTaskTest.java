@@ -0,0 +1,93 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import nl.queuemanager.core.Pair;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.task.TaskEvent;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSQueue;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MoveMessageListTaskTest {
+
+	private JMSDomain domain;
+	private CoreConfiguration config;
+	private JMSQueue toQueue;
+	private JMSQueue queue1;
+	private JMSQueue queue2;
+	private EventBus eventBus;
+	private List<Object> progress;
+
+	@Before
+	public void setUp() {
+		domain = mock(JMSDomain.class);
+		config = mock(CoreConfiguration.class);
+		toQueue = mock(JMSQueue.class);
+		queue1 = mock(JMSQueue.class);
+		queue2 = mock(JMSQueue.class);
+		when(toQueue.getBroker()).thenReturn(mock(JMSBroker.class));
+		when(config.getUserPref(CoreConfiguration.PREF_BULK_OPERATION_SIZE, CoreConfiguration.DEFAULT_BULK_OPERATION_SIZE))
+			.thenReturn("3");
+
+		progress = new ArrayList<Object>();
+		eventBus = new EventBus();
+		eventBus.register(new Object() {
+			@Subscribe
+			public void onTaskEvent(TaskEvent event) {
+				if(event.getId() == TaskEvent.EVENT.TASK_PROGRESS)
+					progress.add(event.getInfo());
+			}
+		});
+	}
+
+	@Test
+	public void testMessagesAreMovedInChunksPerSourceQueue() throws Exception {
+		List<Pair<JMSQueue, String>> messages = new ArrayList<Pair<JMSQueue, String>>();
+		messages.addAll(createMessages(queue1, 0, 5));
+		messages.addAll(createMessages(queue2, 5, 2));
+
+		new MoveMessageListTask(toQueue, messages, domain, config, eventBus).execute();
+
+		InOrder inOrder = inOrder(domain);
+		inOrder.verify(domain).forwardMessages(queue1, toQueue, Arrays.asList("ID:0", "ID:1", "ID:2"));
+		inOrder.verify(domain).forwardMessages(queue1, toQueue, Arrays.asList("ID:3", "ID:4"));
+		inOrder.verify(domain).forwardMessages(queue2, toQueue, Arrays.asList("ID:5", "ID:6"));
+		verifyNoMoreInteractions(domain);
+		assertEquals(Arrays.<Object>asList(3, 5, 7), progress);
+	}
+
+	@Test
+	public void testFailedChunkFallsBackToSingleMessages() throws Exception {
+		List<Pair<JMSQueue, String>> messages = createMessages(queue1, 0, 4);
+		doThrow(new IllegalStateException()).when(domain).forwardMessages(queue1, toQueue, Arrays.asList("ID:0", "ID:1", "ID:2"));
+
+		new MoveMessageListTask(toQueue, messages, domain, config, eventBus).execute();
+
+		for(int i = 0; i < 3; i++) {
+			verify(domain).forwardMessage(queue1, toQueue, "ID:" + i);
+		}
+		verify(domain).forwardMessages(queue1, toQueue, Arrays.asList("ID:3"));
+		verify(domain, times(2)).forwardMessages(eq(queue1), eq(toQueue), anyList());
+		assertEquals(Arrays.<Object>asList(1, 2, 3, 4), progress);
+	}
+
+	private static List<Pair<JMSQueue, String>> createMessages(JMSQueue queue, int first, int count) {
+		List<Pair<JMSQueue, String>> messages = new ArrayList<Pair<JMSQueue, String>>();
+		for(int i = first; i < first + count; i++) {
+			messages.add(new Pair<JMSQueue, String>(queue, "ID:" + i));
+		}
+		return messages;
+	}
+}
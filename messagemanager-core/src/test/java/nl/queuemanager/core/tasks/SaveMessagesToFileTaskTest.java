@@ -1,18 +1,31 @@
 package nl.queuemanager.core.tasks;
 
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import nl.queuemanager.core.ESBMessage;
+import nl.queuemanager.core.MessageManagerMessage;
+import nl.queuemanager.core.Pair;
+import nl.queuemanager.core.task.TaskEvent;
 import nl.queuemanager.jms.JMSMultipartMessage;
 import nl.queuemanager.jms.impl.MessageFactory;
 import org.junit.Test;
 
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
+import javax.jms.MapMessage;
 import javax.jms.Message;
+import javax.jms.TextMessage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
 import static org.junit.Assert.*;
@@ -111,6 +124,165 @@ public class SaveMessagesToFileTaskTest {
         assertEquals(parent, file.getParentFile());
     }
 
+    @Test
+    public void testSavedTextMessageReadsBackTheSame() throws Exception {
+        File file = File.createTempFile("test", MessageManagerMessage.getFileExtension());
+        file.deleteOnExit();
+
+        TextMessage message = MessageFactory.createTextMessage();
+        message.setJMSCorrelationID("correlation & <id>");
+        message.setStringProperty("multiline", "line 1\r\nline 2\tand \"quotes\"");
+        message.setIntProperty("count", 42);
+        message.setText("<text attr=\"1\">a\r\nb &amp; ]]></text>");
+
+        SaveMessagesToFileTask.saveAsMessage(message, file, MessageManagerMessage.getFileExtension());
+        TextMessage read = (TextMessage)new MessageManagerMessage().readFromFile(file);
+
+        assertEquals(message.getJMSCorrelationID(), read.getJMSCorrelationID());
+        assertEquals(message.getStringProperty("multiline"), read.getStringProperty("multiline"));
+        assertEquals(42, read.getObjectProperty("count"));
+        assertEquals(message.getText(), read.getText());
+    }
+
+    @Test
+    public void testSavedBytesAndMapMessagesReadBackTheSame() throws Exception {
+        File file = File.createTempFile("test", ESBMessage.getFileExtension());
+        file.deleteOnExit();
+
+        byte[] body = new byte[200000];
+        new Random(3).nextBytes(body);
+        BytesMessage bytes = MessageFactory.createBytesMessage();
+        bytes.writeBytes(body);
+
+        SaveMessagesToFileTask.saveAsMessage(bytes, file, ESBMessage.getFileExtension());
+        BytesMessage readBytes = (BytesMessage)new ESBMessage().readFromFile(file);
+        byte[] readBody = new byte[(int)readBytes.getBodyLength()];
+        readBytes.readBytes(readBody);
+        assertArrayEquals(body, readBody);
+
+        MapMessage map = MessageFactory.createMapMessage();
+        map.setString("text", "a\nb");
+        map.setLong("number", 7L);
+        map.setBytes("bytes", new byte[] {1, 2, 3});
+
+        SaveMessagesToFileTask.saveAsMessage(map, file, ESBMessage.getFileExtension());
+        MapMessage readMap = (MapMessage)new ESBMessage().readFromFile(file);
+        assertEquals("a\nb", readMap.getString("text"));
+        assertEquals(7L, readMap.getLong("number"));
+        assertArrayEquals(new byte[] {1, 2, 3}, readMap.getBytes("bytes"));
+    }
+
+    @Test
+    public void testSavedMultipartMessageReadsBackTheSame() throws Exception {
+        File file = File.createTempFile("test", ESBMessage.getFileExtension());
+        file.deleteOnExit();
+
+        byte[] binary = new byte[100000];
+        new Random(5).nextBytes(binary);
+        JMSMultipartMessage message = MessageFactory.createMultipartMessage();
+        message.addPart(message.createPart("<xml>text</xml>", "text/xml"));
+        message.addPart(message.createPart(binary, "application/octet-stream"));
+
+        SaveMessagesToFileTask.saveAsMessage(message, file, ESBMessage.getFileExtension());
+        JMSMultipartMessage read = (JMSMultipartMessage)new ESBMessage().readFromFile(file);
+
+        assertEquals(2, read.getPartCount());
+        assertEquals("<xml>text</xml>", read.getPart(0).getContent());
+        assertEquals("part-0", read.getPart(0).getHeaderField("Content-ID"));
+        assertEquals("application/octet-stream", read.getPart(1).getContentType());
+        assertArrayEquals(binary, read.getPart(1).getContentBytes());
+    }
+
+    @Test
+    public void testReadHandwrittenMessageFile() throws Exception {
+        File file = File.createTempFile("test", MessageManagerMessage.getFileExtension());
+        file.deleteOnExit();
+        File ref = File.createTempFile("test", ".bin", file.getParentFile());
+        ref.deleteOnExit();
+        Files.write(ref.toPath(), new byte[] {4, 5, 6});
+
+        // Line wrapped Base64, comments and CDATA sections
+        Files.write(file.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<!-- saved by hand -->\n"
+                + "<msg:msg type=\"Multipart-Message\" xmlns:msg=\"http://www.conapi.at/message-manager/msg/namespace\">\n"
+                + "  <header name=\"JMSCorrelationID\" value=\"corr\"/>\n"
+                + "  <property name=\"flag\" type=\"java.lang.Boolean\" value=\"true\"/>\n"
+                + "  <!-- parts follow -->\n"
+                + "  <part content-type=\"text/plain\" content-id=\"a\"><![CDATA[<not xml>]]> &amp; more</part>\n"
+                + "  <part content-type=\"application/octet-stream\" content-id=\"b\">AQID\n  BAUG\n  Bw==</part>\n"
+                + "  <part content-type=\"application/octet-stream\" content-id=\"c\" file-ref=\"" + ref.getName() + "\" use-file-ref=\"true\"/>\n"
+                + "</msg:msg>\n").getBytes(StandardCharsets.UTF_8));
+
+        JMSMultipartMessage read = (JMSMultipartMessage)new MessageManagerMessage().readFromFile(file);
+
+        assertEquals("corr", read.getJMSCorrelationID());
+        assertEquals(Boolean.TRUE, read.getObjectProperty("flag"));
+        assertEquals(3, read.getPartCount());
+        assertEquals("<not xml> & more", read.getPart(0).getContent());
+        assertArrayEquals(new byte[] {1, 2, 3, 4, 5, 6, 7}, read.getPart(1).getContentBytes());
+        assertArrayEquals(new byte[] {4, 5, 6}, read.getPart(2).getContentBytes());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsOtherFormat() throws Exception {
+        File file = File.createTempFile("test", ESBMessage.getFileExtension());
+        file.deleteOnExit();
+
+        TextMessage message = MessageFactory.createTextMessage();
+        message.setText("text");
+        SaveMessagesToFileTask.saveAsMessage(message, file, MessageManagerMessage.getFileExtension());
+
+        new ESBMessage().readFromFile(file);
+    }
+
+    @Test
+    public void testExecuteSavesAllMessagesAndReportsProgressInOrder() throws Exception {
+        executeSavesAllMessagesAndReportsProgressInOrder(1);
+    }
+
+    @Test
+    public void testExecuteOnMultipleWritersSavesAllMessagesAndReportsProgressInOrder() throws Exception {
+        executeSavesAllMessagesAndReportsProgressInOrder(SaveMessagesToFileTask.MAX_WRITERS);
+    }
+
+    private void executeSavesAllMessagesAndReportsProgressInOrder(int writers) throws Exception {
+        Path tempDir = Files.createTempDirectory("test");
+        List<Pair<Message, File>> messages = new ArrayList<Pair<Message, File>>();
+        for(int i = 0; i < 50; i++) {
+            TextMessage message = MessageFactory.createTextMessage();
+            message.setJMSTimestamp(i);
+            message.setJMSMessageID("ID:" + i);
+            message.setText("message " + i);
+            messages.add(Pair.<Message, File>create(message, tempDir.toFile()));
+        }
+
+        final List<Object> progress = new ArrayList<Object>();
+        EventBus eventBus = new EventBus();
+        eventBus.register(new Object() {
+            @Subscribe
+            public void onTaskEvent(TaskEvent event) {
+                if(event.getId() == TaskEvent.EVENT.TASK_PROGRESS)
+                    progress.add(event.getInfo());
+            }
+        });
+
+        try {
+            SaveMessagesToFileTask task = new SaveMessagesToFileTask(messages, MessageManagerMessage.getFileExtension(), eventBus);
+            task.setMaxWriters(writers);
+            task.execute();
+
+            assertEquals(50, tempDir.toFile().list().length);
+            for(int i = 0; i < 50; i++) {
+                assertEquals(i, progress.get(i));
+                TextMessage read = (TextMessage)new MessageManagerMessage().readFromFile(
+                        tempDir.resolve(i + "-ID_" + i + MessageManagerMessage.getFileExtension()).toFile());
+                assertEquals("message " + i, read.getText());
+            }
+        } finally {
+            recursiveDelete(tempDir);
+        }
+    }
+
     private static void recursiveDelete(Path path) throws IOException {
         Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
             @Override
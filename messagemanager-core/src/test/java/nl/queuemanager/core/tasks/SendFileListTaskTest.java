@@ -0,0 +1,192 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.MessageManagerMessage;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSDestination;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.BytesMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SendFileListTaskTest {
+
+	private JMSDomain domain;
+	private JMSDestination queue;
+	private Path directory;
+	private List<Message> sent;
+
+	@Before
+	public void setUp() throws Exception {
+		domain = mock(JMSDomain.class);
+		queue = mock(JMSDestination.class);
+		when(queue.getBroker()).thenReturn(mock(JMSBroker.class));
+		directory = Files.createTempDirectory("sendfiles");
+
+		sent = new ArrayList<Message>();
+		doAnswer(invocation -> sent.add((Message)invocation.getArgument(1)))
+			.when(domain).sendMessage(eq(queue), any(Message.class));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		try(Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testFilesAreSentInOrder() throws Exception {
+		List<File> files = new ArrayList<File>();
+		for(int i = 0; i < 100; i++) {
+			files.add(textFile("file" + i + ".txt", "content " + i));
+		}
+
+		new SendFileListTask(queue, files, null, 1, 0, domain, new EventBus()).execute();
+
+		assertEquals(files.size(), sent.size());
+		for(int i = 0; i < files.size(); i++) {
+			assertEquals("content " + i, ((TextMessage)sent.get(i)).getText());
+		}
+	}
+
+	@Test
+	public void testRepeatsSendCopiesOfParsedMessages() throws Exception {
+		TextMessage saved = MessageFactory.createTextMessage();
+		saved.setText("saved");
+		File messageFile = directory.resolve("saved" + MessageManagerMessage.getFileExtension()).toFile();
+		SaveMessagesToFileTask.saveAsMessage(saved, messageFile, MessageManagerMessage.getFileExtension());
+
+		List<File> files = new ArrayList<File>();
+		files.add(textFile("plain.txt", "plain"));
+		files.add(messageFile);
+
+		Message template = MessageFactory.createTextMessage();
+		template.setJMSCorrelationID("id-%i");
+
+		new SendFileListTask(queue, files, template, 3, 0, domain, new EventBus()).execute();
+
+		assertEquals(6, sent.size());
+		for(int r = 0; r < 3; r++) {
+			assertEquals("plain", ((TextMessage)sent.get(r * 2)).getText());
+			assertEquals("id-" + (r * 2 + 1), sent.get(r * 2).getJMSCorrelationID());
+			assertEquals("saved", ((TextMessage)sent.get(r * 2 + 1)).getText());
+		}
+		assertNotSame(sent.get(1), sent.get(3));
+		assertNotSame(sent.get(3), sent.get(5));
+	}
+
+	@Test
+	public void testRepeatedBytesMessagesKeepTheirBodyWithMultipleLoaders() throws Exception {
+		byte[] body = new byte[64 * 1024];
+		for(int i = 0; i < body.length; i++) {
+			body[i] = (byte)i;
+		}
+		BytesMessage saved = MessageFactory.createBytesMessage();
+		saved.writeBytes(body);
+		File messageFile = directory.resolve("bytes" + MessageManagerMessage.getFileExtension()).toFile();
+		SaveMessagesToFileTask.saveAsMessage(saved, messageFile, MessageManagerMessage.getFileExtension());
+
+		SendFileListTask task = new SendFileListTask(queue, Collections.nCopies(20, messageFile), null, 3, 0, domain, new EventBus());
+		task.setMaxLoaders(SendFileListTask.MAX_LOADERS);
+		task.execute();
+
+		assertEquals(60, sent.size());
+		for(Message message: sent) {
+			BytesMessage bytes = (BytesMessage)message;
+			bytes.reset();
+			byte[] read = new byte[(int)bytes.getBodyLength()];
+			bytes.readBytes(read);
+			assertArrayEquals(body, read);
+		}
+	}
+
+	@Test
+	public void testCancelStopsSending() throws Exception {
+		List<File> files = new ArrayList<File>();
+		for(int i = 0; i < 10; i++) {
+			files.add(textFile("file" + i + ".txt", "content " + i));
+		}
+
+		final SendFileListTask task = new SendFileListTask(queue, files, null, 1, 0, domain, new EventBus());
+		doAnswer(invocation -> {
+			sent.add((Message)invocation.getArgument(1));
+			task.cancel();
+			return null;
+		}).when(domain).sendMessage(eq(queue), any(Message.class));
+
+		task.execute();
+
+		assertEquals(1, sent.size());
+	}
+
+	@Test
+	public void testRecursiveGlobPathIsExpandedOnEveryRepeat() throws Exception {
+		textFile("a.xml", "a");
+		textFile("b.txt", "b");
+		textFile("sub/c.xml", "c");
+
+		SendFileListTask task = new SendFileListTask(queue, Collections.singletonList(new File(directory.toFile(), "**/*.xml")), null, 2, 0, domain, new EventBus());
+		task.dispatchTaskStarted();
+		assertEquals(SendFileListTask.PROGRESS_UNKNOWN, task.getProgressMaximum());
+		task.execute();
+
+		assertEquals(4, sent.size());
+		Set<String> texts = new HashSet<String>();
+		for(Message message: sent) {
+			texts.add(((TextMessage)message).getText());
+		}
+		assertEquals(new HashSet<String>(Arrays.asList("a", "c")), texts);
+		assertTrue(task.toString().contains("4 sent"));
+	}
+
+	@Test
+	public void testMessagesAreCountedWhenTheTaskStarts() throws Exception {
+		File file = textFile("a.txt", "a");
+		SendFileListTask task = new SendFileListTask(queue, Arrays.asList(file, file), null, 3, 0, domain, new EventBus());
+		assertEquals(SendFileListTask.PROGRESS_UNKNOWN, task.getProgressMaximum());
+
+		task.dispatchTaskStarted();
+		assertEquals(6, task.getProgressMaximum());
+	}
+
+	@Test
+	public void testGlobPathsAreExpanded() throws Exception {
+		textFile("a.xml", "a");
+		textFile("sub/b.xml", "b");
+
+		File glob = new File(directory.toFile(), "*.xml");
+		new SendFileListTask(queue, Collections.singletonList(glob), null, 1, 0, domain, new EventBus()).execute();
+
+		assertEquals(1, sent.size());
+		assertEquals("a", ((TextMessage)sent.get(0)).getText());
+	}
+
+	private File textFile(String name, String content) throws Exception {
+		Path file = directory.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file.toFile();
+	}
+}
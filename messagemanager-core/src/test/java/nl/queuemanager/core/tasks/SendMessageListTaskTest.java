@@ -0,0 +1,71 @@
+package nl.queuemanager.core.tasks;
+
+import com.google.common.eventbus.EventBus;
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.jms.JMSDomain;
+import nl.queuemanager.core.jms.MessageSender;
+import nl.queuemanager.jms.JMSBroker;
+import nl.queuemanager.jms.JMSDestination;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class SendMessageListTaskTest {
+
+	private JMSDomain domain;
+	private CoreConfiguration config;
+	private JMSDestination queue;
+	private MessageSender sender;
+	private List<String> sentCorrelationIds;
+
+	@Before
+	public void setUp() throws Exception {
+		domain = mock(JMSDomain.class);
+		config = mock(CoreConfiguration.class);
+		queue = mock(JMSDestination.class);
+		sender = mock(MessageSender.class);
+		when(queue.getBroker()).thenReturn(mock(JMSBroker.class));
+		when(config.getUserPref(anyString(), anyString())).thenAnswer(invocation -> invocation.getArgument(1));
+		when(domain.createSender(eq(queue), anyInt(), anyBoolean())).thenReturn(sender);
+		when(sender.prepare(any(Message.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+		sentCorrelationIds = new ArrayList<String>();
+		doAnswer(invocation -> sentCorrelationIds.add(((Message)invocation.getArgument(0)).getJMSCorrelationID()))
+			.when(sender).send(any(Message.class));
+	}
+
+	@Test
+	public void testCorrelationIdTokensAreReplaced() throws Exception {
+		Message first = MessageFactory.createTextMessage();
+		first.setJMSCorrelationID("a-%i-%i");
+		Message second = MessageFactory.createTextMessage();
+		second.setJMSCorrelationID("plain");
+
+		new SendMessageListTask(queue, Arrays.asList(first, second), 2, 0, domain, config, new EventBus()).execute();
+
+		assertEquals(Arrays.asList("a-1-1", "plain", "a-3-3", "plain"), sentCorrelationIds);
+		assertEquals("a-%i-%i", first.getJMSCorrelationID());
+		verify(sender, times(2)).prepare(any(Message.class));
+		verify(sender).flush();
+		verify(sender).close();
+	}
+
+	@Test
+	public void testDelayDisablesTransactions() throws Exception {
+		Message message = MessageFactory.createTextMessage();
+
+		new SendMessageListTask(queue, message, 2, 1, domain, config, new EventBus()).execute();
+
+		verify(domain).createSender(queue, 1, false);
+		verify(sender, times(2)).send(message);
+	}
+}
@@ -0,0 +1,44 @@
+package nl.queuemanager.core.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testEmptyHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getCount());
+		assertEquals(0, histogram.getPercentile(99));
+	}
+
+	@Test
+	public void testPercentilesAreWithinBucketPrecision() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for(int i = 1; i <= 10000; i++) {
+			histogram.record(i);
+		}
+
+		assertEquals(10000, histogram.getCount());
+		assertWithin(5000, histogram.getPercentile(50));
+		assertWithin(9900, histogram.getPercentile(99));
+		assertWithin(10000, histogram.getPercentile(100));
+	}
+
+	@Test
+	public void testSmallValuesAreExact() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(3);
+
+		assertEquals(0, histogram.getPercentile(50));
+		assertEquals(3, histogram.getPercentile(100));
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("Expected about " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 16);
+	}
+}
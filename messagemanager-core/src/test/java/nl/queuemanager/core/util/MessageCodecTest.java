@@ -0,0 +1,98 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.core.util;
+
+import nl.queuemanager.jms.impl.DestinationFactory;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Test;
+
+import javax.jms.*;
+
+import static org.junit.Assert.*;
+
+public class MessageCodecTest {
+	@Test
+	public void testHeadersAndProperties() throws Exception {
+		TextMessage message = MessageFactory.createTextMessage();
+		message.setText("body");
+		message.setJMSMessageID("ID:1");
+		message.setJMSCorrelationID("correlation");
+		message.setJMSPriority(7);
+		message.setJMSDeliveryMode(DeliveryMode.NON_PERSISTENT);
+		message.setJMSReplyTo(DestinationFactory.createQueue(null, "replies"));
+		message.setStringProperty("string", "value");
+		message.setIntProperty("int", 42);
+		message.setBooleanProperty("boolean", true);
+		message.setDoubleProperty("double", 1.5);
+
+		TextMessage copy = (TextMessage)MessageCodec.decode(MessageCodec.encode(message));
+
+		assertEquals("body", copy.getText());
+		assertEquals("ID:1", copy.getJMSMessageID());
+		assertEquals("correlation", copy.getJMSCorrelationID());
+		assertEquals(message.getJMSTimestamp(), copy.getJMSTimestamp());
+		assertEquals(7, copy.getJMSPriority());
+		assertEquals(DeliveryMode.NON_PERSISTENT, copy.getJMSDeliveryMode());
+		assertEquals("replies", ((Queue)copy.getJMSReplyTo()).getQueueName());
+		assertNull(copy.getJMSDestination());
+		assertEquals("value", copy.getStringProperty("string"));
+		assertEquals(42, copy.getIntProperty("int"));
+		assertTrue(copy.getBooleanProperty("boolean"));
+		assertEquals(1.5, copy.getDoubleProperty("double"), 0);
+	}
+
+	@Test
+	public void testBytesMessage() throws Exception {
+		BytesMessage message = MessageFactory.createBytesMessage();
+		message.writeBytes(new byte[] {1, 2, 3});
+		message.reset();
+
+		BytesMessage copy = (BytesMessage)MessageCodec.decode(MessageCodec.encode(message));
+
+		byte[] data = new byte[(int)copy.getBodyLength()];
+		copy.readBytes(data);
+		assertArrayEquals(new byte[] {1, 2, 3}, data);
+	}
+
+	@Test
+	public void testMapMessage() throws Exception {
+		MapMessage message = MessageFactory.createMapMessage();
+		message.setString("name", "value");
+		message.setLong("number", 12L);
+
+		MapMessage copy = (MapMessage)MessageCodec.decode(MessageCodec.encode(message));
+
+		assertEquals("value", copy.getString("name"));
+		assertEquals(12L, copy.getLong("number"));
+	}
+
+	@Test
+	public void testObjectMessage() throws Exception {
+		ObjectMessage message = MessageFactory.createObjectMessage();
+		message.setObject("an object");
+		message.setStringProperty("property", "value");
+
+		ObjectMessage copy = (ObjectMessage)MessageCodec.decode(MessageCodec.encode(message));
+
+		assertEquals("an object", copy.getObject());
+		assertEquals("value", copy.getStringProperty("property"));
+	}
+
+	@Test(expected = JMSException.class)
+	public void testInvalidData() throws Exception {
+		MessageCodec.decode(new byte[] {1, 99});
+	}
+}
@@ -83,6 +83,12 @@ public class FakeMQDomain extends AbstractEventSource<DomainEvent> implements JM
 		return Collections.enumeration(FakeMQMessageCreator.createRandomMessages(5));
 	}
 
+	@Override
+	public Enumeration<Message> enumerateMessages(JMSQueue queue, String selector) throws JMSException {
+		// The random messages do not care about selectors
+		return enumerateMessages(queue);
+	}
+
 	
 	public MessageConsumer openConsumer(JMSDestination destination, MessageListener listener) throws JMSException {
 		return new FakeMQMessageConsumer(listener);
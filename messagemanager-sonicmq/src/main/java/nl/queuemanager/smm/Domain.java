@@ -40,6 +40,8 @@ import nl.queuemanager.core.jms.DomainEvent;
 import nl.queuemanager.core.jms.DomainEvent.EVENT;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
+import nl.queuemanager.core.jms.QueueBrowserEnumeration;
+import nl.queuemanager.core.jms.SessionPool;
 import nl.queuemanager.core.util.BasicCredentials;
 import nl.queuemanager.core.util.CollectionFactory;
 import nl.queuemanager.core.util.Credentials;
@@ -54,6 +56,7 @@ import progress.message.jclient.XMLMessage;
 import jakarta.inject.Provider;
 import javax.jms.*;
 import javax.management.*;
+import java.io.Closeable;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.*;
@@ -99,6 +102,7 @@ public class Domain implements JMSDomain {
 			case MESSAGE_SET_PRIORITY:
 			case DESTINATION_TYPE_QUEUE:
 			case DESTINATION_TYPE_TOPIC:
+			case QUEUE_BROWSE_SELECTOR:
 				return true;
 
 			case QUEUE_MESSAGES_SIZE:
@@ -564,10 +568,49 @@ public class Domain implements JMSDomain {
 	/* (non-Javadoc)
 	 * @see nl.queuemanager.smm.sonic.JMSDomain#enumerateMessages(nl.queuemanager.smm.jms.JMSQueue)
 	 */
-	@SuppressWarnings("unchecked")
 	public Enumeration<Message> enumerateMessages(JMSQueue queue) throws JMSException {
-		QueueBrowser browser = createQueueBrowser(queue);
-		return new MessageEnumerationWrapper(browser.getEnumeration());
+		return new MessageEnumerationWrapper(createPooledQueueBrowser(queue, null));
+	}
+	
+	/* (non-Javadoc)
+	 * @see nl.queuemanager.smm.sonic.JMSDomain#enumerateMessages(nl.queuemanager.smm.jms.JMSQueue, java.lang.String)
+	 */
+	@Override
+	public Enumeration<Message> enumerateMessages(JMSQueue queue, String selector) throws JMSException {
+		return new MessageEnumerationWrapper(createPooledQueueBrowser(queue, 
+				selector == null || selector.trim().isEmpty() ? null : selector));
+	}
+	
+	/* (non-Javadoc)
+	 * @see nl.queuemanager.smm.sonic.JMSDomain#getMessage(nl.queuemanager.smm.jms.JMSQueue, java.lang.String)
+	 */
+	@Override
+	public Message getMessage(JMSQueue queue, String messageID) throws JMSException {
+		MessageEnumerationWrapper e = new MessageEnumerationWrapper(
+				createPooledQueueBrowser(queue, "JMSMessageID = '" + messageID.replace("'", "''") + "'"));
+		try {
+			return e.hasMoreElements() ? e.nextElement() : null;
+		} finally {
+			e.close();
+		}
+	}
+	
+	/**
+	 * Create a browser on a session from the session pool of the broker, so multiple
+	 * queues can be browsed concurrently. 
+	 */
+	private QueueBrowserEnumeration createPooledQueueBrowser(JMSQueue queue, String selector) throws JMSException {
+		SonicMQConnection connection = brokerConnections.get(queue.getBroker());
+		SessionPool pool = connection.getSessionPool();
+		Session session = pool.borrow();
+		
+		try {
+			return new QueueBrowserEnumeration(pool, session, 
+					session.createBrowser(session.createQueue(queue.getName()), selector));
+		} catch (JMSException e) {
+			pool.release(session);
+			throw e;
+		}
 	}
 	
 	/**
@@ -823,6 +866,7 @@ public class Domain implements JMSDomain {
 			SonicMQConnection con = entry.getValue();
 			
 			try {
+				con.getSessionPool().close();
 				if(con.getConnection() != null) {
 					con.getConnection().close();
 				}
@@ -854,13 +898,17 @@ public class Domain implements JMSDomain {
 	 * @author Gerco Dries (gdr@progaia-rs.nl)
 	 *
 	 */
-	private static class MessageEnumerationWrapper implements Enumeration<Message> {
-		private final Enumeration<Message> delegate;
+	private static class MessageEnumerationWrapper implements Enumeration<Message>, Closeable {
+		private final QueueBrowserEnumeration delegate;
 		
-		public MessageEnumerationWrapper(Enumeration<Message> delegate) {
+		public MessageEnumerationWrapper(QueueBrowserEnumeration delegate) {
 			this.delegate = delegate;
 		}
 		
+		public void close() {
+			delegate.close();
+		}
+		
 		public boolean hasMoreElements() {
 			return delegate.hasMoreElements();
 		}
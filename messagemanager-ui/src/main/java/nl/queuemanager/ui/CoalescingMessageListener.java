@@ -0,0 +1,178 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import nl.queuemanager.core.MessageEvent;
+import nl.queuemanager.core.events.EventListener;
+
+import javax.jms.Message;
+import javax.swing.Timer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Collects the messages received and discarded by a MessageBuffer and hands them to the
+ * UI in batches. A Swing Timer drains the pending messages on the event dispatch thread
+ * every interval, so a busy topic costs one table update per interval instead of one
+ * per message. A message that is received and discarded within the same interval never
+ * reaches the table.
+ *
+ * @author gerco
+ *
+ */
+class CoalescingMessageListener implements EventListener<MessageEvent> {
+	interface Updater {
+		/**
+		 * Called on the event dispatch thread every interval, also when nothing changed.
+		 *
+		 * @param added The messages received since the last update, in order of arrival
+		 * @param removed The messages discarded since the last update
+		 */
+		void update(List<Message> added, Set<Message> removed);
+	}
+
+	private static final long RATE_WINDOW = 1000;
+
+	private final Consumer<Message> preparer;
+	private final Updater updater;
+	private final Timer timer;
+	private final Object lock = new Object();
+
+	private LinkedHashSet<Message> added = new LinkedHashSet<Message>();
+	private LinkedHashSet<Message> removed = new LinkedHashSet<Message>();
+	private long received;
+	private long dropped;
+
+	private long windowStart;
+	private long windowReceived;
+	private double rate;
+
+	/**
+	 * @param interval The number of milliseconds between updates
+	 * @param updater The receiver of the batched updates
+	 */
+	public CoalescingMessageListener(int interval, Updater updater) {
+		this(interval, message -> {}, updater);
+	}
+	
+	/**
+	 * @param interval The number of milliseconds between updates
+	 * @param preparer Called for every received message on the thread that received it,
+	 *        to do any work that should not be done on the event dispatch thread
+	 * @param updater The receiver of the batched updates
+	 */
+	public CoalescingMessageListener(int interval, Consumer<Message> preparer, Updater updater) {
+		this.preparer = preparer;
+		this.updater = updater;
+		this.timer = new Timer(Math.max(1, interval), e -> drain(System.currentTimeMillis()));
+		this.timer.setCoalesce(true);
+	}
+
+	public void processEvent(MessageEvent event) {
+		final Message message = (Message)event.getInfo();
+		switch(event.getId()) {
+		case MESSAGE_RECEIVED:
+			preparer.accept(message);
+			synchronized(lock) {
+				received++;
+				added.add(message);
+			}
+			break;
+
+		case MESSAGE_DISCARDED:
+			synchronized(lock) {
+				dropped++;
+				if(!added.remove(message)) {
+					removed.add(message);
+				}
+			}
+			break;
+		}
+	}
+
+	/**
+	 * Start delivering updates.
+	 */
+	public void start() {
+		windowStart = System.currentTimeMillis();
+		timer.start();
+	}
+
+	/**
+	 * Stop delivering updates. Pending messages are kept until the next {@link #reset()}.
+	 */
+	public void stop() {
+		timer.stop();
+	}
+
+	/**
+	 * Forget all pending messages and reset the counters, for example because the table
+	 * was reloaded from the buffer.
+	 */
+	public void reset() {
+		synchronized(lock) {
+			added = new LinkedHashSet<Message>();
+			removed = new LinkedHashSet<Message>();
+			received = 0;
+			dropped = 0;
+			windowReceived = 0;
+			rate = 0;
+		}
+	}
+
+	/**
+	 * Hand the pending messages to the updater.
+	 */
+	void drain(long now) {
+		final List<Message> addedNow;
+		final Set<Message> removedNow;
+		synchronized(lock) {
+			addedNow = new ArrayList<Message>(added);
+			removedNow = removed;
+			added.clear();
+			removed = new LinkedHashSet<Message>();
+
+			if(now - windowStart >= RATE_WINDOW) {
+				rate = (received - windowReceived) * 1000d / (now - windowStart);
+				windowStart = now;
+				windowReceived = received;
+			}
+		}
+
+		updater.update(addedNow, removedNow);
+	}
+
+	/**
+	 * @return The number of messages received per second, measured over the last second
+	 */
+	public double getRate() {
+		synchronized(lock) {
+			return rate;
+		}
+	}
+
+	/**
+	 * @return The number of messages discarded because the buffer was full
+	 */
+	public long getDroppedCount() {
+		synchronized(lock) {
+			return dropped;
+		}
+	}
+}
@@ -18,6 +18,7 @@ package nl.queuemanager.ui;
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import nl.queuemanager.core.ESBMessage;
+import nl.queuemanager.core.MessageArchive;
 import nl.queuemanager.core.MessageManagerMessage;
 import nl.queuemanager.core.Pair;
 import nl.queuemanager.core.configuration.CoreConfiguration;
@@ -153,6 +154,7 @@ public class CommonUITasks {
 	public static void saveMessages(Component parent, List<Message> messagesToSave, TaskExecutor worker, TaskFactory taskFactory, CoreConfiguration config) {
 		final FileFilter mmmsgFileFilter = new SingleExtensionFileFilter(MessageManagerMessage.getFileExtension(), "Message Manager - Message File");
 		final FileFilter esbmsgFileFilter = new SingleExtensionFileFilter(ESBMessage.getFileExtension(), "ESB Message File");
+		final FileFilter archiveFileFilter = new SingleExtensionFileFilter(MessageArchive.getFileExtension(), "Message Manager - Message Archive");
 		String messageFileExtension = null;
 
 		
@@ -169,6 +171,7 @@ public class CommonUITasks {
 		chooser.setMultiSelectionEnabled(false);
 		chooser.addChoosableFileFilter(mmmsgFileFilter);
 		chooser.addChoosableFileFilter(esbmsgFileFilter);
+		chooser.addChoosableFileFilter(archiveFileFilter);
 		chooser.setAcceptAllFileFilterUsed(true);
 
 		if(numMessages == 1) {
@@ -193,6 +196,10 @@ public class CommonUITasks {
 						chooser.getFileFilter() == mmmsgFileFilter){
 					messageFileExtension = MessageManagerMessage.getFileExtension();
 				}
+				else if(selectedFile.getName().toLowerCase().endsWith(MessageArchive.getFileExtension()) ||
+						chooser.getFileFilter() == archiveFileFilter){
+					messageFileExtension = MessageArchive.getFileExtension();
+				}
 			}
 		} else if(numMessages >= 2) {
 			// Display a directory chooser
@@ -217,6 +224,9 @@ public class CommonUITasks {
 			else if(chooser.getFileFilter() == mmmsgFileFilter){
 				messageFileExtension = MessageManagerMessage.getFileExtension();
 			}
+			else if(chooser.getFileFilter() == archiveFileFilter){
+				messageFileExtension = MessageArchive.getFileExtension();
+			}
 		}
 		
 		if(messages.size() > 0) {
@@ -20,6 +20,7 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import nl.queuemanager.core.MessageBuffer;
 import nl.queuemanager.core.MessageEvent;
+import nl.queuemanager.core.MessageSpillLog;
 import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.events.EventListener;
 import nl.queuemanager.core.events.EventSource;
@@ -29,14 +30,23 @@ import nl.queuemanager.core.task.TaskExecutor;
 import nl.queuemanager.core.util.Clearable;
 import nl.queuemanager.jms.JMSDestination;
 
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageConsumer;
 import javax.swing.*;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Observable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Contains a MessageBuffer and possibly a MessageConsumer subscribed to a JMS Topic.
+ * <p>
+ * When spilling to disk is enabled, messages discarded from the full MessageBuffer are
+ * appended to a {@link MessageSpillLog} instead of being lost. The complete capture is
+ * then the spilled messages followed by the messages in the buffer.
  * 
  * @author Gerco Dries (gdr@progaia-rs.nl)
  *
@@ -47,7 +57,11 @@ public class JMSSubscriber extends Observable implements EventSource<MessageEven
 	private final JMSDestination destination;
 	private final MessageBuffer buffer;
 	private final EventBus eventBus;
+	private volatile boolean spillToDisk;
 	private MessageConsumer consumer;
+	private MessageSpillLog spillLog;
+	
+	private final Logger log = Logger.getLogger(getClass().getName());
 	
 	@Inject
 	public JMSSubscriber(JMSDomain sonic, TaskExecutor worker, CoreConfiguration config, EventBus eventBus, @Assisted JMSDestination destination, @Assisted MessageBuffer buffer) {
@@ -69,10 +83,35 @@ public class JMSSubscriber extends Observable implements EventSource<MessageEven
 	 * Runs on the JMS Session Delivery Thread, not the EDT!
 	 */
 	public void processEvent(MessageEvent event) {
-		// We don't care about the event type, just notify the observers
+		if(spillToDisk && event != null && event.getId() == MessageEvent.EVENT.MESSAGE_DISCARDED) {
+			spill((Message)event.getInfo());
+		}
+		
+		// Otherwise we don't care about the event type, just notify the observers
 		fireNotifyObservers();
 	}
 	
+	private synchronized void spill(Message message) {
+		try {
+			if(spillLog == null) {
+				spillLog = MessageSpillLog.createTemporary();
+			}
+			spillLog.append(message);
+		} catch (IOException | JMSException e) {
+			log.log(Level.WARNING, "Unable to spill message to disk for " + destination, e);
+		}
+	}
+	
+	/**
+	 * Append messages that are discarded from the full buffer to a log on disk instead
+	 * of dropping them.
+	 * 
+	 * @param spillToDisk
+	 */
+	public void setSpillToDisk(boolean spillToDisk) {
+		this.spillToDisk = spillToDisk;
+	}
+	
 	/**
 	 * Remove the specified messages from the buffer.
 	 * 
@@ -88,9 +127,25 @@ public class JMSSubscriber extends Observable implements EventSource<MessageEven
 	 */
 	public void clear() {
 		getBuffer().clear();
+		synchronized(this) {
+			if(spillLog != null) {
+				spillLog.clear();
+			}
+		}
 		fireNotifyObservers();
 	}
 	
+	/**
+	 * Delete the messages that were spilled to disk. The subscriber can still be used
+	 * afterwards and will create a new spill log when required.
+	 */
+	public synchronized void dispose() {
+		if(spillLog != null) {
+			spillLog.close();
+			spillLog = null;
+		}
+	}
+	
 	/**
 	 * Keep a certain message in the message buffer, even if the buffer is full.
 	 * 
@@ -124,6 +179,34 @@ public class JMSSubscriber extends Observable implements EventSource<MessageEven
 		return getBuffer().getMessages();
 	}
 	
+	/**
+	 * @return The number of messages that were discarded from the buffer and spilled to disk
+	 */
+	public synchronized int getSpilledMessageCount() {
+		return spillLog == null ? 0 : spillLog.getMessageCount();
+	}
+	
+	/**
+	 * Read a range of the messages that were spilled to disk. Messages are numbered in the
+	 * order they were discarded from the buffer, starting at 0.
+	 * 
+	 * @param from The number of the first message to return
+	 * @param max The maximum number of messages to return
+	 * @return
+	 * @throws JMSException When a message can not be read back
+	 */
+	public List<Message> getSpilledMessages(int from, int max) throws JMSException {
+		final MessageSpillLog spillLog;
+		synchronized(this) {
+			spillLog = this.spillLog;
+		}
+		
+		if(spillLog == null)
+			return Collections.emptyList();
+		
+		return spillLog.getMessages(from, max);
+	}
+	
 	private MessageBuffer getBuffer() {
 		return buffer;
 	}
@@ -1,156 +1,38 @@
 package nl.queuemanager.ui;
 
-import com.google.common.base.Strings;
 import com.google.common.eventbus.Subscribe;
-import nl.queuemanager.jms.JMSMultipartMessage;
-import nl.queuemanager.jms.JMSPart;
-import nl.queuemanager.jms.MessageType;
-import nl.queuemanager.jms.MetaDataProvider;
 import nl.queuemanager.ui.util.HighlighterSupport;
 
-import javax.jms.JMSException;
-import javax.jms.MapMessage;
 import javax.jms.Message;
-import javax.jms.TextMessage;
-import java.text.SimpleDateFormat;
-import java.util.Enumeration;
-import java.util.Map;
-import java.util.Set;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
+/**
+ * Highlights the messages that match the global search, which is a {@link MessageQuery}.
+ * Search text that is not a valid query is searched for as a whole. Plain search terms use
+ * the {@link MessageSearchIndex} of each message, which should be built off the EDT with
+ * {@link #index(Message)} when the message arrives.
+ */
 public final class MessageHighlighter extends HighlighterSupport<Message> {
 
-	private final Logger log = Logger.getLogger(getClass().getName());
-	
-	private final SimpleDateFormat dateFormatter = 
-			new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS Z");
-	
-	private String searchTerm = "";
+	private volatile MessageQuery query = MessageQuery.text(null);
 
 	@Subscribe
 	public void onGlobalHighlightEvent(GlobalHighlightEvent e) {
-		searchTerm = e.getHighlightString();
+		query = MessageQuery.parseLenient(e.getHighlightString());
 		resetHighlights();
 	}
-	
-	public boolean shouldHighlight(Message msg) {
-		try {
-			if(Strings.isNullOrEmpty(searchTerm))
-				return false;
-
-			if(msg.getJMSDestination() != null) {
-				// we only show the JMS headers if JMS Destination is non null.
-				// therefore exclude from search if JMS Destination is null to avoid confusion
-				if (msg.getJMSMessageID().contains(searchTerm))
-					return true;
-
-				if(msg.getJMSTimestamp() > 0 && dateFormatter.format(msg.getJMSTimestamp()).contains(searchTerm))
-					return true;
-			}
-
-			if(msg.getJMSCorrelationID() != null && msg.getJMSCorrelationID().contains(searchTerm))
-				return true;
-			
-			if(msg.getJMSDestination() != null && msg.getJMSDestination().toString().contains(searchTerm))
-				return true;
-
-			if(msg instanceof MetaDataProvider && ((MetaDataProvider)msg).getMetaData() != null) {
-				// iterate over all the meta data entries
-				for (Map.Entry<String, Object> entry : ((MetaDataProvider)msg).getMetaData().entrySet()) {
-					String name = entry.getKey();
-					if(name.contains(searchTerm))
-						return true;
 
-					Object value = entry.getValue();
-					if(shouldHighlightObj(value))
-						return true;
-				}
-			}
-			
-			@SuppressWarnings("unchecked")
-			Enumeration<String> names = msg.getPropertyNames();
-			while(names.hasMoreElements()) {
-				String name = names.nextElement();
-				if(name.contains(searchTerm)) 
-					return true;
-				
-				Object value = msg.getObjectProperty(name);
-				if(shouldHighlightObj(value))
-					return true;
-			}
-		
-			switch(MessageType.fromClass(msg.getClass())) {
-			case TEXT_MESSAGE:
-			case XML_MESSAGE:
-				return shouldHighlight(((TextMessage)msg).getText());
-			case MAP_MESSAGE:
-				return shouldHighlightMsg((MapMessage)msg);
-			case MULTIPART_MESSAGE:
-				final JMSMultipartMessage mpmsg = (JMSMultipartMessage)msg;
-				for(int i = 0; i<mpmsg.getPartCount(); i++) {
-					if(shouldHighlight(mpmsg.getPart(i))) {
-						return true;
-					}
-				}
-			}
-		} catch (JMSException e) {
-			log.log(Level.WARNING, "Exception while checking message for highlighting", e);
-		}
-		
-		return false;
-	}
-	
-	private boolean shouldHighlightMsg(MapMessage msg) throws JMSException {
-		@SuppressWarnings("unchecked")
-		Enumeration<String> names = msg.getMapNames();
-		while(names.hasMoreElements()) {
-			String name = names.nextElement();
-			if(name.contains(searchTerm)) 
-				return true;
-			
-			Object value = msg.getObject(name);
-			if(shouldHighlightObj(value))
-				return true;
-		}
-		
-		return false;
+	public boolean shouldHighlight(Message msg) {
+		return query.matches(msg);
 	}
 
-	private boolean shouldHighlightObj(Object obj) {
-		return obj != null && shouldHighlight(obj.toString());
-	}
-	
-	private boolean shouldHighlight(String text) {
-		return text != null && text.contains(searchTerm);
-	}
-	
-	private boolean shouldHighlight(JMSPart part) {
-		// Check part headers
-		Enumeration<String> names = part.getHeaderFieldNames();
-		while(names.hasMoreElements()) {
-			String name = names.nextElement();
-			if(name.contains(searchTerm)) 
-				return true;
-			
-			String value = part.getHeaderField(name);
-			if(shouldHighlight(value))
-				return true;
-		}
-		
-		// Check part contents
-		switch(part.getContentType()) {
-		case JMSPart.CONTENT_TEXT:
-        case JMSPart.CONTENT_APPLICATION_XML:
-		case JMSPart.CONTENT_APPLICATION_JSON:
-		case JMSPart.CONTENT_XML:
-			return shouldHighlight((String)part.getContent());
-			
-		case JMSPart.CONTENT_MESSAGE:
-			return shouldHighlight((Message)part.getContent());
-		}
-		
-		return false;
+	/**
+	 * Build the search index for a message, so that it does not have to be built on the
+	 * EDT when the message is first checked. May be called on any thread.
+	 *
+	 * @param msg
+	 */
+	public void index(Message msg) {
+		MessageSearchIndex.of(msg);
 	}
 
 }
\ No newline at end of file
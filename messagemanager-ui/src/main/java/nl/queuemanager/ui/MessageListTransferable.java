@@ -105,6 +105,27 @@ public class MessageListTransferable implements Transferable {
 		return new MessageListTransferable(messageIDs, internalMessages);
 	}
 	
+	/**
+	 * Create a list of only the messageIDs in the Transferable. The messages can be moved
+	 * within the broker, but they can not be copied. Used for messages without their bodies.
+	 * 
+	 * @param queue
+	 * @param messages
+	 * @return
+	 * @throws JMSException
+	 */
+	public static MessageListTransferable createMessageIDList(
+			final JMSQueue queue,
+			final List<Message> messages) 
+	throws JMSException {
+		List<Pair<JMSQueue, String>> messageIDs = CollectionFactory.newArrayList();
+		for(javax.jms.Message m: messages) {
+			messageIDs.add(Pair.create(queue, m.getJMSMessageID()));
+		}
+		
+		return new MessageListTransferable(messageIDs, null);
+	}
+	
 	/**
 	 * Create from a single {@link javax.jms.Message}.
 	 * 
@@ -0,0 +1,870 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import nl.queuemanager.core.util.NullEntityResolver;
+import nl.queuemanager.jms.JMSMultipartMessage;
+import nl.queuemanager.ui.util.JsonPath;
+import nl.queuemanager.ui.util.SubstringSearch;
+import org.w3c.dom.Document;
+import org.w3c.dom.NodeList;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A message search, parsed and compiled once and then matched against many messages.
+ * <p>
+ * A query is a list of terms that must all match. Terms can be combined with OR, negated
+ * with a leading - and grouped with parentheses. A term is one of:
+ * <ul>
+ * <li><code>word</code> or <code>"some words"</code>: the headers, properties or body contain the text</li>
+ * <li><code>prop:name</code> and <code>prop:name=value</code>: the message has the property, with that value</li>
+ * <li><code>header:JMSType=value</code>: a JMS header has that value, the JMS prefix is optional</li>
+ * <li><code>body:text</code> and <code>body~/regex/</code>: the text body contains the text or matches the regex</li>
+ * <li><code>xpath:/order/id=123</code>: the XPath expression selects a matching node of an XML body</li>
+ * <li><code>json:$.amount&gt;1000</code>: the JSONPath expression selects a matching value of a JSON body</li>
+ * </ul>
+ * The operators are =, !=, &lt;, &lt;=, &gt;, &gt;= and ~ (regex). Values that are numbers on
+ * both sides are compared as numbers, text is compared case insensitively like the plain
+ * search. Regexes are case sensitive unless written as <code>/regex/i</code>. An XPath or
+ * JSONPath expression without an operator matches when it selects anything.
+ *
+ * @author gerco
+ *
+ */
+public final class MessageQuery {
+	private static final Logger log = Logger.getLogger(MessageQuery.class.getName());
+
+	private static final MessageQuery EMPTY = new MessageQuery("", null, Collections.<SubstringSearch>emptyList());
+
+	private final String query;
+	private final Predicate predicate;
+	private final List<SubstringSearch> terms;
+
+	private MessageQuery(String query, Predicate predicate, List<SubstringSearch> terms) {
+		this.query = query;
+		this.predicate = predicate;
+		this.terms = terms;
+	}
+
+	/**
+	 * Parse and compile a query.
+	 *
+	 * @param query The query text, null or blank for the empty query
+	 * @return The compiled query
+	 * @throws ParseException When the query is not valid, with the position of the problem
+	 */
+	public static MessageQuery parse(String query) throws ParseException {
+		if(query == null || query.trim().isEmpty())
+			return EMPTY;
+
+		final Parser parser = new Parser(query);
+		final Predicate predicate = parser.parse();
+		return new MessageQuery(query, predicate, Collections.unmodifiableList(parser.terms));
+	}
+
+	/**
+	 * Parse and compile a query, or search for the text as a whole when it is not a valid
+	 * query. Useful while the query is still being typed.
+	 *
+	 * @param query The query text, null or blank for the empty query
+	 * @return The compiled query
+	 */
+	public static MessageQuery parseLenient(String query) {
+		try {
+			return parse(query);
+		} catch (ParseException e) {
+			return text(query);
+		}
+	}
+
+	/**
+	 * A query that searches for the text as a whole, for example because it did not parse.
+	 *
+	 * @param text The text to search for, null or empty for the empty query
+	 * @return The query
+	 */
+	public static MessageQuery text(String text) {
+		if(text == null || text.isEmpty())
+			return EMPTY;
+
+		final SubstringSearch term = SubstringSearch.compile(MessageSearchIndex.normalize(text));
+		return new MessageQuery(text, new TextTerm(term), Collections.singletonList(term));
+	}
+
+	public boolean isEmpty() {
+		return predicate == null;
+	}
+
+	/**
+	 * May be called on any thread.
+	 *
+	 * @param message
+	 * @return Whether the message matches the query. The empty query matches nothing.
+	 */
+	public boolean matches(Message message) {
+		if(predicate == null || message == null)
+			return false;
+
+		try {
+			return predicate.test(new Subject(message));
+		} catch (JMSException e) {
+			log.log(Level.FINE, "Exception while matching message", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Whether a text contains one of the plain search terms of the query, for highlighting
+	 * things other than messages.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public boolean containsTerm(String text) {
+		if(text == null || terms.isEmpty())
+			return false;
+
+		final char[] normalized = MessageSearchIndex.normalize(text).toCharArray();
+		for(SubstringSearch term: terms) {
+			if(term.isContainedIn(normalized))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return query;
+	}
+
+	// ---------------------------------------------------------------- Predicates
+
+	private interface Predicate {
+		boolean test(Subject subject) throws JMSException;
+	}
+
+	private static final class And implements Predicate {
+		private final List<Predicate> predicates;
+
+		And(List<Predicate> predicates) {
+			this.predicates = predicates;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			for(Predicate p: predicates) {
+				if(!p.test(subject))
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private static final class Or implements Predicate {
+		private final List<Predicate> predicates;
+
+		Or(List<Predicate> predicates) {
+			this.predicates = predicates;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			for(Predicate p: predicates) {
+				if(p.test(subject))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	private static final class Not implements Predicate {
+		private final Predicate predicate;
+
+		Not(Predicate predicate) {
+			this.predicate = predicate;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			return !predicate.test(subject);
+		}
+	}
+
+	private static final class TextTerm implements Predicate {
+		private final SubstringSearch term;
+
+		TextTerm(SubstringSearch term) {
+			this.term = term;
+		}
+
+		public boolean test(Subject subject) {
+			return MessageSearchIndex.of(subject.message).contains(term);
+		}
+	}
+
+	private static final class PropertyTerm implements Predicate {
+		private final String name;
+		private final Condition condition;
+
+		PropertyTerm(String name, Condition condition) {
+			this.name = name;
+			this.condition = condition;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			final Object value = subject.message.getObjectProperty(name);
+			return condition == null ? value != null : condition.test(value);
+		}
+	}
+
+	private static final class HeaderTerm implements Predicate {
+		private final Header header;
+		private final Condition condition;
+
+		HeaderTerm(Header header, Condition condition) {
+			this.header = header;
+			this.condition = condition;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			final Object value = header.get(subject.message);
+			return condition == null ? value != null : condition.test(value);
+		}
+	}
+
+	private static final class BodyTerm implements Predicate {
+		private final Condition condition;
+
+		BodyTerm(Condition condition) {
+			this.condition = condition;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			return condition.test(subject.body());
+		}
+	}
+
+	private static final class XPathTerm implements Predicate {
+		private final XPathExpression expression;
+		private final Condition condition;
+
+		XPathTerm(XPathExpression expression, Condition condition) {
+			this.expression = expression;
+			this.condition = condition;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			final Document document = subject.document();
+			if(document == null)
+				return false;
+
+			// Compiled expressions are not thread safe
+			synchronized(expression) {
+				try {
+					final NodeList nodes = (NodeList)expression.evaluate(document, XPathConstants.NODESET);
+					if(condition == null)
+						return nodes.getLength() > 0;
+
+					for(int i = 0; i < nodes.getLength(); i++) {
+						if(condition.test(nodes.item(i).getTextContent()))
+							return true;
+					}
+					return false;
+				} catch (XPathExpressionException e) {
+					// Not a node set, for example count(/order/line)
+				}
+
+				try {
+					if(condition == null)
+						return (Boolean)expression.evaluate(document, XPathConstants.BOOLEAN);
+					return condition.test(expression.evaluate(document, XPathConstants.STRING));
+				} catch (XPathExpressionException e) {
+					return false;
+				}
+			}
+		}
+	}
+
+	private static final class JsonTerm implements Predicate {
+		private final JsonPath path;
+		private final Condition condition;
+
+		JsonTerm(JsonPath path, Condition condition) {
+			this.path = path;
+			this.condition = condition;
+		}
+
+		public boolean test(Subject subject) throws JMSException {
+			final Object document = subject.json();
+			if(document == Subject.NOT_PARSED)
+				return false;
+
+			final List<Object> values = path.select(document);
+			if(condition == null)
+				return !values.isEmpty();
+
+			for(Object value: values) {
+				if(condition.test(value))
+					return true;
+			}
+			return false;
+		}
+	}
+
+	// ---------------------------------------------------------------- Conditions
+
+	private enum Operator {
+		CONTAINS, EQ, NE, LT, LE, GT, GE, MATCHES
+	}
+
+	private static final class Condition {
+		private final Operator operator;
+		private final String value;
+		private final BigDecimal number;
+		private final Pattern pattern;
+
+		Condition(Operator operator, String value, Pattern pattern) {
+			this.operator = operator;
+			this.value = MessageSearchIndex.normalize(value);
+			this.number = value != null ? toNumber(value) : null;
+			this.pattern = pattern;
+		}
+
+		boolean test(Object actual) {
+			if(actual == null)
+				return false;
+
+			final String text = actual.toString();
+			switch(operator) {
+			case MATCHES:
+				return pattern.matcher(text).find();
+			case CONTAINS:
+				return MessageSearchIndex.normalize(text).contains(value);
+			default:
+				break;
+			}
+
+			final BigDecimal actualNumber = number != null ? toNumber(actual) : null;
+			final int cmp = actualNumber != null
+					? actualNumber.compareTo(number)
+					: MessageSearchIndex.normalize(text).compareTo(value);
+
+			switch(operator) {
+			case EQ: return cmp == 0;
+			case NE: return cmp != 0;
+			case LT: return cmp < 0;
+			case LE: return cmp <= 0;
+			case GT: return cmp > 0;
+			case GE: return cmp >= 0;
+			default: return false;
+			}
+		}
+
+		private static BigDecimal toNumber(Object value) {
+			if(value instanceof BigDecimal)
+				return (BigDecimal)value;
+			if(value instanceof Boolean)
+				return null;
+
+			try {
+				return new BigDecimal(value.toString().trim());
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- Headers
+
+	private interface Header {
+		Object get(Message message) throws JMSException;
+	}
+
+	private static final Map<String, Header> headers = new HashMap<String, Header>();
+	static {
+		headers.put("messageid", Message::getJMSMessageID);
+		headers.put("correlationid", Message::getJMSCorrelationID);
+		headers.put("type", Message::getJMSType);
+		headers.put("destination", Message::getJMSDestination);
+		headers.put("replyto", Message::getJMSReplyTo);
+		headers.put("priority", Message::getJMSPriority);
+		headers.put("deliverymode", Message::getJMSDeliveryMode);
+		headers.put("timestamp", Message::getJMSTimestamp);
+		headers.put("expiration", Message::getJMSExpiration);
+		headers.put("redelivered", Message::getJMSRedelivered);
+	}
+
+	private static Header header(String name) {
+		String key = name.toLowerCase(Locale.ROOT);
+		if(key.startsWith("jms")) {
+			key = key.substring(3);
+		}
+		return headers.get(key);
+	}
+
+	// ---------------------------------------------------------------- Message bodies
+
+	/**
+	 * A message being matched. Parses the body at most once, however many terms need it.
+	 */
+	private static final class Subject {
+		static final Object NOT_PARSED = new Object();
+
+		private static final ThreadLocal<DocumentBuilder> documentBuilder = ThreadLocal.withInitial(Subject::createDocumentBuilder);
+
+		final Message message;
+		private boolean bodyRead;
+		private String body;
+		private Object document;
+		private Object json;
+
+		Subject(Message message) {
+			this.message = message;
+		}
+
+		String body() throws JMSException {
+			if(!bodyRead) {
+				bodyRead = true;
+				if(message instanceof TextMessage) {
+					body = ((TextMessage)message).getText();
+				} else if(message instanceof JMSMultipartMessage) {
+					final JMSMultipartMessage mp = (JMSMultipartMessage)message;
+					for(int i = 0; i < mp.getPartCount() && body == null; i++) {
+						if(mp.getPart(i).getContent() instanceof String) {
+							body = (String)mp.getPart(i).getContent();
+						}
+					}
+				}
+			}
+			return body;
+		}
+
+		Document document() throws JMSException {
+			if(document == null) {
+				document = NOT_PARSED;
+				final String text = body();
+				if(text != null && text.trim().startsWith("<")) {
+					try {
+						document = documentBuilder.get().parse(new InputSource(new StringReader(text)));
+					} catch (Exception e) {
+						log.log(Level.FINEST, "Body is not XML", e);
+					}
+				}
+			}
+			return document instanceof Document ? (Document)document : null;
+		}
+
+		Object json() throws JMSException {
+			if(json == null) {
+				json = NOT_PARSED;
+				final String text = body();
+				if(text != null && (text.trim().startsWith("{") || text.trim().startsWith("["))) {
+					try {
+						json = JsonPath.parse(text);
+					} catch (IllegalArgumentException e) {
+						log.log(Level.FINEST, "Body is not JSON", e);
+					}
+				}
+			}
+			return json;
+		}
+
+		private static DocumentBuilder createDocumentBuilder() {
+			try {
+				DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+				// Message content is untrusted input, never fetch external entities
+				dbf.setFeature("http://xml.org/sax/features/external-general-entities", false);
+				dbf.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+				dbf.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+				dbf.setXIncludeAware(false);
+				dbf.setExpandEntityReferences(false);
+
+				DocumentBuilder db = dbf.newDocumentBuilder();
+				db.setEntityResolver(new NullEntityResolver());
+				db.setErrorHandler(new ErrorHandler() {
+					public void warning(SAXParseException e) { }
+					public void error(SAXParseException e) throws SAXException { throw e; }
+					public void fatalError(SAXParseException e) throws SAXException { throw e; }
+				});
+				return db;
+			} catch (ParserConfigurationException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	// ---------------------------------------------------------------- Parser
+
+	private static final class Parser {
+		private final String text;
+		private final List<SubstringSearch> terms = new ArrayList<SubstringSearch>();
+		private int pos;
+		private int groups;
+		private int negations;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Predicate parse() throws ParseException {
+			final Predicate predicate = or();
+			skipWhitespace();
+			if(pos < text.length())
+				throw error("Unexpected '" + text.charAt(pos) + "'");
+			return predicate;
+		}
+
+		private Predicate or() throws ParseException {
+			final List<Predicate> alternatives = new ArrayList<Predicate>();
+			alternatives.add(and());
+			while(keyword("OR")) {
+				pos += 2;
+				alternatives.add(and());
+			}
+			return alternatives.size() == 1 ? alternatives.get(0) : new Or(alternatives);
+		}
+
+		private Predicate and() throws ParseException {
+			final List<Predicate> predicates = new ArrayList<Predicate>();
+			while(true) {
+				skipWhitespace();
+				if(pos >= text.length() || endsGroup(text.charAt(pos)) || keyword("OR"))
+					break;
+				predicates.add(unary());
+			}
+			if(predicates.isEmpty())
+				throw error("Expected a search term");
+			return predicates.size() == 1 ? predicates.get(0) : new And(predicates);
+		}
+
+		private Predicate unary() throws ParseException {
+			final char c = text.charAt(pos);
+			if(c == '-' && pos + 1 < text.length() && !Character.isWhitespace(text.charAt(pos + 1))) {
+				pos++;
+				negations++;
+				final Predicate predicate = new Not(unary());
+				negations--;
+				return predicate;
+			}
+
+			if(c == '(') {
+				pos++;
+				groups++;
+				final Predicate predicate = or();
+				skipWhitespace();
+				expect(')');
+				groups--;
+				return predicate;
+			}
+
+			return term();
+		}
+
+		private Predicate term() throws ParseException {
+			final int start = pos;
+			final char c = text.charAt(pos);
+			if(c == '"' || c == '\'')
+				return textTerm(quoted());
+
+			while(pos < text.length() && Character.isLetter(text.charAt(pos))) {
+				pos++;
+			}
+			final String field = text.substring(start, pos).toLowerCase(Locale.ROOT);
+			final char next = pos < text.length() ? text.charAt(pos) : 0;
+			switch(field) {
+			case "prop":
+			case "property":
+				if(next == ':') {
+					pos++;
+					final String name = name();
+					return new PropertyTerm(name, optionalCondition());
+				}
+				break;
+
+			case "header":
+				if(next == ':') {
+					pos++;
+					final int at = pos;
+					final Header header = header(name());
+					if(header == null)
+						throw new ParseException("Unknown header " + text.substring(at, pos), at);
+					return new HeaderTerm(header, optionalCondition());
+				}
+				break;
+
+			case "body":
+				if(next == ':') {
+					pos++;
+					return new BodyTerm(new Condition(Operator.CONTAINS, value(), null));
+				}
+				if(isOperator()) {
+					return new BodyTerm(condition());
+				}
+				break;
+
+			case "xpath":
+				if(next == ':') {
+					pos++;
+					final int at = pos;
+					final String expression = expression();
+					try {
+						return new XPathTerm(XPathFactory.newInstance().newXPath().compile(expression), optionalCondition());
+					} catch (XPathExpressionException e) {
+						throw new ParseException("Invalid XPath expression " + expression, at);
+					}
+				}
+				break;
+
+			case "json":
+				if(next == ':') {
+					pos++;
+					final int at = pos;
+					final String expression = expression();
+					try {
+						return new JsonTerm(JsonPath.compile(expression), optionalCondition());
+					} catch (IllegalArgumentException e) {
+						throw new ParseException(e.getMessage(), at);
+					}
+				}
+				break;
+			}
+
+			// Not a field, search for the word. This keeps terms like ID:1234 working.
+			pos = start;
+			return textTerm(word());
+		}
+
+		private Predicate textTerm(String value) {
+			final SubstringSearch term = SubstringSearch.compile(MessageSearchIndex.normalize(value));
+			if(negations == 0) {
+				terms.add(term);
+			}
+			return new TextTerm(term);
+		}
+
+		private Condition optionalCondition() throws ParseException {
+			return isOperator() ? condition() : null;
+		}
+
+		private Condition condition() throws ParseException {
+			final Operator operator = operator();
+			final int at = pos;
+			if(operator == Operator.MATCHES && pos < text.length() && text.charAt(pos) == '/') {
+				return new Condition(operator, null, regex());
+			}
+
+			final String value = value();
+			if(operator != Operator.MATCHES)
+				return new Condition(operator, value, null);
+
+			try {
+				return new Condition(operator, value, Pattern.compile(value));
+			} catch (PatternSyntaxException e) {
+				throw new ParseException("Invalid regex " + value + ": " + e.getDescription(), at);
+			}
+		}
+
+		private boolean isOperator() {
+			if(pos >= text.length())
+				return false;
+
+			final char c = text.charAt(pos);
+			return c == '=' || c == '<' || c == '>' || c == '~'
+				|| (c == '!' && pos + 1 < text.length() && text.charAt(pos + 1) == '=');
+		}
+
+		private Operator operator() throws ParseException {
+			if(text.startsWith("!=", pos)) { pos += 2; return Operator.NE; }
+			if(text.startsWith("<=", pos)) { pos += 2; return Operator.LE; }
+			if(text.startsWith(">=", pos)) { pos += 2; return Operator.GE; }
+
+			switch(text.charAt(pos++)) {
+			case '=': return Operator.EQ;
+			case '<': return Operator.LT;
+			case '>': return Operator.GT;
+			case '~': return Operator.MATCHES;
+			default: throw error("Expected an operator");
+			}
+		}
+
+		private String value() throws ParseException {
+			if(pos < text.length() && (text.charAt(pos) == '"' || text.charAt(pos) == '\''))
+				return quoted();
+
+			final String value = word();
+			if(value.isEmpty())
+				throw error("Expected a value");
+			return value;
+		}
+
+		/**
+		 * A regex between slashes, followed by optional flags: i, m and s.
+		 */
+		private Pattern regex() throws ParseException {
+			final int start = pos++;
+			final StringBuilder regex = new StringBuilder();
+			while(true) {
+				if(pos >= text.length())
+					throw new ParseException("Unterminated regex", start);
+
+				final char c = text.charAt(pos++);
+				if(c == '/')
+					break;
+				if(c == '\\' && pos < text.length() && text.charAt(pos) == '/') {
+					regex.append('/');
+					pos++;
+				} else {
+					regex.append(c);
+				}
+			}
+
+			int flags = 0;
+			while(pos < text.length() && Character.isLetter(text.charAt(pos))) {
+				switch(text.charAt(pos++)) {
+				case 'i': flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE; break;
+				case 'm': flags |= Pattern.MULTILINE; break;
+				case 's': flags |= Pattern.DOTALL; break;
+				default: throw new ParseException("Unknown regex flag " + text.charAt(pos - 1), pos - 1);
+				}
+			}
+
+			try {
+				return Pattern.compile(regex.toString(), flags);
+			} catch (PatternSyntaxException e) {
+				throw new ParseException("Invalid regex " + regex + ": " + e.getDescription(), start);
+			}
+		}
+
+		/**
+		 * A property or header name, up to the operator.
+		 */
+		private String name() throws ParseException {
+			final int start = pos;
+			while(pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && !isOperator() && !endsGroup(text.charAt(pos))) {
+				pos++;
+			}
+			if(pos == start)
+				throw error("Expected a name");
+			return text.substring(start, pos);
+		}
+
+		/**
+		 * An XPath or JSONPath expression, up to the operator. Operators and whitespace within
+		 * brackets, parentheses or quotes are part of the expression.
+		 */
+		private String expression() throws ParseException {
+			final int start = pos;
+			int depth = 0;
+			char quote = 0;
+			while(pos < text.length()) {
+				final char c = text.charAt(pos);
+				if(quote != 0) {
+					if(c == quote)
+						quote = 0;
+				} else if(c == '\'' || c == '"') {
+					quote = c;
+				} else if(c == '[' || c == '(') {
+					depth++;
+				} else if(depth > 0 && (c == ']' || c == ')')) {
+					depth--;
+				} else if(depth == 0 && (Character.isWhitespace(c) || isOperator() || endsGroup(c))) {
+					break;
+				}
+				pos++;
+			}
+			if(quote != 0 || depth != 0)
+				throw new ParseException("Unterminated expression", start);
+			if(pos == start)
+				throw error("Expected an expression");
+			return text.substring(start, pos);
+		}
+
+		private String quoted() throws ParseException {
+			final int start = pos;
+			final char quote = text.charAt(pos++);
+			final StringBuilder value = new StringBuilder();
+			while(pos < text.length()) {
+				final char c = text.charAt(pos++);
+				if(c == quote)
+					return value.toString();
+				if(c == '\\' && pos < text.length()) {
+					value.append(text.charAt(pos++));
+				} else {
+					value.append(c);
+				}
+			}
+			throw new ParseException("Unterminated quote", start);
+		}
+
+		private String word() {
+			final int start = pos;
+			while(pos < text.length() && !Character.isWhitespace(text.charAt(pos)) && !endsGroup(text.charAt(pos))) {
+				pos++;
+			}
+			return text.substring(start, pos);
+		}
+
+		private boolean endsGroup(char c) {
+			return c == ')' && groups > 0;
+		}
+
+		private boolean keyword(String keyword) {
+			skipWhitespace();
+			final int end = pos + keyword.length();
+			return text.startsWith(keyword, pos) && (end == text.length() || Character.isWhitespace(text.charAt(end)));
+		}
+
+		private void expect(char c) throws ParseException {
+			if(pos >= text.length() || text.charAt(pos) != c)
+				throw error("Expected '" + c + "'");
+			pos++;
+		}
+
+		private void skipWhitespace() {
+			while(pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private ParseException error(String message) {
+			return new ParseException(message + " at position " + (pos + 1), pos);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import nl.queuemanager.jms.JMSMultipartMessage;
+import nl.queuemanager.jms.JMSPart;
+import nl.queuemanager.jms.MessageType;
+import nl.queuemanager.jms.MetaDataProvider;
+import nl.queuemanager.ui.util.SubstringSearch;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.text.Normalizer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The searchable text of a message: headers, metadata, property names and values and the
+ * body, lowercased and normalized. Indexes are built once per message and cached for as
+ * long as the message is referenced elsewhere, so searching a table of messages does not
+ * walk and format the messages again for every search.
+ *
+ * @author gerco
+ *
+ */
+final class MessageSearchIndex {
+	private static final Logger log = Logger.getLogger(MessageSearchIndex.class.getName());
+
+	/**
+	 * Separates the fields so a search term can not match across two fields.
+	 */
+	private static final char SEPARATOR = '\u0000';
+
+	private static final DateTimeFormatter TIMESTAMP_FORMAT =
+			DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS Z").withZone(ZoneId.systemDefault());
+
+	/**
+	 * Weak keys are compared by identity, so messages that are equal but not the same
+	 * instance get their own index.
+	 */
+	private static final Cache<Message, MessageSearchIndex> indexes =
+			CacheBuilder.newBuilder().weakKeys().build();
+
+	private final char[] text;
+
+	private MessageSearchIndex(char[] text) {
+		this.text = text;
+	}
+
+	/**
+	 * Return the index for a message, building it if required. May be called on any thread.
+	 *
+	 * @param message
+	 * @return
+	 */
+	public static MessageSearchIndex of(Message message) {
+		MessageSearchIndex index = indexes.getIfPresent(message);
+		if(index == null) {
+			index = build(message);
+			indexes.put(message, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Lowercase and normalize text the way the index does, for use on search terms.
+	 *
+	 * @param text
+	 * @return
+	 */
+	public static String normalize(String text) {
+		if(text == null)
+			return null;
+
+		if(!Normalizer.isNormalized(text, Normalizer.Form.NFC)) {
+			text = Normalizer.normalize(text, Normalizer.Form.NFC);
+		}
+		return text.toLowerCase(Locale.ROOT);
+	}
+
+	/**
+	 * @param term A search term, normalized with {@link #normalize(String)}
+	 * @return Whether any of the fields of the message contain the term
+	 */
+	public boolean contains(SubstringSearch term) {
+		return term.isContainedIn(text);
+	}
+
+	private static MessageSearchIndex build(Message message) {
+		final StringBuilder text = new StringBuilder();
+		try {
+			append(text, message);
+		} catch (JMSException e) {
+			log.log(Level.WARNING, "Exception while indexing message for searching", e);
+		}
+		return new MessageSearchIndex(normalize(text.toString()).toCharArray());
+	}
+
+	private static void append(StringBuilder text, Message msg) throws JMSException {
+		if(msg.getJMSDestination() != null) {
+			// we only show the JMS headers if JMS Destination is non null.
+			// therefore exclude from search if JMS Destination is null to avoid confusion
+			append(text, msg.getJMSMessageID());
+			if(msg.getJMSTimestamp() > 0) {
+				append(text, TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(msg.getJMSTimestamp())));
+			}
+			append(text, msg.getJMSDestination());
+		}
+
+		append(text, msg.getJMSCorrelationID());
+
+		if(msg instanceof MetaDataProvider && ((MetaDataProvider)msg).getMetaData() != null) {
+			for(Map.Entry<String, Object> entry: ((MetaDataProvider)msg).getMetaData().entrySet()) {
+				append(text, entry.getKey());
+				append(text, entry.getValue());
+			}
+		}
+
+		@SuppressWarnings("unchecked")
+		Enumeration<String> names = msg.getPropertyNames();
+		while(names.hasMoreElements()) {
+			String name = names.nextElement();
+			append(text, name);
+			append(text, msg.getObjectProperty(name));
+		}
+
+		MessageType type = MessageType.fromClass(msg.getClass());
+		if(type == null)
+			return;
+
+		switch(type) {
+		case TEXT_MESSAGE:
+		case XML_MESSAGE:
+			append(text, ((TextMessage)msg).getText());
+			break;
+
+		case MAP_MESSAGE:
+			appendMap(text, (MapMessage)msg);
+			break;
+
+		case MULTIPART_MESSAGE:
+			final JMSMultipartMessage mpmsg = (JMSMultipartMessage)msg;
+			for(int i = 0; i<mpmsg.getPartCount(); i++) {
+				appendPart(text, mpmsg.getPart(i));
+			}
+			break;
+
+		default:
+			break;
+		}
+	}
+
+	private static void appendMap(StringBuilder text, MapMessage msg) throws JMSException {
+		@SuppressWarnings("unchecked")
+		Enumeration<String> names = msg.getMapNames();
+		while(names.hasMoreElements()) {
+			String name = names.nextElement();
+			append(text, name);
+			append(text, msg.getObject(name));
+		}
+	}
+
+	private static void appendPart(StringBuilder text, JMSPart part) throws JMSException {
+		Enumeration<String> names = part.getHeaderFieldNames();
+		while(names.hasMoreElements()) {
+			String name = names.nextElement();
+			append(text, name);
+			append(text, part.getHeaderField(name));
+		}
+
+		switch(part.getContentType()) {
+		case JMSPart.CONTENT_TEXT:
+		case JMSPart.CONTENT_APPLICATION_XML:
+		case JMSPart.CONTENT_APPLICATION_JSON:
+		case JMSPart.CONTENT_XML:
+			append(text, part.getContent());
+			break;
+
+		case JMSPart.CONTENT_MESSAGE:
+			append(text, (Message)part.getContent());
+			break;
+		}
+	}
+
+	private static void append(StringBuilder text, Object value) {
+		if(value != null) {
+			text.append(value.toString()).append(SEPARATOR);
+		}
+	}
+}
@@ -25,6 +25,7 @@ import nl.queuemanager.core.jms.DomainEvent;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
 import nl.queuemanager.core.task.TaskExecutor;
+import nl.queuemanager.core.tasks.LoadProfile;
 import nl.queuemanager.core.tasks.TaskFactory;
 import nl.queuemanager.core.util.CollectionFactory;
 import nl.queuemanager.jms.JMSBroker;
@@ -63,6 +64,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.List;
 import java.util.Map.Entry;
@@ -91,6 +93,11 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 	private JComboBox<String> deliveryModeCombo;
 	private JTextField customPropertiesField;
 	private JIntegerField delayPerMessageField;
+	private JCheckBox loadTestCheckBox;
+	private JIntegerField loadRateField;
+	private JIntegerField loadRampUpField;
+	private JIntegerField loadDurationField;
+	private JIntegerField loadThreadsField;
 	private JButton sendButton;
 	private Map<String, Object> properties = CollectionFactory.newHashMap();
 	private List<String> predefinedPropertyNames = new ArrayList<>();
@@ -175,7 +182,7 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 					JMSBroker previouslySelectedBroker = (JMSBroker)e.getItem();
 					if(previouslySelectedBroker != null) {
 						if(sonic.isFeatureSupported(JMSFeature.DESTINATION_TYPE_QUEUE)) {
-							qcRefresher.unregisterInterest(previouslySelectedBroker);
+							qcRefresher.unregisterInterest(previouslySelectedBroker, MessageSendTabPanel.this);
 						}
 					}
 				} break;
@@ -186,7 +193,7 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 					destinationTable.clear();
 
 					if(sonic.isFeatureSupported(JMSFeature.DESTINATION_TYPE_QUEUE)) {
-						qcRefresher.registerInterest(selectedBroker);
+						qcRefresher.registerInterest(selectedBroker, MessageSendTabPanel.this);
 					}
 
 					connectToBroker(selectedBroker);
@@ -353,6 +360,11 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 		formPanel.add(delayPerMessageField);
 		numRows++;
 
+		JPanel loadTestPanel = createLoadTestPanel();
+		formPanel.add(createLabelFor(loadTestPanel, "Load Test:"));
+		formPanel.add(loadTestPanel);
+		numRows++;
+
 		if (sonic.isFeatureSupported(JMSFeature.JMS_HEADERS)) {
 			jmsCorrelationIDField = new JTextField();
 			jmsCorrelationIDField.setMaximumSize(new Dimension(
@@ -458,6 +470,54 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 		return types.toArray(new TYPE[0]);
 	}
 
+	private JPanel createLoadTestPanel() {
+		JPanel panel = new JPanel();
+		panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
+		
+		loadRateField = createLoadTestField(100, 1, "The target number of messages per second");
+		loadRampUpField = createLoadTestField(10, 0, "The number of seconds to reach the target rate");
+		loadDurationField = createLoadTestField(60, 1, "The number of seconds to send messages, including the ramp-up");
+		loadThreadsField = createLoadTestField(1, 1, "The number of concurrent producers");
+		
+		loadTestCheckBox = new JCheckBox();
+		loadTestCheckBox.setToolTipText("Send messages at a target rate instead of a fixed number of messages");
+		loadTestCheckBox.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				boolean loadTest = loadTestCheckBox.isSelected();
+				numberOfMessagesField.setEnabled(!loadTest);
+				delayPerMessageField.setEnabled(!loadTest);
+				loadRateField.setEnabled(loadTest);
+				loadRampUpField.setEnabled(loadTest);
+				loadDurationField.setEnabled(loadTest);
+				loadThreadsField.setEnabled(loadTest);
+				updateSendButton();
+			}
+		});
+		
+		panel.add(loadTestCheckBox);
+		panel.add(loadRateField);
+		panel.add(new JLabel(" msgs/sec, ramp-up "));
+		panel.add(loadRampUpField);
+		panel.add(new JLabel(" s, duration "));
+		panel.add(loadDurationField);
+		panel.add(new JLabel(" s, threads "));
+		panel.add(loadThreadsField);
+		
+		return panel;
+	}
+	
+	private JIntegerField createLoadTestField(int value, int minValue, String toolTip) {
+		JIntegerField field = new JIntegerField(6);
+		field.setMaximumSize(new Dimension(
+				Integer.MAX_VALUE,
+				field.getPreferredSize().height));
+		field.setMinValue(minValue);
+		field.setValue(value);
+		field.setToolTipText(toolTip);
+		field.setEnabled(false);
+		return field;
+	}
+	
 	private JPanel createPropertiesButtonPanel(){
 		JPanel panel = new JPanel();
 		panel.setLayout(new BoxLayout(panel, BoxLayout.X_AXIS));
@@ -571,6 +631,7 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 		
 		filenameField = new JTextField();
 		filenameField.setMaximumSize(new Dimension(Integer.MAX_VALUE, 24));
+		filenameField.setToolTipText("A file or directory, /data/** to include subdirectories, /data/**/*.xml or /data/regex:.*\\.xml to select files");
 		panel.add(filenameField);
 		
 		panel.add(new Box.Filler(
@@ -636,6 +697,24 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 						return;
 					}
 					
+					if(loadTestCheckBox.isSelected()) {
+						if(isFromImport && (filePath == null || filePath.equals(""))) {
+							JOptionPane.showMessageDialog(null, "Please select a file" );
+							return;
+						}
+						
+						startLoadTest(
+							sendDestination,
+							getDeliveryMode(),
+							isFromImport ? readTextFile(new File(filePath)) : typingArea.getText(),
+							jmsCorrIdValue,
+							jmsPriorityValue,
+							jmsReplyToValue,
+							jmsTimeToLiveValue != 0 ? jmsTimeToLiveValue : null,
+							properties);
+						return;
+					}
+					
 					if(numberOfMessages == 0) {
 						JOptionPane.showMessageDialog(null, "Please enter the number of messages to send" );
 						return;
@@ -678,6 +757,10 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 					}					
 				} catch (JMSException ex) {
 					JOptionPane.showMessageDialog(null, ex.toString());
+				} catch (IOException ex) {
+					JOptionPane.showMessageDialog(null, ex.toString());
+				} catch (IllegalArgumentException ex) {
+					JOptionPane.showMessageDialog(null, ex.getMessage());
 				}
 			}
 		});
@@ -782,6 +865,73 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 			final JMSDestination jmsReplyToValue,
 			final Long jmsTimeToLive,
 			final Map<String, ? extends Object> props) throws JMSException
+	{
+		TextMessage message = createTextMessage(
+				deliveryMode, 
+				messageContent, 
+				jmsCorrelationIdFieldValue, 
+				jmsPriorityValue, 
+				jmsReplyToValue, 
+				jmsTimeToLive, 
+				props);
+		
+		// Create the tasks for sending and browsing messages
+		worker.executeInOrder(
+			taskFactory.sendMessage(queue, message, number, delay),
+			taskFactory.enumerateQueues(queue.getBroker(), null));
+	}
+
+	/**
+	 * Start a load test that sends the message at the rate entered in the load test fields.
+	 * 
+	 * @param queue
+	 * @param deliveryMode
+	 * @param messageContent
+	 * @param jmsCorrelationIdFieldValue
+	 * @param jmsPriorityValue
+	 * @param jmsReplyToValue
+	 * @param jmsTimeToLive
+	 * @param props
+	 * @throws JMSException
+	 */
+	private void startLoadTest(
+			final JMSDestination queue, 
+			final int deliveryMode,
+			final String messageContent,
+			final String jmsCorrelationIdFieldValue,
+			final Integer jmsPriorityValue,
+			final JMSDestination jmsReplyToValue,
+			final Long jmsTimeToLive,
+			final Map<String, ? extends Object> props) throws JMSException
+	{
+		LoadProfile profile = new LoadProfile(
+				loadRateField.getValue(), 
+				loadRampUpField.getValue(), 
+				loadDurationField.getValue(), 
+				loadThreadsField.getValue());
+		
+		TextMessage message = createTextMessage(
+				deliveryMode, 
+				messageContent, 
+				jmsCorrelationIdFieldValue, 
+				jmsPriorityValue, 
+				jmsReplyToValue, 
+				jmsTimeToLive, 
+				props);
+		
+		worker.executeInOrder(
+			taskFactory.generateLoad(queue, message, profile),
+			taskFactory.enumerateQueues(queue.getBroker(), null));
+	}
+	
+	private TextMessage createTextMessage(
+			final int deliveryMode,
+			final String messageContent,
+			final String jmsCorrelationIdFieldValue,
+			final Integer jmsPriorityValue,
+			final JMSDestination jmsReplyToValue,
+			final Long jmsTimeToLive,
+			final Map<String, ? extends Object> props) throws JMSException
 	{
 		TextMessage message = (TextMessage)prepMessage(
 				MessageFactory.createTextMessage(),
@@ -790,7 +940,7 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 				jmsReplyToValue, 
 				jmsTimeToLive);
 
-		message.setText(messageContent);
+		message.setText(messageContent == null ? "" : messageContent);
 
 		message.setJMSDeliveryMode(deliveryMode);
 		
@@ -803,10 +953,11 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 		// Set custom properties
 		setMessageProperties(propsCopy, message);
 		
-		// Create the tasks for sending and browsing messages
-		worker.executeInOrder(
-			taskFactory.sendMessage(queue, message, number, delay),
-			taskFactory.enumerateQueues(queue.getBroker(), null));
+		return message;
+	}
+	
+	private static String readTextFile(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
 	}
 
 	private void populateBrokerCombo(final List<JMSBroker> brokers) {
@@ -956,6 +1107,12 @@ public class MessageSendTabPanel extends JPanel implements UITab {
 	}
 	
 	private void updateSendButton() {
+		if(loadTestCheckBox != null && loadTestCheckBox.isSelected()) {
+			sendButton.setEnabled(true);
+			sendButton.setText("Start load test");
+			return;
+		}
+		
 		int numberOfMessages = numberOfMessagesField.getValue();
 		
 		switch(numberOfMessages) {
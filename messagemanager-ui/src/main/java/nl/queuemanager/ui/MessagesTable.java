@@ -37,6 +37,7 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -50,6 +51,7 @@ import java.util.List;
 @SuppressWarnings("serial")
 public class MessagesTable extends MMJTable implements Clearable {
 	private JMSDestination currentDestination;
+	private boolean headersOnly;
 	private boolean enableFiltering = false;
 	private boolean inverseFilter;
 
@@ -114,12 +116,13 @@ public class MessagesTable extends MMJTable implements Clearable {
 	public void setHighlightsModel(HighlightsModel<?> model) {
 		super.setHighlightsModel(model);
 
-		// ensure that the table is sorted/filtered when the highlights model is updated
+		// ensure that the table is sorted/filtered when the highlights model is updated,
+		// once the last chunk of highlights is delivered
 		model.addTableModelListener(e -> {
 			if (e.getType() == TableModelEvent.UPDATE) {
 				TableRowSorter<? extends TableModel> sorter =
 						(TableRowSorter<? extends TableModel>) getRowSorter();
-				if (sorter != null && sorter.getModelRowCount()>0)  {
+				if (sorter != null && sorter.getModelRowCount()>0 && !model.isAdjusting())  {
 					sorter.sort(); // Re-apply sorting
 				}
 				repaint(getVisibleRect());
@@ -140,6 +143,24 @@ public class MessagesTable extends MMJTable implements Clearable {
 		((MessageTableModel)getModel()).setData(data);
 	}
 	
+	/**
+	 * Set the position of the first row on the destination. The index column
+	 * numbers the rows starting from this offset.
+	 * 
+	 * @param indexOffset
+	 */
+	public void setIndexOffset(int indexOffset) {
+		((MessageTableModel)getModel()).setIndexOffset(indexOffset);
+	}
+	
+	/**
+	 * Set whether the rows contain only the headers and properties of the messages. Those
+	 * rows can only be dragged or copied as message IDs, so the empty bodies are never sent.
+	 */
+	public void setHeadersOnly(boolean headersOnly) {
+		this.headersOnly = headersOnly;
+	}
+	
 	public JMSDestination getCurrentDestination() {
 		return currentDestination;
 	}
@@ -156,9 +177,17 @@ public class MessagesTable extends MMJTable implements Clearable {
 		((MessageTableModel)getModel()).addRow(item);
 	}
 	
+	public void addItems(List<Message> items) {
+		((MessageTableModel)getModel()).addRows(items);
+	}
+	
 	public void removeItem(Message item) {
 		((MessageTableModel)getModel()).removeRow(item);
 	}
+	
+	public void removeItems(Collection<Message> items) {
+		((MessageTableModel)getModel()).removeRows(items);
+	}
 
 	public Message getSelectedItem() {
 		int selectedRow = getSelectedRow();
@@ -180,6 +209,8 @@ public class MessagesTable extends MMJTable implements Clearable {
 	}
 	
 	static class MessageTableModel extends ListTableModel<Message> {
+		private int indexOffset;
+		
 		public MessageTableModel() {
 			setColumnNames(new String[] {"#", "Timestamp", "Correlation ID", "Type"});
 			setColumnTypes(new Class[] {Integer.class, Date.class, String.class, String.class});
@@ -190,7 +221,7 @@ public class MessagesTable extends MMJTable implements Clearable {
 			try {
 				switch(columnIndex) {
 				case 0:
-					return this.getItemRow(message) + 1;
+					return indexOffset + this.getItemRow(message) + 1;
 				case 1:
 					return new Date(message.getJMSTimestamp());
 				case 2:
@@ -220,7 +251,14 @@ public class MessagesTable extends MMJTable implements Clearable {
 			}
 			
 			return null;
-		}		
+		}
+		
+		public void setIndexOffset(int indexOffset) {
+			this.indexOffset = indexOffset;
+			if(getRowCount() > 0) {
+				fireTableRowsUpdated(0, getRowCount() - 1);
+			}
+		}
 	}
 	
 	private static class DateTableCellRenderer extends DefaultTableCellRenderer {
@@ -256,7 +294,9 @@ public class MessagesTable extends MMJTable implements Clearable {
 					messages.add(((MessageTableModel)table.getModel()).getRowItem(modelRow));
 				}
 
-				if (currentDestination instanceof JMSQueue) {
+				if (currentDestination instanceof JMSQueue && headersOnly) {
+					return MessageListTransferable.createMessageIDList((JMSQueue)currentDestination, messages);
+				} else if (currentDestination instanceof JMSQueue) {
 					return MessageListTransferable.createFromJMSMessageList((JMSQueue)currentDestination, messages);
 				} else if (currentDestination instanceof JMSTopic) {
 					return MessageListTransferable.copyFromJMSMessageList(messages);
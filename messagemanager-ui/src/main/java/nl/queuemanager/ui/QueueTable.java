@@ -17,6 +17,7 @@ package nl.queuemanager.ui;
 
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
+import nl.queuemanager.core.jms.QueueListDiff;
 import nl.queuemanager.core.util.Clearable;
 import nl.queuemanager.core.util.CollectionFactory;
 import nl.queuemanager.jms.JMSQueue;
@@ -33,7 +34,9 @@ import javax.swing.table.TableColumnModel;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents the Queues table and all information about its markup
@@ -57,15 +60,23 @@ class QueueTable extends JTable implements Clearable {
 		super();
 		
 		boolean enableMessageSizeColumn = domain.isFeatureSupported(JMSFeature.QUEUE_MESSAGES_SIZE);
+		boolean enableStatisticsColumns = domain.isFeatureSupported(JMSFeature.QUEUE_STATISTICS);
 		
-		setModel(new QueueTableModel(enableMessageSizeColumn));
+		setModel(new QueueTableModel(enableMessageSizeColumn, enableStatisticsColumns));
 		
 		setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
 
 		getTableHeader().setReorderingAllowed(false);
 		setColumnWidth(1, 70);
+		int column = 2;
 		if(enableMessageSizeColumn) {
-			setColumnWidth(2, 50);
+			setColumnWidth(column++, 50);
+		}
+		if(enableStatisticsColumns) {
+			setColumnWidth(column++, 70);
+			setColumnWidth(column++, 70);
+			setColumnWidth(column++, 70);
+			setColumnWidth(column++, 60);
 		}
 		
 		TableCellRenderer renderer = new MessageCountTableCellRenderer();
@@ -105,28 +116,34 @@ class QueueTable extends JTable implements Clearable {
 	}
 	
 	/**
-	 * Updates existing items, any missing items in the list are added.
+	 * Replace the data with a new snapshot of the queue list. Only the rows of queues that
+	 * were added, removed or changed since the previous snapshot are touched.
 	 * 
 	 * @param queues
 	 */
 	public void updateData(List<JMSQueue> queues) {
-		if(realModel.getData() == null) {
+		List<JMSQueue> data = realModel.getData();
+		if(data == null) {
 			setData(queues);
+			return;
 		}
-		else {
-			for(JMSQueue q: queues) {
-				int row = realModel.getItemRow(q);
-				if(row != -1) {
-					JMSQueue item = realModel.getRowItem(row);
-					if(item.getMessageCount() != q.getMessageCount()
-					|| !item.toString().equals(q.toString())) {
-						realModel.setRowItem(row, q);
-					}
-				} else {
-					realModel.addRow(q);
-				}
-			}
+		
+		QueueListDiff diff = QueueListDiff.compute(data, queues);
+		if(diff.isEmpty()) {
+			return;
+		}
+		
+		Map<JMSQueue, Integer> rows = new HashMap<JMSQueue, Integer>(data.size() * 2);
+		for(int row = 0; row < data.size(); row++) {
+			rows.put(data.get(row), row);
+		}
+		
+		for(JMSQueue queue: diff.getChanged()) {
+			realModel.setRowItem(rows.get(queue), queue);
 		}
+		
+		realModel.removeRows(diff.getRemoved());
+		realModel.addRows(diff.getAdded());
 	}
 	
 	public void clear() {
@@ -210,30 +227,76 @@ class QueueTable extends JTable implements Clearable {
 	 *
 	 */
 	private static class QueueTableModel extends ListTableModel<JMSQueue> {
-		public QueueTableModel(boolean includeSizeColumn) {
+		private static final int NAME = 0;
+		private static final int MESSAGES = 1;
+		private static final int SIZE = 2;
+		private static final int ENQUEUED = 3;
+		private static final int DEQUEUED = 4;
+		private static final int CONSUMERS = 5;
+		private static final int MEMORY = 6;
+		
+		/**
+		 * Maps the column index to the value to display in the column
+		 */
+		private final int[] columns;
+		
+		public QueueTableModel(boolean includeSizeColumn, boolean includeStatisticsColumns) {
+			List<String> names = CollectionFactory.newArrayList();
+			List<Class<?>> types = CollectionFactory.newArrayList();
+			List<Integer> values = CollectionFactory.newArrayList();
+			
+			addColumn(names, types, values, "Queue Name", String.class, NAME);
+			addColumn(names, types, values, "Messages", Integer.class, MESSAGES);
 			if(includeSizeColumn) {
-				setColumnNames(new String[] {"Queue Name", "Messages", "Size"});
-				setColumnTypes(new Class[] {String.class, Integer.class, Long.class});
-			} else {
-				setColumnNames(new String[] {"Queue Name", "Messages"});
-				setColumnTypes(new Class[] {String.class, Integer.class});
+				addColumn(names, types, values, "Size", Long.class, SIZE);
+			}
+			if(includeStatisticsColumns) {
+				addColumn(names, types, values, "Enqueued", Long.class, ENQUEUED);
+				addColumn(names, types, values, "Dequeued", Long.class, DEQUEUED);
+				addColumn(names, types, values, "Consumers", Long.class, CONSUMERS);
+				addColumn(names, types, values, "Memory", String.class, MEMORY);
 			}
+			
+			setColumnNames(names.toArray(new String[names.size()]));
+			setColumnTypes(types.toArray(new Class[types.size()]));
+			columns = new int[values.size()];
+			for(int i = 0; i < columns.length; i++) {
+				columns[i] = values.get(i);
+			}
+		}
+		
+		private static void addColumn(List<String> names, List<Class<?>> types, List<Integer> values, String name, Class<?> type, int value) {
+			names.add(name);
+			types.add(type);
+			values.add(value);
 		}
 		
 		@Override
 		public Object getColumnValue(JMSQueue queue, int col) {
-			switch(col) {
-			case 0:
+			switch(col < columns.length ? columns[col] : -1) {
+			case NAME:
 				return queue.toString();
-			case 1:
+			case MESSAGES:
 				return queue.getMessageCount();
-			case 2:
+			case SIZE:
 				return MiscUtils.humanReadableSize(queue.getMessageSize());
+			case ENQUEUED:
+				return knownOrNull(queue.getEnqueueCount());
+			case DEQUEUED:
+				return knownOrNull(queue.getDequeueCount());
+			case CONSUMERS:
+				return knownOrNull(queue.getConsumerCount());
+			case MEMORY:
+				return queue.getMemoryUsage() < 0 ? null : MiscUtils.humanReadableSize(queue.getMemoryUsage());
 			default:
 				return null;					
 			}
 		}
 		
+		private static Long knownOrNull(long value) {
+			return value < 0 ? null : value;
+		}
+		
 	}
 	
 	/**
@@ -24,11 +24,18 @@ import nl.queuemanager.core.jms.BrokerDestinations;
 import nl.queuemanager.core.jms.DomainEvent;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
+import nl.queuemanager.core.jms.MessageSelectors;
 import nl.queuemanager.core.task.CancelableTask;
+import nl.queuemanager.core.task.TaskEvent;
 import nl.queuemanager.core.task.TaskExecutor;
+import nl.queuemanager.core.tasks.DeleteMessagesTask;
+import nl.queuemanager.core.tasks.EnumerateMessagesTask;
 import nl.queuemanager.core.tasks.EnumerateMessagesTask.QueueBrowserEvent;
+import nl.queuemanager.core.tasks.LoadMessagesTask;
+import nl.queuemanager.core.tasks.MoveMessageListTask;
 import nl.queuemanager.core.tasks.TaskFactory;
 import nl.queuemanager.core.util.CollectionFactory;
+import nl.queuemanager.core.util.LRUCache;
 import nl.queuemanager.jms.JMSBroker;
 import nl.queuemanager.jms.JMSDestination;
 import nl.queuemanager.jms.JMSQueue;
@@ -37,8 +44,11 @@ import nl.queuemanager.core.tasks.FireRefreshRequiredTask.JMSDestinationHolder;
 import nl.queuemanager.ui.message.MessageViewerPanel;
 import nl.queuemanager.ui.message.SearchPanel;
 import nl.queuemanager.ui.util.Holder;
+import nl.queuemanager.ui.util.JIntegerField;
 import nl.queuemanager.ui.util.QueueCountsRefresher;
 
+import javax.jms.InvalidSelectorException;
+import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.swing.*;
 import javax.swing.event.ListSelectionEvent;
@@ -48,6 +58,8 @@ import java.awt.dnd.*;
 import java.awt.event.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("serial")
@@ -56,6 +68,44 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 	private QueueTable queueTable;
 	private MessagesTable messageTable;
 	private MessageViewerPanel messageViewer;
+	private JButton previousPageButton;
+	private JButton nextPageButton;
+	private JLabel pageLabel;
+	private JIntegerField gotoField;
+	private JComboBox<String> selectorCombo;
+	
+	/**
+	 * The maximum number of selectors to remember
+	 */
+	private static final int SELECTOR_HISTORY_SIZE = 20;
+	
+	/**
+	 * The message selector the broker uses to select the browsed messages, null for all messages
+	 */
+	private String browseSelector;
+	
+	/**
+	 * The position on the queue of the first message to show in the messages table
+	 */
+	private int browseOffset;
+	
+	/**
+	 * The position on the queue of the first message of the next page
+	 */
+	private int nextPageOffset;
+	
+	/**
+	 * The offsets of the pages before the current one, most recent first. Pages can be cut 
+	 * short by the memory limit, so the previous page does not always start a page size back.
+	 */
+	private final Deque<Integer> previousPageOffsets = new ArrayDeque<Integer>();
+	
+	/**
+	 * True when the messages table contains only the headers and properties of the messages.
+	 * The bodies are then loaded on demand and kept in bodyCache. Only accessed on the EDT.
+	 */
+	private boolean browsingHeadersOnly;
+	private final LRUCache<String, Message> bodyCache;
 
 	private final JMSDomain domain;
 	private final TaskExecutor worker;
@@ -64,6 +114,7 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 	private final TaskFactory taskFactory;
 	private final QueueCountsRefresher qcRefresher;
 	private final EventBus eventBus;
+	private final MessageHighlighter messageHighlighter;
 	
 	@Inject
 	public QueuesTabPanel(
@@ -85,6 +136,9 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 		this.taskFactory = taskFactory;
 		this.qcRefresher = refresher;
 		this.eventBus = eventBus;
+		this.messageHighlighter = messageHighlighter;
+		this.bodyCache = new LRUCache<String, Message>(Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_BODY_CACHE_SIZE, CoreConfiguration.DEFAULT_BROWSE_BODY_CACHE_SIZE)));
 		
 		this.messageViewer = messageViewer;
 		messageViewer.setDragEnabled(true);
@@ -127,13 +181,17 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 				JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
 		messageTableScrollPane.setPreferredSize(new Dimension(350, 100));
 		
+		JPanel messagesSelectorPanel = createMessagesSelectorPanel();
+		JPanel messagesPagingPanel = createMessagesPagingPanel();
 		JPanel messagesActionPanel = createMessagesActionPanel();
 
 		JPanel messagesTablePanel = new JPanel();
 		// To make the JScrollPane auto resize
 		messagesTablePanel.setLayout(new BoxLayout(messagesTablePanel, BoxLayout.Y_AXIS));
 		messagesTablePanel.setBorder(BorderFactory.createTitledBorder("Messages"));
+		messagesTablePanel.add(messagesSelectorPanel);
 		messagesTablePanel.add(messageTableScrollPane);
+		messagesTablePanel.add(messagesPagingPanel);
 		messagesTablePanel.add(messagesActionPanel);
 
 		JSplitPane horizontalSplitPane = new JSplitPane();
@@ -216,6 +274,164 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 		return messagesActionPanel;
 	}
 	
+	/**
+	 * Create the panel to enter the message selector that the broker uses to select the
+	 * messages to browse, so only matching messages are downloaded.
+	 */
+	private JPanel createMessagesSelectorPanel() {
+		JPanel selectorPanel = new JPanel();
+		selectorPanel.setLayout(new BoxLayout(selectorPanel, BoxLayout.X_AXIS));
+		selectorPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 3, 0));
+		
+		JLabel selectorLabel = new JLabel("Selector: ");
+		selectorPanel.add(selectorLabel);
+		
+		selectorCombo = new JComboBox<String>(loadSelectorHistory());
+		selectorCombo.setEditable(true);
+		selectorCombo.setSelectedItem("");
+		selectorCombo.setMaximumSize(new Dimension(Integer.MAX_VALUE, 30));
+		selectorCombo.setToolTipText("<html>A JMS message selector, for example JMSCorrelationID = 'abc' AND orderType = 'X'.<br>"
+				+ "Press enter to browse only the messages that match it.</html>");
+		selectorLabel.setLabelFor(selectorCombo);
+		selectorCombo.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				// Enter was pressed in the editor
+				if("comboBoxEdited".equals(e.getActionCommand())) {
+					applySelector();
+				}
+			}
+		});
+		selectorPanel.add(selectorCombo);
+		selectorPanel.add(Box.createHorizontalStrut(5));
+		
+		final JButton applyButton = createButton("Apply", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				applySelector();
+			}
+		});
+		CommonUITasks.makeSegmented(applyButton, Segmented.FIRST);
+		selectorPanel.add(applyButton);
+		
+		final JButton clearButton = createButton("Clear", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				selectorCombo.setSelectedItem("");
+				applySelector();
+			}
+		});
+		CommonUITasks.makeSegmented(clearButton, Segmented.LAST);
+		selectorPanel.add(clearButton);
+		
+		// Enable/disable the selector when connecting to broker
+		eventBus.register(new Object() {
+			@Subscribe
+			public void handleDomainEvent(DomainEvent event) {
+				if(event.getId() == DomainEvent.EVENT.BROKER_CONNECT) {
+					boolean supported = domain.isFeatureSupported(JMSFeature.QUEUE_BROWSE_SELECTOR);
+					selectorCombo.setEnabled(supported);
+					applyButton.setEnabled(supported);
+					clearButton.setEnabled(supported);
+				}
+			}
+		});
+		
+		return selectorPanel;
+	}
+	
+	/**
+	 * Browse the selected queue again with the selector that was entered, after checking
+	 * its syntax.
+	 */
+	private void applySelector() {
+		final Object item = selectorCombo.getEditor().getItem();
+		final String selector = item == null ? "" : item.toString().trim();
+		
+		if(!selector.isEmpty()) {
+			try {
+				MessageSelectors.validate(selector);
+			} catch (InvalidSelectorException e) {
+				JOptionPane.showMessageDialog(this, e.getMessage(), "Invalid Selector", JOptionPane.ERROR_MESSAGE);
+				return;
+			}
+			addToSelectorHistory(selector);
+		}
+		
+		browseSelector = selector.isEmpty() ? null : selector;
+		browsePage(0);
+	}
+	
+	private String[] loadSelectorHistory() {
+		String history = config.getUserPref(CoreConfiguration.PREF_BROWSE_SELECTOR_HISTORY, "");
+		return history.isEmpty() ? new String[0] : history.split("\n");
+	}
+	
+	/**
+	 * Move the selector to the top of the history and save the history.
+	 */
+	private void addToSelectorHistory(String selector) {
+		DefaultComboBoxModel<String> model = (DefaultComboBoxModel<String>)selectorCombo.getModel();
+		model.removeElement(selector);
+		model.insertElementAt(selector, 0);
+		while(model.getSize() > SELECTOR_HISTORY_SIZE) {
+			model.removeElementAt(model.getSize() - 1);
+		}
+		model.setSelectedItem(selector);
+		
+		StringBuilder history = new StringBuilder();
+		for(int i = 0; i < model.getSize(); i++) {
+			if(i > 0) history.append('\n');
+			history.append(model.getElementAt(i));
+		}
+		config.setUserPref(CoreConfiguration.PREF_BROWSE_SELECTOR_HISTORY, history.toString());
+	}
+	
+	/**
+	 * Create the panel to page through the messages on the queue. Only a single page 
+	 * of messages is kept in memory at any time.
+	 */
+	private JPanel createMessagesPagingPanel() {
+		JPanel pagingPanel = new JPanel();
+		pagingPanel.setLayout(new BoxLayout(pagingPanel, BoxLayout.X_AXIS));
+		pagingPanel.setBorder(BorderFactory.createEmptyBorder(3, 0, 0, 0));
+		
+		previousPageButton = createButton("Previous", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				browsePreviousPage();
+			}
+		});
+		previousPageButton.setEnabled(false);
+		CommonUITasks.makeSegmented(previousPageButton, Segmented.FIRST);
+		pagingPanel.add(previousPageButton);
+		
+		nextPageButton = createButton("Next", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				browseNextPage();
+			}
+		});
+		nextPageButton.setEnabled(false);
+		CommonUITasks.makeSegmented(nextPageButton, Segmented.LAST);
+		pagingPanel.add(nextPageButton);
+		
+		pagingPanel.add(Box.createHorizontalStrut(10));
+		pageLabel = new JLabel();
+		pagingPanel.add(pageLabel);
+		pagingPanel.add(Box.createHorizontalGlue());
+		
+		JLabel gotoLabel = new JLabel("Go to message: ");
+		pagingPanel.add(gotoLabel);
+		gotoField = new JIntegerField(8);
+		gotoField.setToolTipText("Press enter to show the page starting at this message");
+		gotoField.setMaximumSize(new Dimension(100, 30));
+		gotoLabel.setLabelFor(gotoField);
+		gotoField.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				browsePage(gotoField.getValue() - 1);
+			}
+		});
+		pagingPanel.add(gotoField);
+		
+		return pagingPanel;
+	}
+	
 	/**
 	 * Create the panel that contains the actions for the queues table. 
 	 * Segmented buttons on Mac OS X for Looks++
@@ -285,8 +501,11 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 				if (e.getValueIsAdjusting())
 					return;
 				
-				if(shouldBrowse.getValue())
+				if(shouldBrowse.getValue()) {
+					browseOffset = 0;
+					previousPageOffsets.clear();
 					enumerateMessages();
+				}
 			}
 		});
 		
@@ -332,7 +551,7 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 				case ItemEvent.DESELECTED: {
 					JMSBroker previouslySelectedBroker = (JMSBroker)e.getItem();
 					if(previouslySelectedBroker != null)
-						qcRefresher.unregisterInterest(previouslySelectedBroker);
+						qcRefresher.unregisterInterest(previouslySelectedBroker, QueuesTabPanel.this);
 				} break;
 				
 				case ItemEvent.SELECTED: {
@@ -341,7 +560,7 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 						queueTable.clear();
 						messageTable.clear();
 						
-						qcRefresher.registerInterest(selectedBroker);
+						qcRefresher.registerInterest(selectedBroker, QueuesTabPanel.this);
 						connectToBroker(selectedBroker);
 						enumerateQueues(selectedBroker);
 
@@ -424,7 +643,23 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 		});
 	}
 	
-	private void enumerateMessages() {		
+	/**
+	 * Show the refresh statistics of the broker as the tooltip of the broker combo
+	 * so slow brokers can be identified.
+	 */
+	private void updateRefreshStatistics(JMSBroker broker) {
+		final QueueCountsRefresher.RefreshStatistics stats = qcRefresher.getStatistics(broker);
+		if(stats == null || stats.getRefreshCount() == 0)
+			return;
+
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				brokerCombo.setToolTipText(stats.toString());
+			}
+		});
+	}
+
+	private void enumerateMessages() {
 		JMSQueue queue = queueTable.getSelectedItem();
 				
 		/* Clear the messages table (set to an empty list to prevent
@@ -433,32 +668,169 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 		
 		if(queue != null) {
 			enumerateMessages(queue);
+		} else {
+			pageLabel.setText("");
+			previousPageButton.setEnabled(false);
+			nextPageButton.setEnabled(false);
 		}
 	}
 	
 	private void enumerateMessages(final JMSQueue queue) {
 		// Cancel any running browser task and start a new one
-		qbel.cancel();
-		worker.execute(taskFactory.enumerateMessages(queue, qbel));
+		EnumerateMessagesTask task = taskFactory.enumerateMessages(queue, browseOffset, getPageSize(), browseSelector, qbel);
+		qbel.browse(task);
+		worker.execute(task);
+	}
+	
+	/**
+	 * Browse the page starting at an offset, forgetting the pages that were browsed before.
+	 */
+	private void browsePage(final int offset) {
+		previousPageOffsets.clear();
+		browseOffset = Math.max(0, offset);
+		enumerateMessages();
+	}
+	
+	private void browseNextPage() {
+		previousPageOffsets.push(browseOffset);
+		browseOffset = nextPageOffset;
+		enumerateMessages();
+	}
+	
+	private void browsePreviousPage() {
+		// After going to a message there is no history, assume full pages before it
+		browseOffset = previousPageOffsets.isEmpty() 
+				? Math.max(0, browseOffset - getPageSize()) 
+				: previousPageOffsets.pop();
+		enumerateMessages();
+	}
+	
+	private int getPageSize() {
+		return Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_PAGE_SIZE, CoreConfiguration.DEFAULT_BROWSE_PAGE_SIZE));
+	}
+	
+	/**
+	 * Show the position of the browsed page on the queue and enable the paging buttons
+	 * that are applicable.
+	 * 
+	 * @param task The browsing task that has just completed
+	 */
+	private void updatePagingControls(final EnumerateMessagesTask task) {
+		final JMSQueue selectedQueue = queueTable.getSelectedItem();
+		final int total = (selectedQueue != null ? selectedQueue : task.getQueue()).getMessageCount();
+		
+		StringBuilder text = new StringBuilder();
+		if(task.getBrowsedCount() == 0) {
+			text.append("No messages");
+		} else {
+			text.append(String.format("Messages %d - %d", task.getOffset() + 1, task.getOffset() + task.getBrowsedCount()));
+		}
+		if(task.getSelector() != null) {
+			text.append(" matching the selector");
+		} else if(total >= 0) {
+			text.append(" of ").append(total);
+		}
+		if(task.isMemoryLimitReached()) {
+			text.append(" (memory limit reached)");
+		}
+		pageLabel.setText(text.toString());
+		
+		nextPageOffset = task.getOffset() + task.getBrowsedCount();
+		previousPageButton.setEnabled(task.getOffset() > 0);
+		nextPageButton.setEnabled(task.hasMoreMessages());
 	}
 		
 	public void displaySelectedMessage() {
 		if(messageTable.getSelectedRow() == -1) {
 			displayMessage(null);
+		} else if(browsingHeadersOnly) {
+			displayMessageBody(messageTable.getSelectedItem());
 		} else {
 			displayMessage(messageTable.getSelectedItem());
 		}
 	}
 	
+	/**
+	 * Display a message of which only the headers were browsed. Shows the headers right 
+	 * away and the complete message as soon as its body has been loaded from the queue.
+	 */
+	private void displayMessageBody(final Message headers) {
+		final JMSQueue queue = queueTable.getSelectedItem();
+		final String messageID = getMessageID(headers);
+		
+		Message cached = bodyCache.get(messageID);
+		if(cached != null || queue == null || messageID == null) {
+			displayMessage(cached != null ? cached : headers);
+			return;
+		}
+		
+		displayMessage(headers);
+		worker.execute(taskFactory.loadMessages(queue, Collections.singletonList(messageID), new LoadMessagesTask.MessagesReceiver() {
+			public void messagesLoaded(JMSQueue queue, final List<Message> messages) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						cacheBodies(messages);
+						
+						// Only display the message if the user didn't select another one in the meantime
+						Message selected = messageTable.getSelectedItem();
+						if(!messages.isEmpty() && selected != null && messageID.equals(getMessageID(selected))) {
+							messageViewer.setMessage(messages.get(0));
+						}
+					}
+				});
+			}
+		}));
+	}
+	
+	private void cacheBodies(List<Message> messages) {
+		for(Message message: messages) {
+			String messageID = getMessageID(message);
+			if(messageID != null) {
+				bodyCache.put(messageID, message);
+			}
+		}
+	}
+	
+	private static String getMessageID(Message message) {
+		try {
+			return message.getJMSMessageID();
+		} catch (JMSException e) {
+			return null;
+		}
+	}
+	
 	private void saveSelectedMessages() {
-		List<Message> messages = CollectionFactory.newArrayList();
+		final List<Message> messages = CollectionFactory.newArrayList();
 		
 		int[] selectedRows = messageTable.getSelectedRows();
 		for(int i: selectedRows) {
 			messages.add(messageTable.getRowItem(i));
 		}
 		
-		CommonUITasks.saveMessages(this, messages, worker, taskFactory, config);
+		final JMSQueue queue = queueTable.getSelectedItem();
+		if(!browsingHeadersOnly || queue == null) {
+			CommonUITasks.saveMessages(this, messages, worker, taskFactory, config);
+			return;
+		}
+		
+		// Load the complete messages before saving them. Messages that are no longer on the queue are skipped.
+		List<String> messageIDs = CollectionFactory.newArrayList();
+		for(Message message: messages) {
+			String messageID = getMessageID(message);
+			if(messageID != null) {
+				messageIDs.add(messageID);
+			}
+		}
+		worker.execute(taskFactory.loadMessages(queue, messageIDs, new LoadMessagesTask.MessagesReceiver() {
+			public void messagesLoaded(JMSQueue queue, final List<Message> loaded) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						CommonUITasks.saveMessages(QueuesTabPanel.this, loaded, worker, taskFactory, config);
+					}
+				});
+			}
+		}));
 	}	
 	
 	private void displayMessage(final Message message) {
@@ -529,6 +901,31 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 			taskFactory.enumerateQueues((JMSBroker)brokerCombo.getSelectedItem(), null));
 	}
 
+	/**
+	 * Forget the bodies of messages that were deleted or moved, so they are not shown
+	 * when they are browsed again.
+	 */
+	@Subscribe
+	public void handleTaskEvent(TaskEvent event) {
+		if(event.getId() != TaskEvent.EVENT.TASK_FINISHED)
+			return;
+		
+		final List<String> messageIDs;
+		if(event.getSource() instanceof DeleteMessagesTask) {
+			messageIDs = ((DeleteMessagesTask)event.getSource()).getMessageIDs();
+		} else if(event.getSource() instanceof MoveMessageListTask) {
+			messageIDs = ((MoveMessageListTask)event.getSource()).getMessageIDs();
+		} else {
+			return;
+		}
+		
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				bodyCache.keySet().removeAll(messageIDs);
+			}
+		});
+	}
+
 	@SuppressWarnings("unchecked")
 	@Subscribe
 	public void handleDomainEvent(DomainEvent event) {
@@ -544,6 +941,7 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 			final List<JMSQueue> queueList = ((BrokerDestinations) event.getInfo()).getDestinations();
 			if(queueList.size() > 0 && queueList.get(0).getBroker().equals(brokerCombo.getSelectedItem())) {
 				populateQueueTable(queueList);
+				updateRefreshStatistics(queueList.get(0).getBroker());
 			}
 			break;
 			
@@ -596,44 +994,135 @@ public class QueuesTabPanel extends JSplitPane implements UITab, MessageTableAct
 	}
 		
 	private class QueueBrowserEventListener implements EventListener<QueueBrowserEvent> {
-		private volatile boolean canceled;
+		/**
+		 * The maximum number of message batches waiting to be added to the table by the EDT. 
+		 * When the EDT falls further behind, the browsing thread is held until it catches up.
+		 */
+		private static final int MAX_PENDING_BATCHES = 4;
 		
-		public void processEvent(final QueueBrowserEvent event) {			
+		private final Semaphore pendingBatches = new Semaphore(MAX_PENDING_BATCHES);
+		
+		/**
+		 * The browsing task whose messages are displayed. Browsing tasks may run concurrently, 
+		 * so events from any other task are from a browse that was canceled.
+		 */
+		private volatile CancelableTask currentTask;
+		
+		public void processEvent(final QueueBrowserEvent event) {
+			if(event.getSource() != currentTask) {
+				((CancelableTask)event.getSource()).cancel();
+				return;
+			}
+			
 			switch(event.getId()) {
 			case BROWSING_STARTED:
-				canceled = false;
 				SwingUtilities.invokeLater(new Runnable() {
 					public void run() {
+						if(isStale(event))
+							return;
+						
+						EnumerateMessagesTask task = (EnumerateMessagesTask)event.getSource();
 						messageTable.clear((JMSDestination)event.getInfo());
+						messageTable.setIndexOffset(task.getOffset());
+						browsingHeadersOnly = task.isHeadersOnly();
+						messageTable.setHeadersOnly(browsingHeadersOnly);
+						pageLabel.setText("Browsing...");
+						previousPageButton.setEnabled(false);
+						nextPageButton.setEnabled(false);
 					}
 				});
 				break;
 				
 			case MESSAGE_FOUND:
-				/* If the task has been canceled (the user selected another queue
-				 * while this one was not done browsing yet), cancel the browsing
-				 * task. */
-				if(canceled) {
-					canceled = false;
-					CancelableTask task = ((CancelableTask)event.getSource());
-					task.cancel();
-				} else {				
+				messageHighlighter.index((Message)event.getInfo());
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(!isStale(event)) {
+							messageTable.addItem((Message)event.getInfo());
+						}
+					}
+				});
+				break;
+				
+			case MESSAGES_FOUND:
+				if(!awaitPendingBatches(event.getSource())) {
+					((CancelableTask)event.getSource()).cancel();
+				} else {
+					@SuppressWarnings("unchecked")
+					final List<Message> messages = (List<Message>)event.getInfo();
+					for(Message message: messages) {
+						messageHighlighter.index(message);
+					}
 					SwingUtilities.invokeLater(new Runnable() {
 						public void run() {
-							messageTable.addItem((Message)event.getInfo());
+							try {
+								if(!isStale(event)) {
+									messageTable.addItems(messages);
+								}
+							} finally {
+								pendingBatches.release();
+							}
 						}
 					});
 				}
 				break;
 				
 			case BROWSING_COMPLETE:
-				canceled = false;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(!isStale(event)) {
+							updatePagingControls((EnumerateMessagesTask)event.getSource());
+						}
+					}
+				});
 				break;
 			}
 		}
 		
+		/**
+		 * Wait for room in the EDT backlog, checking regularly if browsing was canceled in the meantime.
+		 * 
+		 * @return true when a batch may be submitted to the EDT, false when browsing was canceled
+		 */
+		private boolean awaitPendingBatches(Object task) {
+			try {
+				while(task == currentTask) {
+					if(pendingBatches.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+						if(task == currentTask)
+							return true;
+						
+						pendingBatches.release();
+						break;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+		
+		/**
+		 * Events are handed to the EDT, where another browse may have started by the time
+		 * they are processed. Those events must be dropped.
+		 */
+		private boolean isStale(QueueBrowserEvent event) {
+			return event.getSource() != currentTask;
+		}
+		
+		/**
+		 * Display the messages found by this task from now on, any other browse is canceled.
+		 */
+		public void browse(CancelableTask task) {
+			cancel();
+			currentTask = task;
+		}
+		
 		public void cancel() {
-			canceled = true;
+			CancelableTask task = currentTask;
+			currentTask = null;
+			if(task != null) {
+				task.cancel();
+			}
 		}
 	}
 }
@@ -20,13 +20,12 @@ import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
 import com.google.inject.Inject;
 import nl.queuemanager.core.MessageBuffer;
-import nl.queuemanager.core.MessageEvent;
 import nl.queuemanager.core.configuration.CoreConfiguration;
-import nl.queuemanager.core.events.EventListener;
 import nl.queuemanager.core.jms.BrokerDestinations;
 import nl.queuemanager.core.jms.DomainEvent;
 import nl.queuemanager.core.jms.JMSDomain;
 import nl.queuemanager.core.jms.JMSFeature;
+import nl.queuemanager.core.task.BackgroundTask;
 import nl.queuemanager.core.task.Task;
 import nl.queuemanager.core.task.TaskExecutor;
 import nl.queuemanager.core.tasks.TaskFactory;
@@ -49,6 +48,7 @@ import java.awt.event.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static nl.queuemanager.core.jms.DomainEvent.EVENT.TOPICS_ENUMERATED;
 
@@ -68,12 +68,24 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 	private final TaskFactory taskFactory;
 	private final CoreConfiguration config;
 	private final JMSSubscriberFactory jmsSubscriberFactory;
+	private final boolean spillToDisk;
 	
 	private final TopicSubscriberTable subscriberTable;
 	private final MessagesTable messageTable;
 	private final MessageViewerPanel messageViewer;
 	
-	private final MessageEventListener messageEventListener;
+	private final CoalescingMessageListener messageEventListener;
+	private final JLabel rateLabel = new JLabel(" ");
+	
+	private JButton previousPageButton;
+	private JButton nextPageButton;
+	private JLabel pageLabel;
+	
+	/**
+	 * The position of the first message of the displayed page of spilled messages, or -1
+	 * when the message table shows the live buffer.
+	 */
+	private int spillOffset = -1;
 	private EventBus eventBus;
 
 	// Add ghost text to topic name field
@@ -99,6 +111,14 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		this.config = config;
 		this.eventBus = eventBus;
 		this.jmsSubscriberFactory = jmsSubscriberFactory;
+		this.spillToDisk = Boolean.parseBoolean(config.getUserPref(
+				CoreConfiguration.PREF_SUBSCRIBER_SPILL_TO_DISK, CoreConfiguration.DEFAULT_SUBSCRIBER_SPILL_TO_DISK));
+		this.messageEventListener = new CoalescingMessageListener(
+				Integer.parseInt(config.getUserPref(
+						CoreConfiguration.PREF_SUBSCRIBER_UPDATE_INTERVAL,
+						CoreConfiguration.DEFAULT_SUBSCRIBER_UPDATE_INTERVAL)),
+				messageHighlighter::index,
+				this::updateMessageTable);
 		
 		subscriberTable = createTopicTable(topicSubscriberTable);
 		messageTable = CommonUITasks.createMessageTable(messageHighlighter, eventBus, domain, this);
@@ -140,6 +160,9 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		messagesTablePanel.add(messageTableScrollPane);
 
 		messagesTablePanel.add(createMessagesActionPanel());
+		if(spillToDisk) {
+			messagesTablePanel.add(createMessagesPagingPanel());
+		}
 		
 		JSplitPane horizontalSplitPane = new JSplitPane();
 		horizontalSplitPane.setDividerLocation(350);
@@ -171,8 +194,6 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		setOrientation(JSplitPane.VERTICAL_SPLIT);
 		add(messageViewPanel, JSplitPane.BOTTOM);
 		add(topPanel, JSplitPane.TOP);
-		
-		this.messageEventListener = new MessageEventListener();
 	}
 
 	private JPanel createMessagesActionPanel() {
@@ -207,10 +228,121 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		});
 		CommonUITasks.makeSegmented(saveButton, Segmented.LAST);		
 		messagesActionPanel.add(saveButton);
+		messagesActionPanel.add(Box.createHorizontalStrut(5));
+		rateLabel.setToolTipText("Messages received per second and messages discarded because the buffer was full");
+		messagesActionPanel.add(rateLabel);
 		messagesActionPanel.add(new SearchPanel(messageTable,eventBus));
 		return messagesActionPanel;
 	}
 	
+	/**
+	 * Create the panel to page through the messages that were spilled to disk. The last
+	 * page is followed by the live buffer.
+	 */
+	private JPanel createMessagesPagingPanel() {
+		JPanel pagingPanel = new JPanel();
+		pagingPanel.setLayout(new BoxLayout(pagingPanel, BoxLayout.X_AXIS));
+		pagingPanel.setBorder(BorderFactory.createEmptyBorder(3, 0, 0, 0));
+		
+		previousPageButton = CommonUITasks.createButton("Previous", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JMSSubscriber subscriber = subscriberTable.getSelectedItem();
+				if(subscriber != null) {
+					int from = spillOffset < 0 ? subscriber.getSpilledMessageCount() : spillOffset;
+					showSpilledMessages(subscriber, Math.max(0, from - getPageSize()));
+				}
+			}
+		});
+		previousPageButton.setEnabled(false);
+		CommonUITasks.makeSegmented(previousPageButton, Segmented.FIRST);
+		pagingPanel.add(previousPageButton);
+		
+		nextPageButton = CommonUITasks.createButton("Next", new ActionListener() {
+			public void actionPerformed(ActionEvent e) {
+				JMSSubscriber subscriber = subscriberTable.getSelectedItem();
+				if(subscriber != null && spillOffset >= 0) {
+					int next = spillOffset + getPageSize();
+					if(next < subscriber.getSpilledMessageCount()) {
+						showSpilledMessages(subscriber, next);
+					} else {
+						populateMessageTable(subscriber);
+					}
+				}
+			}
+		});
+		nextPageButton.setEnabled(false);
+		CommonUITasks.makeSegmented(nextPageButton, Segmented.LAST);
+		pagingPanel.add(nextPageButton);
+		
+		pagingPanel.add(Box.createHorizontalStrut(10));
+		pageLabel = new JLabel();
+		pagingPanel.add(pageLabel);
+		pagingPanel.add(Box.createHorizontalGlue());
+		
+		return pagingPanel;
+	}
+	
+	private int getPageSize() {
+		return Integer.parseInt(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_PAGE_SIZE, CoreConfiguration.DEFAULT_BROWSE_PAGE_SIZE));
+	}
+	
+	/**
+	 * Read a page of spilled messages on a worker thread and show it in the message table.
+	 * Live updates to the table are suspended until the live buffer is shown again.
+	 */
+	private void showSpilledMessages(final JMSSubscriber subscriber, final int offset) {
+		final int pageSize = getPageSize();
+		worker.execute(new BackgroundTask(null, eventBus) {
+			@Override
+			public void execute() throws Exception {
+				final List<Message> messages = subscriber.getSpilledMessages(offset, pageSize);
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if(subscriber != subscriberTable.getSelectedItem())
+							return;
+						
+						spillOffset = offset;
+						messageTable.setData(subscriber.getDestination(), new ArrayList<Message>(messages));
+						messageTable.setIndexOffset(offset);
+						updatePagingControls(subscriber);
+					}
+				});
+			}
+			
+			@Override
+			public String toString() {
+				return "Reading spilled messages for " + subscriber.getDestination();
+			}
+		});
+	}
+	
+	/**
+	 * Show which part of the capture is displayed and enable the paging buttons that
+	 * are applicable.
+	 */
+	private void updatePagingControls(JMSSubscriber subscriber) {
+		if(pageLabel == null)
+			return;
+		
+		final int spilled = subscriber == null ? 0 : subscriber.getSpilledMessageCount();
+		final String text;
+		if(subscriber == null) {
+			text = "";
+		} else if(spillOffset < 0) {
+			text = String.format("Live buffer, %d messages on disk", spilled);
+		} else {
+			text = String.format("Messages %d - %d of %d on disk", spillOffset + 1,
+					Math.min(spilled, spillOffset + messageTable.getModel().getRowCount()), spilled);
+		}
+		
+		if(!text.equals(pageLabel.getText())) {
+			pageLabel.setText(text);
+		}
+		previousPageButton.setEnabled(spillOffset < 0 ? spilled > 0 : spillOffset > 0);
+		nextPageButton.setEnabled(spillOffset >= 0);
+	}
+	
 	private void saveSelectedMessages() {
 		List<Message> messages = CollectionFactory.newArrayList();
 		
@@ -230,8 +362,12 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		JMSSubscriber subscriber = subscriberTable.getItemForDestination(destination);
 		
 		if(subscriber != null) {
+			spillOffset = -1;
+			messageTable.setIndexOffset(0);
 			messageTable.clear(destination);
 			subscriber.clear();
+			messageEventListener.reset();
+			updatePagingControls(subscriber);
 		}
 	}
 	
@@ -242,7 +378,8 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 		final List<Message> messages = CollectionFactory.newArrayList();
 		final ListSelectionModel lsm = messageTable.getSelectionModel();
 		
-		if(lsm.isSelectionEmpty()) {
+		// Spilled messages can not be removed from the log on disk
+		if(lsm.isSelectionEmpty() || spillOffset >= 0) {
 			return;
 		}
 		
@@ -389,8 +526,19 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 			currentSubscriber.unlockMessages();
 		}
 		
+		// The table is reloaded from the buffer, so pending updates are no longer needed
+		if(currentSubscriber != newSubscriber) {
+			messageEventListener.stop();
+		}
+		messageEventListener.reset();
+		
+		spillOffset = -1;
+		messageTable.setIndexOffset(0);
+		updatePagingControls(newSubscriber);
+		
 		if(newSubscriber == null) {
 			messageTable.clear(null);
+			rateLabel.setText(" ");
 		} else {
 			messageTable.setData(
 				newSubscriber.getDestination(), 
@@ -399,30 +547,39 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 			if(currentSubscriber != newSubscriber) {
 				newSubscriber.addListener(messageEventListener);
 			}
+			messageEventListener.start();
 		}
 	}
 	
-	private void addMessageToTable(final Message message) {
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				messageTable.addItem(message);
-			}
-		});
+	/**
+	 * Apply the messages received and discarded during the last interval to the message
+	 * table as one batch. Called on the EDT by the {@link CoalescingMessageListener}.
+	 */
+	private void updateMessageTable(List<Message> added, Set<Message> removed) {
+		if(spillOffset < 0) {
+			messageTable.removeItems(removed);
+			messageTable.addItems(added);
+		}
+		updatePagingControls(subscriberTable.getItemForDestination(messageTable.getCurrentDestination()));
+		
+		String text = String.format("%.0f msgs/sec, %d dropped",
+				messageEventListener.getRate(), messageEventListener.getDroppedCount());
+		if(!text.equals(rateLabel.getText())) {
+			rateLabel.setText(text);
+		}
 	}
-	
-	private void removeMessageFromTable(final Message message) {
-		SwingUtilities.invokeLater(new Runnable() {
-			public void run() {
-				messageTable.removeItem(message);
-			}
-		});
+
+	private JMSSubscriber newSubscriber(JMSTopic topic) {
+		JMSSubscriber subscriber = jmsSubscriberFactory.newSubscriber(topic, new MessageBuffer());
+		subscriber.setSpillToDisk(spillToDisk);
+		return subscriber;
 	}
 
 	private void populateTopicTable(final List<JMSTopic> topics) {
 		final List<JMSSubscriber> entries = CollectionFactory.newArrayList();
 		if(topics != null) {
 			for (JMSTopic t : topics) {
-				entries.add(jmsSubscriberFactory.newSubscriber(t, new MessageBuffer()));
+				entries.add(newSubscriber(t));
 			}
 		}
 		
@@ -441,6 +598,7 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 			final JMSSubscriber item = subscriberTable.getRowItem(rows[i]);			
 			if(item != null) {
 				item.setActive(false);
+				item.dispose();
 				subscriberTable.removeItem(item);
 				config.removeTopicSubscriber((JMSTopic)item.getDestination());
 			}
@@ -523,7 +681,7 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 					
 					JMSSubscriber subscriber = subscriberTable.getItemForDestination(topic); 
 					if(subscriber == null) {
-						subscriber = jmsSubscriberFactory.newSubscriber(topic, new MessageBuffer());
+						subscriber = newSubscriber(topic);
 						subscriber.setActive(true);
 						subscriberTable.addItem(subscriber);
 						config.addTopicSubscriber((JMSTopic)subscriber.getDestination());
@@ -600,18 +758,4 @@ public class TopicSubscriberTabPanel extends JSplitPane implements UITab,Message
 	public ConnectionState[] getUITabEnabledStates() {
 		return new ConnectionState[] {ConnectionState.CONNECTED};
 	}
-	
-	private class MessageEventListener implements EventListener<MessageEvent> {
-		public void processEvent(MessageEvent event) {
-			switch(event.getId()) {
-			case MESSAGE_RECEIVED:
-				addMessageToTable((Message)event.getInfo());
-				break;
-				
-			case MESSAGE_DISCARDED:
-				removeMessageFromTable((Message)event.getInfo());
-				break;
-			}
-		}
-	}
 }
@@ -1,22 +1,26 @@
 package nl.queuemanager.ui.message;
 
-import com.google.common.base.Strings;
 import com.google.common.eventbus.Subscribe;
 import nl.queuemanager.core.Pair;
 import nl.queuemanager.ui.GlobalHighlightEvent;
+import nl.queuemanager.ui.MessageQuery;
 import nl.queuemanager.ui.util.HighlighterSupport;
 
+/**
+ * Highlights the pairs that contain one of the plain search terms of the global search,
+ * with the same case insensitive matching as the message search.
+ */
 public final class PairValueHighlighter extends HighlighterSupport<Pair<?, ?>> {
-	private String searchTerm = "";
+	private volatile MessageQuery query = MessageQuery.text(null);
 
 	@Subscribe
 	public void onGlobalHighlightEvent(GlobalHighlightEvent e) {
-		searchTerm = e.getHighlightString();
+		query = MessageQuery.parseLenient(e.getHighlightString());
 		resetHighlights();
 	}
 
 	@Override
 	public boolean shouldHighlight(Pair<?, ?> obj) {
-		return obj != null && !Strings.isNullOrEmpty(searchTerm) && obj.toString().toLowerCase().contains(searchTerm.toLowerCase());
+		return obj != null && query.containsTerm(obj.toString());
 	}
-}
\ No newline at end of file
+}
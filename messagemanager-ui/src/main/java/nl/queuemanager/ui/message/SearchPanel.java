@@ -2,7 +2,9 @@ package nl.queuemanager.ui.message;
 
 import com.google.common.eventbus.EventBus;
 import com.google.common.eventbus.Subscribe;
+import com.google.common.html.HtmlEscapers;
 import nl.queuemanager.ui.GlobalHighlightEvent;
+import nl.queuemanager.ui.MessageQuery;
 import nl.queuemanager.ui.MessagesTable;
 import nl.queuemanager.ui.SearchModeChangedEvent;
 import nl.queuemanager.ui.util.DocumentAdapter;
@@ -16,6 +18,7 @@ import java.awt.*;
 import java.awt.event.FocusAdapter;
 import java.awt.event.FocusEvent;
 import java.awt.event.ItemEvent;
+import java.text.ParseException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -24,6 +27,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SearchPanel extends JPanel {
 
+    private static final String QUERY_HELP = "<html>Search for words or \"some words\", or use a query:<br>"
+            + "prop:orderType=X &nbsp; header:JMSType=order &nbsp; body~/regex/i<br>"
+            + "xpath:/order/id=123 &nbsp; json:$.amount&gt;1000<br>"
+            + "Combine terms with OR, exclude them with - and group them with ( )</html>";
+
     private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
     private ScheduledFuture<?> scheduledSearchTermPublisher;
     private ScheduledFuture<?> searchResultStatusUpdater;
@@ -39,6 +47,7 @@ public class SearchPanel extends JPanel {
         searchField.setName("MessageSearchField");
         searchField.setMaximumSize(new Dimension(Integer.MAX_VALUE, searchField.getPreferredSize().height)); // make it as wide as possible
         searchField.putClientProperty("JTextField.variant", "search");
+        searchField.setToolTipText(QUERY_HELP);
 
         // Add ghost text in title case
         final String GHOST_TEXT = "Type to Search";
@@ -165,11 +174,12 @@ public class SearchPanel extends JPanel {
     // Send the search text to the event bus, the various highlighers subscribe to this event
     // NOTE: Even if this event is published on the TopicSubscriber,
     // the event will be handled by the Highlighters on the Queue Browser as well and vice versa.
-    // Doubt it harms but would require deeper changes if we want to avoid this.
+    // Tables that are not showing defer evaluating the highlights until they are shown.
     private void publishSearchText(Document document, JTextField searchField, EventBus eventBus) {
         try {
             int length = document.getLength();
             String text = document.getText(0, length);
+            updateQueryTooltip(searchField, text);
             eventBus.post(new GlobalHighlightEvent(searchField, text));
 
             startSearchResultStatusUpdater();
@@ -178,6 +188,19 @@ public class SearchPanel extends JPanel {
         }
     }
 
+    // Explain why the text is searched for as a whole when it is not a valid query
+    private void updateQueryTooltip(JTextField searchField, String text) {
+        String tooltip = QUERY_HELP;
+        try {
+            MessageQuery.parse(text);
+        } catch (ParseException e) {
+            tooltip = "<html>Not a valid query, searching for the text as a whole:<br>"
+                    + HtmlEscapers.htmlEscaper().escape(e.getMessage()) + "</html>";
+        }
+        final String newTooltip = tooltip;
+        SwingUtilities.invokeLater(() -> searchField.setToolTipText(newTooltip));
+    }
+
     private void cancelSearchResultStatusUpdater() {
         if(searchResultStatusUpdater != null && !searchResultStatusUpdater.isDone()) {
             searchResultStatusUpdater.cancel(false);
@@ -20,6 +20,7 @@ class GeneralSettingsPanel extends JPanel implements SettingsPanel {
 	private JIntegerField autoRefreshIntervalField;
 	private JIntegerField maxBufferedMessagesField;
 	private JTextField txtLicenseKey;
+	private JCheckBox browseHeadersOnlyCheckBox;
 	private JComboBox<LookAndFeelInfo> lafCombo;
 	private boolean termsConfirmed = false;
 	
@@ -30,9 +31,9 @@ class GeneralSettingsPanel extends JPanel implements SettingsPanel {
 		
 		GridBagLayout gridBagLayout = new GridBagLayout();
 		gridBagLayout.columnWidths = new int[]{0, 0, 0};
-		gridBagLayout.rowHeights = new int[]{0, 0, 0, 0};
+		gridBagLayout.rowHeights = new int[]{0, 0, 0, 0, 0, 0};
 		gridBagLayout.columnWeights = new double[]{0.0, 1.0, Double.MIN_VALUE};
-		gridBagLayout.rowWeights = new double[]{0.0, 0.0, 0.0, Double.MIN_VALUE};
+		gridBagLayout.rowWeights = new double[]{0.0, 0.0, 0.0, 0.0, 0.0, Double.MIN_VALUE};
 		setLayout(gridBagLayout);
 		
 		JLabel autoRefreshIntervalLabel = new JLabel("Message Count Refresh Interval (ms):");
@@ -110,6 +111,24 @@ class GeneralSettingsPanel extends JPanel implements SettingsPanel {
 		gbc_txtLicenseKey.gridy = 3;
 		add(txtLicenseKey, gbc_txtLicenseKey);
 		txtLicenseKey.setColumns(10);
+		
+		JLabel lblBrowseHeadersOnly = new JLabel("Browse Message Headers Only:");
+		lblBrowseHeadersOnly.setToolTipText("Keep only headers and properties when browsing queues, load the body when a message is selected");
+		GridBagConstraints gbc_lblBrowseHeadersOnly = new GridBagConstraints();
+		gbc_lblBrowseHeadersOnly.anchor = GridBagConstraints.EAST;
+		gbc_lblBrowseHeadersOnly.insets = new Insets(0, 0, 5, 5);
+		gbc_lblBrowseHeadersOnly.gridx = 0;
+		gbc_lblBrowseHeadersOnly.gridy = 4;
+		add(lblBrowseHeadersOnly, gbc_lblBrowseHeadersOnly);
+		
+		browseHeadersOnlyCheckBox = new JCheckBox();
+		lblBrowseHeadersOnly.setLabelFor(browseHeadersOnlyCheckBox);
+		GridBagConstraints gbc_browseHeadersOnlyCheckBox = new GridBagConstraints();
+		gbc_browseHeadersOnlyCheckBox.anchor = GridBagConstraints.WEST;
+		gbc_browseHeadersOnlyCheckBox.insets = new Insets(0, 0, 5, 0);
+		gbc_browseHeadersOnlyCheckBox.gridx = 1;
+		gbc_browseHeadersOnlyCheckBox.gridy = 4;
+		add(browseHeadersOnlyCheckBox, gbc_browseHeadersOnlyCheckBox);
 	}
 	
 	private static class LAFRenderer extends DefaultListCellRenderer {
@@ -133,6 +152,10 @@ class GeneralSettingsPanel extends JPanel implements SettingsPanel {
 				CoreConfiguration.PREF_MAX_BUFFERED_MSG,
 				CoreConfiguration.DEFAULT_MAX_BUFFERED_MSG)));
 
+		browseHeadersOnlyCheckBox.setSelected(Boolean.parseBoolean(config.getUserPref(
+				CoreConfiguration.PREF_BROWSE_HEADERS_ONLY,
+				CoreConfiguration.DEFAULT_BROWSE_HEADERS_ONLY)));
+
 		String lafClassName = config.getUserPref(
 				CoreConfiguration.PREF_LOOK_AND_FEEL,
 				UIManager.getSystemLookAndFeelClassName());
@@ -173,6 +196,7 @@ class GeneralSettingsPanel extends JPanel implements SettingsPanel {
 
 		config.setUserPref(CoreConfiguration.PREF_AUTOREFRESH_INTERVAL, Integer.toString(autoRefreshIntervalField.getValue()));
 		config.setUserPref(CoreConfiguration.PREF_MAX_BUFFERED_MSG, Integer.toString(maxBufferedMessagesField.getValue()));
+		config.setUserPref(CoreConfiguration.PREF_BROWSE_HEADERS_ONLY, Boolean.toString(browseHeadersOnlyCheckBox.isSelected()));
 
 		final String previousLicenseKey = config.getUserPref(CoreConfiguration.PREF_LICENSE_KEY, "");
 		final String licenseKey = txtLicenseKey.getText();
@@ -153,7 +153,9 @@ class StatusBarManipulator {
 					getStatusBar().setText(task.getStatus());
 					getStatusBar().setBusy(true);
 					
-					if(task.getProgressMaximum() != 1) {
+					if(task.getProgressMaximum() == Task.PROGRESS_UNKNOWN) {
+						getStatusBar().enableIndeterminateProgressBar();
+					} else if(task.getProgressMaximum() != 1) {
 						getStatusBar().enableProgressBar(0, task.getProgressMaximum());
 					}
 					
@@ -174,7 +176,7 @@ class StatusBarManipulator {
 					getStatusBar().setText(task.getStatus());
 					getStatusBar().setBusy(true);
 					
-					if(task.getProgressMaximum() != 1) {
+					if(task.getProgressMaximum() != 1 && task.getProgressMaximum() != Task.PROGRESS_UNKNOWN) {
 						getStatusBar().setProgressAmount((Integer)event.getInfo());
 					}
 				}
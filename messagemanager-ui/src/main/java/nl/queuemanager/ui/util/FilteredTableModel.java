@@ -20,27 +20,47 @@ import nl.queuemanager.core.util.CollectionFactory;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableModel;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * A tablemodel that is able to filter it's backing model and only display
  * the rows that match the filter.
+ * <p>
+ * The index is kept in int arrays and maintained incrementally. Inserted rows are placed
+ * with a binary search, so a change to the backing model costs O(log n) comparisons and
+ * a copy of the index instead of filtering and sorting all rows again.
  * 
  * @author Gerco Dries (gdr@progaia-rs.nl)
  *
  */
 public class FilteredTableModel<T extends Comparable<? super T>> implements TableModel, TableModelListener {
+	/**
+	 * When a change affects more rows than this, the listeners get a single event for the
+	 * whole table instead of an event for every row.
+	 */
+	static final int ROW_EVENT_LIMIT = 100;
+	
 	private final ListTableModel<T> realModel;
 	private final int filterColumn;
 	private final List<TableModelListener> listeners;
 	
 	private Comparator<T> comparator; 
 	private String filterValue;
-	private String regex;
-	private int[] indexMap;
+	private Pattern filterPattern;
+	
+	/**
+	 * The indexes in the backing model of the rows that meet the filter criteria, in sorted order.
+	 */
+	private int[] indexMap = new int[0];
+	
+	/**
+	 * The inverse of indexMap: the filtered index for every row of the backing model,
+	 * -1 for rows that do not meet the filter criteria.
+	 */
+	private int[] reverseMap = new int[0];
 	
 	/**
 	 * Create a new FilteredTableModel with the given model as the backing
@@ -64,30 +84,22 @@ public class FilteredTableModel<T extends Comparable<? super T>> implements Tabl
 	 * event to indicate that.
 	 */
 	private void rebuildIndex() {
-		ArrayList<Integer> tempMap = CollectionFactory.newArrayList();
+		final int rowCount = realModel.getRowCount();
 		
-		// Build a list of rows that meet the filter criteria
-		for(int realIndex=0; realIndex < realModel.getRowCount(); realIndex++) {
+		// Collect the rows that meet the filter criteria and sort them
+		int[] rows = new int[rowCount];
+		int count = 0;
+		for(int realIndex=0; realIndex < rowCount; realIndex++) {
 			if(accept(realIndex))
-				tempMap.add(realIndex);
+				rows[count++] = realIndex;
 		}
+		rows = Arrays.copyOf(rows, count);
+		sortRows(rows);
 		
-		// Sort the indexes based on comparing the real objects
-		Collections.sort(tempMap, new Comparator<Integer>() {
-			public int compare(Integer o1, Integer o2) {
-				return comparator.compare(
-					realModel.getRowItem(o1),
-					realModel.getRowItem(o2));
-			}
-		});
-		
-		// Convert to array and set the new map as the indexmap
-		int[] newMap = new int[tempMap.size()];
-		int newIndex = 0;
-		for(Integer realIndex: tempMap) {
-			newMap[newIndex++] = realIndex;
-		}
-		indexMap = newMap;
+		indexMap = rows;
+		reverseMap = new int[rowCount];
+		Arrays.fill(reverseMap, -1);
+		updateReverseMap(0);
 	}
 	
 	/**
@@ -96,7 +108,7 @@ public class FilteredTableModel<T extends Comparable<? super T>> implements Tabl
 	 * @param row The index from the backing model to check. 
 	 */ 
 	protected boolean accept(int row) {
-		if(regex == null)
+		if(filterPattern == null)
 			return true;
 		
 		Object value = realModel.getValueAt(row, filterColumn);
@@ -104,39 +116,43 @@ public class FilteredTableModel<T extends Comparable<? super T>> implements Tabl
 		if(value == null)
 			return false;
 		
-		// Convert the filter with wildcards to a regex
-		return value.toString().toLowerCase().matches(regex);
+		return filterPattern.matcher(value.toString()).lookingAt();
 	}
 	
 	/**
-	 * Sets the Filter value and compiles it to a regular expression.
+	 * Sets the Filter value and compiles it to a regular expression. The filter matches
+	 * values that start with it, ignoring case. A * in the filter matches any number of
+	 * characters and a ? any single character.
 	 * 
 	 * @param filterValue
 	 */
 	public void setFilterValue(String filterValue) {
-		this.filterValue = (filterValue == null ? null : filterValue);
-		this.regex = filterValue == null ? null : filterValue.toLowerCase();
-		
-		// Escape all characters that are to be taken literally in the filter
-		if(regex != null) {
-			regex = regex.replace("\\", "\\\\");
-			regex = regex.replace("[", "\\[");
-			regex = regex.replace("]", "\\]");
-			regex = regex.replace("^", "\\^");
-			regex = regex.replace("$", "\\$");
-			regex = regex.replace("{", "\\{");
-			regex = regex.replace("}", "\\}");
-			regex = regex.replace(".", "\\.");
-			regex = regex.replace("*", ".*");
-			regex = regex.replace("?", ".");
-			
-			// startsWith
-			regex = regex + ".*";
-		}
+		this.filterValue = filterValue;
+		this.filterPattern = filterValue == null ? null : compileFilter(filterValue);
 		
 		rebuildIndex();
 		fireTableChanged();
 	}
+	
+	private static Pattern compileFilter(String filterValue) {
+		StringBuilder regex = new StringBuilder();
+		StringBuilder literal = new StringBuilder();
+		for(char c: filterValue.toCharArray()) {
+			if(c == '*' || c == '?') {
+				if(literal.length() > 0) {
+					regex.append(Pattern.quote(literal.toString()));
+					literal.setLength(0);
+				}
+				regex.append(c == '*' ? ".*" : ".");
+			} else {
+				literal.append(c);
+			}
+		}
+		if(literal.length() > 0) {
+			regex.append(Pattern.quote(literal.toString()));
+		}
+		return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.DOTALL);
+	}
 
 	/**
 	 * Return the original filter value (not the regular expression)
@@ -178,13 +194,11 @@ public class FilteredTableModel<T extends Comparable<? super T>> implements Tabl
 	 * @return
 	 */
 	public int getMappedIndexFor(int row) {
-		for(int mappedIndex=0; mappedIndex < indexMap.length; mappedIndex++) {
-			if(indexMap[mappedIndex] == row) {
-				return mappedIndex;
-			}
+		if(row < 0 || row >= reverseMap.length) {
+			return -1;
 		}
 		
-		return -1;
+		return reverseMap[row];
 	}
 	
 	/**
@@ -237,39 +251,370 @@ public class FilteredTableModel<T extends Comparable<? super T>> implements Tabl
 	}
 	
 	/**
-	 * Underlying model changed. Rebuid the index if required and warn the listeners. 
+	 * Underlying model changed. Update the index and warn the listeners. 
 	 */
 	public void tableChanged(TableModelEvent e) {
-		// Is this a whole table refresh or row add/remove? Rebuild the index. 
-		if(e.getType() == TableModelEvent.INSERT || e.getType() == TableModelEvent.DELETE
+		// Is this a whole table refresh? Rebuild the index. 
+		if(e.getFirstRow() == TableModelEvent.HEADER_ROW
 		||(e.getFirstRow() == 0 && e.getLastRow() > realModel.getRowCount())) {
 			rebuildIndex();
 			fireTableChanged();
 			return;
 		}
 		
-		// Try to determine whether the changed rows are included in the filter
-		int firstRow = getMappedIndexFor(e.getFirstRow());
-		int lastRow = getMappedIndexFor(e.getLastRow());
-				
-		// Event is entirely within the filtered results, map the event
-		if(firstRow != -1 && lastRow != -1) {
-			TableModelEvent event = new TableModelEvent(this, firstRow, lastRow);
-			fireTableChanged(event);
+		switch(e.getType()) {
+		case TableModelEvent.INSERT:
+			rowsInserted(e.getFirstRow(), e.getLastRow());
+			break;
+		case TableModelEvent.DELETE:
+			rowsDeleted(e.getFirstRow(), e.getLastRow());
+			break;
+		default:
+			rowsUpdated(e.getFirstRow(), Math.min(e.getLastRow(), reverseMap.length - 1));
+			break;
+		}
+	}
+	
+	/**
+	 * Rows were inserted into the backing model. Place the new rows that meet the filter
+	 * criteria in the index and tell the listeners where they ended up.
+	 */
+	private void rowsInserted(int firstRow, int lastRow) {
+		final int count = lastRow - firstRow + 1;
+		
+		// Make room for the new rows
+		for(int i = 0; i < indexMap.length; i++) {
+			if(indexMap[i] >= firstRow) {
+				indexMap[i] += count;
+			}
+		}
+		int[] newReverseMap = new int[reverseMap.length + count];
+		System.arraycopy(reverseMap, 0, newReverseMap, 0, firstRow);
+		System.arraycopy(reverseMap, firstRow, newReverseMap, firstRow + count, reverseMap.length - firstRow);
+		Arrays.fill(newReverseMap, firstRow, firstRow + count, -1);
+		reverseMap = newReverseMap;
+		
+		int[] inserted = insertRows(acceptedRows(firstRow, lastRow));
+		fireRowEvents(new int[0], inserted, new int[0]);
+	}
+	
+	/**
+	 * Rows were deleted from the backing model. Tell the listeners which of the rows they
+	 * displayed have disappeared.
+	 */
+	private void rowsDeleted(int firstRow, int lastRow) {
+		lastRow = Math.min(lastRow, reverseMap.length - 1);
+		final int count = lastRow - firstRow + 1;
+		
+		int[] deleted = new int[count];
+		int deletedCount = 0;
+		for(int row = firstRow; row <= lastRow; row++) {
+			if(reverseMap[row] != -1) {
+				deleted[deletedCount++] = reverseMap[row];
+			}
+		}
+		deleted = Arrays.copyOf(deleted, deletedCount);
+		Arrays.sort(deleted);
+		removePositions(deleted);
+		
+		// Close the gap the deleted rows left
+		for(int i = 0; i < indexMap.length; i++) {
+			if(indexMap[i] > lastRow) {
+				indexMap[i] -= count;
+			}
+		}
+		int[] newReverseMap = new int[reverseMap.length - count];
+		System.arraycopy(reverseMap, 0, newReverseMap, 0, firstRow);
+		System.arraycopy(reverseMap, lastRow + 1, newReverseMap, firstRow, reverseMap.length - lastRow - 1);
+		reverseMap = newReverseMap;
+		
+		fireRowEvents(deleted, new int[0], new int[0]);
+	}
+	
+	/**
+	 * Rows of the backing model were updated. They may have to be added to or removed from
+	 * the index, or move when they are no longer in order.
+	 */
+	private void rowsUpdated(int firstRow, int lastRow) {
+		if(lastRow < firstRow)
 			return;
+		
+		final int count = lastRow - firstRow + 1;
+		final boolean[] leaving = new boolean[count];
+		int[] staying = new int[count];
+		int[] entering = new int[count];
+		int stayingCount = 0, enteringCount = 0;
+		
+		for(int row = firstRow; row <= lastRow; row++) {
+			boolean included = reverseMap[row] != -1;
+			boolean accepted = accept(row);
+			if(included && accepted) {
+				staying[stayingCount++] = row;
+			} else if(included) {
+				leaving[row - firstRow] = true;
+			} else if(accepted) {
+				entering[enteringCount++] = row;
+			}
+		}
+		staying = Arrays.copyOf(staying, stayingCount);
+		entering = Arrays.copyOf(entering, enteringCount);
+		
+		// Rows that are no longer in order with their neighbours are removed and inserted again
+		final boolean inOrder = isInOrder(staying, firstRow, leaving);
+		
+		int[] deleted = new int[count];
+		int deletedCount = 0;
+		for(int row = firstRow; row <= lastRow; row++) {
+			if(leaving[row - firstRow] || (!inOrder && reverseMap[row] != -1)) {
+				deleted[deletedCount++] = reverseMap[row];
+			}
+		}
+		deleted = Arrays.copyOf(deleted, deletedCount);
+		Arrays.sort(deleted);
+		removePositions(deleted);
+		
+		if(!inOrder) {
+			int[] rows = Arrays.copyOf(entering, entering.length + staying.length);
+			System.arraycopy(staying, 0, rows, entering.length, staying.length);
+			entering = rows;
+			staying = new int[0];
 		}
 		
-		// Event is entirely outside the filtered results. Ignore it.
-		if(firstRow == -1 && lastRow == -1) {
+		int[] inserted = insertRows(entering);
+		
+		int[] updated = new int[staying.length];
+		for(int i = 0; i < staying.length; i++) {
+			updated[i] = reverseMap[staying[i]];
+		}
+		Arrays.sort(updated);
+		
+		fireRowEvents(deleted, inserted, updated);
+	}
+	
+	/**
+	 * Whether the rows that stay in the index are still in order with their closest
+	 * neighbours that stay in the index. Rows that did not change are always in order
+	 * with each other, so this is enough to know that the whole index is in order.
+	 */
+	private boolean isInOrder(int[] staying, int firstRow, boolean[] leaving) {
+		for(int row: staying) {
+			int position = reverseMap[row];
+			
+			int previous = position - 1;
+			while(previous >= 0 && isLeaving(indexMap[previous], firstRow, leaving)) {
+				previous--;
+			}
+			if(previous >= 0 && compareRows(indexMap[previous], row) > 0)
+				return false;
+			
+			int next = position + 1;
+			while(next < indexMap.length && isLeaving(indexMap[next], firstRow, leaving)) {
+				next++;
+			}
+			if(next < indexMap.length && compareRows(row, indexMap[next]) > 0)
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean isLeaving(int row, int firstRow, boolean[] leaving) {
+		return row >= firstRow && row < firstRow + leaving.length && leaving[row - firstRow];
+	}
+	
+	/**
+	 * @return The rows in the range that meet the filter criteria
+	 */
+	private int[] acceptedRows(int firstRow, int lastRow) {
+		int[] rows = new int[lastRow - firstRow + 1];
+		int count = 0;
+		for(int row = firstRow; row <= lastRow; row++) {
+			if(accept(row)) {
+				rows[count++] = row;
+			}
+		}
+		return Arrays.copyOf(rows, count);
+	}
+	
+	/**
+	 * Insert rows of the backing model into the index. The rows are sorted, then the
+	 * position of every row is found with a binary search and the index is copied once.
+	 * 
+	 * @return The positions of the inserted rows in the new index, ascending
+	 */
+	private int[] insertRows(int[] rows) {
+		if(rows.length == 0)
+			return rows;
+		
+		sortRows(rows);
+		
+		// Positions in the current index, ascending because the rows are sorted
+		int[] positions = new int[rows.length];
+		for(int i = 0; i < rows.length; i++) {
+			positions[i] = insertionPoint(rows[i], i == 0 ? 0 : positions[i-1]);
+		}
+		
+		int[] newMap = new int[indexMap.length + rows.length];
+		int from = 0;
+		for(int i = 0; i < rows.length; i++) {
+			System.arraycopy(indexMap, from, newMap, from + i, positions[i] - from);
+			from = positions[i];
+			positions[i] += i;
+			newMap[positions[i]] = rows[i];
+		}
+		System.arraycopy(indexMap, from, newMap, from + rows.length, indexMap.length - from);
+		indexMap = newMap;
+		
+		updateReverseMap(positions[0]);
+		return positions;
+	}
+	
+	/**
+	 * Remove positions from the index.
+	 * 
+	 * @param positions The positions to remove, ascending
+	 */
+	private void removePositions(int[] positions) {
+		if(positions.length == 0)
 			return;
+		
+		for(int position: positions) {
+			reverseMap[indexMap[position]] = -1;
 		}
 		
-		// Event is partially in the filtered results. fire whole table change	
-		if(firstRow == -1 || lastRow == -1) {
-			rebuildIndex();
+		int[] newMap = new int[indexMap.length - positions.length];
+		int from = 0;
+		for(int i = 0; i < positions.length; i++) {
+			System.arraycopy(indexMap, from, newMap, from - i, positions[i] - from);
+			from = positions[i] + 1;
+		}
+		System.arraycopy(indexMap, from, newMap, from - positions.length, indexMap.length - from);
+		indexMap = newMap;
+		
+		updateReverseMap(positions[0]);
+	}
+	
+	/**
+	 * Find the position in the index where a row belongs.
+	 * 
+	 * @param row The row of the backing model
+	 * @param from The first position to consider
+	 */
+	private int insertionPoint(int row, int from) {
+		int low = from;
+		int high = indexMap.length;
+		while(low < high) {
+			int mid = (low + high) >>> 1;
+			if(compareRows(indexMap[mid], row) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+	
+	private void updateReverseMap(int fromPosition) {
+		for(int i = fromPosition; i < indexMap.length; i++) {
+			reverseMap[indexMap[i]] = i;
+		}
+	}
+	
+	/**
+	 * Compare two rows of the backing model using the comparator. Equal rows are ordered
+	 * by their position in the backing model, so the order is always the same.
+	 */
+	private int compareRows(int row1, int row2) {
+		int result = comparator.compare(realModel.getRowItem(row1), realModel.getRowItem(row2));
+		return result != 0 ? result : Integer.compare(row1, row2);
+	}
+	
+	/**
+	 * Sort rows of the backing model with a merge sort, which needs no boxing.
+	 */
+	private void sortRows(int[] rows) {
+		if(rows.length > 1) {
+			mergeSort(rows, rows.clone(), 0, rows.length);
+		}
+	}
+	
+	private void mergeSort(int[] rows, int[] buffer, int from, int to) {
+		if(to - from <= 8) {
+			// Insertion sort for small ranges
+			for(int i = from + 1; i < to; i++) {
+				int row = rows[i];
+				int j = i - 1;
+				while(j >= from && compareRows(rows[j], row) > 0) {
+					rows[j + 1] = rows[j];
+					j--;
+				}
+				rows[j + 1] = row;
+			}
+			return;
+		}
+		
+		int mid = (from + to) >>> 1;
+		mergeSort(rows, buffer, from, mid);
+		mergeSort(rows, buffer, mid, to);
+		if(compareRows(rows[mid - 1], rows[mid]) <= 0)
+			return;
+		
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from, right = mid;
+		for(int i = from; i < to; i++) {
+			if(right >= to || (left < mid && compareRows(buffer[left], buffer[right]) <= 0)) {
+				rows[i] = buffer[left++];
+			} else {
+				rows[i] = buffer[right++];
+			}
+		}
+	}
+	
+	/**
+	 * Tell the listeners about changed rows. Deleted rows are in positions of the index
+	 * before the change, inserted and updated rows in positions after the change. Adjacent
+	 * rows are reported in a single event.
+	 */
+	private void fireRowEvents(int[] deleted, int[] inserted, int[] updated) {
+		if(deleted.length + inserted.length + updated.length > ROW_EVENT_LIMIT) {
 			fireTableChanged();
 			return;
 		}
+		
+		// Delete in descending order so the remaining indexes stay valid
+		for(int last = deleted.length - 1; last >= 0;) {
+			int first = last;
+			while(first > 0 && deleted[first - 1] == deleted[first] - 1) {
+				first--;
+			}
+			fireTableChanged(new TableModelEvent(this, deleted[first], deleted[last], 
+					TableModelEvent.ALL_COLUMNS, TableModelEvent.DELETE));
+			last = first - 1;
+		}
+		
+		// Insert in ascending order, every index is the final position of the row
+		for(int first = 0; first < inserted.length;) {
+			int last = endOfRange(inserted, first);
+			fireTableChanged(new TableModelEvent(this, inserted[first], inserted[last], 
+					TableModelEvent.ALL_COLUMNS, TableModelEvent.INSERT));
+			first = last + 1;
+		}
+		
+		for(int first = 0; first < updated.length;) {
+			int last = endOfRange(updated, first);
+			fireTableChanged(new TableModelEvent(this, updated[first], updated[last]));
+			first = last + 1;
+		}
+	}
+	
+	/**
+	 * @return The position of the last index in the run of consecutive indexes that starts at first
+	 */
+	private static int endOfRange(int[] indexes, int first) {
+		int last = first;
+		while(last + 1 < indexes.length && indexes[last + 1] == indexes[last] + 1) {
+			last++;
+		}
+		return last;
 	}
 	
 	protected void fireTableChanged() {
@@ -1,49 +1,139 @@
 package nl.queuemanager.ui.util;
 
+import com.google.common.collect.MapMaker;
+
+import javax.swing.*;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
+import java.awt.event.HierarchyEvent;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Keeps track of the rows of a table that should be highlighted.
+ * <p>
+ * Rows are evaluated on a background thread and the results are delivered to the EDT in
+ * chunks, after which the listeners of this model receive an UPDATE event. While more chunks
+ * of the same evaluation follow, {@link #isAdjusting()} is true during that event. Every reset
+ * starts a new generation, which cancels the evaluation of older generations. When the
+ * table is not showing, a reset is deferred until it is shown again. Small sets of rows
+ * are evaluated on the EDT right away.
+ */
 public class HighlightsModel<T> implements TableModelListener, HighlighterListener {
+	/**
+	 * Number of rows evaluated on the background thread before the results are delivered.
+	 */
+	static final int CHUNK_SIZE = 500;
+
+	/**
+	 * Up to this many rows are evaluated on the EDT without involving the background thread.
+	 */
+	static final int SYNCHRONOUS_LIMIT = 50;
+
+	private static final Executor defaultExecutor = Executors.newSingleThreadExecutor(
+			runnable -> {
+				Thread thread = new Thread(runnable, "Highlighter");
+				thread.setDaemon(true);
+				return thread;
+			});
+
 	private final WeakReference<ListTableModel<? extends T>> tableModel;
 	private final Highlighter<T> highlighter;
-	private final ArrayList<Boolean> highlights = new ArrayList<>();
+	private final Executor executor;
+
+	/**
+	 * The highlighted rows, by identity of their items. Only accessed on the EDT.
+	 */
+	private final Set<Object> highlighted = Collections.newSetFromMap(new MapMaker().weakKeys().<Object, Boolean>makeMap());
+	private final AtomicLong generation = new AtomicLong();
+	private JComponent component;
+	private boolean stale;
+	
+	/**
+	 * Set while a table event is processed. The listeners receive that event after the
+	 * highlights are updated, so they need no separate event for highlights evaluated
+	 * on the EDT.
+	 */
+	private boolean processingTableEvent;
+
+	/**
+	 * Set while the listeners receive an event for a chunk that is followed by more chunks.
+	 */
+	private boolean adjusting;
 
 	public HighlightsModel(ListTableModel<? extends T> tableModel, Highlighter<T> highlighter) {
+		this(tableModel, highlighter, defaultExecutor);
+	}
+
+	HighlightsModel(ListTableModel<? extends T> tableModel, Highlighter<T> highlighter, Executor executor) {
 		this.tableModel = new WeakReference<ListTableModel<? extends T>>(tableModel);
 		this.highlighter = highlighter;
+		this.executor = executor;
 		highlighter.addHighlighterListener(this);
 		tableModel.addTableModelListener(this);
-		highlights.ensureCapacity(tableModel.getRowCount());
 	}
-	
+
 	public static <T> HighlightsModel<T> with(ListTableModel<? extends T> tableModel, Highlighter<T> highlighter) {
 		return new HighlightsModel<>(tableModel, highlighter);
 	}
-	
+
+	/**
+	 * Defer evaluating all rows while the component is not showing.
+	 *
+	 * @param component The component that displays the table
+	 */
+	public void attachTo(final JComponent component) {
+		this.component = component;
+		component.addHierarchyListener(e -> {
+			if((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && component.isShowing() && stale) {
+				resetHighlights();
+			}
+		});
+	}
+
 	public boolean isHighlighted(int row) {
-		if(row < highlights.size())
-			return highlights.get(row);
-		return false;
+		ListTableModel<? extends T> model = tableModel.get();
+		if(model == null || row < 0 || row >= model.getRowCount())
+			return false;
+		return highlighted.contains(model.getRowItem(row));
 	}
-	
+
+	/**
+	 * Evaluate all rows again. May be called on any thread.
+	 */
 	@Override
 	public void resetHighlights() {
-		if(tableModel.get() != null) {
-			int rowCount = tableModel.get().getRowCount();
-			if (rowCount > 0) {
-				tableModel.get().fireTableRowsUpdated(0, rowCount - 1);
-			}
+		final long current = generation.incrementAndGet();
+		if(SwingUtilities.isEventDispatchThread()) {
+			evaluateAll(current);
+		} else {
+			SwingUtilities.invokeLater(() -> evaluateAll(current));
 		}
 	}
 
+	/**
+	 * Whether the current UPDATE event is followed by more results of the same evaluation.
+	 * Listeners can skip expensive work, like sorting the table, until the last event.
+	 */
+	public boolean isAdjusting() {
+		return adjusting;
+	}
+
 	public int getHighlightedRowCount() {
+		ListTableModel<? extends T> model = tableModel.get();
+		if(model == null)
+			return 0;
+
 		// return the number of rows that are highlighted
 		int count = 0;
-		for (int i=0; i<highlights.size(); i++) {
-			if(highlights.get(i)) {
+		for (int i=0; i<model.getRowCount(); i++) {
+			if(highlighted.contains(model.getRowItem(i))) {
 				count++;
 			}
 		}
@@ -54,47 +144,144 @@ public class HighlightsModel<T> implements TableModelListener, HighlighterListen
 	public void tableChanged(TableModelEvent e) {
 		@SuppressWarnings("unchecked")
 		ListTableModel<T> tableModel = (ListTableModel<T>) e.getSource();
+		processingTableEvent = true;
+		try {
+			updateHighlights(tableModel, e);
+		} finally {
+			processingTableEvent = false;
+		}
+
+		// call all listeners, so they can update their state and i.e. re-sort the table
+		fireTableChanged(e);
+	}
+
+	private void updateHighlights(ListTableModel<T> tableModel, TableModelEvent e) {
 		switch(e.getType()) {
 		case TableModelEvent.INSERT:
-			for (int i=e.getFirstRow(); i<=e.getLastRow(); i++) {
-				highlights.add(i, highlighter.shouldHighlight(tableModel.getRowItem(i)));
+			if(!stale) {
+				evaluate(generation.get(), items(tableModel, e.getFirstRow(), e.getLastRow()));
 			}
 			break;
 		case TableModelEvent.DELETE:
-			for (int i=e.getFirstRow(); i<=e.getLastRow(); i++) {
-				highlights.remove(i);
-			}
+			// Highlights of removed items are forgotten when the items are collected
 			break;
 		case TableModelEvent.UPDATE:
-			int first = e.getFirstRow();
-			int last = e.getLastRow();
-			
-			if(first == 0 && last > tableModel.getRowCount()) {
-				highlights.clear();
-				highlights.ensureCapacity(tableModel.getRowCount());
-				last = tableModel.getRowCount()-1;
+			if(e.getFirstRow() == TableModelEvent.HEADER_ROW)
+				break;
+
+			if(e.getFirstRow() == 0 && e.getLastRow() >= tableModel.getRowCount()) {
+				// All data was replaced, anything still being evaluated is obsolete
+				evaluateAll(generation.incrementAndGet());
+			} else if(!stale) {
+				evaluate(generation.get(), items(tableModel, e.getFirstRow(), e.getLastRow()));
+			}
+			break;
+		}
+	}
+
+	private void evaluateAll(long current) {
+		if(current != generation.get())
+			return;
+
+		ListTableModel<? extends T> model = tableModel.get();
+		if(model == null)
+			return;
+
+		if(component != null && !component.isShowing()) {
+			stale = true;
+			return;
+		}
+
+		stale = false;
+		evaluate(current, items(model, 0, model.getRowCount()-1));
+	}
+
+	/**
+	 * Evaluate the items on the EDT when there are only a few, otherwise on the background
+	 * thread in chunks. Results are discarded when a newer generation has started.
+	 */
+	private void evaluate(final long current, final List<T> items) {
+		if(items.isEmpty())
+			return;
+
+		if(items.size() <= SYNCHRONOUS_LIMIT) {
+			if(apply(items, shouldHighlight(items))) {
+				fireHighlightsChanged(false);
 			}
-			
-			if(tableModel.getRowCount() > 0) {
-				for (int i=first; i<=last; i++) {
-					T item = tableModel.getRowItem(i);
-					if(item != null) {
-						if(highlights.size() <= i) {
-							highlights.add(i, highlighter.shouldHighlight(item));
-						} else {
-							highlights.set(i, highlighter.shouldHighlight(item));
+			return;
+		}
+
+		// Whether any chunk of this evaluation changed the highlights, only accessed on the EDT
+		final boolean[] changedInEvaluation = new boolean[1];
+		executor.execute(() -> {
+			for(int from = 0; from < items.size(); from += CHUNK_SIZE) {
+				if(current != generation.get())
+					return;
+
+				final List<T> chunk = items.subList(from, Math.min(items.size(), from + CHUNK_SIZE));
+				final boolean[] results = shouldHighlight(chunk);
+				final boolean more = from + CHUNK_SIZE < items.size();
+				SwingUtilities.invokeLater(() -> {
+					if(current == generation.get()) {
+						// The last chunk fires an event when any chunk of the evaluation changed something
+						final boolean changed = apply(chunk, results);
+						changedInEvaluation[0] |= changed;
+						if(more ? changed : changedInEvaluation[0]) {
+							fireHighlightsChanged(more);
 						}
 					}
-				}
+				});
 			}
-			break;
+		});
+	}
+
+	private boolean[] shouldHighlight(List<T> items) {
+		final boolean[] results = new boolean[items.size()];
+		for(int i = 0; i < results.length; i++) {
+			results[i] = highlighter.shouldHighlight(items.get(i));
 		}
+		return results;
+	}
 
-		// now the highlights are up to date, so we can call all listeners
-		// call all listeners, so they can update their state and i.e. re-sort the table
-		for (TableModelListener listener : listeners) {
-			listener.tableChanged(e);
+	/**
+	 * @return Whether any highlight changed
+	 */
+	private boolean apply(List<T> items, boolean[] results) {
+		boolean changed = false;
+		for(int i = 0; i < results.length; i++) {
+			changed |= results[i] ? highlighted.add(items.get(i)) : highlighted.remove(items.get(i));
+		}
+		return changed;
+	}
+
+	/**
+	 * @param more Whether more chunks of the same evaluation follow
+	 */
+	private void fireHighlightsChanged(boolean more) {
+		ListTableModel<? extends T> model = tableModel.get();
+		if(model != null && !processingTableEvent) {
+			adjusting = more;
+			try {
+				fireTableChanged(new TableModelEvent(model));
+			} finally {
+				adjusting = false;
+			}
+		}
+	}
+
+	/**
+	 * Copy the items of a range of rows, so they can be evaluated off the EDT.
+	 */
+	private List<T> items(ListTableModel<? extends T> model, int first, int last) {
+		last = Math.min(last, model.getRowCount()-1);
+		final List<T> items = new ArrayList<T>(Math.max(0, last - first + 1));
+		for(int i = Math.max(0, first); i <= last; i++) {
+			T item = model.getRowItem(i);
+			if(item != null) {
+				items.add(item);
+			}
 		}
+		return items;
 	}
 
 	private List<TableModelListener> listeners = new ArrayList<>();
@@ -106,5 +293,11 @@ public class HighlightsModel<T> implements TableModelListener, HighlighterListen
 	public void removeTableModelListener(TableModelListener listener) {
 		listeners.remove(listener);
 	}
-	
+
+	private void fireTableChanged(TableModelEvent e) {
+		for (TableModelListener listener : listeners) {
+			listener.tableChanged(e);
+		}
+	}
+
 }
@@ -101,6 +101,15 @@ public class JStatusBar extends JPanel {
 	public void enableProgressBar(int min, int max) {
 		progressBar.setMinimum(min);
 		progressBar.setMaximum(max);			
+		progressBar.setIndeterminate(false);
+		progressBar.setVisible(true);
+	}
+	
+	/**
+	 * Show a progress bar for progress of which the maximum is not known.
+	 */
+	public void enableIndeterminateProgressBar() {
+		progressBar.setIndeterminate(true);
 		progressBar.setVisible(true);
 	}
 	
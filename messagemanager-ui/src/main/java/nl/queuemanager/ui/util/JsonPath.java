@@ -0,0 +1,374 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled JSONPath expression. Supports the root ($), child members (.name and
+ * ['name']), array indexes ([0], negative indexes count from the end), wildcards (.* and
+ * [*]) and recursive descent (..name). Filter expressions and slices are not supported.
+ * <p>
+ * Documents are parsed with {@link #parse(String)} into maps, lists, strings,
+ * BigDecimals, booleans and nulls.
+ *
+ * @author gerco
+ *
+ */
+public final class JsonPath {
+	private static final String WILDCARD = "*";
+
+	private final String expression;
+	private final List<Segment> segments;
+
+	private JsonPath(String expression, List<Segment> segments) {
+		this.expression = expression;
+		this.segments = segments;
+	}
+
+	/**
+	 * @param expression The JSONPath expression
+	 * @return The compiled expression
+	 * @throws IllegalArgumentException When the expression is not valid
+	 */
+	public static JsonPath compile(String expression) {
+		final List<Segment> segments = new ArrayList<Segment>();
+		final String path = expression.trim();
+		if(!path.startsWith("$"))
+			throw new IllegalArgumentException("A JSONPath expression must start with $: " + expression);
+
+		int i = 1;
+		while(i < path.length()) {
+			final char c = path.charAt(i);
+			if(c == '.') {
+				boolean recursive = i + 1 < path.length() && path.charAt(i + 1) == '.';
+				int start = recursive ? i + 2 : i + 1;
+				int end = start;
+				while(end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+					end++;
+				}
+				if(end == start)
+					throw new IllegalArgumentException("Missing member name at position " + start + ": " + expression);
+				segments.add(new Segment(path.substring(start, end), -1, recursive));
+				i = end;
+			} else if(c == '[') {
+				int end = closingBracket(path, i);
+				if(end < 0)
+					throw new IllegalArgumentException("Missing ] for [ at position " + i + ": " + expression);
+				segments.add(bracketSegment(path.substring(i + 1, end).trim(), expression));
+				i = end + 1;
+			} else {
+				throw new IllegalArgumentException("Unexpected '" + c + "' at position " + i + ": " + expression);
+			}
+		}
+
+		return new JsonPath(expression, segments);
+	}
+
+	private static int closingBracket(String path, int open) {
+		char quote = 0;
+		for(int i = open + 1; i < path.length(); i++) {
+			final char c = path.charAt(i);
+			if(quote != 0) {
+				if(c == quote)
+					quote = 0;
+			} else if(c == '\'' || c == '"') {
+				quote = c;
+			} else if(c == ']') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static Segment bracketSegment(String content, String expression) {
+		if(content.equals(WILDCARD))
+			return new Segment(WILDCARD, -1, false);
+
+		if(content.length() >= 2 && (content.charAt(0) == '\'' || content.charAt(0) == '"')
+		&& content.charAt(content.length() - 1) == content.charAt(0)) {
+			return new Segment(content.substring(1, content.length() - 1), -1, false);
+		}
+
+		try {
+			return new Segment(null, Integer.parseInt(content), false);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Unsupported subscript [" + content + "]: " + expression);
+		}
+	}
+
+	/**
+	 * @param document A document returned by {@link #parse(String)}
+	 * @return The selected values, in document order. Empty when nothing matches.
+	 */
+	public List<Object> select(Object document) {
+		List<Object> current = Collections.singletonList(document);
+		for(Segment segment: segments) {
+			final List<Object> next = new ArrayList<Object>();
+			for(Object value: current) {
+				segment.select(value, next);
+			}
+			if(next.isEmpty())
+				return next;
+			current = next;
+		}
+		return current;
+	}
+
+	public String getExpression() {
+		return expression;
+	}
+
+	@Override
+	public String toString() {
+		return expression;
+	}
+
+	/**
+	 * Parse a JSON document.
+	 *
+	 * @param json The JSON text
+	 * @return The parsed document
+	 * @throws IllegalArgumentException When the text is not valid JSON
+	 */
+	public static Object parse(String json) {
+		final Parser parser = new Parser(json);
+		final Object value = parser.value();
+		parser.skipWhitespace();
+		if(parser.pos < json.length())
+			throw parser.error("Unexpected content after the document");
+		return value;
+	}
+
+	private static final class Segment {
+		private final String name;
+		private final int index;
+		private final boolean recursive;
+
+		Segment(String name, int index, boolean recursive) {
+			this.name = name;
+			this.index = index;
+			this.recursive = recursive;
+		}
+
+		void select(Object value, List<Object> result) {
+			if(name == null) {
+				if(value instanceof List) {
+					final List<?> list = (List<?>)value;
+					final int i = index < 0 ? list.size() + index : index;
+					if(i >= 0 && i < list.size()) {
+						result.add(list.get(i));
+					}
+				}
+			} else if(WILDCARD.equals(name)) {
+				result.addAll(children(value));
+			} else if(value instanceof Map && ((Map<?, ?>)value).containsKey(name)) {
+				result.add(((Map<?, ?>)value).get(name));
+			}
+
+			if(recursive) {
+				for(Object child: children(value)) {
+					select(child, result);
+				}
+			}
+		}
+
+		private static List<?> children(Object value) {
+			if(value instanceof Map)
+				return new ArrayList<Object>(((Map<?, ?>)value).values());
+			if(value instanceof List)
+				return (List<?>)value;
+			return Collections.emptyList();
+		}
+	}
+
+	private static final class Parser {
+		private static final int MAX_DEPTH = 512;
+
+		private final String text;
+		private int pos;
+		private int depth;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Object value() {
+			skipWhitespace();
+			if(pos >= text.length())
+				throw error("Unexpected end of document");
+
+			final char c = text.charAt(pos);
+			switch(c) {
+			case '{':
+				return object();
+			case '[':
+				return array();
+			case '"':
+				return string();
+			case 't':
+				return literal("true", Boolean.TRUE);
+			case 'f':
+				return literal("false", Boolean.FALSE);
+			case 'n':
+				return literal("null", null);
+			default:
+				if(c == '-' || (c >= '0' && c <= '9'))
+					return number();
+				throw error("Unexpected '" + c + "'");
+			}
+		}
+
+		private Map<String, Object> object() {
+			enter();
+			final Map<String, Object> map = new LinkedHashMap<String, Object>();
+			pos++;
+			skipWhitespace();
+			if(peek() == '}') {
+				pos++;
+				depth--;
+				return map;
+			}
+			while(true) {
+				skipWhitespace();
+				if(peek() != '"')
+					throw error("Expected a member name");
+				final String name = string();
+				skipWhitespace();
+				expect(':');
+				map.put(name, value());
+				skipWhitespace();
+				if(peek() == ',') {
+					pos++;
+				} else {
+					expect('}');
+					depth--;
+					return map;
+				}
+			}
+		}
+
+		private List<Object> array() {
+			enter();
+			final List<Object> list = new ArrayList<Object>();
+			pos++;
+			skipWhitespace();
+			if(peek() == ']') {
+				pos++;
+				depth--;
+				return list;
+			}
+			while(true) {
+				list.add(value());
+				skipWhitespace();
+				if(peek() == ',') {
+					pos++;
+				} else {
+					expect(']');
+					depth--;
+					return list;
+				}
+			}
+		}
+
+		private String string() {
+			pos++;
+			final StringBuilder sb = new StringBuilder();
+			while(pos < text.length()) {
+				final char c = text.charAt(pos++);
+				if(c == '"')
+					return sb.toString();
+				if(c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				if(pos >= text.length())
+					break;
+				final char e = text.charAt(pos++);
+				switch(e) {
+				case 'b': sb.append('\b'); break;
+				case 'f': sb.append('\f'); break;
+				case 'n': sb.append('\n'); break;
+				case 'r': sb.append('\r'); break;
+				case 't': sb.append('\t'); break;
+				case 'u':
+					if(pos + 4 > text.length())
+						throw error("Incomplete unicode escape");
+					try {
+						sb.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException ex) {
+						throw error("Invalid unicode escape");
+					}
+					pos += 4;
+					break;
+				default:
+					sb.append(e);
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		private BigDecimal number() {
+			final int start = pos;
+			while(pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+				pos++;
+			}
+			try {
+				return new BigDecimal(text.substring(start, pos));
+			} catch (NumberFormatException e) {
+				pos = start;
+				throw error("Invalid number");
+			}
+		}
+
+		private Object literal(String word, Object value) {
+			if(!text.startsWith(word, pos))
+				throw error("Unexpected '" + text.charAt(pos) + "'");
+			pos += word.length();
+			return value;
+		}
+
+		private void enter() {
+			if(++depth > MAX_DEPTH)
+				throw error("Document is nested too deeply");
+		}
+
+		private void expect(char c) {
+			if(peek() != c)
+				throw error("Expected '" + c + "'");
+			pos++;
+		}
+
+		private char peek() {
+			return pos < text.length() ? text.charAt(pos) : 0;
+		}
+
+		void skipWhitespace() {
+			while(pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " at position " + pos);
+		}
+	}
+}
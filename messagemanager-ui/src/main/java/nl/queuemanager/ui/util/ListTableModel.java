@@ -16,20 +16,45 @@
 package nl.queuemanager.ui.util;
 
 import javax.swing.table.AbstractTableModel;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * A TableModel with one item per row. 
+ * <p>
+ * {@link #getItemRow(Object)} and {@link #removeRow(Object)} use an index from item (by
+ * identity) to row that is maintained lazily. Removing rows from the start of the table
+ * only shifts the index, other changes mark it stale from the first changed row on and the
+ * stale part is indexed again by the next lookup. Items that are not found by identity are
+ * searched for by equality.
+ */
 @SuppressWarnings("serial")
 public abstract class ListTableModel<T> extends AbstractTableModel {
 	protected List<T> data;
 	protected String[] columnNames;
 	protected Class<?>[] columnTypes;
 	
+	/**
+	 * Position of every item, the row is the position minus positionOffset. Only positions of
+	 * rows before indexedRows are up to date.
+	 */
+	private final Map<T, Integer> rowIndex = new IdentityHashMap<T, Integer>();
+	private int positionOffset;
+	private int indexedRows;
+	
 	public List<T> getData() {
 		return data;
 	}
 	
 	public void setData(List<T> data) {
 		this.data = data;
+		rowIndex.clear();
+		positionOffset = 0;
+		indexedRows = 0;
 		fireTableDataChanged();
 	}
 	
@@ -41,19 +66,99 @@ public abstract class ListTableModel<T> extends AbstractTableModel {
 		fireTableRowsInserted(data.size()-1, data.size()-1);
 	}
 	
+	/**
+	 * Append all items to the end of the table, firing a single insert event for the lot.
+	 * 
+	 * @param items
+	 */
+	public void addRows(Collection<? extends T> items) {
+		if(data == null)
+			throw new IllegalStateException("Cannot add rows when data == null");
+		
+		if(items.isEmpty())
+			return;
+		
+		int first = data.size();
+		data.addAll(items);
+		fireTableRowsInserted(first, data.size()-1);
+	}
+	
 	public void removeRow(T item) {
 		if(data == null)
 			throw new IllegalStateException("Cannot remove rows when data == null");
 		
-		int row = data.indexOf(item);
+		int row = getItemRow(item);
 		if(row >= 0) {
-			data.remove(item);
+			rowIndex.remove(data.remove(row));
+			rowsRemoved(row, 1);
 			fireTableRowsDeleted(row, row);
 		} else {
 			throw new IllegalStateException("Attempt to remove item that was not in data");
 		}
 	}
 	
+	/**
+	 * Remove all items that are in the table, firing one delete event per range of
+	 * consecutive rows. Items that are not in the table are ignored.
+	 * 
+	 * @param items
+	 */
+	public void removeRows(Collection<? extends T> items) {
+		if(data == null)
+			throw new IllegalStateException("Cannot remove rows when data == null");
+		
+		if(items.isEmpty())
+			return;
+		
+		final Set<?> remove = items instanceof Set ? (Set<?>)items : new HashSet<T>(items);
+		
+		// Walk backwards so the rows of ranges that are still to be removed do not move
+		int last = -1;
+		for(int row = data.size()-1; row >= -1; row--) {
+			if(row >= 0 && remove.contains(data.get(row))) {
+				if(last < 0)
+					last = row;
+			} else if(last >= 0) {
+				List<T> range = data.subList(row+1, last+1);
+				for(T item: range) {
+					rowIndex.remove(item);
+				}
+				range.clear();
+				rowsRemoved(row+1, last-row);
+				fireTableRowsDeleted(row+1, last);
+				last = -1;
+			}
+		}
+	}
+	
+	/**
+	 * Remove the item at the given row.
+	 * 
+	 * @param row
+	 */
+	public void removeRowAt(int row) {
+		if(data == null)
+			throw new IllegalStateException("Cannot remove rows when data == null");
+		
+		rowIndex.remove(data.remove(row));
+		rowsRemoved(row, 1);
+		fireTableRowsDeleted(row, row);
+	}
+	
+	/**
+	 * Update the index for removed rows. Removing rows at the start shifts all other rows by
+	 * the same amount, which only changes the offset. Otherwise the rows after the removed
+	 * ones have moved and are indexed again when needed.
+	 */
+	private void rowsRemoved(int first, int count) {
+		if(first == 0) {
+			positionOffset += count;
+			indexedRows = Math.max(0, indexedRows - count);
+		} else {
+			indexedRows = Math.min(indexedRows, first);
+		}
+	}
+	
 	public void setColumnNames(String[] names) {
 		columnNames = names;
 	}
@@ -88,16 +193,58 @@ public abstract class ListTableModel<T> extends AbstractTableModel {
 	}
 	
 	public void setRowItem(int row, T item) {
-		data.set(row, item);
+		rowIndex.remove(data.set(row, item));
+		if(row < indexedRows) {
+			rowIndex.put(item, row + positionOffset);
+		}
 		fireTableRowsUpdated(row, row);
 	}
 	
-	
+	/**
+	 * @param item
+	 * @return The row of the item or -1 if the item is not in the table
+	 */
 	public int getItemRow(T item) {
-		if(data.contains(item)) {
-			return data.indexOf(item);
-		} else {
+		if(data == null)
+			return -1;
+		
+		int row = indexedRow(item);
+		if(row < 0 && indexedRows < data.size()) {
+			updateIndex();
+			row = indexedRow(item);
+		}
+		
+		return row >= 0 ? row : data.indexOf(item);
+	}
+	
+	/**
+	 * @return The row of the item according to the index, -1 if the index does not know it
+	 */
+	private int indexedRow(T item) {
+		Integer position = rowIndex.get(item);
+		if(position == null)
 			return -1;
+		
+		// The list may have been changed without going through this model
+		int row = position - positionOffset;
+		return row >= 0 && row < indexedRows && row < data.size() && data.get(row) == item ? row : -1;
+	}
+	
+	/**
+	 * Index the rows that are not indexed yet.
+	 */
+	private void updateIndex() {
+		if(indexedRows == 0) {
+			rowIndex.clear();
+			positionOffset = 0;
+		}
+		
+		for(; indexedRows < data.size(); indexedRows++) {
+			T item = data.get(indexedRows);
+			// Keep the first row of items that are in the table more than once
+			if(indexedRow(item) < 0) {
+				rowIndex.put(item, indexedRows + positionOffset);
+			}
 		}
 	}
 	
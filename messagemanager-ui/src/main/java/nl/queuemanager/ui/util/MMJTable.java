@@ -33,6 +33,10 @@ public class MMJTable extends JTable {
 
 	public void setHighlightsModel(HighlightsModel<?> model) {
 		highlightsModel = model;
+		model.attachTo(this);
+		
+		// highlights are delivered asynchronously, repaint when they change
+		model.addTableModelListener(e -> repaint(getVisibleRect()));
 	}
 
 	public Color getHighlightColor() {
@@ -3,82 +3,310 @@ package nl.queuemanager.ui.util;
 import com.google.common.eventbus.Subscribe;
 import nl.queuemanager.core.configuration.CoreConfiguration;
 import nl.queuemanager.core.jms.DomainEvent;
+import nl.queuemanager.core.task.Task;
+import nl.queuemanager.core.task.TaskEvent;
 import nl.queuemanager.core.task.TaskExecutor;
 import nl.queuemanager.core.tasks.TaskFactory;
 import nl.queuemanager.jms.JMSBroker;
 
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.awt.Component;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.logging.Logger;
 
+/**
+ * Periodically refreshes the queue list (and message counts) of every broker that
+ * some component is interested in. Every broker is scheduled separately:
+ * <ul>
+ * <li>A broker is never refreshed while its previous refresh is still queued or running.
+ * Such ticks are skipped instead of piling up more tasks behind a slow broker.</li>
+ * <li>The refresh interval of a broker grows with its measured refresh latency so that a
+ * slow broker spends at most 1/{@value #LATENCY_FACTOR} of its time being refreshed.</li>
+ * <li>When none of the interested components is showing, the interval is multiplied
+ * by {@value #HIDDEN_FACTOR}.</li>
+ * </ul>
+ * Per-broker statistics are available through {@link #getStatistics(JMSBroker)}.
+ */
 @Singleton
 public class QueueCountsRefresher {
-	
-	private TaskExecutor worker;
-	private TaskFactory taskFactory;
-	private Map<JMSBroker, Integer> brokersToRefresh = new HashMap<JMSBroker, Integer>();
-	private Timer timer;
-	
+
+	/**
+	 * The interval of a broker is at least this many times its last refresh duration.
+	 */
+	static final int LATENCY_FACTOR = 5;
+
+	/**
+	 * Multiplier for the interval of brokers none of whose interested components are showing.
+	 */
+	static final int HIDDEN_FACTOR = 6;
+
+	/**
+	 * The maximum interval between checks for brokers that are due for a refresh.
+	 */
+	private static final long MAX_TICK_INTERVAL = 1000;
+
+	private final Logger log = Logger.getLogger(getClass().getName());
+
+	private final TaskExecutor worker;
+	private final TaskFactory taskFactory;
+	private final long baseInterval;
+	private final Map<JMSBroker, BrokerState> brokersToRefresh = new HashMap<JMSBroker, BrokerState>();
+
 	@Inject
 	QueueCountsRefresher(TaskExecutor worker, CoreConfiguration configuration, TaskFactory taskFactory) {
+		this(worker, configuration, taskFactory, new Timer("QueueCountsRefresher", true));
+	}
+
+	QueueCountsRefresher(TaskExecutor worker, CoreConfiguration configuration, TaskFactory taskFactory, Timer timer) {
 		this.worker = worker;
 		this.taskFactory = taskFactory;
-		this.timer = new Timer(true);
-		
-		timer.schedule(new RefreshTask(), 
-			Long.valueOf(configuration.getUserPref(CoreConfiguration.PREF_AUTOREFRESH_INTERVAL, CoreConfiguration.DEFAULT_AUTOREFRESH_INTERVAL)), 
-			Long.valueOf(configuration.getUserPref(CoreConfiguration.PREF_AUTOREFRESH_INTERVAL, CoreConfiguration.DEFAULT_AUTOREFRESH_INTERVAL)));
+		this.baseInterval = Long.valueOf(configuration.getUserPref(
+				CoreConfiguration.PREF_AUTOREFRESH_INTERVAL, CoreConfiguration.DEFAULT_AUTOREFRESH_INTERVAL));
+
+		if(timer != null) {
+			long tick = Math.min(baseInterval, MAX_TICK_INTERVAL);
+			timer.schedule(new RefreshTask(), tick, tick);
+		}
 	}
-	
-	private synchronized void refreshBrokers() {
-		for(JMSBroker broker: brokersToRefresh.keySet()) {
-			worker.execute(taskFactory.enumerateQueues(broker, null));
+
+	/**
+	 * Start refresh tasks for all brokers that are due and not already being refreshed.
+	 *
+	 * @param now the current time in milliseconds
+	 */
+	void refreshBrokers(long now) {
+		List<Task> tasks = new ArrayList<Task>();
+
+		synchronized(this) {
+			for(Map.Entry<JMSBroker, BrokerState> entry: brokersToRefresh.entrySet()) {
+				BrokerState state = entry.getValue();
+				if(now < state.lastRefresh + state.getEffectiveInterval())
+					continue;
+
+				if(state.inFlight != null) {
+					state.skipCount++;
+					log.fine("Skipping refresh of " + entry.getKey() + ", previous refresh still in progress");
+					continue;
+				}
+
+				state.inFlight = taskFactory.enumerateQueues(entry.getKey(), null);
+				state.started = 0;
+				state.lastRefresh = now;
+				tasks.add(state.inFlight);
+			}
+		}
+
+		// Submit outside of the lock, the executor dispatches events synchronously
+		for(Task task: tasks) {
+			worker.execute(task);
 		}
 	}
-	
-	public synchronized void registerInterest(JMSBroker broker) {
-		int count = 0;
-		if(brokersToRefresh.containsKey(broker)) {
-			count = brokersToRefresh.get(broker);
-		}
-		
-		brokersToRefresh.put(broker, count+1);
+
+	/**
+	 * Register interest in the queue counts for a broker. The broker will be refreshed
+	 * more often while the component is showing.
+	 *
+	 * @param broker
+	 * @param component The component that displays the queue counts
+	 */
+	public synchronized void registerInterest(JMSBroker broker, Component component) {
+		BrokerState state = brokersToRefresh.get(broker);
+		if(state == null) {
+			brokersToRefresh.put(broker, state = new BrokerState(baseInterval, System.currentTimeMillis()));
+		}
+
+		state.components.add(component);
 	}
-	
-	public synchronized void unregisterInterest(JMSBroker broker) {
-		if(!brokersToRefresh.containsKey(broker)) {
+
+	public synchronized void unregisterInterest(JMSBroker broker, Component component) {
+		BrokerState state = brokersToRefresh.get(broker);
+		if(state == null || !state.components.remove(component)) {
 			// Print an exception to debug this but don't throw it. It's not a problem, really.
 			new IllegalStateException("Unable to unregister interest. Count is 0 for broker " + broker)
 				.printStackTrace();
 			return;
 		}
-		
-		int count = brokersToRefresh.get(broker);
-		if(count == 1) {
+
+		if(state.components.isEmpty()) {
 			brokersToRefresh.remove(broker);
-		} else {
-			brokersToRefresh.put(broker, count - 1);
 		}
 	}
 
+	/**
+	 * Returns a snapshot of the refresh statistics for a broker, or null when there is
+	 * no interest in the broker.
+	 *
+	 * @param broker
+	 * @return
+	 */
+	public synchronized RefreshStatistics getStatistics(JMSBroker broker) {
+		BrokerState state = brokersToRefresh.get(broker);
+		if(state == null)
+			return null;
+
+		return new RefreshStatistics(state.refreshCount, state.skipCount,
+				state.lastDuration, state.totalDuration, state.getEffectiveInterval());
+	}
+
 	@Subscribe
 	public void processEvent(DomainEvent event) {
 		switch(event.getId()) {
 			case JMX_CONNECT:
 			case JMX_DISCONNECT:
-				brokersToRefresh.clear();
+				synchronized(this) {
+					brokersToRefresh.clear();
+				}
 		}
 	}
 
+	@Subscribe
+	public void processEvent(TaskEvent event) {
+		switch(event.getId()) {
+		case TASK_STARTED:
+			taskStarted((Task)event.getSource(), System.currentTimeMillis());
+			break;
+
+		case TASK_FINISHED:
+		case TASK_DISCARDED:
+			taskFinished((Task)event.getSource(), System.currentTimeMillis());
+			break;
+
+		default:
+		}
+	}
+
+	synchronized void taskStarted(Task task, long now) {
+		BrokerState state = findState(task);
+		if(state != null) {
+			state.started = now;
+		}
+	}
+
+	synchronized void taskFinished(Task task, long now) {
+		BrokerState state = findState(task);
+		if(state == null)
+			return;
+
+		state.inFlight = null;
+		if(state.started == 0)
+			return;
+
+		long duration = now - state.started;
+		state.refreshCount++;
+		state.lastDuration = duration;
+		state.totalDuration += duration;
+		state.interval = Math.max(baseInterval, duration * LATENCY_FACTOR);
+	}
+
+	private BrokerState findState(Task task) {
+		for(BrokerState state: brokersToRefresh.values()) {
+			if(state.inFlight == task)
+				return state;
+		}
+		return null;
+	}
+
 	private class RefreshTask extends TimerTask {
 
 		@Override
 		public void run() {
-			refreshBrokers();
+			refreshBrokers(System.currentTimeMillis());
+		}
+
+	}
+
+	private static class BrokerState {
+		private final List<Component> components = new ArrayList<Component>();
+		private Task inFlight;
+		private long started;
+		private long lastRefresh;
+		private long interval;
+		private long lastDuration;
+		private long totalDuration;
+		private int refreshCount;
+		private int skipCount;
+
+		public BrokerState(long interval, long now) {
+			this.interval = interval;
+			this.lastRefresh = now;
+		}
+
+		private long getEffectiveInterval() {
+			return isShowing() ? interval : interval * HIDDEN_FACTOR;
+		}
+
+		private boolean isShowing() {
+			for(Component c: components) {
+				if(c.isShowing())
+					return true;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Refresh statistics for a single broker.
+	 */
+	public static class RefreshStatistics {
+		private final int refreshCount;
+		private final int skipCount;
+		private final long lastDuration;
+		private final long totalDuration;
+		private final long interval;
+
+		RefreshStatistics(int refreshCount, int skipCount, long lastDuration, long totalDuration, long interval) {
+			this.refreshCount = refreshCount;
+			this.skipCount = skipCount;
+			this.lastDuration = lastDuration;
+			this.totalDuration = totalDuration;
+			this.interval = interval;
+		}
+
+		/**
+		 * @return The number of completed refreshes
+		 */
+		public int getRefreshCount() {
+			return refreshCount;
+		}
+
+		/**
+		 * @return The number of refreshes that were skipped because the previous one had not completed
+		 */
+		public int getSkipCount() {
+			return skipCount;
+		}
+
+		/**
+		 * @return The duration of the last completed refresh in milliseconds
+		 */
+		public long getLastDuration() {
+			return lastDuration;
+		}
+
+		/**
+		 * @return The average duration of the completed refreshes in milliseconds
+		 */
+		public long getAverageDuration() {
+			return refreshCount == 0 ? 0 : totalDuration / refreshCount;
+		}
+
+		/**
+		 * @return The current refresh interval in milliseconds
+		 */
+		public long getInterval() {
+			return interval;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Last refresh took %d ms (average %d ms), refreshing every %d ms, %d refreshes skipped",
+					lastDuration, getAverageDuration(), interval, skipCount);
 		}
-		
 	}
 }
@@ -0,0 +1,106 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import java.util.Arrays;
+
+/**
+ * A search term compiled for repeated searching with the Boyer-Moore-Horspool algorithm.
+ * The shift table is indexed by the low byte of each character, so characters outside of
+ * Latin-1 share entries. That costs some shift distance but never correctness.
+ *
+ * @author gerco
+ *
+ */
+public final class SubstringSearch {
+	private static final SubstringSearch EMPTY = new SubstringSearch("");
+
+	private final String pattern;
+	private final char[] chars;
+	private final int[] shift = new int[256];
+
+	private SubstringSearch(String pattern) {
+		this.pattern = pattern;
+		this.chars = pattern.toCharArray();
+
+		final int m = chars.length;
+		Arrays.fill(shift, Math.max(1, m));
+		// Later characters overwrite earlier ones that share an entry, leaving the smallest shift
+		for(int i = 0; i < m - 1; i++) {
+			shift[chars[i] & 0xFF] = m - 1 - i;
+		}
+	}
+
+	/**
+	 * @param pattern The text to search for, null is treated as the empty string
+	 * @return The compiled search term
+	 */
+	public static SubstringSearch compile(String pattern) {
+		if(pattern == null || pattern.isEmpty())
+			return EMPTY;
+
+		return new SubstringSearch(pattern);
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public boolean isEmpty() {
+		return chars.length == 0;
+	}
+
+	/**
+	 * Find the first occurrence of the pattern in a range of text.
+	 *
+	 * @param text The text to search
+	 * @param from The first position to search
+	 * @param to The position after the last character to search
+	 * @return The position of the first occurrence or -1 when the pattern does not occur
+	 */
+	public int indexIn(char[] text, int from, int to) {
+		final int m = chars.length;
+		if(m == 0)
+			return from <= to ? from : -1;
+
+		final char last = chars[m - 1];
+		int i = from + m - 1;
+		while(i < to) {
+			final char c = text[i];
+			if(c == last) {
+				int j = m - 2;
+				int k = i - 1;
+				while(j >= 0 && text[k] == chars[j]) {
+					j--;
+					k--;
+				}
+				if(j < 0)
+					return k + 1;
+			}
+			i += shift[c & 0xFF];
+		}
+		return -1;
+	}
+
+	public boolean isContainedIn(char[] text) {
+		return indexIn(text, 0, text.length) >= 0;
+	}
+
+	@Override
+	public String toString() {
+		return pattern;
+	}
+}
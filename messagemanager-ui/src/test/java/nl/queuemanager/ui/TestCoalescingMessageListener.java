@@ -0,0 +1,117 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import nl.queuemanager.core.MessageEvent;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.Message;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TestCoalescingMessageListener {
+	private final List<List<Message>> added = new ArrayList<List<Message>>();
+	private final List<Set<Message>> removed = new ArrayList<Set<Message>>();
+	private CoalescingMessageListener listener;
+
+	@Before
+	public void before() {
+		listener = new CoalescingMessageListener(100, (a, r) -> {
+			added.add(a);
+			removed.add(r);
+		});
+	}
+
+	@Test
+	public void testUpdatesAreBatched() {
+		Message m1 = MessageFactory.createTextMessage();
+		Message m2 = MessageFactory.createTextMessage();
+		Message m3 = MessageFactory.createTextMessage();
+
+		received(m1);
+		received(m2);
+		listener.drain(0);
+		discarded(m1);
+		received(m3);
+		listener.drain(100);
+
+		assertEquals(2, added.size());
+		assertEquals(Arrays.asList(m1, m2), added.get(0));
+		assertEquals(Collections.emptySet(), removed.get(0));
+		assertEquals(Arrays.asList(m3), added.get(1));
+		assertEquals(Collections.singleton(m1), removed.get(1));
+		assertEquals(1, listener.getDroppedCount());
+	}
+
+	@Test
+	public void testMessageDiscardedBeforeUpdateIsNeverShown() {
+		Message m1 = MessageFactory.createTextMessage();
+		Message m2 = MessageFactory.createTextMessage();
+
+		received(m1);
+		received(m2);
+		discarded(m1);
+		listener.drain(0);
+
+		assertEquals(Arrays.asList(m2), added.get(0));
+		assertTrue(removed.get(0).isEmpty());
+		assertEquals(1, listener.getDroppedCount());
+	}
+
+	@Test
+	public void testRate() {
+		listener.drain(0);
+		for(int i = 0; i < 500; i++) {
+			received(MessageFactory.createTextMessage());
+		}
+		listener.drain(500);
+		assertEquals(0, listener.getRate(), 0);
+
+		listener.drain(1000);
+		assertEquals(500, listener.getRate(), 0.1);
+
+		listener.drain(2000);
+		assertEquals(0, listener.getRate(), 0);
+	}
+
+	@Test
+	public void testReset() {
+		Message m1 = MessageFactory.createTextMessage();
+		received(m1);
+		discarded(MessageFactory.createTextMessage());
+		listener.reset();
+		listener.drain(0);
+
+		assertTrue(added.get(0).isEmpty());
+		assertTrue(removed.get(0).isEmpty());
+		assertEquals(0, listener.getDroppedCount());
+	}
+
+	private void received(Message message) {
+		listener.processEvent(new MessageEvent(MessageEvent.EVENT.MESSAGE_RECEIVED, message, this));
+	}
+
+	private void discarded(Message message) {
+		listener.processEvent(new MessageEvent(MessageEvent.EVENT.MESSAGE_DISCARDED, message, this));
+	}
+}
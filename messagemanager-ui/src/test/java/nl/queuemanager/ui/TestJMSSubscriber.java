@@ -26,7 +26,9 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.jms.Message;
+import javax.jms.TextMessage;
 import java.util.Collections;
+import java.util.List;
 import java.util.Observer;
 
 import static org.junit.Assert.*;
@@ -206,4 +208,32 @@ public class TestJMSSubscriber {
 	public void testGetDestination() {
 		assertEquals(destination, subscriber.getDestination());
 	}
+	
+	@Test
+	public void testSpillDiscardedMessages() throws Exception {
+		subscriber.setSpillToDisk(true);
+		try {
+			buffer.setMaximumNumberOfMessages(2);
+			for(int i = 0; i < 5; i++) {
+				TextMessage message = MessageFactory.createTextMessage();
+				message.setText("message " + i);
+				buffer.onMessage(message);
+			}
+			
+			assertEquals(2, subscriber.getMessageCount());
+			assertEquals(3, subscriber.getSpilledMessageCount());
+			
+			List<Message> spilled = subscriber.getSpilledMessages(1, 10);
+			assertEquals(2, spilled.size());
+			assertEquals("message 1", ((TextMessage)spilled.get(0)).getText());
+			assertEquals("message 2", ((TextMessage)spilled.get(1)).getText());
+			
+			subscriber.clear();
+			assertEquals(0, subscriber.getSpilledMessageCount());
+		} finally {
+			subscriber.dispose();
+		}
+		
+		verify(observer, atLeastOnce()).update(eq(subscriber), any());
+	}
 }
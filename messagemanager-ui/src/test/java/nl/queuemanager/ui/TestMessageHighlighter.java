@@ -0,0 +1,103 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import nl.queuemanager.jms.impl.DestinationFactory;
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+
+import static org.junit.Assert.*;
+
+public class TestMessageHighlighter {
+	private MessageHighlighter highlighter;
+
+	@Before
+	public void before() {
+		highlighter = new MessageHighlighter();
+	}
+
+	@Test
+	public void testNoSearchTerm() throws Exception {
+		assertFalse(highlighter.shouldHighlight(textMessage("anything")));
+	}
+
+	@Test
+	public void testBodyIsCaseInsensitive() throws Exception {
+		Message message = textMessage("<Order><Id>123</Id></Order>");
+		highlighter.index(message);
+
+		search("ORDER><id");
+		assertTrue(highlighter.shouldHighlight(message));
+
+		search("order><name");
+		assertFalse(highlighter.shouldHighlight(message));
+	}
+
+	@Test
+	public void testPropertiesAndMapEntries() throws Exception {
+		TextMessage message = textMessage("body");
+		message.setStringProperty("orderType", "Express");
+		MapMessage map = MessageFactory.createMapMessage();
+		map.setInt("amount", 1000);
+
+		search("ordertype");
+		assertTrue(highlighter.shouldHighlight(message));
+		search("express");
+		assertTrue(highlighter.shouldHighlight(message));
+		search("amount");
+		assertTrue(highlighter.shouldHighlight(map));
+		search("1000");
+		assertTrue(highlighter.shouldHighlight(map));
+	}
+
+	@Test
+	public void testNoMatchAcrossFields() throws Exception {
+		TextMessage message = textMessage("tail");
+		message.setJMSCorrelationID("head");
+
+		search("headtail");
+		assertFalse(highlighter.shouldHighlight(message));
+	}
+
+	@Test
+	public void testHeadersOnlyWithDestination() throws Exception {
+		Message message = textMessage("body");
+		message.setJMSMessageID("ID:abc");
+
+		search("id:abc");
+		assertFalse(highlighter.shouldHighlight(message));
+
+		Message withDestination = textMessage("body");
+		withDestination.setJMSMessageID("ID:abc");
+		withDestination.setJMSDestination(DestinationFactory.createQueue(null, "orders"));
+		assertTrue(highlighter.shouldHighlight(withDestination));
+	}
+
+	private void search(String term) {
+		highlighter.onGlobalHighlightEvent(new GlobalHighlightEvent(this, term));
+	}
+
+	private static TextMessage textMessage(String text) throws Exception {
+		TextMessage message = MessageFactory.createTextMessage();
+		message.setText(text);
+		return message;
+	}
+}
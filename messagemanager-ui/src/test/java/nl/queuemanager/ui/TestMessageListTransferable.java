@@ -158,4 +158,22 @@ public class TestMessageListTransferable {
 			}, 
 			tr.getTransferDataFlavors());
 	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testMessageIDListHasNoMessages() throws JMSException, UnsupportedFlavorException, IOException {
+		MessageListTransferable tr = MessageListTransferable.createMessageIDList(sampleQ1, messages);
+		
+		assertArrayEquals(
+			new DataFlavor[] {
+				MessageListTransferable.messageIDListDataFlavor,
+			}, 
+			tr.getTransferDataFlavors());
+		assertFalse(tr.isDataFlavorSupported(MessageListTransferable.messageListDataFlavor));
+		
+		List<Pair<JMSQueue,String>> messageIdList = (List<Pair<JMSQueue,String>>) 
+			tr.getTransferData(MessageListTransferable.messageIDListDataFlavor);
+		assertEquals(2, messageIdList.size());
+		assertEquals(messages.get(1).getJMSMessageID(), messageIdList.get(1).second());
+	}
 }
@@ -0,0 +1,175 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui;
+
+import nl.queuemanager.jms.impl.MessageFactory;
+import org.junit.Test;
+
+import javax.jms.TextMessage;
+import java.text.ParseException;
+
+import static org.junit.Assert.*;
+
+public class TestMessageQuery {
+
+	@Test
+	public void testEmptyQueryMatchesNothing() throws Exception {
+		assertTrue(MessageQuery.parse("  ").isEmpty());
+		assertFalse(MessageQuery.parse(null).matches(textMessage("anything")));
+	}
+
+	@Test
+	public void testPlainTermsMustAllMatch() throws Exception {
+		TextMessage message = textMessage("The quick brown fox");
+
+		assertTrue(matches("QUICK fox", message));
+		assertFalse(matches("quick dog", message));
+		assertTrue(matches("\"brown fox\"", message));
+		assertFalse(matches("\"fox brown\"", message));
+	}
+
+	@Test
+	public void testOrNotAndGroups() throws Exception {
+		TextMessage message = textMessage("The quick brown fox");
+
+		assertTrue(matches("dog OR fox", message));
+		assertFalse(matches("-fox", message));
+		assertTrue(matches("-dog", message));
+		assertTrue(matches("quick (dog OR cat OR fox)", message));
+		assertFalse(matches("quick -(dog OR fox)", message));
+	}
+
+	@Test
+	public void testProperties() throws Exception {
+		TextMessage message = textMessage("body");
+		message.setStringProperty("orderType", "Express");
+		message.setIntProperty("lines", 12);
+
+		assertTrue(matches("prop:orderType", message));
+		assertFalse(matches("prop:customer", message));
+		assertTrue(matches("prop:orderType=express", message));
+		assertFalse(matches("prop:orderType=standard", message));
+		assertTrue(matches("prop:orderType!=standard", message));
+		assertTrue(matches("prop:lines>9", message));
+		assertFalse(matches("prop:lines<=9", message));
+		assertTrue(matches("prop:orderType~/^Exp/", message));
+		assertFalse(matches("prop:orderType~/^exp/", message));
+		assertTrue(matches("prop:orderType~/^exp/i", message));
+	}
+
+	@Test
+	public void testHeaders() throws Exception {
+		TextMessage message = textMessage("body");
+		message.setJMSType("Order");
+		message.setJMSPriority(7);
+
+		assertTrue(matches("header:JMSType=order", message));
+		assertTrue(matches("header:type=order", message));
+		assertTrue(matches("header:JMSPriority>=5", message));
+		assertFalse(matches("header:JMSCorrelationID", message));
+	}
+
+	@Test(expected = ParseException.class)
+	public void testUnknownHeader() throws Exception {
+		MessageQuery.parse("header:JMSFoo=bar");
+	}
+
+	@Test
+	public void testBody() throws Exception {
+		TextMessage message = textMessage("Order 12345 for ACME");
+
+		assertTrue(matches("body:acme", message));
+		assertTrue(matches("body~/\\d{5}/", message));
+		assertTrue(matches("body~/order \\d+ for/i", message));
+		assertFalse(matches("body~/^ACME/", message));
+	}
+
+	@Test
+	public void testXPath() throws Exception {
+		TextMessage message = textMessage("<order type='x'><id>123</id><line/><line/></order>");
+
+		assertTrue(matches("xpath:/order/id=123", message));
+		assertFalse(matches("xpath:/order/id=124", message));
+		assertTrue(matches("xpath:/order[@type='x']", message));
+		assertFalse(matches("xpath:/invoice", message));
+		assertTrue(matches("xpath:count(/order/line)>1", message));
+		assertFalse(matches("xpath:/order/id=123", textMessage("{\"id\": 123}")));
+	}
+
+	@Test
+	public void testJsonPath() throws Exception {
+		TextMessage message = textMessage("{\"amount\": 1500.50, \"lines\": [{\"sku\": \"A-1\"}, {\"sku\": \"B-2\"}]}");
+
+		assertTrue(matches("json:$.amount>1000", message));
+		assertFalse(matches("json:$.amount>2000", message));
+		assertTrue(matches("json:$.lines[*].sku=b-2", message));
+		assertTrue(matches("json:$.lines[1]", message));
+		assertFalse(matches("json:$.lines[2]", message));
+		assertFalse(matches("json:$.amount>1000", textMessage("<amount>1500</amount>")));
+	}
+
+	@Test
+	public void testCombinedQuery() throws Exception {
+		TextMessage message = textMessage("{\"order\": {\"amount\": 1200}}");
+		message.setStringProperty("orderType", "X");
+
+		assertTrue(matches("prop:orderType=X json:$.order.amount>1000", message));
+		assertFalse(matches("prop:orderType=Y json:$.order.amount>1000", message));
+	}
+
+	@Test
+	public void testWordsWithColonsAreText() throws Exception {
+		TextMessage message = textMessage("see ID:1234 and http://example.com");
+
+		assertTrue(matches("id:1234", message));
+		assertTrue(matches("http://example.com", message));
+	}
+
+	@Test
+	public void testInvalidQueries() {
+		for(String query: new String[] {"(fox", "body~/unterminated", "prop:", "json:amount", "xpath:/order[", "fox OR"}) {
+			try {
+				MessageQuery.parse(query);
+				fail("Expected a ParseException for " + query);
+			} catch (ParseException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testLenientFallsBackToText() throws Exception {
+		assertTrue(MessageQuery.parseLenient("(fox").matches(textMessage("a (fox")));
+	}
+
+	@Test
+	public void testContainsTerm() throws Exception {
+		MessageQuery query = MessageQuery.parse("Express prop:orderType=X -standard");
+
+		assertTrue(query.containsTerm("orderType=EXPRESS"));
+		assertFalse(query.containsTerm("orderType=standard"));
+	}
+
+	private static boolean matches(String query, TextMessage message) throws ParseException {
+		return MessageQuery.parse(query).matches(message);
+	}
+
+	private static TextMessage textMessage(String text) throws Exception {
+		TextMessage message = MessageFactory.createTextMessage();
+		message.setText(text);
+		return message;
+	}
+}
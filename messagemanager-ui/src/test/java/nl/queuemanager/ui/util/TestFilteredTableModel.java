@@ -0,0 +1,224 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import nl.queuemanager.core.util.CollectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestFilteredTableModel {
+
+	private ListTableModel<String> model;
+	private FilteredTableModel<String> filtered;
+	private List<TableModelEvent> events;
+	
+	@SuppressWarnings("serial")
+	@Before
+	public void setup() {
+		model = new ListTableModel<String>() {
+			@Override
+			public Object getColumnValue(String item, int columnIndex) {
+				return item;
+			}
+		};
+		model.setColumnNames(new String[] {"Name"});
+		model.setColumnTypes(new Class[] {String.class});
+		model.setData(CollectionFactory.newArrayList(Arrays.asList("delta", "alpha", "charlie")));
+		
+		filtered = new FilteredTableModel<String>(model, 0);
+		events = CollectionFactory.newArrayList();
+		filtered.addTableModelListener(e -> events.add(e));
+	}
+	
+	@Test
+	public void testInsertIsMappedToSortedPosition() {
+		model.addRow("bravo");
+		
+		assertEquals(1, events.size());
+		assertEvent(TableModelEvent.INSERT, 1, events.get(0));
+		assertEquals("bravo", filtered.getValueAt(1, 0));
+	}
+	
+	@Test
+	public void testDeleteIsMappedToSortedPosition() {
+		model.removeRowAt(0); // delta
+		
+		assertEquals(1, events.size());
+		assertEvent(TableModelEvent.DELETE, 2, events.get(0));
+		assertEquals(2, filtered.getRowCount());
+	}
+	
+	@Test
+	public void testUpdateIsMappedToSortedPosition() {
+		model.setRowItem(1, "alpha");
+		
+		assertEquals(1, events.size());
+		assertEvent(TableModelEvent.UPDATE, 0, events.get(0));
+	}
+	
+	@Test
+	public void testFilteredRowsFireNoEvents() {
+		filtered.setFilterValue("c");
+		events.clear();
+		
+		model.addRow("bravo");
+		model.removeRowAt(0);
+		
+		assertEquals(0, events.size());
+		assertEquals(1, filtered.getRowCount());
+		assertEquals("charlie", filtered.getValueAt(0, 0));
+	}
+	
+	@Test
+	public void testUpdateThatChangesOrderMovesTheRow() {
+		model.setRowItem(1, "echo"); // was alpha
+		
+		assertEquals(2, events.size());
+		assertEvent(TableModelEvent.DELETE, 0, events.get(0));
+		assertEvent(TableModelEvent.INSERT, 2, events.get(1));
+		assertEquals(Arrays.asList("charlie", "delta", "echo"), rows());
+	}
+	
+	@Test
+	public void testUpdateMovesRowsInAndOutOfTheFilter() {
+		filtered.setFilterValue("c");
+		events.clear();
+		
+		model.setRowItem(1, "cobalt"); // was alpha
+		assertEquals(1, events.size());
+		assertEvent(TableModelEvent.INSERT, 1, events.get(0));
+		
+		model.setRowItem(2, "bravo"); // was charlie
+		assertEquals(2, events.size());
+		assertEvent(TableModelEvent.DELETE, 0, events.get(1));
+		assertEquals(Arrays.asList("cobalt"), rows());
+	}
+	
+	@Test
+	public void testFilterIsLiteralExceptForWildcards() {
+		model.addRow("a+b (1)");
+		model.addRow("aab (1)");
+		
+		filtered.setFilterValue("A+B (");
+		assertEquals(Arrays.asList("a+b (1)"), rows());
+		
+		filtered.setFilterValue("a?b*1");
+		assertEquals(Arrays.asList("a+b (1)", "aab (1)"), rows());
+		
+		filtered.setFilterValue("*harl");
+		assertEquals(Arrays.asList("charlie"), rows());
+	}
+	
+	@Test
+	public void testAdjacentRowsFireOneEvent() {
+		model.addRows(Arrays.asList("echo", "bravo", "foxtrot", "beta"));
+		
+		// alpha, beta, bravo, charlie, delta, echo, foxtrot
+		assertEquals(2, events.size());
+		assertEvent(TableModelEvent.INSERT, 1, 2, events.get(0));
+		assertEvent(TableModelEvent.INSERT, 5, 6, events.get(1));
+		
+		events.clear();
+		model.removeRows(Arrays.asList("echo", "foxtrot", "beta", "bravo"));
+		assertEquals(Arrays.asList("alpha", "charlie", "delta"), rows());
+		for(TableModelEvent event: events) {
+			assertEquals(TableModelEvent.DELETE, event.getType());
+		}
+	}
+	
+	@Test
+	public void testLargeInsertFiresSingleEvent() {
+		List<String> items = new ArrayList<String>();
+		for(int i = 0; i <= FilteredTableModel.ROW_EVENT_LIMIT; i++) {
+			items.add("item" + i);
+		}
+		model.addRows(items);
+		
+		assertEquals(1, events.size());
+		assertEquals(Integer.MAX_VALUE, events.get(0).getLastRow());
+		assertEquals(FilteredTableModel.ROW_EVENT_LIMIT + 4, filtered.getRowCount());
+	}
+	
+	@Test
+	public void testIndexMatchesFullSortAfterRandomChanges() {
+		final Comparator<String> byLength = Comparator.comparing(String::length);
+		filtered.setComparator(byLength);
+		filtered.setFilterValue("*a");
+		
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			String item = Integer.toString(random.nextInt(100000), 16);
+			int size = model.getRowCount();
+			switch(random.nextInt(4)) {
+			case 0:
+				model.addRow(item);
+				break;
+			case 1:
+				model.addRows(Arrays.asList(item, item + "a", "a" + item));
+				break;
+			case 2:
+				if(size > 0) model.removeRowAt(random.nextInt(size));
+				break;
+			case 3:
+				if(size > 0) model.setRowItem(random.nextInt(size), item);
+				break;
+			}
+		}
+		
+		List<Integer> expected = new ArrayList<Integer>();
+		for(int row = 0; row < model.getRowCount(); row++) {
+			if(model.getRowItem(row).contains("a")) {
+				expected.add(row);
+			}
+		}
+		// A stable sort keeps equal items in the order of the backing model
+		Collections.sort(expected, (r1, r2) -> byLength.compare(model.getRowItem(r1), model.getRowItem(r2)));
+		
+		assertEquals(expected.size(), filtered.getRowCount());
+		for(int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).intValue(), filtered.getRealIndexFor(i));
+			assertEquals(i, filtered.getMappedIndexFor(expected.get(i)));
+		}
+	}
+	
+	private List<Object> rows() {
+		List<Object> rows = new ArrayList<Object>();
+		for(int i = 0; i < filtered.getRowCount(); i++) {
+			rows.add(filtered.getValueAt(i, 0));
+		}
+		return rows;
+	}
+	
+	private static void assertEvent(int type, int row, TableModelEvent event) {
+		assertEvent(type, row, row, event);
+	}
+	
+	private static void assertEvent(int type, int firstRow, int lastRow, TableModelEvent event) {
+		assertEquals(type, event.getType());
+		assertEquals(firstRow, event.getFirstRow());
+		assertEquals(lastRow, event.getLastRow());
+	}
+}
@@ -0,0 +1,237 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.swing.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestHighlightsModel {
+
+	private StringTableModel tableModel;
+	private ContainsHighlighter highlighter;
+	private Queue<Runnable> jobs;
+	private HighlightsModel<String> highlights;
+
+	@Before
+	public void setup() throws Exception {
+		tableModel = new StringTableModel();
+		highlighter = new ContainsHighlighter();
+		jobs = new ArrayDeque<Runnable>();
+		onEDT(() -> highlights = new HighlightsModel<String>(tableModel, highlighter, jobs::add));
+	}
+
+	@Test
+	public void testSmallTableIsHighlightedRightAway() throws Exception {
+		onEDT(() -> {
+			tableModel.setData(rows(10));
+			highlighter.setTerm("row 3");
+		});
+
+		assertTrue(jobs.isEmpty());
+		assertEquals(1, highlights.getHighlightedRowCount());
+		assertTrue(highlights.isHighlighted(3));
+	}
+
+	@Test
+	public void testLargeTableIsHighlightedInBackground() throws Exception {
+		onEDT(() -> {
+			highlighter.setTerm("7");
+			tableModel.setData(rows(HighlightsModel.CHUNK_SIZE * 2 + 1));
+		});
+
+		assertEquals(1, jobs.size());
+		assertEquals(0, highlights.getHighlightedRowCount());
+
+		final List<Integer> events = new ArrayList<Integer>();
+		highlights.addTableModelListener(e -> events.add(e.getType()));
+		runJobs();
+
+		assertTrue(highlights.isHighlighted(7));
+		assertFalse(highlights.isHighlighted(8));
+		assertEquals(countContaining(HighlightsModel.CHUNK_SIZE * 2 + 1, "7"), highlights.getHighlightedRowCount());
+		assertFalse(events.isEmpty());
+	}
+
+	@Test
+	public void testOnlyLastChunkIsNotAdjusting() throws Exception {
+		onEDT(() -> {
+			highlighter.setTerm("7");
+			tableModel.setData(rows(HighlightsModel.CHUNK_SIZE * 2 + 1));
+		});
+
+		// The last chunk has no highlights of its own, it still ends the evaluation
+		final List<Boolean> adjusting = new ArrayList<Boolean>();
+		highlights.addTableModelListener(e -> adjusting.add(highlights.isAdjusting()));
+		runJobs();
+
+		assertEquals(Arrays.asList(true, true, false), adjusting);
+		assertFalse(highlights.isAdjusting());
+	}
+
+	@Test
+	public void testSmallInsertDoesNotSwallowTheEndOfABackgroundEvaluation() throws Exception {
+		final int size = HighlightsModel.CHUNK_SIZE * 2 + 1;
+		final CountDownLatch lastChunkReached = new CountDownLatch(1);
+		final CountDownLatch insertDone = new CountDownLatch(1);
+		highlighter = new ContainsHighlighter() {
+			@Override
+			public boolean shouldHighlight(String item) {
+				if(item.equals("row " + (size - 1))) {
+					lastChunkReached.countDown();
+					await(insertDone);
+				}
+				return super.shouldHighlight(item);
+			}
+		};
+		tableModel = new StringTableModel();
+		onEDT(() -> {
+			highlights = new HighlightsModel<String>(tableModel, highlighter, jobs::add);
+			highlighter.setTerm("7");
+			tableModel.setData(rows(size));
+		});
+
+		final List<Boolean> adjusting = new ArrayList<Boolean>();
+		highlights.addTableModelListener(e -> adjusting.add(highlights.isAdjusting()));
+		assertEquals(1, jobs.size());
+		Thread background = new Thread(jobs.poll());
+		background.start();
+
+		// Insert a few rows after the first chunks were delivered, before the last one
+		assertTrue(lastChunkReached.await(10, TimeUnit.SECONDS));
+		onEDT(() -> tableModel.addRow("row 7 again"));
+		insertDone.countDown();
+		background.join();
+		onEDT(() -> {});
+
+		assertEquals(Arrays.asList(true, true, false, false), adjusting);
+	}
+
+	@Test
+	public void testNewerResetCancelsOlder() throws Exception {
+		onEDT(() -> {
+			tableModel.setData(rows(HighlightsModel.CHUNK_SIZE));
+			highlighter.setTerm("1");
+			highlighter.setTerm("row 2");
+		});
+
+		assertEquals(3, jobs.size());
+		runJobs();
+
+		assertTrue(highlights.isHighlighted(2));
+		assertFalse(highlights.isHighlighted(1));
+		assertEquals(countContaining(HighlightsModel.CHUNK_SIZE, "row 2"), highlights.getHighlightedRowCount());
+	}
+
+	@Test
+	public void testHighlightsFollowRowsThatMove() throws Exception {
+		onEDT(() -> {
+			tableModel.setData(rows(10));
+			highlighter.setTerm("row 5");
+			tableModel.removeRowAt(0);
+		});
+
+		assertTrue(highlights.isHighlighted(4));
+		assertEquals(1, highlights.getHighlightedRowCount());
+	}
+
+	@Test
+	public void testHiddenTableDefersEvaluation() throws Exception {
+		onEDT(() -> {
+			highlights.attachTo(new JPanel());
+			tableModel.setData(rows(HighlightsModel.CHUNK_SIZE));
+			highlighter.setTerm("row 1");
+		});
+
+		assertTrue(jobs.isEmpty());
+		assertEquals(0, highlights.getHighlightedRowCount());
+	}
+
+	private void runJobs() throws Exception {
+		while(!jobs.isEmpty()) {
+			jobs.poll().run();
+		}
+		// Deliver the results that were posted to the EDT
+		onEDT(() -> {});
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void onEDT(Runnable runnable) throws Exception {
+		SwingUtilities.invokeAndWait(runnable);
+	}
+
+	private static List<String> rows(int count) {
+		List<String> rows = new ArrayList<String>();
+		for(int i = 0; i < count; i++) {
+			rows.add("row " + i);
+		}
+		return rows;
+	}
+
+	private static int countContaining(int rows, String term) {
+		int count = 0;
+		for(String row: rows(rows)) {
+			if(row.contains(term)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static class StringTableModel extends ListTableModel<String> {
+		public StringTableModel() {
+			setColumnNames(new String[] {"Value"});
+			setColumnTypes(new Class[] {String.class});
+		}
+
+		@Override
+		public Object getColumnValue(String item, int columnIndex) {
+			return item;
+		}
+	}
+
+	private static class ContainsHighlighter extends HighlighterSupport<String> {
+		private volatile String term;
+
+		public void setTerm(String term) {
+			this.term = term;
+			resetHighlights();
+		}
+
+		public boolean shouldHighlight(String item) {
+			return term != null && item.contains(term);
+		}
+	}
+}
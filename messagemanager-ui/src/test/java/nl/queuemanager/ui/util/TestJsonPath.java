@@ -0,0 +1,82 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestJsonPath {
+	private static final String DOCUMENT =
+			"{\"store\": {\"book\": [{\"title\": \"A\", \"price\": 8.95}, {\"title\": \"B\", \"price\": 12}],"
+			+ " \"bicycle\": {\"price\": 19.95, \"color\": \"red\"}}, \"open\": true, \"owner\": null}";
+
+	@Test
+	public void testParse() {
+		Map<?, ?> document = (Map<?, ?>)JsonPath.parse(DOCUMENT);
+		assertEquals(Boolean.TRUE, document.get("open"));
+		assertTrue(document.containsKey("owner"));
+		assertNull(document.get("owner"));
+		assertEquals("a\"bé\n", JsonPath.parse("\"a\\\"b\\u00e9\\n\""));
+		assertEquals(Arrays.asList(new BigDecimal("1"), new BigDecimal("-2.5e3")), JsonPath.parse("[1, -2.5e3]"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseInvalid() {
+		JsonPath.parse("{\"a\": 1,}");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseTrailingContent() {
+		JsonPath.parse("{} {}");
+	}
+
+	@Test
+	public void testSelect() {
+		Object document = JsonPath.parse(DOCUMENT);
+
+		assertEquals(Collections.singletonList("red"), select("$.store.bicycle.color", document));
+		assertEquals(Collections.singletonList("B"), select("$['store']['book'][1].title", document));
+		assertEquals(Collections.singletonList("B"), select("$.store.book[-1].title", document));
+		assertEquals(Arrays.asList("A", "B"), select("$.store.book[*].title", document));
+		assertEquals(3, select("$..price", document).size());
+		assertEquals(2, select("$.store.*", document).size());
+		assertTrue(select("$.store.book[5]", document).isEmpty());
+		assertTrue(select("$.missing.title", document).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompileWithoutRoot() {
+		JsonPath.compile("store.book");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompileUnsupportedFilter() {
+		JsonPath.compile("$.book[?(@.price > 10)]");
+	}
+
+	private static List<Object> select(String path, Object document) {
+		return JsonPath.compile(path).select(document);
+	}
+}
@@ -0,0 +1,144 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import nl.queuemanager.core.util.CollectionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestListTableModel {
+
+	private ListTableModel<String> model;
+	private List<String> items;
+	
+	@SuppressWarnings("serial")
+	@Before
+	public void setup() {
+		model = new ListTableModel<String>() {
+			@Override
+			public Object getColumnValue(String item, int columnIndex) {
+				return item;
+			}
+		};
+		model.setColumnNames(new String[] {"Name"});
+		model.setColumnTypes(new Class[] {String.class});
+		
+		items = new ArrayList<String>();
+		for(int i = 0; i < 10; i++) {
+			items.add(new String("item" + i));
+		}
+		model.setData(new ArrayList<String>(items));
+	}
+	
+	@Test
+	public void testGetItemRowAfterRemovingFromTheStart() {
+		assertEquals(5, model.getItemRow(items.get(5)));
+		
+		model.removeRow(items.get(0));
+		model.removeRowAt(0);
+		model.removeRows(Arrays.asList(items.get(2), items.get(3)));
+		
+		assertEquals(1, model.getItemRow(items.get(5)));
+		assertEquals(5, model.getItemRow(items.get(9)));
+		assertEquals(-1, model.getItemRow(items.get(0)));
+	}
+	
+	@Test
+	public void testGetItemRowAfterRemovingFromTheMiddle() {
+		assertEquals(9, model.getItemRow(items.get(9)));
+		
+		model.removeRow(items.get(4));
+		model.removeRows(Arrays.asList(items.get(6), items.get(7)));
+		
+		assertEquals(3, model.getItemRow(items.get(3)));
+		assertEquals(4, model.getItemRow(items.get(5)));
+		assertEquals(6, model.getItemRow(items.get(9)));
+		assertEquals(-1, model.getItemRow(items.get(4)));
+	}
+	
+	@Test
+	public void testEqualItemsAreFound() {
+		assertEquals(3, model.getItemRow(new String("item3")));
+		
+		model.removeRow(new String("item3"));
+		assertEquals(9, model.getRowCount());
+		assertEquals(-1, model.getItemRow(items.get(3)));
+	}
+	
+	@Test
+	public void testAddedAndReplacedItemsAreFound() {
+		assertEquals(0, model.getItemRow(items.get(0)));
+		
+		String added = new String("added");
+		model.addRow(added);
+		String replacement = new String("replacement");
+		model.setRowItem(2, replacement);
+		
+		assertEquals(10, model.getItemRow(added));
+		assertEquals(2, model.getItemRow(replacement));
+		assertEquals(-1, model.getItemRow(items.get(2)));
+	}
+	
+	@Test
+	public void testDuplicateItemIsFoundAtFirstRow() {
+		model.addRow(items.get(1));
+		
+		assertEquals(1, model.getItemRow(items.get(1)));
+		
+		model.removeRowAt(1);
+		assertEquals(9, model.getItemRow(items.get(1)));
+	}
+	
+	@Test
+	public void testGetItemRowMatchesIndexOfAfterRandomChanges() {
+		Random random = new Random(7);
+		List<String> pool = CollectionFactory.newArrayList(items);
+		for(int i = 0; i < 2000; i++) {
+			int size = model.getRowCount();
+			switch(random.nextInt(5)) {
+			case 0:
+				String item = new String("new" + i);
+				pool.add(item);
+				model.addRow(item);
+				break;
+			case 1:
+				if(size > 0) model.removeRowAt(random.nextInt(Math.min(size, 3)));
+				break;
+			case 2:
+				if(size > 0) model.removeRowAt(random.nextInt(size));
+				break;
+			case 3:
+				if(size > 0) model.setRowItem(random.nextInt(size), pool.get(random.nextInt(pool.size())));
+				break;
+			case 4:
+				String lookup = pool.get(random.nextInt(pool.size()));
+				assertEquals(model.getData().indexOf(lookup), model.getItemRow(lookup));
+				break;
+			}
+		}
+		
+		for(String item: pool) {
+			assertEquals(model.getData().indexOf(item), model.getItemRow(item));
+		}
+	}
+}
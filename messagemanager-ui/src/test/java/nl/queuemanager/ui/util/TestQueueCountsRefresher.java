@@ -0,0 +1,106 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import nl.queuemanager.core.configuration.CoreConfiguration;
+import nl.queuemanager.core.task.TaskExecutor;
+import nl.queuemanager.core.tasks.EnumerateQueuesTask;
+import nl.queuemanager.core.tasks.TaskFactory;
+import nl.queuemanager.jms.JMSBroker;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.awt.Component;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.*;
+
+public class TestQueueCountsRefresher {
+
+	private static final long INTERVAL = 5000;
+
+	private TaskExecutor worker;
+	private TaskFactory taskFactory;
+	private JMSBroker broker;
+	private Component component;
+	private QueueCountsRefresher refresher;
+	private long start;
+
+	@Before
+	public void setUp() {
+		worker = mock(TaskExecutor.class);
+		taskFactory = mock(TaskFactory.class);
+		broker = mock(JMSBroker.class);
+		component = mock(Component.class);
+		when(component.isShowing()).thenReturn(true);
+		when(taskFactory.enumerateQueues(broker, null))
+			.thenAnswer(invocation -> mock(EnumerateQueuesTask.class));
+
+		CoreConfiguration config = mock(CoreConfiguration.class);
+		when(config.getUserPref(CoreConfiguration.PREF_AUTOREFRESH_INTERVAL, CoreConfiguration.DEFAULT_AUTOREFRESH_INTERVAL))
+			.thenReturn(String.valueOf(INTERVAL));
+
+		refresher = new QueueCountsRefresher(worker, config, taskFactory, null);
+		refresher.registerInterest(broker, component);
+		start = System.currentTimeMillis();
+	}
+
+	@Test
+	public void testRefreshIsSkippedWhileInFlight() {
+		refresher.refreshBrokers(start + INTERVAL);
+		refresher.refreshBrokers(start + 2 * INTERVAL);
+		refresher.refreshBrokers(start + 3 * INTERVAL);
+
+		verify(worker, times(1)).execute(any(EnumerateQueuesTask.class));
+		assertEquals(2, refresher.getStatistics(broker).getSkipCount());
+	}
+
+	@Test
+	public void testIntervalAdaptsToLatency() {
+		EnumerateQueuesTask task = refreshOnce(start + INTERVAL);
+		refresher.taskStarted(task, start + INTERVAL);
+		refresher.taskFinished(task, start + 3 * INTERVAL);
+
+		assertEquals(2 * INTERVAL, refresher.getStatistics(broker).getLastDuration());
+		assertEquals(10 * INTERVAL, refresher.getStatistics(broker).getInterval());
+
+		refresher.refreshBrokers(start + 5 * INTERVAL);
+		verify(worker, times(1)).execute(any(EnumerateQueuesTask.class));
+
+		refresher.refreshBrokers(start + 11 * INTERVAL);
+		verify(worker, times(2)).execute(any(EnumerateQueuesTask.class));
+	}
+
+	@Test
+	public void testHiddenBrokerBacksOff() {
+		when(component.isShowing()).thenReturn(false);
+
+		refresher.refreshBrokers(start + INTERVAL);
+		verify(worker, never()).execute(any(EnumerateQueuesTask.class));
+		assertEquals(QueueCountsRefresher.HIDDEN_FACTOR * INTERVAL, refresher.getStatistics(broker).getInterval());
+
+		refresher.refreshBrokers(start + QueueCountsRefresher.HIDDEN_FACTOR * INTERVAL);
+		verify(worker, times(1)).execute(any(EnumerateQueuesTask.class));
+	}
+
+	private EnumerateQueuesTask refreshOnce(long now) {
+		refresher.refreshBrokers(now);
+		ArgumentCaptor<EnumerateQueuesTask> task = ArgumentCaptor.forClass(EnumerateQueuesTask.class);
+		verify(worker).execute(task.capture());
+		return task.getValue();
+	}
+}
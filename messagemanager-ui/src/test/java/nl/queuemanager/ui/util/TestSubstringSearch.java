@@ -0,0 +1,67 @@
+/**
+
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.queuemanager.ui.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TestSubstringSearch {
+	@Test
+	public void testEmptyPattern() {
+		assertTrue(SubstringSearch.compile(null).isEmpty());
+		assertTrue(SubstringSearch.compile("").isContainedIn("abc".toCharArray()));
+	}
+
+	@Test
+	public void testFindsOccurrences() {
+		char[] text = "the quick brown fox jumps over the lazy dog".toCharArray();
+		assertEquals(4, SubstringSearch.compile("quick").indexIn(text, 0, text.length));
+		assertEquals(40, SubstringSearch.compile("dog").indexIn(text, 0, text.length));
+		assertEquals(0, SubstringSearch.compile("t").indexIn(text, 0, text.length));
+		assertEquals(31, SubstringSearch.compile("the").indexIn(text, 1, text.length));
+		assertEquals(-1, SubstringSearch.compile("cat").indexIn(text, 0, text.length));
+		assertEquals(-1, SubstringSearch.compile("dog").indexIn(text, 0, text.length - 1));
+	}
+
+	@Test
+	public void testCharactersSharingShiftEntries() {
+		// š and 'a' share the low byte 0x61
+		char[] text = "xxšašaay".toCharArray();
+		assertEquals(4, SubstringSearch.compile("šaa").indexIn(text, 0, text.length));
+	}
+
+	@Test
+	public void testAgreesWithIndexOf() {
+		Random random = new Random(42);
+		for(int n = 0; n < 1000; n++) {
+			String text = randomString(random, random.nextInt(50));
+			String pattern = randomString(random, 1 + random.nextInt(4));
+			assertEquals(text + " / " + pattern, text.indexOf(pattern),
+					SubstringSearch.compile(pattern).indexIn(text.toCharArray(), 0, text.length()));
+		}
+	}
+
+	private static String randomString(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < length; i++) {
+			sb.append((char)('a' + random.nextInt(3)));
+		}
+		return sb.toString();
+	}
+}